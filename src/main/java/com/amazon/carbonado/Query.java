@@ -260,6 +260,29 @@ public interface Query<S extends Storable> {
      */
     Query<S> orderBy(String... properties) throws FetchException;
 
+    /**
+     * Returns a copy of this query which only needs to load the given
+     * properties of fetched storables. Primary key and version properties,
+     * and the properties this query is ordered by, are always loaded. Other
+     * properties may be left {@link Storable#isPropertyUninitialized
+     * uninitialized}, and so they shouldn't be accessed.
+     *
+     * <p>Only the JDBC repository currently loads a subset of properties,
+     * by narrowing the select list. Other repositories, including BDB and
+     * Map, still decode all properties of each record, and so selecting
+     * properties doesn't make fetches any cheaper for them.
+     *
+     * <p>Note: Selection of properties is not cumulative. Calling this method
+     * will first remove any previously selected properties. If no properties
+     * are given, all properties are loaded.
+     *
+     * @param properties names of properties to load
+     * @throws FetchException if storage layer throws an exception
+     * @throws IllegalArgumentException if any property is not a member of
+     * type S, or if it is a join or derived property
+     */
+    Query<S> select(String... properties) throws FetchException;
+
     /**
      * Returns a query which fetches results for this query after a given
      * starting point, which is useful for re-opening a cursor. This is only
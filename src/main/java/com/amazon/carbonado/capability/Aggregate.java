@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.capability;
+
+import java.math.BigDecimal;
+
+import org.cojen.classfile.TypeDesc;
+
+/**
+ * Describes an aggregate function computed over a group of storables, as
+ * supported by {@link AggregateCapability}. Null property values are ignored
+ * by all functions, as in SQL.
+ *
+ * <p>Aggregate instances are thread-safe and immutable.
+ *
+ * @see AggregateCapability
+ */
+public final class Aggregate {
+    /**
+     * Aggregate functions.
+     */
+    public static enum Function {
+        /** Counts the members of the group */
+        COUNT,
+        /** Sums the non-null values of a numeric property */
+        SUM,
+        /** Finds the smallest non-null value of a property */
+        MIN,
+        /** Finds the largest non-null value of a property */
+        MAX
+    }
+
+    private static final Aggregate COUNT = new Aggregate(Function.COUNT, null);
+
+    /**
+     * Returns an aggregate which counts the members of each group, as a Long.
+     */
+    public static Aggregate count() {
+        return COUNT;
+    }
+
+    /**
+     * Returns an aggregate which sums the values of the given property. The
+     * sum of an integral property is a Long, the sum of a float or double
+     * property is a Double, and the sum of a BigDecimal property is a
+     * BigDecimal. The sum is null if all values are null.
+     *
+     * @param propertyName name of numeric property
+     */
+    public static Aggregate sum(String propertyName) {
+        return new Aggregate(Function.SUM, propertyName);
+    }
+
+    /**
+     * Returns an aggregate which finds the smallest value of the given
+     * property, or null if all values are null.
+     */
+    public static Aggregate min(String propertyName) {
+        return new Aggregate(Function.MIN, propertyName);
+    }
+
+    /**
+     * Returns an aggregate which finds the largest value of the given
+     * property, or null if all values are null.
+     */
+    public static Aggregate max(String propertyName) {
+        return new Aggregate(Function.MAX, propertyName);
+    }
+
+    private final Function mFunction;
+    private final String mPropertyName;
+
+    private Aggregate(Function function, String propertyName) {
+        if (function != Function.COUNT && propertyName == null) {
+            throw new IllegalArgumentException("Property name is required for " + function);
+        }
+        mFunction = function;
+        mPropertyName = propertyName;
+    }
+
+    public Function getFunction() {
+        return mFunction;
+    }
+
+    /**
+     * Returns the name of the property to aggregate, or null if function is
+     * COUNT.
+     */
+    public String getPropertyName() {
+        return mPropertyName;
+    }
+
+    /**
+     * Returns the type of value computed by this aggregate, when applied to a
+     * property of the given type.
+     *
+     * @param propertyType type of property, which is ignored by COUNT
+     * @throws IllegalArgumentException if property type is not supported
+     */
+    public Class<?> getResultType(Class<?> propertyType) {
+        if (mFunction == Function.COUNT) {
+            return Long.class;
+        }
+
+        Class<?> type = TypeDesc.forClass(propertyType).toObjectType().toClass();
+
+        if (mFunction == Function.SUM) {
+            if (type == Long.class || type == Integer.class
+                || type == Short.class || type == Byte.class)
+            {
+                return Long.class;
+            }
+            if (type == Double.class || type == Float.class) {
+                return Double.class;
+            }
+            if (type == BigDecimal.class) {
+                return BigDecimal.class;
+            }
+            throw new IllegalArgumentException
+                ("Cannot sum property \"" + mPropertyName + "\" of type " + propertyType.getName());
+        }
+
+        if (type == null || !Comparable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException
+                ("Cannot compare property \"" + mPropertyName + "\" of type " +
+                 propertyType.getName());
+        }
+
+        return type;
+    }
+
+    @Override
+    public int hashCode() {
+        return mFunction.hashCode() * 31
+            + (mPropertyName == null ? 0 : mPropertyName.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof Aggregate) {
+            Aggregate other = (Aggregate) obj;
+            return mFunction == other.mFunction
+                && (mPropertyName == null ? other.mPropertyName == null
+                    : mPropertyName.equals(other.mPropertyName));
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        String name = mFunction.name().toLowerCase();
+        return mPropertyName == null ? (name + "()") : (name + '(' + mPropertyName + ')');
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.capability;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Capability for computing aggregates over the results of a query. The JDBC
+ * repository computes the aggregates where the data resides, when possible,
+ * without loading every storable. Other repositories compute the same
+ * results by streaming the query results through an {@link
+ * com.amazon.carbonado.cursor.AggregateCursor AggregateCursor}.
+ *
+ * <pre>
+ * AggregateCapability cap = repo.getCapability(AggregateCapability.class);
+ * Query&lt;Order&gt; query = repo.storageFor(Order.class).query("status = ?").with("shipped");
+ * Cursor&lt;Object[]&gt; totals = cap.aggregate
+ *     (query, new String[] {"customerID"}, Aggregate.count(), Aggregate.sum("total"));
+ * </pre>
+ */
+public interface AggregateCapability extends Capability {
+    /**
+     * Computes aggregates over the results of the given query, with one row
+     * for each distinct combination of group properties. Each row contains
+     * the group property values, followed by the aggregate values, in the
+     * order given. Rows are ordered by the group properties, ascending. If no
+     * group properties are given, exactly one row is produced, even if the
+     * query has no results. The ordering of the query is ignored.
+     *
+     * @param query query whose results are aggregated
+     * @param groupBy names of properties to group by, which may be empty
+     * @param aggregates aggregates to compute for each group
+     * @return cursor over rows of group and aggregate values
+     * @throws IllegalArgumentException if any property is unknown or of an
+     * unsupported type
+     * @throws IllegalStateException if query has any blank parameters
+     */
+    <S extends Storable> Cursor<Object[]> aggregate(Query<S> query, String[] groupBy,
+                                                     Aggregate... aggregates)
+        throws FetchException;
+}
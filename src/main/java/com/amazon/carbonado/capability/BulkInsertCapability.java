@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.capability;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Capability for inserting many storables at once, which is much faster than
+ * inserting them one at a time. Storables are inserted using statements which
+ * insert multiple rows, and sequence values are reserved in blocks.
+ *
+ * <p>Storables are inserted as if by calling {@link Storable#insert insert},
+ * except they are not reloaded afterwards. The properties of each inserted
+ * storable are marked clean. If the storable type has triggers, or if it
+ * requires values to be generated by the database, storables are inserted
+ * one at a time.
+ *
+ * <p>Bulk operations are not atomic unless performed within a transaction. If
+ * an operation fails, storables inserted before the failure remain inserted,
+ * and the exception doesn't identify which storable failed.
+ */
+public interface BulkInsertCapability extends Capability {
+    /**
+     * Inserts all the given storables.
+     *
+     * @return amount of storables inserted
+     * @throws com.amazon.carbonado.UniqueConstraintException if any storable
+     * has the same key as an existing one
+     */
+    <S extends Storable> long insertAll(Class<S> storableType, Iterable<? extends S> storables)
+        throws RepositoryException;
+
+    /**
+     * Inserts all the storables produced by the given cursor, which is closed
+     * when done.
+     *
+     * @return amount of storables inserted
+     * @throws com.amazon.carbonado.UniqueConstraintException if any storable
+     * has the same key as an existing one
+     */
+    <S extends Storable> long insertAll(Class<S> storableType, Cursor<? extends S> storables)
+        throws RepositoryException;
+
+    /**
+     * Inserts all the given storables, replacing any existing ones which have
+     * the same primary key. If the database doesn't support combined insert
+     * or update statements, each storable is updated, and it is inserted if
+     * the update found nothing.
+     *
+     * @return amount of storables inserted or updated
+     */
+    <S extends Storable> long upsertAll(Class<S> storableType, Iterable<? extends S> storables)
+        throws RepositoryException;
+
+    /**
+     * Inserts all the storables produced by the given cursor, replacing any
+     * existing ones which have the same primary key. The cursor is closed when
+     * done.
+     *
+     * @return amount of storables inserted or updated
+     * @see #upsertAll(Class, Iterable)
+     */
+    <S extends Storable> long upsertAll(Class<S> storableType, Cursor<? extends S> storables)
+        throws RepositoryException;
+}
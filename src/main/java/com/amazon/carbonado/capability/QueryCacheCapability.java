@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.capability;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Capability for getting statistics about the query executor caches of
+ * storables. Statistics can be used to choose an appropriate cache capacity,
+ * which is set with the "com.amazon.carbonado.qe.QueryExecutorCache.minCapacity"
+ * system property.
+ *
+ * @see QueryCacheStats
+ */
+public interface QueryCacheCapability extends Capability {
+    /**
+     * Returns statistics for the query executor cache of the given storable
+     * type, or null if the type's storage doesn't cache executors.
+     */
+    <S extends Storable> QueryCacheStats getQueryCacheStats(Class<S> storableType)
+        throws RepositoryException;
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.capability;
+
+/**
+ * Snapshot of the statistics of a query executor cache. Counts accumulate
+ * from the time the cache was created.
+ *
+ * <p>QueryCacheStats instances are thread-safe and immutable.
+ *
+ * @see QueryCacheCapability
+ */
+public interface QueryCacheStats {
+    /**
+     * Returns the amount of executors currently in the cache.
+     */
+    int getSize();
+
+    /**
+     * Returns the maximum amount of executors the cache retains. When full,
+     * the least recently used executors are approximately chosen for eviction.
+     */
+    int getCapacity();
+
+    /**
+     * Returns the amount of lookups which found an executor in the cache.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the amount of lookups which didn't find an executor in the
+     * cache. Missed executors are either created or recovered from a
+     * secondary cache of softly referenced executors.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the amount of executors evicted from the cache to stay within
+     * its capacity.
+     */
+    long getEvictionCount();
+}
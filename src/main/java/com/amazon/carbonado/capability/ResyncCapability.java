@@ -65,6 +65,60 @@ public interface ResyncCapability extends Capability {
                                      Object... filterValues)
         throws RepositoryException;
 
+    /**
+     * Re-synchronizes replicated storables against the master repository,
+     * splitting the work into key ranges which are re-sync'd concurrently.
+     * Each range commits its changes to the replica in small batches, and so
+     * a failed re-sync leaves behind only the changes made by completed
+     * batches. If the storable type cannot be split into ranges, the re-sync
+     * runs on the calling thread.
+     *
+     * <p>Listener callbacks are invoked by multiple threads concurrently,
+     * each in the scope of its own resync transaction.
+     *
+     * @param type type of storable to re-sync
+     * @param listener optional listener which gets notified as storables are re-sync'd
+     * @param desiredSpeed throttling parameter, applied to each range - 1.0 =
+     * full speed, 0.5 = half speed, 0.1 = one-tenth speed, etc
+     * @param parallelism maximum amount of key ranges to re-sync concurrently
+     * @param filter optional query filter to limit which objects get re-sync'ed
+     * @param filterValues filter values for optional filter
+     * @throws IllegalArgumentException if parallelism is less than one
+     */
+    <S extends Storable> void resync(Class<S> type,
+                                     Listener<? super S> listener,
+                                     double desiredSpeed,
+                                     int parallelism,
+                                     String filter,
+                                     Object... filterValues)
+        throws RepositoryException;
+
+    /**
+     * Re-synchronizes replicated storables against the master repository,
+     * only comparing storables within key ranges whose checksums differ.
+     * Checksums are computed separately by scanning the master and replica,
+     * and ranges which differ are split into smaller ranges, until they are
+     * small enough to be compared storable by storable. Replica transactions
+     * are only entered for ranges which differ, and so a consistency check
+     * over mostly identical data is far less disruptive than a full re-sync.
+     *
+     * <p>If checksums cannot be computed for the storable type, a full
+     * re-sync is performed instead.
+     *
+     * @param type type of storable to re-sync
+     * @param listener optional listener which gets notified as storables are re-sync'd
+     * @param desiredSpeed throttling parameter - 1.0 = full speed, 0.5 = half
+     * speed, 0.1 = one-tenth speed, etc
+     * @param filter optional query filter to limit which objects get re-sync'ed
+     * @param filterValues filter values for optional filter
+     */
+    <S extends Storable> void incrementalResync(Class<S> type,
+                                                Listener<? super S> listener,
+                                                double desiredSpeed,
+                                                String filter,
+                                                Object... filterValues)
+        throws RepositoryException;
+
     /**
      * Returns the immediate master Repository, for manual comparison. Direct
      * updates to the master will likely create inconsistencies.
@@ -202,5 +256,23 @@ public interface ResyncCapability extends Capability {
         @Override
         public void failedDelete(S oldStorable, Object state) {
         }
+
+        /**
+         * Called periodically as the re-sync progresses, and once more when
+         * it finishes. Calls are made outside any resync transaction,
+         * possibly by a separate thread, and they are never made
+         * concurrently. The amount of examined entries
+         * divided by the elapsed time is the current throughput.
+         *
+         * @param completedRanges amount of key ranges which have finished
+         * @param totalRanges total amount of key ranges being re-sync'd
+         * @param examinedCount amount of entries examined so far
+         * @param repairedCount amount of entries inserted, updated or deleted so far
+         * @param elapsedMillis milliseconds elapsed since the re-sync started
+         */
+        public void progress(int completedRanges, int totalRanges,
+                             long examinedCount, long repairedCount, long elapsedMillis)
+        {
+        }
     }
 }
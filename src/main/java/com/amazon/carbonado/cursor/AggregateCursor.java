@@ -0,0 +1,323 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.math.BigDecimal;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.capability.Aggregate;
+
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Computes aggregates over a cursor of storables, producing one row for each
+ * group. Each row contains the group property values, followed by the
+ * aggregate values. The source cursor must be ordered by the group
+ * properties. If no group properties are given, exactly one row is produced,
+ * even if the source cursor is empty.
+ *
+ * @see com.amazon.carbonado.capability.AggregateCapability
+ */
+public class AggregateCursor<S extends Storable> extends GroupedCursor<S, Object[]> {
+    /**
+     * Computes aggregates over the results of the given query, by fetching
+     * all of them ordered by the group properties. The ordering of the query
+     * is ignored.
+     *
+     * @param query query whose results are aggregated
+     * @param groupBy names of properties to group by, which may be empty
+     * @param aggregates aggregates to compute for each group
+     * @throws IllegalArgumentException if any property is unknown or of an
+     * unsupported type
+     */
+    public static <S extends Storable> Cursor<Object[]> fetch(Query<S> query, String[] groupBy,
+                                                              Aggregate... aggregates)
+        throws FetchException
+    {
+        if (groupBy.length > 0) {
+            query = query.orderBy(groupBy);
+        }
+        Cursor<S> cursor = query.fetch();
+        try {
+            return new AggregateCursor<S>(cursor, query.getStorableType(), groupBy, aggregates);
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    private static final int SUM_LONG = 0, SUM_DOUBLE = 1, SUM_BIG_DECIMAL = 2;
+
+    private final String[] mGroupBy;
+    private final Aggregate[] mAggregates;
+    private final int[] mSumKinds;
+
+    // Accumulated state for each aggregate of the current group.
+    private final long[] mLongs;
+    private final double[] mDoubles;
+    private final Object[] mObjects;
+    private final boolean[] mSeen;
+
+    private Object[] mGroupValues;
+
+    private boolean mProduced;
+    private Object[] mEmptyRow;
+
+    /**
+     * @param cursor source of storables, which must be ordered by the group
+     * properties
+     * @param type type of storables
+     * @param groupBy names of properties to group by, which may be empty
+     * @param aggregates aggregates to compute for each group
+     * @throws IllegalArgumentException if any property is unknown or of an
+     * unsupported type
+     */
+    public AggregateCursor(Cursor<S> cursor, Class<S> type, String[] groupBy,
+                           Aggregate... aggregates)
+    {
+        super(cursor, groupComparator(type, groupBy));
+
+        Map<String, ? extends StorableProperty<S>> properties =
+            StorableIntrospector.examine(type).getAllProperties();
+
+        for (String name : groupBy) {
+            property(properties, name);
+        }
+
+        int[] sumKinds = new int[aggregates.length];
+        for (int i=0; i<aggregates.length; i++) {
+            Aggregate aggregate = aggregates[i];
+            Class<?> propertyType = null;
+            if (aggregate.getPropertyName() != null) {
+                propertyType = property(properties, aggregate.getPropertyName()).getType();
+            }
+            Class<?> resultType = aggregate.getResultType(propertyType);
+            if (resultType == Double.class) {
+                sumKinds[i] = SUM_DOUBLE;
+            } else if (resultType == BigDecimal.class) {
+                sumKinds[i] = SUM_BIG_DECIMAL;
+            } else {
+                sumKinds[i] = SUM_LONG;
+            }
+        }
+
+        mGroupBy = groupBy.clone();
+        mAggregates = aggregates.clone();
+        mSumKinds = sumKinds;
+
+        mLongs = new long[aggregates.length];
+        mDoubles = new double[aggregates.length];
+        mObjects = new Object[aggregates.length];
+        mSeen = new boolean[aggregates.length];
+    }
+
+    @Override
+    public boolean hasNext() throws FetchException {
+        if (mEmptyRow != null) {
+            return true;
+        }
+        if (super.hasNext()) {
+            mProduced = true;
+            return true;
+        }
+        if (!mProduced && mGroupBy.length == 0) {
+            // Aggregate over nothing still produces a row, as in SQL.
+            mProduced = true;
+            mGroupValues = new Object[0];
+            clearAccumulators();
+            mEmptyRow = finishGroup();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] next() throws FetchException {
+        if (hasNext()) {
+            Object[] row = mEmptyRow;
+            if (row == null) {
+                return super.next();
+            }
+            mEmptyRow = null;
+            return row;
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int skipNext(int amount) throws FetchException {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot skip negative amount: " + amount);
+        }
+        int count = 0;
+        while (--amount >= 0 && hasNext()) {
+            next();
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws FetchException {
+        super.close();
+        mEmptyRow = null;
+        mGroupValues = null;
+    }
+
+    @Override
+    protected void beginGroup(S groupLeader) throws FetchException {
+        String[] groupBy = mGroupBy;
+        Object[] groupValues = new Object[groupBy.length];
+        for (int i=0; i<groupBy.length; i++) {
+            groupValues[i] = groupLeader.getPropertyValue(groupBy[i]);
+        }
+        mGroupValues = groupValues;
+        clearAccumulators();
+        addToGroup(groupLeader);
+    }
+
+    @Override
+    protected void addToGroup(S groupMember) throws FetchException {
+        Aggregate[] aggregates = mAggregates;
+        for (int i=0; i<aggregates.length; i++) {
+            Aggregate aggregate = aggregates[i];
+
+            if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+                mLongs[i]++;
+                continue;
+            }
+
+            Object value = groupMember.getPropertyValue(aggregate.getPropertyName());
+            if (value == null) {
+                continue;
+            }
+
+            switch (aggregate.getFunction()) {
+            case SUM:
+                switch (mSumKinds[i]) {
+                case SUM_LONG: default:
+                    mLongs[i] += ((Number) value).longValue();
+                    break;
+                case SUM_DOUBLE:
+                    mDoubles[i] += ((Number) value).doubleValue();
+                    break;
+                case SUM_BIG_DECIMAL:
+                    BigDecimal sum = (BigDecimal) mObjects[i];
+                    mObjects[i] = sum == null ? value : sum.add((BigDecimal) value);
+                    break;
+                }
+                break;
+
+            case MIN: case MAX:
+                Object current = mObjects[i];
+                if (current == null) {
+                    mObjects[i] = value;
+                } else {
+                    int result = ((Comparable) value).compareTo(current);
+                    if (aggregate.getFunction() == Aggregate.Function.MIN
+                        ? result < 0 : result > 0)
+                    {
+                        mObjects[i] = value;
+                    }
+                }
+                break;
+            }
+
+            mSeen[i] = true;
+        }
+    }
+
+    @Override
+    protected Object[] finishGroup() throws FetchException {
+        Object[] groupValues = mGroupValues;
+        Aggregate[] aggregates = mAggregates;
+
+        Object[] row = new Object[groupValues.length + aggregates.length];
+        System.arraycopy(groupValues, 0, row, 0, groupValues.length);
+
+        int pos = groupValues.length;
+        for (int i=0; i<aggregates.length; i++) {
+            Object value;
+            switch (aggregates[i].getFunction()) {
+            case COUNT:
+                value = mLongs[i];
+                break;
+            case SUM:
+                if (!mSeen[i]) {
+                    value = null;
+                } else if (mSumKinds[i] == SUM_LONG) {
+                    value = mLongs[i];
+                } else if (mSumKinds[i] == SUM_DOUBLE) {
+                    value = mDoubles[i];
+                } else {
+                    value = mObjects[i];
+                }
+                break;
+            default:
+                value = mObjects[i];
+                break;
+            }
+            row[pos++] = value;
+        }
+
+        return row;
+    }
+
+    private void clearAccumulators() {
+        for (int i=0; i<mAggregates.length; i++) {
+            mLongs[i] = 0;
+            mDoubles[i] = 0;
+            mObjects[i] = null;
+            mSeen[i] = false;
+        }
+    }
+
+    private static <S extends Storable> Comparator<S> groupComparator(Class<S> type,
+                                                                      String[] groupBy)
+    {
+        if (groupBy.length > 0) {
+            return SortedCursor.createComparator(type, groupBy);
+        }
+        // Everything belongs to one group.
+        return new Comparator<S>() {
+            public int compare(S a, S b) {
+                return 0;
+            }
+        };
+    }
+
+    private static <S extends Storable> StorableProperty<S> property
+        (Map<String, ? extends StorableProperty<S>> properties, String name)
+    {
+        StorableProperty<S> property = properties.get(name);
+        if (property == null) {
+            throw new IllegalArgumentException("Unknown property: " + name);
+        }
+        return property;
+    }
+}
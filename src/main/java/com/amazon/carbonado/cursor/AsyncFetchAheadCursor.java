@@ -0,0 +1,256 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.util.NoSuchElementException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.Query;
+
+import com.amazon.carbonado.util.WorkerPool;
+
+/**
+ * Cursor implementation which fetches records in advance using a background
+ * thread, allowing fetch latency of the source cursor to overlap with the
+ * processing of records by the caller. Fetched records are held in a bounded
+ * queue. Any exception thrown by the source cursor is thrown by this cursor
+ * when reached.
+ *
+ * <p>The source cursor is accessed only by the background thread, and so it
+ * must not depend on being accessed by the thread which opened it. If this
+ * cursor is closed while the background thread is blocked fetching a record,
+ * the source cursor is closed later by the background thread. Within a
+ * transaction, the caller must not issue other operations which use the same
+ * underlying connection while this cursor is open.
+ *
+ * <p>Background threads are drawn from the shared {@link WorkerPool}. If none
+ * is available, records are fetched from the source by the caller, without
+ * fetching ahead.
+ *
+ * @see FetchAheadCursor
+ * @since 1.2
+ */
+public class AsyncFetchAheadCursor<S> extends AbstractCursor<S> {
+    private static final Object END = new Object();
+
+    // Amount of time to wait before checking for cancellation.
+    private static final long POLL_MILLIS = 100;
+
+    private final Cursor<S> mSource;
+    private final Query.Controller mController;
+    private final BlockingQueue<Object> mQueue;
+
+    // Is true if no background thread is fetching.
+    private final boolean mDirect;
+
+    // Both are guarded by the queue lock, and whichever is set second is
+    // responsible for closing the source.
+    private volatile boolean mClosed;
+    private volatile boolean mFinished;
+
+    private Object mNext;
+    private boolean mEnd;
+
+    /**
+     * @param source source cursor, which is closed when this cursor is closed
+     * @param fetchAhead maximum amount of records to fetch ahead from source
+     * @throws IllegalArgumentException if fetchAhead is less than one
+     */
+    public AsyncFetchAheadCursor(Cursor<S> source, int fetchAhead) {
+        this(source, fetchAhead, null);
+    }
+
+    /**
+     * @param source source cursor, which is closed when this cursor is closed
+     * @param fetchAhead maximum amount of records to fetch ahead from source
+     * @param controller optional controller which is checked while waiting
+     * for the background thread
+     * @throws IllegalArgumentException if fetchAhead is less than one
+     */
+    public AsyncFetchAheadCursor(Cursor<S> source, int fetchAhead, Query.Controller controller) {
+        if (source == null) {
+            throw new IllegalArgumentException();
+        }
+        if (fetchAhead < 1) {
+            throw new IllegalArgumentException("Fetch ahead amount must be positive");
+        }
+        mSource = source;
+        mController = controller;
+        mQueue = new ArrayBlockingQueue<Object>(fetchAhead + 1);
+        if (WorkerPool.tryExecute(new Fetcher())) {
+            mDirect = false;
+        } else {
+            mDirect = true;
+            // Source is closed by the caller.
+            mFinished = true;
+        }
+    }
+
+    public void close() throws FetchException {
+        boolean closeSource;
+        synchronized (mQueue) {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            closeSource = mFinished;
+        }
+
+        mNext = null;
+        mEnd = true;
+
+        // Unblock fetcher, which then stops.
+        mQueue.clear();
+
+        if (closeSource) {
+            mSource.close();
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+        if (mEnd) {
+            return false;
+        }
+
+        if (mDirect) {
+            if (mSource.hasNext()) {
+                mNext = mSource.next();
+                return true;
+            }
+            mEnd = true;
+            return false;
+        }
+
+        Object next;
+        try {
+            while ((next = mQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (mFinished && mQueue.isEmpty()) {
+                    // Fetcher was interrupted without finishing.
+                    mEnd = true;
+                    throw new FetchInterruptedException();
+                }
+                Query.Controller controller = mController;
+                if (controller != null) {
+                    try {
+                        controller.continueCheck();
+                    } catch (FetchException e) {
+                        try {
+                            close();
+                        } catch (FetchException e2) {
+                            // Ignore and allow triggering exception to propagate.
+                        }
+                        throw e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new FetchInterruptedException(e);
+        }
+
+        if (next == END) {
+            mEnd = true;
+            return false;
+        }
+
+        if (next instanceof Throwable) {
+            mEnd = true;
+            try {
+                close();
+            } catch (FetchException e) {
+                // Ignore and allow triggering exception to propagate.
+            }
+            if (next instanceof FetchException) {
+                throw (FetchException) next;
+            }
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            if (next instanceof Error) {
+                throw (Error) next;
+            }
+            throw new FetchException((Throwable) next);
+        }
+
+        mNext = next;
+        return true;
+    }
+
+    public S next() throws FetchException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object next = mNext;
+        mNext = null;
+        return (S) next;
+    }
+
+    private class Fetcher implements Runnable {
+        public void run() {
+            try {
+                Cursor<S> source = mSource;
+                while (!mClosed && source.hasNext()) {
+                    if (!put(source.next())) {
+                        return;
+                    }
+                }
+                put(END);
+            } catch (Throwable e) {
+                put(e);
+            } finally {
+                boolean closeSource;
+                synchronized (mQueue) {
+                    mFinished = true;
+                    closeSource = mClosed;
+                }
+                if (closeSource) {
+                    try {
+                        mSource.close();
+                    } catch (Throwable e) {
+                        // Nobody to report it to.
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return false if closed
+         */
+        private boolean put(Object obj) {
+            try {
+                while (!mClosed) {
+                    if (mQueue.offer(obj, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Treat as closed.
+            }
+            return false;
+        }
+    }
+}
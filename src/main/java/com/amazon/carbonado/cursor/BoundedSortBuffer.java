@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Sort buffer which only retains the lowest elements, up to a fixed
+ * limit. Elements are kept in a bounded heap, and so memory usage is
+ * proportional to the limit instead of the amount of elements added. This
+ * buffer is suitable for sorting results when only the first few are
+ * needed. Among elements which compare as equal, which ones are retained is
+ * unspecified.
+ *
+ * @see SortedCursor
+ * @since 1.2
+ */
+public class BoundedSortBuffer<S> extends AbstractCollection<S> implements SortBuffer<S> {
+    private static final int MIN_ARRAY_CAPACITY = 16;
+
+    private final int mLimit;
+
+    private Comparator<S> mComparator;
+
+    // Heap with the highest element first, unless sorted.
+    private Object[] mElements;
+    private int mSize;
+    private boolean mSorted;
+
+    /**
+     * @param limit maximum amount of elements to retain
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public BoundedSortBuffer(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit is negative: " + limit);
+        }
+        mLimit = limit;
+        mElements = new Object[Math.min(MIN_ARRAY_CAPACITY, limit)];
+    }
+
+    /**
+     * Returns the maximum amount of elements retained.
+     */
+    public int getLimit() {
+        return mLimit;
+    }
+
+    public void prepare(Comparator<S> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException();
+        }
+        clear();
+        mComparator = comparator;
+    }
+
+    /**
+     * Adds the element if fewer than the limit have been retained, or if it
+     * is lower than the highest retained element, which is then discarded.
+     *
+     * @return false if element was not retained
+     */
+    @Override
+    public boolean add(S element) {
+        Comparator<S> comparator = comparator();
+
+        if (mSorted) {
+            // Descending order is a valid heap.
+            reverse(mElements, mSize);
+            mSorted = false;
+        }
+
+        Object[] elements = mElements;
+        int size = mSize;
+
+        if (size < mLimit) {
+            if (size >= elements.length) {
+                int newCap = (int) Math.min((long) mLimit, elements.length * 2L);
+                Object[] newElements = new Object[newCap];
+                System.arraycopy(elements, 0, newElements, 0, size);
+                mElements = elements = newElements;
+            }
+            siftUp(comparator, elements, size, element);
+            mSize = size + 1;
+            return true;
+        }
+
+        if (size == 0 || comparator.compare(element, (S) elements[0]) >= 0) {
+            return false;
+        }
+
+        // Replace the highest element.
+        siftDown(comparator, elements, size, element);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public Iterator<S> iterator() {
+        return new Iterator<S>() {
+            private final Object[] mArray = mElements;
+            private final int mEnd = mSize;
+            private int mIndex;
+
+            public boolean hasNext() {
+                return mIndex < mEnd;
+            }
+
+            public S next() {
+                if (mIndex >= mEnd) {
+                    throw new NoSuchElementException();
+                }
+                return (S) mArray[mIndex++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mElements, 0, mSize, null);
+        mSize = 0;
+        mSorted = false;
+    }
+
+    public void sort() {
+        Comparator<S> comparator = comparator();
+        if (!mSorted) {
+            Arrays.sort((S[]) mElements, 0, mSize, comparator);
+            mSorted = true;
+        }
+    }
+
+    public void close() {
+        clear();
+    }
+
+    private Comparator<S> comparator() {
+        Comparator<S> comparator = mComparator;
+        if (comparator == null) {
+            throw new IllegalStateException("Buffer was not prepared");
+        }
+        return comparator;
+    }
+
+    private static <S> void siftUp(Comparator<S> comparator, Object[] heap, int pos, S element) {
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            Object p = heap[parent];
+            if (comparator.compare(element, (S) p) <= 0) {
+                break;
+            }
+            heap[pos] = p;
+            pos = parent;
+        }
+        heap[pos] = element;
+    }
+
+    private static <S> void siftDown(Comparator<S> comparator, Object[] heap, int size,
+                                     S element)
+    {
+        int pos = 0;
+        int half = size >> 1;
+        while (pos < half) {
+            int child = (pos << 1) + 1;
+            Object c = heap[child];
+            int right = child + 1;
+            if (right < size && comparator.compare((S) c, (S) heap[right]) < 0) {
+                c = heap[child = right];
+            }
+            if (comparator.compare(element, (S) c) >= 0) {
+                break;
+            }
+            heap[pos] = c;
+            pos = child;
+        }
+        heap[pos] = element;
+    }
+
+    private static void reverse(Object[] array, int size) {
+        for (int i=0, j=size-1; i<j; i++, j--) {
+            Object temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+}
@@ -18,8 +18,6 @@
 
 package com.amazon.carbonado.cursor;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -38,6 +36,16 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchInterruptedException;
 import com.amazon.carbonado.Query;
@@ -45,14 +53,17 @@ import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.SupportException;
 
-import com.amazon.carbonado.spi.RAFInputStream;
-import com.amazon.carbonado.spi.RAFOutputStream;
-
 /**
  * Sort buffer implemented via a merge sort algorithm. If there are too many
  * storables to fit in the reserved memory buffer, they are sorted and
  * serialized to temporary files.
  *
+ * <p>Storables are written to temporary files with {@link Storable#writeTo
+ * writeTo}, which emits the same compact encoding as the raw storage codecs,
+ * and they are read back with {@link Storable#readFrom readFrom}. Every
+ * property of an element is decoded when it is read, because the comparator
+ * is opaque and merged elements are returned to the caller.
+ *
  * <p>The following system properties can be set to change the default
  * performance characteristics of the merge sort. Each property name must be
  * prefixed with "com.amazon.carbonado.cursor.MergeSortBuffer."
@@ -67,8 +78,19 @@ import com.amazon.carbonado.spi.RAFOutputStream;
  *                                merges, but there is an increased risk of
  *                                running out of file descriptors.
  *
- * outputBufferSize    10000      Larger value may improve performance of file
- *                                writing, but not by much.
+ * outputBufferSize    65536      Size of blocks written to files. Larger value
+ *                                may improve performance of file writing, but
+ *                                not by much. Each file being merged has a
+ *                                buffer of this size.
+ *
+ * compress            false      When true, blocks are compressed, reducing
+ *                                disk usage and I/O at the cost of CPU.
+ *
+ * parallelism         1          When larger than one, full arrays are sorted
+ *                                and written to temp files by a fork-join pool
+ *                                of this many threads, and files are merged by
+ *                                up to this many tasks. The amount of memory
+ *                                used by each sort is multiplied accordingly.
  *
  * tmpdir                         Merge sort files by default are placed in the
  *                                Java temp directory. Override to place them
@@ -93,10 +115,22 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
 
     // Bigger may improve write performance, but not by much.
     private static final int OUTPUT_BUFFER_SIZE;
-    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 10000;
+    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 65536;
+
+    private static final boolean COMPRESS;
+
+    // Bigger uses more threads for sorting and merging.
+    private static final int PARALLELISM;
+    private static final int DEFAULT_PARALLELISM = 1;
+
+    // Amount of merged elements passed at a time by a background merge.
+    private static final int MERGE_CHUNK_SIZE = 256;
 
     private static final String TEMP_DIR;
 
+    // Shared by all sorts. Is null if parallelism is one.
+    private static final ForkJoinPool cPool;
+
     static {
         String prefix = MergeSortBuffer.class.getName() + '.';
 
@@ -109,6 +143,11 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         OUTPUT_BUFFER_SIZE = Integer.getInteger(prefix + "outputBufferSize",
                                                 DEFAULT_OUTPUT_BUFFER_SIZE);
 
+        COMPRESS = Boolean.getBoolean(prefix + "compress");
+
+        PARALLELISM = Math.max(1, Integer.getInteger(prefix + "parallelism",
+                                                     DEFAULT_PARALLELISM));
+
         // Null means use system temp dir.
         String tempDir = System.getProperty(prefix + "tmpdir", null);
 
@@ -120,6 +159,9 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         }
 
         TEMP_DIR = tempDir;
+
+        cPool = PARALLELISM <= 1 ? null :
+            new ForkJoinPool(PARALLELISM, new WorkerFactory(), null, false);
     }
 
     private final String mTempDir;
@@ -135,6 +177,10 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
     private WorkFilePool mWorkFilePool;
     private List<RandomAccessFile> mFilesInUse;
 
+    // Only used when parallelism is larger than one.
+    private List<Future<RandomAccessFile>> mSpills;
+    private List<MergeTask<S>> mMergeTasks;
+
     private Comparator<S> mComparator;
 
     private volatile boolean mStop;
@@ -262,13 +308,19 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                 }
             }
 
+            if (PARALLELISM > 1) {
+                spillInBackground(comparator);
+                mSize = 0;
+                break arrayPrep;
+            }
+
             Arrays.sort(mElements, comparator);
 
             RandomAccessFile raf;
             try {
                 raf = mWorkFilePool.acquireWorkFile(this);
                 OutputStream out =
-                    new BufferedOutputStream(new RAFOutputStream(raf), OUTPUT_BUFFER_SIZE);
+                    new WorkFileOutputStream(raf, OUTPUT_BUFFER_SIZE, COMPRESS);
 
                 if (mFilesInUse.size() < (MAX_OPEN_FILE_COUNT - 1)) {
                     mFilesInUse.add(raf);
@@ -279,74 +331,152 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                         element.writeTo(out);
                     }
                 } else {
-                    // Merge files together.
+                    mergeFiles(raf, out, true);
+                }
 
-                    // Determine the average length per file in use.
-                    long totalLength = 0;
-                    int fileCount = mFilesInUse.size();
-                    for (int i=0; i<fileCount; i++) {
-                        totalLength += mFilesInUse.get(i).length();
-                    }
+                out.flush();
+
+                // Truncate any data from last time file was used.
+                raf.setLength(raf.getFilePointer());
+                // Reset to start of file in preparation for reading later.
+                raf.seek(0);
+            } catch (SupportException e) {
+                throw new UndeclaredThrowableException(e);
+            } catch (IOException e) {
+                throw new UndeclaredThrowableException(e);
+            }
 
-                    // Compute average with ceiling rounding mode.
-                    long averageLength = (totalLength + fileCount) / fileCount;
+            mSize = 0;
+        }
 
-                    // For any file whose length is above average, don't merge
-                    // it. The goal is to evenly distribute file growth.
+        mElements[mSize++] = storable;
+        mTotalSize++;
+        return true;
+    }
 
-                    List<RandomAccessFile> filesToExclude = new ArrayList<RandomAccessFile>();
-                    List<RandomAccessFile> filesToMerge = new ArrayList<RandomAccessFile>();
+    /**
+     * Merges the smaller files in use into the given file, and replaces them
+     * with it.
+     *
+     * @param withElements when true, also merge the in-memory elements
+     */
+    private void mergeFiles(RandomAccessFile raf, OutputStream out, boolean withElements)
+        throws IOException, SupportException
+    {
+        // Determine the average length per file in use.
+        long totalLength = 0;
+        int fileCount = mFilesInUse.size();
+        for (int i=0; i<fileCount; i++) {
+            totalLength += mFilesInUse.get(i).length();
+        }
 
-                    long mergedLength = 0;
-                    for (int i=0; i<fileCount; i++) {
-                        RandomAccessFile fileInUse = mFilesInUse.get(i);
-                        long fileLength = fileInUse.length();
-                        if (fileLength > averageLength) {
-                            filesToExclude.add(fileInUse);
-                        } else {
-                            filesToMerge.add(fileInUse);
-                            mergedLength += fileLength;
-                        }
-                    }
+        // Compute average with ceiling rounding mode.
+        long averageLength = (totalLength + fileCount) / fileCount;
 
-                    mFilesInUse.add(raf);
+        // For any file whose length is above average, don't merge
+        // it. The goal is to evenly distribute file growth.
 
-                    // Pre-allocate space, in an attempt to improve performance
-                    // as well as error out earlier, should the disk be full.
-                    raf.setLength(mergedLength);
+        List<RandomAccessFile> filesToExclude = new ArrayList<RandomAccessFile>();
+        List<RandomAccessFile> filesToMerge = new ArrayList<RandomAccessFile>();
 
-                    byte count = 0;
-                    Iterator<S> it = iterator(filesToMerge);
-                    while (it.hasNext()) {
-                        // Check every so often if should continue.
-                        continueCheck(++count);
-                        S element = it.next();
-                        element.writeTo(out);
-                    }
+        long mergedLength = 0;
+        for (int i=0; i<fileCount; i++) {
+            RandomAccessFile fileInUse = mFilesInUse.get(i);
+            long fileLength = fileInUse.length();
+            if (fileLength > averageLength) {
+                filesToExclude.add(fileInUse);
+            } else {
+                filesToMerge.add(fileInUse);
+                mergedLength += fileLength;
+            }
+        }
 
-                    mWorkFilePool.releaseWorkFiles(filesToMerge);
-                    mFilesInUse = filesToExclude;
-                    mFilesInUse.add(raf);
-                }
+        mFilesInUse.add(raf);
 
-                out.flush();
+        // Pre-allocate space, in an attempt to improve performance
+        // as well as error out earlier, should the disk be full.
+        raf.setLength(mergedLength);
 
-                // Truncate any data from last time file was used.
+        byte count = 0;
+        Iterator<S> it = iterator(filesToMerge, withElements);
+        while (it.hasNext()) {
+            // Check every so often if should continue.
+            continueCheck(++count);
+            S element = it.next();
+            element.writeTo(out);
+        }
+
+        mWorkFilePool.releaseWorkFiles(filesToMerge);
+        mFilesInUse = filesToExclude;
+        mFilesInUse.add(raf);
+    }
+
+    /**
+     * Hands off the full array to a background thread, which sorts it and
+     * writes it to a temp file.
+     */
+    @SuppressWarnings("unchecked")
+    private void spillInBackground(Comparator<S> comparator) {
+        continueCheck();
+
+        List<Future<RandomAccessFile>> spills = mSpills;
+        if (spills == null) {
+            mSpills = spills = new ArrayList<Future<RandomAccessFile>>();
+        } else if (spills.size() >= PARALLELISM) {
+            // Limit the amount of arrays held by pending spills.
+            mFilesInUse.add(finishSpill(spills.remove(0)));
+        }
+
+        S[] elements = mElements;
+        mElements = (S[]) new Storable[elements.length];
+        spills.add(cPool.submit(new SpillTask<S>(this, comparator, elements)));
+
+        if (mFilesInUse.size() + spills.size() >= (MAX_OPEN_FILE_COUNT - 1)) {
+            finishSpills();
+            try {
+                RandomAccessFile raf = mWorkFilePool.acquireWorkFile(this);
+                OutputStream out =
+                    new WorkFileOutputStream(raf, OUTPUT_BUFFER_SIZE, COMPRESS);
+                mergeFiles(raf, out, false);
+                out.flush();
                 raf.setLength(raf.getFilePointer());
-                // Reset to start of file in preparation for reading later.
                 raf.seek(0);
             } catch (SupportException e) {
                 throw new UndeclaredThrowableException(e);
             } catch (IOException e) {
                 throw new UndeclaredThrowableException(e);
             }
+        }
+    }
 
-            mSize = 0;
+    /**
+     * Waits for all background spills to finish, and adds their files to the
+     * set of files in use.
+     */
+    private void finishSpills() {
+        List<Future<RandomAccessFile>> spills = mSpills;
+        if (spills != null) {
+            while (!spills.isEmpty()) {
+                mFilesInUse.add(finishSpill(spills.remove(0)));
+            }
         }
+    }
 
-        mElements[mSize++] = storable;
-        mTotalSize++;
-        return true;
+    private RandomAccessFile finishSpill(Future<RandomAccessFile> spill) {
+        try {
+            return spill.get();
+        } catch (InterruptedException e) {
+            throw new UndeclaredThrowableException(new FetchInterruptedException(e));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UndeclaredThrowableException(cause);
+        }
     }
 
     @Override
@@ -356,10 +486,11 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
 
     @Override
     public Iterator<S> iterator() {
-        return iterator(mFilesInUse);
+        finishSpills();
+        return iterator(mFilesInUse, true);
     }
 
-    private Iterator<S> iterator(List<RandomAccessFile> filesToMerge) {
+    private Iterator<S> iterator(List<RandomAccessFile> filesToMerge, boolean withElements) {
         Comparator<S> comparator = comparator();
 
         if (mWorkFilePool == null) {
@@ -369,21 +500,60 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         // Merge with the files. Use a priority queue to decide which is the
         // next buffer to pull an element from.
 
-        PriorityQueue<Iter<S>> pq = new PriorityQueue<Iter<S>>(1 + mFilesInUse.size());
-        pq.add(new ArrayIter<S>(comparator, mElements, mSize));
-        for (RandomAccessFile raf : filesToMerge) {
+        PriorityQueue<Iter<S>> pq = new PriorityQueue<Iter<S>>(1 + filesToMerge.size());
+        if (withElements) {
+            pq.add(new ArrayIter<S>(comparator, mElements, mSize));
+        }
+
+        int fileCount = filesToMerge.size();
+        if (PARALLELISM > 1 && fileCount >= 4) {
+            // Build the lower levels of the merge tree in background threads,
+            // each merging a group of at least two files.
+            int groupCount = Math.min(PARALLELISM, fileCount / 2);
+            List<MergeTask<S>> tasks = mMergeTasks;
+            if (tasks == null) {
+                mMergeTasks = tasks = new ArrayList<MergeTask<S>>();
+            } else {
+                for (Iterator<MergeTask<S>> it = tasks.iterator(); it.hasNext(); ) {
+                    if (it.next().isDone()) {
+                        it.remove();
+                    }
+                }
+            }
+            List<QueueIter<S>> queueIters = new ArrayList<QueueIter<S>>(groupCount);
+            for (int i=0; i<groupCount; i++) {
+                List<RandomAccessFile> group = filesToMerge.subList
+                    (fileCount * i / groupCount, fileCount * (i + 1) / groupCount);
+                MergeTask<S> task = new MergeTask<S>
+                    (this, comparator, iters(comparator, group));
+                tasks.add(task);
+                cPool.execute(task);
+                queueIters.add(new QueueIter<S>(comparator, task));
+            }
+            // Add to priority queue after all tasks have started, since adding
+            // waits for the first chunk.
+            pq.addAll(queueIters);
+        } else {
+            pq.addAll(iters(comparator, filesToMerge));
+        }
+
+        return new Merger<S>(pq);
+    }
+
+    private List<Iter<S>> iters(Comparator<S> comparator, List<RandomAccessFile> files) {
+        List<Iter<S>> iters = new ArrayList<Iter<S>>(files.size());
+        for (RandomAccessFile raf : files) {
             try {
                 raf.seek(0);
             } catch (IOException e) {
                 throw new UndeclaredThrowableException(e);
             }
 
-            InputStream in = new BufferedInputStream(new RAFInputStream(raf));
+            InputStream in = new WorkFileInputStream(raf);
 
-            pq.add(new InputIter<S>(comparator, mPreparer, in));
+            iters.add(new InputIter<S>(comparator, mPreparer, in));
         }
-
-        return new Merger<S>(pq);
+        return iters;
     }
 
     @Override
@@ -392,6 +562,8 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
             mPreparer = null;
         }
 
+        cancelBackgroundTasks();
+
         if (mTotalSize > 0) {
             mSize = 0;
             mTotalSize = 0;
@@ -426,6 +598,35 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         mStop = true;
     }
 
+    /**
+     * Stops all background merges and waits for all background spills, so
+     * that their files can be released.
+     */
+    private void cancelBackgroundTasks() {
+        List<MergeTask<S>> tasks = mMergeTasks;
+        if (tasks != null) {
+            for (MergeTask<S> task : tasks) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+
+        List<Future<RandomAccessFile>> spills = mSpills;
+        if (spills != null) {
+            while (!spills.isEmpty()) {
+                Future<RandomAccessFile> spill = spills.remove(0);
+                RandomAccessFile raf;
+                try {
+                    raf = spill.get();
+                } catch (Exception e) {
+                    // Spill task released the file already.
+                    continue;
+                }
+                mFilesInUse.add(raf);
+            }
+        }
+    }
+
     private Comparator<S> comparator() {
         Comparator<S> comparator = mComparator;
         if (comparator == null) {
@@ -436,18 +637,22 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
 
     private void continueCheck(byte count) {
         if (count == 0) {
-            try {
-                Query.Controller controller = mController;
-                if (controller != null) {
-                    controller.continueCheck();
-                }
-                if (mStop) {
-                    throw new FetchInterruptedException("Shutting down");
-                }
-            } catch (FetchException e) {
-                close();
-                throw new UndeclaredThrowableException(e);
+            continueCheck();
+        }
+    }
+
+    private void continueCheck() {
+        try {
+            Query.Controller controller = mController;
+            if (controller != null) {
+                controller.continueCheck();
+            }
+            if (mStop) {
+                throw new FetchInterruptedException("Shutting down");
             }
+        } catch (FetchException e) {
+            close();
+            throw new UndeclaredThrowableException(e);
         }
     }
 
@@ -601,6 +806,244 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         }
     }
 
+    /**
+     * Iterator that reads chunks of elements merged by a background thread.
+     */
+    private static class QueueIter<S extends Storable> extends Iter<S> {
+        private final MergeTask<S> mTask;
+
+        private Object[] mChunk;
+        private int mPos;
+
+        QueueIter(Comparator<S> comparator, MergeTask<S> task) {
+            super(comparator);
+            mTask = task;
+            mChunk = new Object[0];
+        }
+
+        @Override
+        S peek() {
+            Object[] chunk = mChunk;
+            if (chunk == null) {
+                return null;
+            }
+            if (mPos >= chunk.length) {
+                mChunk = chunk = mTask.take();
+                mPos = 0;
+                if (chunk == null) {
+                    return null;
+                }
+            }
+            return (S) chunk[mPos];
+        }
+
+        @Override
+        S next() {
+            S next = peek();
+            if (next != null) {
+                mPos++;
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Merges a group of files in a background thread, passing the results in
+     * chunks through a bounded queue.
+     */
+    private static class MergeTask<S extends Storable> implements Runnable {
+        private final MergeSortBuffer<S> mBuffer;
+        private final PriorityQueue<Iter<S>> mPQ;
+        private final BlockingQueue<Object> mQueue;
+        private final CountDownLatch mDone;
+
+        private volatile boolean mCancel;
+
+        MergeTask(MergeSortBuffer<S> buffer, Comparator<S> comparator, List<Iter<S>> iters) {
+            mBuffer = buffer;
+            mPQ = new PriorityQueue<Iter<S>>(iters.size());
+            mPQ.addAll(iters);
+            mQueue = new ArrayBlockingQueue<Object>(4);
+            mDone = new CountDownLatch(1);
+        }
+
+        public void run() {
+            try {
+                Merger<S> merger = new Merger<S>(mPQ);
+                while (true) {
+                    Object[] chunk = new Object[MERGE_CHUNK_SIZE];
+                    int size = 0;
+                    while (size < chunk.length && merger.hasNext()) {
+                        chunk[size++] = merger.next();
+                    }
+                    if (size < chunk.length) {
+                        Object[] last = new Object[size];
+                        System.arraycopy(chunk, 0, last, 0, size);
+                        if (size > 0) {
+                            put(last);
+                        }
+                        // Empty chunk signals the end.
+                        put(new Object[0]);
+                        break;
+                    }
+                    if (!put(chunk)) {
+                        break;
+                    }
+                }
+            } catch (Throwable e) {
+                put(e);
+            } finally {
+                mDone.countDown();
+            }
+        }
+
+        /**
+         * @return false if canceled
+         */
+        private boolean put(Object obj) {
+            // Waiting for the consumer must not starve the pool of threads for
+            // other sorts, and so the pool is allowed to compensate.
+            Put put = new Put(obj);
+            try {
+                ForkJoinPool.managedBlock(put);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return put.mDone;
+        }
+
+        private class Put implements ForkJoinPool.ManagedBlocker {
+            private final Object mObj;
+            boolean mDone;
+
+            Put(Object obj) {
+                mObj = obj;
+            }
+
+            public boolean block() throws InterruptedException {
+                while (!mCancel && !mBuffer.mStop) {
+                    if (mQueue.offer(mObj, 100, TimeUnit.MILLISECONDS)) {
+                        mDone = true;
+                        break;
+                    }
+                }
+                return true;
+            }
+
+            public boolean isReleasable() {
+                if (mDone || mQueue.offer(mObj)) {
+                    mDone = true;
+                    return true;
+                }
+                return mCancel || mBuffer.mStop;
+            }
+        }
+
+        /**
+         * @return null if no more elements
+         */
+        Object[] take() {
+            Object obj;
+            try {
+                while ((obj = mQueue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (isDone() && mQueue.isEmpty()) {
+                        // Merge stopped without finishing.
+                        throw new UndeclaredThrowableException
+                            (new FetchInterruptedException("Shutting down"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new UndeclaredThrowableException(new FetchInterruptedException(e));
+            }
+            if (obj instanceof Throwable) {
+                // Put it back, in case the caller tries again.
+                mQueue.offer(obj);
+                if (obj instanceof RuntimeException) {
+                    throw (RuntimeException) obj;
+                }
+                if (obj instanceof Error) {
+                    throw (Error) obj;
+                }
+                throw new UndeclaredThrowableException((Throwable) obj);
+            }
+            Object[] chunk = (Object[]) obj;
+            return chunk.length == 0 ? null : chunk;
+        }
+
+        boolean isDone() {
+            return mDone.getCount() == 0;
+        }
+
+        /**
+         * Stops the merge and waits for it to finish reading its files.
+         */
+        void cancel() {
+            mCancel = true;
+            mQueue.clear();
+            try {
+                mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Sorts a full array and writes it to a work file.
+     */
+    private static class SpillTask<S extends Storable> implements Callable<RandomAccessFile> {
+        private final MergeSortBuffer<S> mBuffer;
+        private final Comparator<S> mComparator;
+        private final S[] mElements;
+
+        SpillTask(MergeSortBuffer<S> buffer, Comparator<S> comparator, S[] elements) {
+            mBuffer = buffer;
+            mComparator = comparator;
+            mElements = elements;
+        }
+
+        public RandomAccessFile call() throws Exception {
+            Arrays.sort(mElements, mComparator);
+
+            RandomAccessFile raf = mBuffer.mWorkFilePool.acquireWorkFile(mBuffer);
+            try {
+                OutputStream out =
+                    new WorkFileOutputStream(raf, OUTPUT_BUFFER_SIZE, COMPRESS);
+                byte count = 0;
+                for (S element : mElements) {
+                    // Check every so often if should continue.
+                    if (++count == 0 && mBuffer.mStop) {
+                        throw new FetchInterruptedException("Shutting down");
+                    }
+                    element.writeTo(out);
+                }
+                out.flush();
+                raf.setLength(raf.getFilePointer());
+                raf.seek(0);
+                return raf;
+            } catch (Exception e) {
+                List<RandomAccessFile> files = new ArrayList<RandomAccessFile>(1);
+                files.add(raf);
+                mBuffer.mWorkFilePool.releaseWorkFiles(files);
+                throw e;
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private static int cCount;
+
+        private static synchronized int nextID() {
+            return ++cCount;
+        }
+
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool) {};
+            t.setName("MergeSortBuffer-" + nextID());
+            return t;
+        }
+    }
+
     private static class Merger<S extends Storable> implements Iterator<S> {
         private final PriorityQueue<Iter<S>> mPQ;
 
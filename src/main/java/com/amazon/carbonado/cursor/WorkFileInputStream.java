@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Buffered input stream which reads work files written by {@link
+ * WorkFileOutputStream}. An entire block is read from the file at a time.
+ */
+class WorkFileInputStream extends InputStream {
+    private static final ThreadLocal<Inflater> cLocalInflater = new ThreadLocal<Inflater>();
+
+    private final RandomAccessFile mRAF;
+    private final byte[] mHeader;
+
+    private byte[] mBlock;
+    private int mPos;
+    private int mEnd;
+
+    // Is only allocated when reading compressed blocks.
+    private byte[] mCompressed;
+
+    private boolean mEOF;
+
+    /**
+     * Reads from the current file pointer of the given file.
+     */
+    WorkFileInputStream(RandomAccessFile raf) {
+        mRAF = raf;
+        mHeader = new byte[8];
+        mBlock = new byte[0];
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (mPos >= mEnd) {
+            if (!readBlock()) {
+                return -1;
+            }
+        }
+        return mBlock[mPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException {
+        if (length <= 0) {
+            return 0;
+        }
+        while (mPos >= mEnd) {
+            if (!readBlock()) {
+                return -1;
+            }
+        }
+        int amt = Math.min(length, mEnd - mPos);
+        System.arraycopy(mBlock, mPos, b, offset, amt);
+        mPos += amt;
+        return amt;
+    }
+
+    @Override
+    public int available() {
+        return mEnd - mPos;
+    }
+
+    /**
+     * Doesn't close the underlying file.
+     */
+    @Override
+    public void close() {
+        mEOF = true;
+        mPos = mEnd = 0;
+    }
+
+    /**
+     * @return false if no more blocks
+     */
+    private boolean readBlock() throws IOException {
+        if (mEOF) {
+            return false;
+        }
+
+        byte[] header = mHeader;
+        int amt = mRAF.read(header);
+        if (amt <= 0) {
+            mEOF = true;
+            return false;
+        }
+        if (amt < header.length) {
+            mRAF.readFully(header, amt, header.length - amt);
+        }
+
+        int length = readInt(header, 0);
+        int compressedLength = readInt(header, 4);
+
+        byte[] block = mBlock;
+        if (block.length < length) {
+            mBlock = block = new byte[length];
+        }
+
+        if (compressedLength == 0) {
+            mRAF.readFully(block, 0, length);
+        } else {
+            byte[] compressed = mCompressed;
+            if (compressed == null || compressed.length < compressedLength) {
+                mCompressed = compressed = new byte[compressedLength];
+            }
+            mRAF.readFully(compressed, 0, compressedLength);
+
+            Inflater inflater = cLocalInflater.get();
+            if (inflater == null) {
+                cLocalInflater.set(inflater = new Inflater());
+            }
+
+            try {
+                inflater.setInput(compressed, 0, compressedLength);
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    int n = inflater.inflate(block, inflated, length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != length) {
+                    throw new EOFException("Work file block is truncated");
+                }
+            } catch (DataFormatException e) {
+                IOException io = new IOException("Work file block is corrupt");
+                io.initCause(e);
+                throw io;
+            } finally {
+                inflater.reset();
+            }
+        }
+
+        mPos = 0;
+        mEnd = length;
+        return true;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (b[offset] << 24) | ((b[offset + 1] & 0xff) << 16)
+            | ((b[offset + 2] & 0xff) << 8) | (b[offset + 3] & 0xff);
+    }
+}
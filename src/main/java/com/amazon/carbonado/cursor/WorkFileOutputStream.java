@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import java.util.zip.Deflater;
+
+/**
+ * Buffered output stream used by {@link MergeSortBuffer} to write work
+ * files. Data is written in blocks, each with a small header, and blocks can
+ * optionally be compressed. Read the file back with {@link
+ * WorkFileInputStream}.
+ */
+class WorkFileOutputStream extends OutputStream {
+    private static final ThreadLocal<Deflater> cLocalDeflater = new ThreadLocal<Deflater>();
+
+    private final RandomAccessFile mRAF;
+    private final boolean mCompress;
+
+    private final byte[] mBlock;
+    private int mPos;
+
+    // Is only allocated when compressing.
+    private byte[] mCompressed;
+
+    /**
+     * @param blockSize amount of bytes to buffer before writing a block
+     * @param compress when true, blocks are compressed
+     */
+    WorkFileOutputStream(RandomAccessFile raf, int blockSize, boolean compress) {
+        mRAF = raf;
+        mCompress = compress;
+        mBlock = new byte[Math.max(blockSize, 256)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (mPos >= mBlock.length) {
+            writeBlock();
+        }
+        mBlock[mPos++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        byte[] block = mBlock;
+        while (length > 0) {
+            int avail = block.length - mPos;
+            if (avail <= 0) {
+                writeBlock();
+                avail = block.length;
+            }
+            int amt = Math.min(avail, length);
+            System.arraycopy(b, offset, block, mPos, amt);
+            mPos += amt;
+            offset += amt;
+            length -= amt;
+        }
+    }
+
+    /**
+     * Writes any buffered data as a final block. The file pointer of the
+     * underlying file is then positioned at the end of the written data.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (mPos > 0) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Flushes the stream, but doesn't close the underlying file.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeBlock() throws IOException {
+        byte[] block = mBlock;
+        int length = mPos;
+        mPos = 0;
+
+        if (mCompress) {
+            byte[] compressed = mCompressed;
+            if (compressed == null) {
+                // Compression is abandoned if output isn't smaller than input.
+                mCompressed = compressed = new byte[8 + block.length];
+            }
+
+            Deflater deflater = cLocalDeflater.get();
+            if (deflater == null) {
+                cLocalDeflater.set(deflater = new Deflater(Deflater.BEST_SPEED));
+            }
+
+            int compressedLength;
+            try {
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                compressedLength = deflater.deflate(compressed, 8, length - 1);
+                if (!deflater.finished()) {
+                    compressedLength = 0;
+                }
+            } finally {
+                deflater.reset();
+            }
+
+            if (compressedLength > 0) {
+                writeHeader(compressed, length, compressedLength);
+                mRAF.write(compressed, 0, 8 + compressedLength);
+                return;
+            }
+        }
+
+        byte[] header = new byte[8];
+        writeHeader(header, length, 0);
+        mRAF.write(header);
+        mRAF.write(block, 0, length);
+    }
+
+    /**
+     * @param compressedLength is zero if block isn't compressed
+     */
+    private static void writeHeader(byte[] b, int length, int compressedLength) {
+        b[0] = (byte) (length >> 24);
+        b[1] = (byte) (length >> 16);
+        b[2] = (byte) (length >> 8);
+        b[3] = (byte) length;
+        b[4] = (byte) (compressedLength >> 24);
+        b[5] = (byte) (compressedLength >> 16);
+        b[6] = (byte) (compressedLength >> 8);
+        b[7] = (byte) compressedLength;
+    }
+}
@@ -1817,8 +1817,7 @@ public final class StorableGenerator<S extends Storable> {
                 b.loadField(PROPERTY_STATE_FIELD_NAME + (versionOrdinal >> 4), TypeDesc.INT);
                 b.loadConstant(PROPERTY_STATE_MASK << ((versionOrdinal & 0xf) * 2));
                 b.math(Opcode.IAND);
-                // zero == false, not zero == true
-                b.returnValue(TypeDesc.BOOLEAN);
+                returnNonZero(b);
             }
         }
     }
@@ -2480,8 +2479,7 @@ public final class StorableGenerator<S extends Storable> {
             b.loadField(PROPERTY_STATE_FIELD_NAME + (ordinal >> 4), TypeDesc.INT);
             b.loadConstant(PROPERTY_STATE_MASK << ((ordinal & 0xf) * 2));
             b.math(Opcode.IAND);
-            // zero == false, not zero == true
-            b.returnValue(TypeDesc.BOOLEAN);
+            returnNonZero(b);
             return;
         }
 
@@ -2543,6 +2541,21 @@ public final class StorableGenerator<S extends Storable> {
         b.returnValue(TypeDesc.BOOLEAN);
     }
 
+    /**
+     * Generates code which returns true if the int on the stack is non-zero.
+     * The int cannot be returned as a boolean directly, because the JVM only
+     * keeps the lowest bit of a returned boolean.
+     */
+    private static void returnNonZero(CodeBuilder b) {
+        Label isZero = b.createLabel();
+        b.ifZeroComparisonBranch(isZero, "==");
+        b.loadConstant(true);
+        b.returnValue(TypeDesc.BOOLEAN);
+        isZero.setLocation();
+        b.loadConstant(false);
+        b.returnValue(TypeDesc.BOOLEAN);
+    }
+
     /**
      * Generates code that verifies that all primary keys are initialized.
      *
@@ -55,6 +55,14 @@ public abstract class AbstractQuery<S extends Storable> implements Query<S>, App
         return or(Filter.filterFor(getStorableType(), filter));
     }
 
+    /**
+     * Returns this query, loading all properties.
+     */
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        return this;
+    }
+
     @Override
     public <T extends S> Cursor<S> fetchAfter(T start) throws FetchException {
         return after(start).fetch();
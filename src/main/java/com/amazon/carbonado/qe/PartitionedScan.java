@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+
+/**
+ * Controller which requests that a query be fetched as multiple partitions,
+ * which are read concurrently. Partitioning is most effective for scans of
+ * large tables, and it is only applied by repositories which support it.
+ * Other repositories fetch as usual. Results are merged into one cursor, and
+ * ordering is preserved.
+ *
+ * <p>Each partition is read by its own connection, outside any transaction,
+ * and so partitions read different snapshots. Records changed while the scan
+ * is in progress might be seen by one partition and not another, and the
+ * results might not match any single point in time. Repositories may use
+ * fewer partitions than requested, for example when connections are scarce.
+ *
+ * <p>Example:<pre>
+ * Cursor&lt;Order&gt; orders = storage.query().fetch(new PartitionedScan(8));
+ * </pre>
+ */
+public class PartitionedScan implements Query.Controller {
+    private static final long serialVersionUID = 1;
+
+    private final int mPartitions;
+    private final Query.Controller mController;
+
+    /**
+     * @param partitions desired amount of partitions
+     * @throws IllegalArgumentException if partitions is less than one
+     */
+    public PartitionedScan(int partitions) {
+        this(partitions, null);
+    }
+
+    /**
+     * @param partitions desired amount of partitions
+     * @param controller optional controller to apply to the query and to
+     * each partition
+     * @throws IllegalArgumentException if partitions is less than one
+     */
+    public PartitionedScan(int partitions, Query.Controller controller) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be positive: " + partitions);
+        }
+        mPartitions = partitions;
+        mController = controller;
+    }
+
+    /**
+     * Returns the desired amount of partitions. Repositories may use fewer.
+     */
+    public int getPartitions() {
+        return mPartitions;
+    }
+
+    /**
+     * Returns the controller to apply to each partition, which may be null.
+     */
+    public Query.Controller getController() {
+        return mController;
+    }
+
+    public long getTimeout() {
+        return mController == null ? -1 : mController.getTimeout();
+    }
+
+    public TimeUnit getTimeoutUnit() {
+        return mController == null ? null : mController.getTimeoutUnit();
+    }
+
+    public void begin() {
+        if (mController != null) {
+            mController.begin();
+        }
+    }
+
+    public void continueCheck() throws FetchException {
+        if (mController != null) {
+            mController.continueCheck();
+        }
+    }
+
+    public void close() {
+        if (mController != null) {
+            mController.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedScan {partitions=" + mPartitions + ", controller=" + mController + '}';
+    }
+}
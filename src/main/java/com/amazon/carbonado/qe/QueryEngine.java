@@ -23,6 +23,8 @@ import com.amazon.carbonado.RepositoryException;
 import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Transaction;
 
+import com.amazon.carbonado.capability.QueryCacheStats;
+
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 
@@ -35,7 +37,7 @@ public class QueryEngine<S extends Storable> extends StandardQueryFactory<S>
     implements QueryExecutorFactory<S>
 {
     final RepositoryAccess mRepoAccess;
-    final QueryExecutorFactory<S> mExecutorFactory;
+    final QueryExecutorCache<S> mExecutorFactory;
 
     public QueryEngine(Class<S> type, RepositoryAccess access) {
         super(type);
@@ -49,6 +51,13 @@ public class QueryEngine<S extends Storable> extends StandardQueryFactory<S>
         return mExecutorFactory.executor(filter, ordering, hints);
     }
 
+    /**
+     * Returns a snapshot of the statistics for the executor cache.
+     */
+    public QueryCacheStats getQueryCacheStats() {
+        return mExecutorFactory.getStats();
+    }
+
     @Override
     protected StandardQuery<S> createQuery(Filter<S> filter,
                                            FilterValues<S> values,
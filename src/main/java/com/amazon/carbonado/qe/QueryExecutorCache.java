@@ -18,14 +18,26 @@
 
 package com.amazon.carbonado.qe;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.cojen.util.WeakIdentityMap;
 
 import com.amazon.carbonado.RepositoryException;
 import com.amazon.carbonado.Storable;
 
+import com.amazon.carbonado.capability.QueryCacheStats;
+
 import com.amazon.carbonado.filter.Filter;
 
 import com.amazon.carbonado.util.SoftValuedCache;
@@ -36,6 +48,11 @@ import com.amazon.carbonado.util.SoftValuedCache;
  * The minimum can be changed with the
  * "com.amazon.carbonado.qe.QueryExecutorCache.minCapacity" system property.
  *
+ * <p>Cache lookups don't acquire any locks. When the cache exceeds its capacity,
+ * executors are evicted in approximately least recently used order, using the
+ * "clock" algorithm. Executors which were used since the clock last passed them
+ * are given a second chance.
+ *
  * @author Brian S O'Neill
  */
 public class QueryExecutorCache<S extends Storable> implements QueryExecutorFactory<S> {
@@ -55,27 +72,41 @@ public class QueryExecutorCache<S extends Storable> implements QueryExecutorFact
         cMinCapacity = minCapacity;
     }
 
+    // Hit counts are striped by thread, to avoid contention on a single counter.
+    // Each counter is padded to occupy its own cache line.
+    private static final int HIT_STRIPES = 16;
+    private static final int HIT_PADDING = 8;
+
     private final QueryExecutorFactory<S> mFactory;
 
-    private final Map<Key<S>, QueryExecutor<S>> mPrimaryCache;
+    private final ConcurrentMap<Key<S>, Entry<S>> mPrimaryCache;
+
+    // Keys of primary cache entries, in the order visited by the eviction clock.
+    private final Queue<Key<S>> mClock;
+    private final Lock mEvictLock;
 
     // Maps filters to maps which map ordering lists (possibly with hints) to executors.
     private final Map<Filter<S>, SoftValuedCache<Object, QueryExecutor<S>>> mFilterToExecutor;
 
+    private final AtomicLongArray mHits;
+    private final AtomicLong mMisses;
+    private final AtomicLong mEvictions;
+
     public QueryExecutorCache(QueryExecutorFactory<S> factory) {
         if (factory == null) {
             throw new IllegalArgumentException();
         }
         mFactory = factory;
 
-        mPrimaryCache = new LinkedHashMap<Key<S>, QueryExecutor<S>>(17, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Key<S>, QueryExecutor<S>> eldest) {
-                return size() > cMinCapacity;
-            }
-        };
+        mPrimaryCache = new ConcurrentHashMap<Key<S>, Entry<S>>(17);
+        mClock = new ConcurrentLinkedQueue<Key<S>>();
+        mEvictLock = new ReentrantLock();
 
         mFilterToExecutor = new WeakIdentityMap(7);
+
+        mHits = new AtomicLongArray(HIT_STRIPES * HIT_PADDING);
+        mMisses = new AtomicLong();
+        mEvictions = new AtomicLong();
     }
 
     public Class<S> getStorableType() {
@@ -94,13 +125,18 @@ public class QueryExecutorCache<S extends Storable> implements QueryExecutorFact
     {
         final Key<S> key = new Key<S>(filter, ordering, hints);
 
-        synchronized (mPrimaryCache) {
-            QueryExecutor<S> executor = mPrimaryCache.get(key);
-            if (executor != null) {
-                return executor;
+        Entry<S> entry = mPrimaryCache.get(key);
+        if (entry != null) {
+            if (!entry.mReferenced) {
+                entry.mReferenced = true;
             }
+            int stripe = ((int) Thread.currentThread().getId()) & (HIT_STRIPES - 1);
+            mHits.incrementAndGet(stripe * HIT_PADDING);
+            return entry.mExecutor;
         }
 
+        mMisses.incrementAndGet();
+
         // Fallback to second level cache, which may still have the executor because
         // garbage collection has not reclaimed it yet. It also allows some concurrent
         // executor creation, by using filter-specific locks.
@@ -132,13 +168,118 @@ public class QueryExecutorCache<S extends Storable> implements QueryExecutorFact
             }
         }
 
-        synchronized (mPrimaryCache) {
-            mPrimaryCache.put(key, executor);
+        entry = mPrimaryCache.putIfAbsent(key, new Entry<S>(executor));
+        if (entry != null) {
+            // Another thread put it in first.
+            return entry.mExecutor;
+        }
+
+        mClock.add(key);
+
+        if (mPrimaryCache.size() > cMinCapacity) {
+            evict();
         }
 
         return executor;
     }
 
+    /**
+     * Returns a snapshot of the statistics for this cache.
+     */
+    public QueryCacheStats getStats() {
+        long hits = 0;
+        for (int i=0; i<HIT_STRIPES; i++) {
+            hits += mHits.get(i * HIT_PADDING);
+        }
+        return new Stats(mPrimaryCache.size(), cMinCapacity,
+                         hits, mMisses.get(), mEvictions.get());
+    }
+
+    private void evict() {
+        // Only one thread at a time advances the clock. Other threads don't
+        // wait, and so the cache might briefly exceed its capacity.
+        if (!mEvictLock.tryLock()) {
+            return;
+        }
+        try {
+            // Each step either evicts an entry or clears its referenced flag,
+            // and so two full turns of the clock are sufficient. Limit the work
+            // in case concurrent lookups keep setting the flags.
+            int limit = (mPrimaryCache.size() + 1) * 2;
+            while (mPrimaryCache.size() > cMinCapacity && --limit >= 0) {
+                Key<S> key = mClock.poll();
+                if (key == null) {
+                    break;
+                }
+                Entry<S> entry = mPrimaryCache.get(key);
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.mReferenced) {
+                    entry.mReferenced = false;
+                    mClock.add(key);
+                } else if (mPrimaryCache.remove(key, entry)) {
+                    mEvictions.incrementAndGet();
+                }
+            }
+        } finally {
+            mEvictLock.unlock();
+        }
+    }
+
+    private static class Entry<S extends Storable> {
+        final QueryExecutor<S> mExecutor;
+
+        // Set when used, and cleared as the eviction clock passes.
+        volatile boolean mReferenced;
+
+        Entry(QueryExecutor<S> executor) {
+            mExecutor = executor;
+        }
+    }
+
+    private static class Stats implements QueryCacheStats {
+        private final int mSize;
+        private final int mCapacity;
+        private final long mHits;
+        private final long mMisses;
+        private final long mEvictions;
+
+        Stats(int size, int capacity, long hits, long misses, long evictions) {
+            mSize = size;
+            mCapacity = capacity;
+            mHits = hits;
+            mMisses = misses;
+            mEvictions = evictions;
+        }
+
+        public int getSize() {
+            return mSize;
+        }
+
+        public int getCapacity() {
+            return mCapacity;
+        }
+
+        public long getHitCount() {
+            return mHits;
+        }
+
+        public long getMissCount() {
+            return mMisses;
+        }
+
+        public long getEvictionCount() {
+            return mEvictions;
+        }
+
+        @Override
+        public String toString() {
+            return "QueryCacheStats {size=" + mSize + ", capacity=" + mCapacity +
+                ", hits=" + mHits + ", misses=" + mMisses + ", evictions=" + mEvictions + '}';
+        }
+    }
+
     private static class Key<S extends Storable> {
         private final Filter<S> mFilter;
         private final OrderingList<S> mOrdering;
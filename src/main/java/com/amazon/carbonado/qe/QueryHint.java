@@ -37,4 +37,23 @@ public enum QueryHint {
 
     /** Favor high throughput for query results */
     //FAVOR_THROUGHPUT,
+
+    /**
+     * Fetch records in a background thread, overlapping fetch latency with
+     * processing. Value is an Integer which specifies the maximum amount of
+     * records to fetch ahead.
+     *
+     * @see com.amazon.carbonado.cursor.AsyncFetchAheadCursor
+     */
+    FETCH_AHEAD,
+
+    /**
+     * Only load the given properties of fetched records, in addition to those
+     * which are always required. Value is an unmodifiable sorted Set of
+     * property names. Only honored by the JDBC repository; others load all
+     * properties.
+     *
+     * @see com.amazon.carbonado.Query#select
+     */
+    PROJECTION,
 }
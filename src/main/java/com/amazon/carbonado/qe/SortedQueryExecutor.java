@@ -28,8 +28,11 @@ import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Storable;
 
 import com.amazon.carbonado.cursor.ArraySortBuffer;
+import com.amazon.carbonado.cursor.BoundedSortBuffer;
 import com.amazon.carbonado.cursor.ControllerCursor;
+import com.amazon.carbonado.cursor.LimitCursor;
 import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.SkipCursor;
 import com.amazon.carbonado.cursor.SortBuffer;
 import com.amazon.carbonado.cursor.SortedCursor;
 
@@ -37,12 +40,22 @@ import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 
 /**
- * QueryExecutor which wraps another and sorts the results.
+ * QueryExecutor which wraps another and sorts the results. When fetching a
+ * slice whose upper bound is small enough, a {@link BoundedSortBuffer} is used
+ * instead of the buffer provided by {@link Support}, and so only the needed
+ * results are retained.
  *
  * @author Brian S O'Neill
  * @see SortedCursor
  */
 public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    /**
+     * Largest slice upper bound which is sorted by a BoundedSortBuffer. Larger
+     * slices use the support buffer, which might not need to hold all
+     * elements in memory.
+     */
+    private static final long MAX_BOUNDED_SORT = 10000;
+
     private final Support<S> mSupport;
     private final QueryExecutor<S> mExecutor;
 
@@ -120,6 +133,48 @@ public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecut
              controller);
     }
 
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        if (!isBounded(to)) {
+            return super.fetchSlice(values, from, to);
+        }
+        Cursor<S> cursor = mExecutor.fetch(values);
+        SortBuffer<S> buffer = new BoundedSortBuffer<S>((int) to.longValue());
+        return slice(new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator),
+                     from, to);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        if (!isBounded(to)) {
+            return super.fetchSlice(values, from, to, controller);
+        }
+        Cursor<S> cursor = mExecutor.fetch(values, controller);
+        SortBuffer<S> buffer = new BoundedSortBuffer<S>((int) to.longValue());
+        return ControllerCursor.apply
+            (slice(new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator),
+                   from, to),
+             controller);
+    }
+
+    private static boolean isBounded(Long to) {
+        return to != null && to >= 0 && to <= MAX_BOUNDED_SORT;
+    }
+
+    private static <S> Cursor<S> slice(Cursor<S> cursor, long from, long to) {
+        // Limit is still required when handled ordering is partial, since
+        // each chunk is sorted separately.
+        if (from > 0) {
+            cursor = new SkipCursor<S>(cursor, from);
+        }
+        return new LimitCursor<S>(cursor, to - from);
+    }
+
     @Override
     public long count(FilterValues<S> values) throws FetchException {
         return mExecutor.count(values);
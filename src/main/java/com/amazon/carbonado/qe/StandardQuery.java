@@ -20,6 +20,11 @@ package com.amazon.carbonado.qe;
 
 import java.io.IOException;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
@@ -30,12 +35,16 @@ import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Transaction;
 import com.amazon.carbonado.Query;
 
+import com.amazon.carbonado.cursor.AsyncFetchAheadCursor;
+
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 import com.amazon.carbonado.filter.RelOp;
 
 import com.amazon.carbonado.info.Direction;
 import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.util.Appender;
 
@@ -228,6 +237,35 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
                            OrderingList.get(getStorableType(), properties), mHints);
     }
 
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        QueryHints hints = mHints == null ? QueryHints.emptyHints() : mHints;
+
+        if (properties == null || properties.length == 0) {
+            hints = hints.without(QueryHint.PROJECTION);
+        } else {
+            Map<String, ? extends StorableProperty<S>> all =
+                StorableIntrospector.examine(getStorableType()).getAllProperties();
+            SortedSet<String> names = new TreeSet<String>();
+            for (String name : properties) {
+                StorableProperty<S> property = all.get(name);
+                if (property == null) {
+                    throw new IllegalArgumentException
+                        ("Property \"" + name + "\" not found in type: " +
+                         getStorableType().getName());
+                }
+                if (property.isJoin() || property.isDerived()) {
+                    throw new IllegalArgumentException
+                        ("Cannot select join or derived property: " + name);
+                }
+                names.add(name);
+            }
+            hints = hints.with(QueryHint.PROJECTION, Collections.unmodifiableSortedSet(names));
+        }
+
+        return createQuery(mFilter, mValues, mOrdering, hints);
+    }
+
     @Override
     public <T extends S> Query<S> after(T start) throws FetchException {
         OrderingList<S> orderings;
@@ -281,7 +319,7 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
     @Override
     public Cursor<S> fetch() throws FetchException {
         try {
-            return executor().fetch(mValues);
+            return fetchAhead(executor().fetch(mValues), null);
         } catch (RepositoryException e) {
             throw e.toFetchException();
         }
@@ -290,7 +328,7 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
     @Override
     public Cursor<S> fetch(Controller controller) throws FetchException {
         try {
-            return executor().fetch(mValues, controller);
+            return fetchAhead(executor().fetch(mValues, controller), controller);
         } catch (RepositoryException e) {
             throw e.toFetchException();
         }
@@ -307,14 +345,31 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
             return fetch(controller);
         }
         try {
-            QueryHints hints = QueryHints.emptyHints().with(QueryHint.CONSUME_SLICE);
-            return executorFactory().executor(mFilter, mOrdering, hints)
-                .fetchSlice(mValues, from, to, controller);
+            QueryHints hints = executorHints();
+            hints = (hints == null ? QueryHints.emptyHints() : hints)
+                .with(QueryHint.CONSUME_SLICE);
+            return fetchAhead(executorFactory().executor(mFilter, mOrdering, hints)
+                              .fetchSlice(mValues, from, to, controller), controller);
         } catch (RepositoryException e) {
             throw e.toFetchException();
         }
     }
 
+    /**
+     * Wraps the cursor with an AsyncFetchAheadCursor if the FETCH_AHEAD hint
+     * was provided.
+     */
+    private Cursor<S> fetchAhead(Cursor<S> cursor, Controller controller) {
+        QueryHints hints = mHints;
+        if (hints != null) {
+            Object amount = hints.get(QueryHint.FETCH_AHEAD);
+            if (amount instanceof Integer && ((Integer) amount) > 0) {
+                cursor = new AsyncFetchAheadCursor<S>(cursor, (Integer) amount, controller);
+            }
+        }
+        return cursor;
+    }
+
     @Override
     public boolean tryDeleteOne() throws PersistException {
         return tryDeleteOne(null);
@@ -508,7 +563,7 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
     protected QueryExecutor<S> executor() throws RepositoryException {
         QueryExecutor<S> executor = mExecutor;
         if (executor == null) {
-            mExecutor = executor = executorFactory().executor(mFilter, mOrdering, null);
+            mExecutor = executor = executorFactory().executor(mFilter, mOrdering, executorHints());
         }
         return executor;
     }
@@ -527,7 +582,7 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
      */
     protected void resetExecutor() throws RepositoryException {
         if (mExecutor != null) {
-            mExecutor = executorFactory().executor(mFilter, mOrdering, null);
+            mExecutor = executorFactory().executor(mFilter, mOrdering, executorHints());
         }
     }
 
@@ -570,6 +625,22 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
                                                     OrderingList<S> ordering,
                                                     QueryHints hints);
 
+    /**
+     * Returns the hints which affect the executor, which is only the
+     * projection. Other hints are applied by this query, and so they
+     * shouldn't cause additional executors to be created.
+     *
+     * @return null if none
+     */
+    private QueryHints executorHints() {
+        QueryHints hints = mHints;
+        Object projection;
+        if (hints == null || (projection = hints.get(QueryHint.PROJECTION)) == null) {
+            return null;
+        }
+        return QueryHints.emptyHints().with(QueryHint.PROJECTION, projection);
+    }
+
     private StandardQuery<S> newInstance(FilterValues<S> values) {
         StandardQuery<S> query = newInstance(values, mOrdering, mHints);
         query.mExecutor = this.mExecutor;
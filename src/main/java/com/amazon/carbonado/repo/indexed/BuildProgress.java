@@ -0,0 +1,220 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.indexed;
+
+import java.util.Comparator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+
+import com.amazon.carbonado.cursor.MergeSortBuffer;
+
+/**
+ * Tracks the progress of a single index build, which can be observed by other
+ * threads. Also collects index entries which are removed by concurrent writes
+ * while the build runs, since the build might have restored them. Removed
+ * entries are collected into a sort buffer, which spills to temporary files
+ * when large.
+ */
+class BuildProgress implements IndexBuildProgress {
+    private final long mStartTime;
+    private final AtomicLong mPrepared;
+
+    private volatile Phase mPhase;
+    private volatile long mTotal;
+    private volatile long mBuildStartTime;
+    private volatile long mBuilt;
+    private volatile long mInserted;
+    private volatile long mUpdated;
+    private volatile long mDeleted;
+    private volatile boolean mCancelled;
+
+    private long mNextReportTime;
+
+    // Is null when removed index entries aren't collected.
+    private MergeSortBuffer<Storable> mRemoved;
+    private RuntimeException mRemovedFailure;
+
+    /**
+     * @param indexEntryStorage storage of index entries, or null to not
+     * collect removed index entries
+     * @param comparator orders index entries by key
+     */
+    BuildProgress(Storage indexEntryStorage, Comparator comparator) {
+        mStartTime = System.currentTimeMillis();
+        mPrepared = new AtomicLong();
+        mPhase = Phase.PREPARING;
+        mTotal = -1;
+        mNextReportTime = mStartTime + ManagedIndex.BUILD_INFO_DELAY_MILLIS;
+        if (indexEntryStorage != null) {
+            mRemoved = new MergeSortBuffer<Storable>(indexEntryStorage);
+            mRemoved.prepare(comparator);
+        }
+    }
+
+    public Phase getPhase() {
+        return mPhase;
+    }
+
+    public long getPreparedCount() {
+        return mPrepared.get();
+    }
+
+    public long getTotalCount() {
+        return mTotal;
+    }
+
+    public long getBuiltCount() {
+        return mBuilt;
+    }
+
+    public long getInsertedCount() {
+        return mInserted;
+    }
+
+    public long getUpdatedCount() {
+        return mUpdated;
+    }
+
+    public long getDeletedCount() {
+        return mDeleted;
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - mStartTime;
+    }
+
+    public long getEstimatedRemainingMillis() {
+        if (mPhase != Phase.BUILDING) {
+            return -1;
+        }
+        long built = mBuilt;
+        if (built <= 0) {
+            return -1;
+        }
+        long elapsed = System.currentTimeMillis() - mBuildStartTime;
+        return (long) (elapsed * ((double) (mTotal - built) / built));
+    }
+
+    @Override
+    public String toString() {
+        return "IndexBuildProgress {phase=" + mPhase +
+            ", prepared=" + getPreparedCount() +
+            ", total=" + mTotal +
+            ", built=" + mBuilt +
+            ", elapsedMillis=" + getElapsedMillis() +
+            ", estimatedRemainingMillis=" + getEstimatedRemainingMillis() + '}';
+    }
+
+    /**
+     * @return total amount prepared
+     */
+    long prepared(int count) {
+        return mPrepared.addAndGet(count);
+    }
+
+    /**
+     * Returns true at most once per report interval, for logging progress.
+     */
+    synchronized boolean isReportDue() {
+        long now = System.currentTimeMillis();
+        if (now >= mNextReportTime) {
+            mNextReportTime = now + ManagedIndex.BUILD_INFO_DELAY_MILLIS;
+            return true;
+        }
+        return false;
+    }
+
+    void verifying() {
+        mPhase = Phase.VERIFYING;
+    }
+
+    void building(long total) {
+        mTotal = total;
+        mBuildStartTime = System.currentTimeMillis();
+        mPhase = Phase.BUILDING;
+    }
+
+    void built(long built, long inserted, long updated, long deleted) {
+        mBuilt = built;
+        mInserted = inserted;
+        mUpdated = updated;
+        mDeleted = deleted;
+    }
+
+    /**
+     * Called by index maintenance triggers before deleting an index entry.
+     */
+    synchronized void removed(Storable indexEntry) {
+        MergeSortBuffer<Storable> removed = mRemoved;
+        if (removed != null) {
+            try {
+                removed.add(indexEntry);
+            } catch (RuntimeException e) {
+                // Fail the build instead of the write.
+                mRemoved = null;
+                mRemovedFailure = e;
+                mCancelled = true;
+                removed.close();
+            }
+        }
+    }
+
+    /**
+     * Stops collecting removed index entries, returning all that were
+     * collected, sorted by key. Caller must close the buffer.
+     *
+     * @return null if none were collected
+     */
+    synchronized MergeSortBuffer<Storable> catchingUp() throws RepositoryException {
+        mPhase = Phase.CATCHING_UP;
+        if (mRemovedFailure != null) {
+            throw new RepositoryException
+                ("Unable to collect index entries removed during build", mRemovedFailure);
+        }
+        MergeSortBuffer<Storable> removed = mRemoved;
+        mRemoved = null;
+        if (removed != null) {
+            removed.sort();
+        }
+        return removed;
+    }
+
+    /**
+     * Discards collected index entries, if the build didn't catch up.
+     */
+    synchronized void close() {
+        MergeSortBuffer<Storable> removed = mRemoved;
+        if (removed != null) {
+            mRemoved = null;
+            removed.close();
+        }
+    }
+
+    void cancel() {
+        mCancelled = true;
+    }
+
+    boolean isCancelled() {
+        return mCancelled;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.indexed;
+
+/**
+ * Reports the progress of an index build or repair which is running. An
+ * instance is obtained from {@link IndexEntryAccessor#getBuildProgress}, and
+ * it stops changing once the build has finished.
+ *
+ * @see IndexEntryAccessCapability
+ */
+public interface IndexBuildProgress {
+    /**
+     * Phases of an index build, in the order in which they run.
+     */
+    public enum Phase {
+        /** Master records are scanned, and index entries are prepared and sorted. */
+        PREPARING,
+
+        /** Prepared index entries are checked for duplicates. */
+        VERIFYING,
+
+        /** Prepared index entries are stored in index order. */
+        BUILDING,
+
+        /** Index entries changed by concurrent writes during the build are checked. */
+        CATCHING_UP,
+    }
+
+    /**
+     * Returns the phase which is currently running.
+     */
+    Phase getPhase();
+
+    /**
+     * Returns the amount of index entries prepared so far.
+     */
+    long getPreparedCount();
+
+    /**
+     * Returns the total amount of index entries to build, or -1 if not known
+     * until all entries have been prepared.
+     */
+    long getTotalCount();
+
+    /**
+     * Returns the amount of index entries built so far.
+     */
+    long getBuiltCount();
+
+    /**
+     * Returns the amount of index entries inserted so far.
+     */
+    long getInsertedCount();
+
+    /**
+     * Returns the amount of index entries updated so far.
+     */
+    long getUpdatedCount();
+
+    /**
+     * Returns the amount of bogus index entries deleted so far.
+     */
+    long getDeletedCount();
+
+    /**
+     * Returns the amount of milliseconds since the build started.
+     */
+    long getElapsedMillis();
+
+    /**
+     * Returns the estimated amount of milliseconds until the build phase
+     * finishes, or -1 if not known. An estimate is only available once the
+     * build phase has started.
+     */
+    long getEstimatedRemainingMillis();
+}
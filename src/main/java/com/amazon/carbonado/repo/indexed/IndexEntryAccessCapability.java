@@ -25,7 +25,8 @@ import com.amazon.carbonado.capability.Capability;
 
 /**
  * Capability for gaining low-level access to index data, which can be used for
- * manual inspection and repair.
+ * manual inspection and repair. The progress of a running index build can be
+ * monitored with {@link IndexEntryAccessor#getBuildProgress}.
  *
  * @author Brian S O'Neill
  */
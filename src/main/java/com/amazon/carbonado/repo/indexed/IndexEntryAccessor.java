@@ -77,6 +77,12 @@ public interface IndexEntryAccessor<S extends Storable> extends IndexInfo {
      */
     void repair(double desiredSpeed) throws RepositoryException;
 
+    /**
+     * Returns the progress of the build or repair which is currently running
+     * against this index, or null if none.
+     */
+    IndexBuildProgress getBuildProgress();
+
     /**
      * Returns a comparator for ordering index entries.
      */
@@ -37,6 +37,8 @@ import com.amazon.carbonado.Transaction;
 import com.amazon.carbonado.capability.Capability;
 import com.amazon.carbonado.capability.IndexInfo;
 import com.amazon.carbonado.capability.IndexInfoCapability;
+import com.amazon.carbonado.capability.QueryCacheCapability;
+import com.amazon.carbonado.capability.QueryCacheStats;
 import com.amazon.carbonado.capability.StorableInfoCapability;
 
 import com.amazon.carbonado.info.StorableIntrospector;
@@ -56,6 +58,7 @@ class IndexedRepository implements Repository,
                                    RepositoryAccess,
                                    IndexInfoCapability,
                                    StorableInfoCapability,
+                                   QueryCacheCapability,
                                    IndexEntryAccessCapability
 {
     private final AtomicReference<Repository> mRootRef;
@@ -65,6 +68,7 @@ class IndexedRepository implements Repository,
     private final double mIndexThrottle;
     private final boolean mIndexDiscardDuplicates;
     private final boolean mIndexRepairVerifyOnly;
+    private final int mIndexRepairParallelism;
     private final boolean mAllClustered;
     private final boolean mStrictTriggers;
     private final StoragePool mStoragePool;
@@ -76,6 +80,7 @@ class IndexedRepository implements Repository,
                       double indexThrottle,
                       boolean indexDiscardDuplicates,
                       boolean indexRepairVerifyOnly,
+                      int indexRepairParallelism,
                       boolean allClustered,
                       boolean strictTriggers)
     {
@@ -92,6 +97,7 @@ class IndexedRepository implements Repository,
         mIndexThrottle = indexThrottle;
         mIndexDiscardDuplicates = indexDiscardDuplicates;
         mIndexRepairVerifyOnly = indexRepairVerifyOnly;
+        mIndexRepairParallelism = indexRepairParallelism;
         mAllClustered = allClustered;
         mStrictTriggers = strictTriggers;
         mIndexAnalysisPool = new IndexAnalysisPool(this);
@@ -157,6 +163,19 @@ class IndexedRepository implements Repository,
         return mRepository.getCapability(capabilityType);
     }
 
+    // Required by QueryCacheCapability.
+    public <S extends Storable> QueryCacheStats getQueryCacheStats(Class<S> storableType)
+        throws RepositoryException
+    {
+        Storage<S> storage = storageFor(storableType);
+        if (storage instanceof IndexedStorage) {
+            return ((IndexedStorage<S>) storage).getQueryCacheStats();
+        }
+        // Unindexed types are queried by the wrapped repository.
+        QueryCacheCapability cap = mRepository.getCapability(QueryCacheCapability.class);
+        return cap == null ? null : cap.getQueryCacheStats(storableType);
+    }
+
     // Required by IndexInfoCapability.
     public <S extends Storable> IndexInfo[] getIndexInfo(Class<S> storableType)
         throws RepositoryException
@@ -278,6 +297,10 @@ class IndexedRepository implements Repository,
         return mIndexRepairVerifyOnly;
     }
 
+    int getIndexRepairParallelism() {
+        return mIndexRepairParallelism;
+    }
+
     boolean isAllClustered() {
         return mAllClustered;
     }
@@ -51,6 +51,7 @@ public class IndexedRepositoryBuilder extends AbstractRepositoryBuilder {
     private double mIndexThrottle = 1.0;
     private boolean mIndexDiscardDuplicates;
     private boolean mIndexRepairVerifyOnly;
+    private int mIndexRepairParallelism = 1;
     private boolean mAllClustered;
     private boolean mStrictTriggers;
 
@@ -82,6 +83,7 @@ public class IndexedRepositoryBuilder extends AbstractRepositoryBuilder {
                                                 getIndexRepairThrottle(),
                                                 mIndexDiscardDuplicates,
                                                 mIndexRepairVerifyOnly,
+                                                mIndexRepairParallelism,
                                                 isAllClustered(),
                                                 mStrictTriggers);
         rootRef.set(repo);
@@ -190,6 +192,25 @@ public class IndexedRepositoryBuilder extends AbstractRepositoryBuilder {
         mIndexRepairVerifyOnly = verifyOnly;
     }
 
+    /**
+     * Returns the amount of threads used to prepare index entries when
+     * indexes are added or bulk repaired. By default this value is 1.
+     */
+    public int getIndexRepairParallelism() {
+        return mIndexRepairParallelism;
+    }
+
+    /**
+     * Sets the amount of threads used to prepare index entries when indexes
+     * are added or bulk repaired. When larger than one, the master records are
+     * split into ranges over the first primary key property, which are scanned
+     * concurrently. Splitting is only supported when that property is an
+     * integral primitive type. By default this value is 1.
+     */
+    public void setIndexRepairParallelism(int parallelism) {
+        mIndexRepairParallelism = Math.max(1, parallelism);
+    }
+
     /**
      * Returns true if all indexes should be identified as clustered. This
      * affects how indexes are selected by the query analyzer.
@@ -39,6 +39,7 @@ import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.Transaction;
 import com.amazon.carbonado.Trigger;
 import com.amazon.carbonado.capability.IndexInfo;
+import com.amazon.carbonado.capability.QueryCacheStats;
 
 import com.amazon.carbonado.cursor.MergeSortBuffer;
 
@@ -183,6 +184,10 @@ class IndexedStorage<S extends Storable> implements Storage<S>, StorageAccess<S>
         return mMasterStorage.removeTrigger(trigger);
     }
 
+    QueryCacheStats getQueryCacheStats() {
+        return mQueryEngine.getQueryCacheStats();
+    }
+
     // Required by StorageAccess.
     public QueryExecutorFactory<S> getQueryExecutorFactory() {
         return mQueryEngine;
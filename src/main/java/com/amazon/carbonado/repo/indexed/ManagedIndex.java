@@ -20,10 +20,14 @@ package com.amazon.carbonado.repo.indexed;
 
 import java.lang.reflect.UndeclaredThrowableException;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,6 +35,7 @@ import org.apache.commons.logging.LogFactory;
 import com.amazon.carbonado.CorruptEncodingException;
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
 import com.amazon.carbonado.FetchTimeoutException;
 import com.amazon.carbonado.IsolationLevel;
 import com.amazon.carbonado.PersistTimeoutException;
@@ -52,9 +57,11 @@ import com.amazon.carbonado.info.OrderedProperty;
 import com.amazon.carbonado.info.StorableKey;
 import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.cursor.MergeSortBuffer;
 
+import com.amazon.carbonado.spi.KeyRangeSplitter;
 import com.amazon.carbonado.spi.RepairExecutor;
 
 import com.amazon.carbonado.synthetic.SyntheticStorableReferenceAccess;
@@ -68,7 +75,7 @@ import com.amazon.carbonado.util.Throttle;
  */
 class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
     private static final int BUILD_SORT_BUFFER_SIZE = 65536;
-    private static final int BUILD_INFO_DELAY_MILLIS = 5000;
+    static final int BUILD_INFO_DELAY_MILLIS = 5000;
     static final int BUILD_BATCH_SIZE = 1000;
     static final int BUILD_THROTTLE_WINDOW = BUILD_BATCH_SIZE * 10;
     static final int BUILD_THROTTLE_SLEEP_PRECISION = 10;
@@ -109,6 +116,11 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
 
     private Query<?> mSingleMatchQuery;
 
+    // Held while building, such that concurrent builds don't replace each
+    // other's progress and lose the removed index entries.
+    private final ReentrantLock mBuildLock = new ReentrantLock();
+    private volatile BuildProgress mBuildProgress;
+
     ManagedIndex(IndexedRepository repository,
                  Storage<S> masterStorage,
                  StorableIndex<S> index,
@@ -184,6 +196,11 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
                    mRepository.getIndexRepairVerifyOnly());
     }
 
+    // Required by IndexEntryAccessor interface.
+    public IndexBuildProgress getBuildProgress() {
+        return mBuildProgress;
+    }
+
     // Required by IndexEntryAccessor interface.
     public Comparator<? extends Storable> getComparator() {
         return mAccessor.getComparator();
@@ -241,7 +258,9 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
     /** Assumes caller is in a transaction */
     boolean deleteIndexEntry(S userStorable) throws PersistException {
         try {
-            return makeIndexEntry(userStorable).tryDelete();
+            Storable indexEntry = makeIndexEntry(userStorable);
+            removed(indexEntry);
+            return indexEntry.tryDelete();
         } catch (PersistException e) {
             Throwable cause = e.getCause();
             if (cause instanceof IllegalArgumentException) {
@@ -286,6 +305,7 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
                 return true;
             }
 
+            removed(oldIndexEntry);
             oldIndexEntry.tryDelete();
         }
 
@@ -293,12 +313,48 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
     }
 
     /**
-     * Build the entire index, repairing as it goes.
-     *
-     * @param repo used to enter transactions
+     * Informs a running build that an index entry is being deleted. The build
+     * might have prepared the entry before the master record changed, and so
+     * it must be checked again when the build finishes.
+     */
+    private void removed(Storable indexEntry) {
+        BuildProgress progress = mBuildProgress;
+        if (progress != null) {
+            progress.removed(indexEntry);
+        }
+    }
+
+    /**
+     * Build the entire index, repairing as it goes. If another build of this
+     * index is in progress, waits for it to finish first.
      */
     void buildIndex(double desiredSpeed, boolean discardDuplicates, boolean verifyOnly)
         throws RepositoryException
+    {
+        try {
+            mBuildLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FetchInterruptedException("Index build interrupted", e);
+        }
+        try {
+            BuildProgress progress = new BuildProgress
+                (verifyOnly ? null : mIndexEntryStorage, getComparator());
+            mBuildProgress = progress;
+            try {
+                buildIndex(desiredSpeed, discardDuplicates, verifyOnly, progress);
+            } finally {
+                mBuildProgress = null;
+                progress.close();
+            }
+        } finally {
+            mBuildLock.unlock();
+        }
+    }
+
+    private void buildIndex(double desiredSpeed, boolean discardDuplicates, boolean verifyOnly,
+                            BuildProgress progress)
+        throws RepositoryException
     {
         final MergeSortBuffer buffer;
         final Comparator c;
@@ -330,77 +386,33 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
             }
         }
 
-        // Enter top transaction with isolation level of none to make sure
-        // preload operation does not run in a long nested transaction.
-        Transaction txn = mRepository.enterTopTransaction(IsolationLevel.NONE);
-        try {
-            Cursor<S> cursor = masterQuery.fetch();
+        if (log.isInfoEnabled()) {
+            StringBuilder b = new StringBuilder();
+            b.append("Preparing index on ");
+            b.append(mMasterStorage.getStorableType().getName());
+            b.append(": ");
             try {
-                if (log.isInfoEnabled()) {
-                    StringBuilder b = new StringBuilder();
-                    b.append("Preparing index on ");
-                    b.append(mMasterStorage.getStorableType().getName());
-                    b.append(": ");
-                    try {
-                        mIndex.appendTo(b);
-                    } catch (java.io.IOException e) {
-                        // Not gonna happen.
-                    }
-                    log.info(b.toString());
-                }
-
-                // Preload and sort all index entries for improved performance.
-
-                buffer = new MergeSortBuffer(mIndexEntryStorage, null, BUILD_SORT_BUFFER_SIZE);
-                c = getComparator();
-                buffer.prepare(c);
-
-                long nextReportTime = System.currentTimeMillis() + BUILD_INFO_DELAY_MILLIS;
-
-                // These variables are used when corrupt records are encountered.
-                S lastUserStorable = null;
-                int skippedCount = 0;
-
-                while (cursor.hasNext()) {
-                    S userStorable;
-                    try {
-                        userStorable = cursor.next();
-                        skippedCount = 0;
-                    } catch (CorruptEncodingException e) {
-                        log.warn("Omitting corrupt record from index: " + e.toString());
-
-                        // Exception forces cursor to close. Close again to be sure.
-                        cursor.close();
-
-                        if (lastUserStorable == null) {
-                            cursor = masterQuery.fetch();
-                        } else {
-                            cursor = masterQuery.fetchAfter(lastUserStorable);
-                        }
-
-                        cursor.skipNext(++skippedCount);
-                        continue;
-                    }
-
-                    buffer.add(makeIndexEntry(userStorable));
+                mIndex.appendTo(b);
+            } catch (java.io.IOException e) {
+                // Not gonna happen.
+            }
+            log.info(b.toString());
+        }
 
-                    if (log.isInfoEnabled()) {
-                        long now = System.currentTimeMillis();
-                        if (now >= nextReportTime) {
-                            log.info("Prepared " + buffer.size() + " index entries");
-                            nextReportTime = now + BUILD_INFO_DELAY_MILLIS;
-                        }
-                    }
+        // Preload and sort all index entries for improved performance.
 
-                    lastUserStorable = userStorable;
-                }
+        buffer = new MergeSortBuffer(mIndexEntryStorage, null, BUILD_SORT_BUFFER_SIZE);
+        c = getComparator();
+        buffer.prepare(c);
 
-                // No need to commit transaction because no changes should have been made.
-            } finally {
-                cursor.close();
-            }
+        boolean prepared = false;
+        try {
+            preload(masterQuery, buffer, progress, log);
+            prepared = true;
         } finally {
-            txn.exit();
+            if (!prepared) {
+                buffer.close();
+            }
         }
 
         // This is not expected to take long, since MergeSortBuffer sorts as
@@ -412,6 +424,8 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
             // _before_ inserting index entries. If there are duplicates,
             // fail, since unique index cannot be built.
 
+            progress.verifying();
+
             log.info("Verifying index");
 
             Object last = null;
@@ -439,6 +453,8 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
 
         final int bufferSize = buffer.size();
 
+        progress.building(bufferSize);
+
         if (log.isInfoEnabled()) {
             log.info("Begin build of " + bufferSize + " index entries");
         }
@@ -454,7 +470,7 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
         long totalDeleted = 0;
         long totalProgress = 0;
 
-        txn = enterBuildTxn();
+        Transaction txn = enterBuildTxn();
         try {
             Cursor<? extends Storable> indexEntryCursor = indexEntryQuery.fetch();
             Storable existingIndexEntry = null;
@@ -552,7 +568,8 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
                                     txn.exit();
 
                                     nextReportTime = logProgress
-                                        (nextReportTime, log, totalProgress, bufferSize,
+                                        (nextReportTime, log, progress,
+                                         totalProgress, bufferSize,
                                          totalInserted, totalUpdated, totalDeleted);
 
                                     txn = enterBuildTxn();
@@ -600,7 +617,8 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
                     txn.commit();
                     txn.exit();
 
-                    nextReportTime = logProgress(nextReportTime, log, totalProgress, bufferSize,
+                    nextReportTime = logProgress(nextReportTime, log, progress,
+                                                 totalProgress, bufferSize,
                                                  totalInserted, totalUpdated, totalDeleted);
 
                     txn = enterBuildTxn();
@@ -629,12 +647,234 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
             buffer.close();
         }
 
+        progress.built(totalProgress, totalInserted, totalUpdated, totalDeleted);
+
+        // Index entries were maintained by triggers during the build, but
+        // entries deleted by triggers might have been inserted again from
+        // stale prepared entries.
+        catchUp(progress.catchingUp(), desiredSpeed, log);
+
         if (log.isInfoEnabled()) {
             log.info("Finished building " + totalProgress + " index entries " +
                      progressSubMessgage(totalInserted, totalUpdated, totalDeleted));
         }
     }
 
+    /**
+     * Prepares index entries for all master records. If configured to do so,
+     * the master records are split into ranges which are scanned concurrently.
+     */
+    private void preload(Query<S> masterQuery, MergeSortBuffer buffer,
+                         final BuildProgress progress, Log log)
+        throws RepositoryException
+    {
+        int parallelism = mRepository.getIndexRepairParallelism();
+
+        Object[] bounds = null;
+        String name = null;
+        if (parallelism > 1) {
+            // Ranges are split over the first primary key property.
+            name = naturalOrdering(mMasterStorage.getStorableType())[0];
+            char direction = name.charAt(0);
+            if (direction == '+' || direction == '-' || direction == '~') {
+                name = name.substring(1);
+            }
+            bounds = KeyRangeSplitter.selectBounds(masterQuery, name, parallelism);
+        }
+
+        if (bounds == null) {
+            preloadRange(masterQuery, buffer, progress, log);
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(bounds.length + 1);
+        for (Query<S> rangeQuery : KeyRangeSplitter.split(masterQuery, name, bounds)) {
+            tasks.add(new PreloadTask(rangeQuery, buffer, progress, log));
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("Preparing index entries in " + tasks.size() + " ranges");
+        }
+
+        KeyRangeSplitter.runAll(tasks, new Runnable() {
+            public void run() {
+                // Stop the remaining ranges as soon as possible.
+                progress.cancel();
+            }
+        });
+    }
+
+    /**
+     * Prepares index entries for the given range of master records, in the
+     * current thread. Entries are added to the shared buffer in batches.
+     */
+    private void preloadRange(Query<S> masterQuery, MergeSortBuffer buffer,
+                              BuildProgress progress, Log log)
+        throws RepositoryException
+    {
+        List<Storable> batch = new ArrayList<Storable>(BUILD_BATCH_SIZE);
+
+        // Enter top transaction with isolation level of none to make sure
+        // preload operation does not run in a long nested transaction.
+        Transaction txn = mRepository.enterTopTransaction(IsolationLevel.NONE);
+        try {
+            Cursor<S> cursor = masterQuery.fetch();
+            try {
+                // These variables are used when corrupt records are encountered.
+                S lastUserStorable = null;
+                int skippedCount = 0;
+
+                while (cursor.hasNext()) {
+                    S userStorable;
+                    try {
+                        userStorable = cursor.next();
+                        skippedCount = 0;
+                    } catch (CorruptEncodingException e) {
+                        log.warn("Omitting corrupt record from index: " + e.toString());
+
+                        // Exception forces cursor to close. Close again to be sure.
+                        cursor.close();
+
+                        if (lastUserStorable == null) {
+                            cursor = masterQuery.fetch();
+                        } else {
+                            cursor = masterQuery.fetchAfter(lastUserStorable);
+                        }
+
+                        cursor.skipNext(++skippedCount);
+                        continue;
+                    }
+
+                    batch.add(makeIndexEntry(userStorable));
+
+                    if (batch.size() >= BUILD_BATCH_SIZE) {
+                        if (progress.isCancelled()) {
+                            return;
+                        }
+                        addBatch(buffer, batch, progress, log);
+                    }
+
+                    lastUserStorable = userStorable;
+                }
+
+                addBatch(buffer, batch, progress, log);
+
+                // No need to commit transaction because no changes should have been made.
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            txn.exit();
+        }
+    }
+
+    private static void addBatch(MergeSortBuffer buffer, List<Storable> batch,
+                                 BuildProgress progress, Log log)
+    {
+        synchronized (buffer) {
+            buffer.addAll(batch);
+        }
+
+        long prepared = progress.prepared(batch.size());
+        batch.clear();
+
+        if (log.isInfoEnabled() && progress.isReportDue()) {
+            log.info("Prepared " + prepared + " index entries");
+        }
+    }
+
+    /**
+     * Deletes index entries which were removed by triggers while the index was
+     * being built, unless they are still consistent with their master.
+     *
+     * @param removed removed index entries sorted by key, or null if none
+     */
+    private void catchUp(MergeSortBuffer<Storable> removed, double desiredSpeed, Log log)
+        throws RepositoryException
+    {
+        if (removed == null) {
+            return;
+        }
+
+        long totalDeleted = 0;
+
+        try {
+            if (removed.isEmpty()) {
+                return;
+            }
+
+            if (log.isInfoEnabled()) {
+                log.info("Checking " + removed.size() + " index entries changed during build");
+            }
+
+            Throttle throttle = desiredSpeed < 1.0 ? new Throttle(BUILD_THROTTLE_WINDOW) : null;
+            Comparator c = getComparator();
+
+            Transaction txn = enterBuildTxn();
+            try {
+                Iterator<Storable> it = removed.iterator();
+                Storable last = null;
+                int i = 0;
+                while (it.hasNext()) {
+                    Storable entry = it.next();
+                    if (last != null && c.compare(last, entry) == 0) {
+                        // Same index entry was removed more than once.
+                        continue;
+                    }
+                    last = entry;
+
+                    Storable existing = entry.copy();
+                    while (true) {
+                        try {
+                            if (existing.tryLoad()) {
+                                S master = mMasterStorage.prepare();
+                                copyToMasterPrimaryKey(existing, master);
+                                if (!master.tryLoad() || !isConsistent(existing, master)) {
+                                    existing.tryDelete();
+                                    totalDeleted++;
+                                }
+                            }
+                            break;
+                        } catch (RepositoryException e) {
+                            if (e instanceof FetchTimeoutException ||
+                                e instanceof PersistTimeoutException)
+                            {
+                                log.warn("Lock conflict during index repair; will retry: " +
+                                         existing + ", " + e);
+                                // Force the current transaction to commit and
+                                // check the same entry again.
+                                txn.commit();
+                                txn.exit();
+                                txn = enterBuildTxn();
+                                existing = entry.copy();
+                                continue;
+                            }
+                            throw e;
+                        }
+                    }
+
+                    if (++i % BUILD_BATCH_SIZE == 0) {
+                        txn.commit();
+                        txn.exit();
+                        txn = enterBuildTxn();
+                    }
+
+                    throttle(throttle, desiredSpeed);
+                }
+
+                txn.commit();
+            } finally {
+                txn.exit();
+            }
+        } finally {
+            removed.close();
+        }
+
+        if (totalDeleted > 0 && log.isInfoEnabled()) {
+            log.info("Deleted " + totalDeleted + " stale index entries");
+        }
+    }
+
     private Transaction enterBuildTxn() {
         Transaction txn = mRepository.enterTopTransaction(IsolationLevel.READ_COMMITTED);
         txn.setForUpdate(true);
@@ -649,15 +889,18 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
             try {
                 throttle.throttle(desiredSpeed, BUILD_THROTTLE_SLEEP_PRECISION);
             } catch (InterruptedException e) {
-                throw new RepositoryException("Index build interrupted");
+                Thread.currentThread().interrupt();
+                throw new FetchInterruptedException("Index build interrupted", e);
             }
         }
     }
 
-    private long logProgress(long nextReportTime, Log log,
+    private long logProgress(long nextReportTime, Log log, BuildProgress progress,
                              long totalProgress, int bufferSize,
                              long totalInserted, long totalUpdated, long totalDeleted)
     {
+        progress.built(totalProgress, totalInserted, totalUpdated, totalDeleted);
+
         long now = System.currentTimeMillis();
         if (now >= nextReportTime) {
             if (log.isInfoEnabled()) {
@@ -758,4 +1001,28 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
 
         return false;
     }
+
+    /**
+     * Prepares index entries for one range of master records.
+     */
+    private class PreloadTask implements Callable<Object> {
+        private final Query<S> mMasterQuery;
+        private final MergeSortBuffer mBuffer;
+        private final BuildProgress mProgress;
+        private final Log mLog;
+
+        PreloadTask(Query<S> masterQuery, MergeSortBuffer buffer,
+                    BuildProgress progress, Log log)
+        {
+            mMasterQuery = masterQuery;
+            mBuffer = buffer;
+            mProgress = progress;
+            mLog = log;
+        }
+
+        public Object call() throws Exception {
+            preloadRange(mMasterQuery, mBuffer, mProgress, mLog);
+            return null;
+        }
+    }
 }
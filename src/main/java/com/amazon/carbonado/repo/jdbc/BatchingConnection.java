@@ -0,0 +1,468 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Savepoint;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.amazon.carbonado.OptimisticLockException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PersistNoneException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Connection used by transactions when write batching is enabled. Consecutive
+ * insert and update statements with the same SQL are queued as a JDBC
+ * batch. The batch is executed before any other statement is prepared, before
+ * the transaction commits or creates a savepoint, and when the batch is full.
+ * Rolling back discards the batch.
+ *
+ * <p>Storable writes are queued by calling {@link #executeUpdate}, which
+ * records the Storable. If the batch fails, the exception identifies the
+ * Storable which caused it. An update which matches no rows fails with an
+ * {@link OptimisticLockException} or {@link PersistNoneException}, wrapped by
+ * an SQLException.
+ *
+ * <p>Only writes by {@link Storable#insert insert} and {@link Storable#update
+ * update} are queued, because they report failure with an exception. The
+ * tryInsert, tryUpdate and delete methods must report whether a record was
+ * actually written, and so they execute immediately, after the queued
+ * writes.
+ */
+class BatchingConnection extends DelegatingConnection {
+    /**
+     * Executes an insert, update or delete statement on behalf of the given
+     * Storable, queueing it if deferrable and the statement was prepared by a
+     * BatchingConnection. Deletes are never queued.
+     *
+     * @param deferrable false if the actual update count is required
+     * @return update count, which is one if queued
+     */
+    static int executeUpdate(PreparedStatement ps, Storable storable, boolean deferrable)
+        throws SQLException
+    {
+        if (deferrable && ps instanceof BatchedStatement) {
+            return ((BatchedStatement) ps).add(storable);
+        }
+        return ps.executeUpdate();
+    }
+
+    /**
+     * Returns true if the exception was caused by a queued write, which was
+     * requested on behalf of a different Storable than the current one.
+     */
+    static boolean isQueuedWriteFailure(SQLException e) {
+        return e instanceof QueuedWriteException;
+    }
+
+    private final int mMaxBatchSize;
+
+    // Statement which is accepting queued writes, possibly none yet.
+    private BatchedStatement mBatch;
+
+    /**
+     * @param maxBatchSize maximum amount of queued writes before the batch is
+     * executed
+     */
+    BatchingConnection(Connection con, int maxBatchSize) {
+        super(con);
+        mMaxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        flush();
+        return mCon.createStatement();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency)
+        throws SQLException
+    {
+        flush();
+        return mCon.createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency,
+                                     int resultSetHoldability)
+        throws SQLException
+    {
+        flush();
+        return mCon.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        BatchedStatement batch = mBatch;
+        if (batch != null) {
+            if (batch.mSQL.equals(sql)) {
+                return batch;
+            }
+            flush();
+        }
+
+        if (!isBatchable(sql)) {
+            return mCon.prepareStatement(sql);
+        }
+
+        if (batch != null) {
+            mBatch = null;
+            batch.mStatement.close();
+        }
+
+        return mBatch = new BatchedStatement(this, mCon.prepareStatement(sql), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+                                              int resultSetConcurrency)
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+                                              int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareStatement
+            (sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int columnIndexes[])
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String columnNames[])
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        flush();
+        return mCon.prepareCall(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType,
+                                         int resultSetConcurrency)
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType,
+                                         int resultSetConcurrency,
+                                         int resultSetHoldability)
+        throws SQLException
+    {
+        flush();
+        return mCon.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        flush();
+        mCon.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        flush();
+        mCon.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        discard();
+        mCon.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        BatchedStatement batch = mBatch;
+        if (batch != null) {
+            mBatch = null;
+            try {
+                batch.mStatement.close();
+            } catch (SQLException e) {
+                // Don't care.
+            }
+        }
+        mCon.close();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        flush();
+        mCon.setTransactionIsolation(level);
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        flush();
+        return mCon.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        flush();
+        return mCon.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        // Batch was executed when the savepoint was created, and so all
+        // queued writes follow the savepoint.
+        discard();
+        mCon.rollback(savepoint);
+    }
+
+    /**
+     * Executes all queued writes.
+     */
+    void flush() throws SQLException {
+        BatchedStatement batch = mBatch;
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    /**
+     * Discards all queued writes.
+     */
+    private void discard() throws SQLException {
+        BatchedStatement batch = mBatch;
+        if (batch != null) {
+            batch.discard();
+        }
+    }
+
+    private static boolean isBatchable(String sql) {
+        // Deletes must return the actual update count, and so they are not
+        // batched.
+        return sql.regionMatches(true, 0, "INSERT ", 0, 7)
+            || sql.regionMatches(true, 0, "UPDATE ", 0, 7);
+    }
+
+    private class BatchedStatement extends DelegatingPreparedStatement {
+        final String mSQL;
+        private final boolean mIsUpdate;
+
+        // Storables which correspond to each queued write. The last element
+        // is null for a write which is executed immediately.
+        private final List<Storable> mQueued;
+
+        BatchedStatement(Connection con, PreparedStatement ps, String sql) {
+            super(con, ps);
+            mSQL = sql;
+            mIsUpdate = sql.regionMatches(true, 0, "UPDATE ", 0, 7);
+            mQueued = new ArrayList<Storable>();
+        }
+
+        int add(Storable storable) throws SQLException {
+            mStatement.addBatch();
+            mQueued.add(storable);
+            if (mQueued.size() >= mMaxBatchSize) {
+                flush();
+            }
+            return 1;
+        }
+
+        /**
+         * Executes immediately, after executing the queued writes. Executing
+         * the batch can replace the parameters which are already set, and so
+         * the write is executed as the last entry of the batch.
+         */
+        @Override
+        public int executeUpdate() throws SQLException {
+            if (mQueued.isEmpty()) {
+                return mStatement.executeUpdate();
+            }
+            mStatement.addBatch();
+            mQueued.add(null);
+            int[] counts = executeQueued();
+            return counts[counts.length - 1];
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            if (mQueued.isEmpty()) {
+                return mStatement.execute();
+            }
+            executeUpdate();
+            return false;
+        }
+
+        /**
+         * Statement is kept open for the next write with the same SQL, and it
+         * is closed when superseded or when the connection is closed.
+         */
+        @Override
+        public void close() {
+        }
+
+        void flush() throws SQLException {
+            if (!mQueued.isEmpty()) {
+                executeQueued();
+            }
+        }
+
+        private int[] executeQueued() throws SQLException {
+            List<Storable> queued = mQueued;
+            int[] counts;
+            try {
+                counts = mStatement.executeBatch();
+            } catch (BatchUpdateException e) {
+                // Drivers either stop at the first failure or mark it as
+                // failed and continue.
+                int index = 0;
+                int[] partial = e.getUpdateCounts();
+                if (partial != null) {
+                    index = partial.length;
+                    for (int i=0; i<partial.length; i++) {
+                        if (partial[i] == Statement.EXECUTE_FAILED) {
+                            index = i;
+                            break;
+                        }
+                    }
+                }
+                if (index == queued.size() - 1 && queued.get(index) == null) {
+                    // Write which was executed immediately failed, and so
+                    // report the actual problem.
+                    discard();
+                    throw cause(e);
+                }
+                Storable storable = index < queued.size() ? queued.get(index) : null;
+                discard();
+                throw failed(e, storable);
+            } catch (SQLException e) {
+                discard();
+                throw e;
+            }
+
+            try {
+                if (mIsUpdate) {
+                    for (int i=0; i<counts.length && i<queued.size(); i++) {
+                        Storable storable = queued.get(i);
+                        if (counts[i] == 0 && storable != null) {
+                            throw notUpdated(storable);
+                        }
+                    }
+                }
+            } finally {
+                queued.clear();
+            }
+
+            return counts;
+        }
+
+        void discard() throws SQLException {
+            if (!mQueued.isEmpty()) {
+                mQueued.clear();
+                mStatement.clearBatch();
+            }
+        }
+
+        /**
+         * Returns an exception which identifies the failed Storable and
+         * retains the SQL state, for proper exception transformation.
+         */
+        private SQLException failed(BatchUpdateException e, Storable storable) {
+            SQLException cause = cause(e);
+            String message = storable == null ? "Batched write failed: "
+                : ("Batched write failed for " + storable + ": ");
+            SQLException se = new QueuedWriteException
+                (message + cause.getMessage(), cause.getSQLState(), cause.getErrorCode());
+            se.initCause(e);
+            return se;
+        }
+
+        /**
+         * Some drivers only describe the actual problem in the chained exception.
+         */
+        private SQLException cause(BatchUpdateException e) {
+            if (e.getSQLState() == null && e.getNextException() != null) {
+                return e.getNextException();
+            }
+            return e;
+        }
+
+        /**
+         * Returns an exception for an update which matched no rows. Like a
+         * non-batched update, a version mismatch is assumed if the Storable
+         * has a version property, although the record might have been deleted.
+         */
+        private SQLException notUpdated(Storable storable) {
+            PersistException pe;
+            StorableProperty<?> versionProperty = StorableIntrospector
+                .examine(storable.storableType()).getVersionProperty();
+            if (versionProperty == null) {
+                pe = new PersistNoneException("Cannot update missing object: " + storable);
+            } else {
+                pe = new OptimisticLockException
+                    (storable.getPropertyValue(versionProperty.getName()), (Object) null, storable);
+            }
+            SQLException se = new QueuedWriteException(pe.getMessage(), null, 0);
+            se.initCause(pe);
+            return se;
+        }
+    }
+
+    private static class QueuedWriteException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        QueuedWriteException(String message, String sqlState, int errorCode) {
+            super(message, sqlState, errorCode);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import javax.sql.DataSource;
+
+/**
+ * Snapshot of the connection routing statistics of a DataSource used by a
+ * JDBC repository. Counts accumulate from the time the repository was opened.
+ *
+ * <p>DataSourceStats instances are thread-safe and immutable.
+ *
+ * @see JDBCConnectionCapability#getDataSourceStats
+ */
+public interface DataSourceStats {
+    /**
+     * Returns the DataSource these statistics apply to.
+     */
+    DataSource getDataSource();
+
+    /**
+     * Returns true if the DataSource is a read-only replica, or false if it
+     * is the primary.
+     */
+    boolean isReplica();
+
+    /**
+     * Returns the amount of connections successfully opened.
+     */
+    long getConnectionCount();
+
+    /**
+     * Returns the amount of attempts to open a connection which failed.
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the total time spent opening connections, in nanoseconds,
+     * including failed attempts.
+     */
+    long getTotalLatencyNanos();
+
+    /**
+     * Returns the longest time spent opening a connection, in nanoseconds.
+     */
+    long getMaxLatencyNanos();
+}
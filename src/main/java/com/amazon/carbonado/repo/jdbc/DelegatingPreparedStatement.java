@@ -0,0 +1,549 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.sql.*;
+
+/**
+ * PreparedStatement which delegates all calls to another statement. Subclasses
+ * override the calls they need to intercept.
+ */
+class DelegatingPreparedStatement implements PreparedStatement {
+    private final Connection mCon;
+    protected final PreparedStatement mStatement;
+
+    DelegatingPreparedStatement(Connection con, PreparedStatement ps) {
+        mCon = con;
+        mStatement = ps;
+    }
+
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return mStatement.executeQuery(sql);
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        return mStatement.executeUpdate(sql);
+    }
+
+    public boolean execute(String sql) throws SQLException {
+        return mStatement.execute(sql);
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return mStatement.executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    public int executeUpdate(String sql, int columnIndexes[]) throws SQLException {
+        return mStatement.executeUpdate(sql, columnIndexes);
+    }
+
+    public int executeUpdate(String sql, String columnNames[]) throws SQLException {
+        return mStatement.executeUpdate(sql, columnNames);
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return mStatement.execute(sql, autoGeneratedKeys);
+    }
+
+    public boolean execute(String sql, int columnIndexes[]) throws SQLException {
+        return mStatement.execute(sql, columnIndexes);
+    }
+
+    public boolean execute(String sql, String columnNames[]) throws SQLException {
+        return mStatement.execute(sql, columnNames);
+    }
+
+    public void addBatch(String sql) throws SQLException {
+        mStatement.addBatch(sql);
+    }
+
+    public void clearBatch() throws SQLException {
+        mStatement.clearBatch();
+    }
+
+    public int[] executeBatch() throws SQLException {
+        return mStatement.executeBatch();
+    }
+
+    public void close() throws SQLException {
+        mStatement.close();
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        return mStatement.getMaxFieldSize();
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        mStatement.setMaxFieldSize(max);
+    }
+
+    public int getMaxRows() throws SQLException {
+        return mStatement.getMaxRows();
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        mStatement.setMaxRows(max);
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        mStatement.setEscapeProcessing(enable);
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        return mStatement.getQueryTimeout();
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        mStatement.setQueryTimeout(seconds);
+    }
+
+    public void cancel() throws SQLException {
+        mStatement.cancel();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return mStatement.getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        mStatement.clearWarnings();
+    }
+
+    public void setCursorName(String name) throws SQLException {
+        mStatement.setCursorName(name);
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        return mStatement.getResultSet();
+    }
+
+    public int getUpdateCount() throws SQLException {
+        return mStatement.getUpdateCount();
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        return mStatement.getMoreResults();
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        mStatement.setFetchDirection(direction);
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return mStatement.getFetchDirection();
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        mStatement.setFetchSize(rows);
+    }
+
+    public int getFetchSize() throws SQLException {
+        return mStatement.getFetchSize();
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        return mStatement.getResultSetConcurrency();
+    }
+
+    public int getResultSetType()  throws SQLException {
+        return mStatement.getResultSetType();
+    }
+
+    public Connection getConnection() {
+        return mCon;
+    }
+
+    public boolean getMoreResults(int current) throws SQLException {
+        return mStatement.getMoreResults(current);
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return mStatement.getGeneratedKeys();
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return mStatement.getResultSetHoldability();
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isClosed() throws SQLException {
+        return mStatement.isClosed();
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setPoolable(boolean poolable) throws SQLException {
+        mStatement.setPoolable(poolable);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isPoolable() throws SQLException {
+        return mStatement.isPoolable();
+    }
+
+    /**
+     * @since 1.2
+     */
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return mStatement.unwrap(iface);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return mStatement.isWrapperFor(iface);
+    }
+
+    public void closeOnCompletion() throws SQLException {
+        mStatement.closeOnCompletion();
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        return mStatement.isCloseOnCompletion();
+    }
+
+    public ResultSet executeQuery() throws SQLException {
+        return mStatement.executeQuery();
+    }
+
+    public int executeUpdate() throws SQLException {
+        return mStatement.executeUpdate();
+    }
+
+    public boolean execute() throws SQLException {
+        return mStatement.execute();
+    }
+
+    public void addBatch() throws SQLException {
+        mStatement.addBatch();
+    }
+
+    public void clearParameters() throws SQLException {
+        mStatement.clearParameters();
+    }
+
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        mStatement.setNull(parameterIndex, sqlType);
+    }
+
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        mStatement.setBoolean(parameterIndex, x);
+    }
+
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        mStatement.setByte(parameterIndex, x);
+    }
+
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        mStatement.setShort(parameterIndex, x);
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        mStatement.setInt(parameterIndex, x);
+    }
+
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        mStatement.setLong(parameterIndex, x);
+    }
+
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        mStatement.setFloat(parameterIndex, x);
+    }
+
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        mStatement.setDouble(parameterIndex, x);
+    }
+
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        mStatement.setBigDecimal(parameterIndex, x);
+    }
+
+    public void setString(int parameterIndex, String x) throws SQLException {
+        mStatement.setString(parameterIndex, x);
+    }
+
+    public void setBytes(int parameterIndex, byte x[]) throws SQLException {
+        mStatement.setBytes(parameterIndex, x);
+    }
+
+    public void setDate(int parameterIndex, java.sql.Date x)
+        throws SQLException
+    {
+        mStatement.setDate(parameterIndex, x);
+    }
+
+    public void setTime(int parameterIndex, java.sql.Time x)
+        throws SQLException
+    {
+        mStatement.setTime(parameterIndex, x);
+    }
+
+    public void setTimestamp(int parameterIndex, java.sql.Timestamp x)
+        throws SQLException
+    {
+        mStatement.setTimestamp(parameterIndex, x);
+    }
+
+    public void setAsciiStream(int parameterIndex, java.io.InputStream x, int length)
+        throws SQLException
+    {
+        mStatement.setAsciiStream(parameterIndex, x, length);
+    }
+
+    @Deprecated
+    public void setUnicodeStream(int parameterIndex, java.io.InputStream x, int length)
+        throws SQLException
+    {
+        mStatement.setUnicodeStream(parameterIndex, x, length);
+    }
+
+    public void setBinaryStream(int parameterIndex, java.io.InputStream x, int length)
+        throws SQLException
+    {
+        mStatement.setBinaryStream(parameterIndex, x, length);
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scale)
+        throws SQLException
+    {
+        mStatement.setObject(parameterIndex, x, targetSqlType, scale);
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType)
+        throws SQLException
+    {
+        mStatement.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        mStatement.setObject(parameterIndex, x);
+    }
+
+    public void setCharacterStream(int parameterIndex,
+                                   java.io.Reader reader,
+                                   int length)
+        throws SQLException
+    {
+        mStatement.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    public void setRef(int i, Ref x) throws SQLException {
+        mStatement.setRef(i, x);
+    }
+
+    public void setBlob(int i, Blob x) throws SQLException {
+        mStatement.setBlob(i, x);
+    }
+
+    public void setClob(int i, Clob x) throws SQLException {
+        mStatement.setClob(i, x);
+    }
+
+    public void setArray(int i, Array x) throws SQLException {
+        mStatement.setArray(i, x);
+    }
+
+    public void setDate(int parameterIndex, java.sql.Date x, Calendar cal)
+        throws SQLException
+    {
+        mStatement.setDate(parameterIndex, x, cal);
+    }
+
+    public void setTime(int parameterIndex, java.sql.Time x, Calendar cal)
+        throws SQLException
+    {
+        mStatement.setTime(parameterIndex, x, cal);
+    }
+
+    public void setTimestamp(int parameterIndex, java.sql.Timestamp x, Calendar cal)
+        throws SQLException
+    {
+        mStatement.setTimestamp(parameterIndex, x, cal);
+    }
+
+    public void setNull(int paramIndex, int sqlType, String typeName)
+        throws SQLException
+    {
+        mStatement.setNull(paramIndex, sqlType, typeName);
+    }
+
+    public void setURL(int parameterIndex, java.net.URL x) throws SQLException {
+        mStatement.setURL(parameterIndex, x);
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return mStatement.getMetaData();
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return mStatement.getParameterMetaData();
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        mStatement.setRowId(parameterIndex, x);
+    }
+ 
+    /**
+     * @since 1.2
+     */
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        mStatement.setNString(parameterIndex, value);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setNCharacterStream(int parameterIndex, java.io.Reader value, long length)
+        throws SQLException
+    {
+        mStatement.setNCharacterStream(parameterIndex, value, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        mStatement.setNClob(parameterIndex, value);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setClob(int parameterIndex, java.io.Reader reader, long length)
+        throws SQLException
+    {
+        mStatement.setClob(parameterIndex, reader, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setBlob(int parameterIndex, java.io.InputStream inputStream, long length)
+        throws SQLException
+    {
+        mStatement.setBlob(parameterIndex, inputStream, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setNClob(int parameterIndex, java.io.Reader reader, long length)
+        throws SQLException
+    {
+        mStatement.setNClob(parameterIndex, reader, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        mStatement.setSQLXML(parameterIndex, xmlObject);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setAsciiStream(int parameterIndex, java.io.InputStream x, long length)
+        throws SQLException
+    {
+        mStatement.setAsciiStream(parameterIndex, x, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setBinaryStream(int parameterIndex, java.io.InputStream x, long length)
+        throws SQLException
+    {
+        mStatement.setBinaryStream(parameterIndex, x, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setCharacterStream(int parameterIndex,
+                                   java.io.Reader reader,
+                                   long length)
+        throws SQLException
+    {
+        mStatement.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setAsciiStream(int parameterIndex, java.io.InputStream x) throws SQLException {
+        mStatement.setAsciiStream(parameterIndex, x);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setBinaryStream(int parameterIndex, java.io.InputStream x) throws SQLException {
+        mStatement.setBinaryStream(parameterIndex, x);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setCharacterStream(int parameterIndex, java.io.Reader reader) throws SQLException {
+        mStatement.setCharacterStream(parameterIndex, reader);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setNCharacterStream(int parameterIndex, java.io.Reader value) throws SQLException {
+        mStatement.setNCharacterStream(parameterIndex, value);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setClob(int parameterIndex, java.io.Reader reader) throws SQLException {
+        mStatement.setClob(parameterIndex, reader);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setBlob(int parameterIndex, java.io.InputStream inputStream)
+        throws SQLException
+    {
+        mStatement.setBlob(parameterIndex, inputStream);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setNClob(int parameterIndex, java.io.Reader reader) throws SQLException {
+        mStatement.setNClob(parameterIndex, reader);
+    }
+}
@@ -0,0 +1,823 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.Calendar;
+import java.util.Map;
+import java.sql.*;
+
+/**
+ * ResultSet which delegates all calls to another result set. Subclasses
+ * override the calls they need to intercept.
+ */
+class DelegatingResultSet implements ResultSet {
+    protected final ResultSet mResultSet;
+
+    DelegatingResultSet(ResultSet rs) {
+        mResultSet = rs;
+    }
+
+    public boolean absolute(int rows) throws SQLException {
+        return mResultSet.absolute(rows);
+    }
+
+    public void afterLast() throws SQLException {
+        mResultSet.afterLast();
+    }
+
+    public void beforeFirst() throws SQLException {
+        mResultSet.beforeFirst();
+    }
+
+    public void cancelRowUpdates() throws SQLException {
+        mResultSet.cancelRowUpdates();
+    }
+
+    public void clearWarnings() throws SQLException {
+        mResultSet.clearWarnings();
+    }
+
+    public void close() throws SQLException {
+        mResultSet.close();
+    }
+
+    public void deleteRow() throws SQLException {
+        mResultSet.deleteRow();
+    }
+
+    public int findColumn(String columnLabel) throws SQLException {
+        return mResultSet.findColumn(columnLabel);
+    }
+
+    public boolean first() throws SQLException {
+        return mResultSet.first();
+    }
+
+    public Array getArray(String columnLabel) throws SQLException {
+        return mResultSet.getArray(columnLabel);
+    }
+
+    public Array getArray(int columnIndex) throws SQLException {
+        return mResultSet.getArray(columnIndex);
+    }
+
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        return mResultSet.getAsciiStream(columnIndex);
+    }
+
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        return mResultSet.getAsciiStream(columnLabel);
+    }
+
+    @Deprecated
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        return mResultSet.getBigDecimal(columnLabel, scale);
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return mResultSet.getBigDecimal(columnIndex);
+    }
+
+    @Deprecated
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        return mResultSet.getBigDecimal(columnIndex, scale);
+    }
+
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return mResultSet.getBigDecimal(columnLabel);
+    }
+
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        return mResultSet.getBinaryStream(columnLabel);
+    }
+
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        return mResultSet.getBinaryStream(columnIndex);
+    }
+
+    public Blob getBlob(int columnIndex) throws SQLException {
+        return mResultSet.getBlob(columnIndex);
+    }
+
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return mResultSet.getBlob(columnLabel);
+    }
+
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return mResultSet.getBoolean(columnLabel);
+    }
+
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        return mResultSet.getBoolean(columnIndex);
+    }
+
+    public byte getByte(String columnLabel) throws SQLException {
+        return mResultSet.getByte(columnLabel);
+    }
+
+    public byte getByte(int columnIndex) throws SQLException {
+        return mResultSet.getByte(columnIndex);
+    }
+
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        return mResultSet.getBytes(columnLabel);
+    }
+
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        return mResultSet.getBytes(columnIndex);
+    }
+
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        return mResultSet.getCharacterStream(columnLabel);
+    }
+
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        return mResultSet.getCharacterStream(columnIndex);
+    }
+
+    public Clob getClob(int columnIndex) throws SQLException {
+        return mResultSet.getClob(columnIndex);
+    }
+
+    public Clob getClob(String columnLabel) throws SQLException {
+        return mResultSet.getClob(columnLabel);
+    }
+
+    public int getConcurrency() throws SQLException {
+        return mResultSet.getConcurrency();
+    }
+
+    public String getCursorName() throws SQLException {
+        return mResultSet.getCursorName();
+    }
+
+    public Date getDate(String columnLabel) throws SQLException {
+        return mResultSet.getDate(columnLabel);
+    }
+
+    public Date getDate(int columnIndex) throws SQLException {
+        return mResultSet.getDate(columnIndex);
+    }
+
+    public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+        return mResultSet.getDate(columnIndex, cal);
+    }
+
+    public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+        return mResultSet.getDate(columnLabel, cal);
+    }
+
+    public double getDouble(int columnIndex) throws SQLException {
+        return mResultSet.getDouble(columnIndex);
+    }
+
+    public double getDouble(String columnLabel) throws SQLException {
+        return mResultSet.getDouble(columnLabel);
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return mResultSet.getFetchDirection();
+    }
+
+    public int getFetchSize() throws SQLException {
+        return mResultSet.getFetchSize();
+    }
+
+    public float getFloat(String columnLabel) throws SQLException {
+        return mResultSet.getFloat(columnLabel);
+    }
+
+    public float getFloat(int columnIndex) throws SQLException {
+        return mResultSet.getFloat(columnIndex);
+    }
+
+    public int getHoldability() throws SQLException {
+        return mResultSet.getHoldability();
+    }
+
+    public int getInt(int columnIndex) throws SQLException {
+        return mResultSet.getInt(columnIndex);
+    }
+
+    public int getInt(String columnLabel) throws SQLException {
+        return mResultSet.getInt(columnLabel);
+    }
+
+    public long getLong(String columnLabel) throws SQLException {
+        return mResultSet.getLong(columnLabel);
+    }
+
+    public long getLong(int columnIndex) throws SQLException {
+        return mResultSet.getLong(columnIndex);
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return mResultSet.getMetaData();
+    }
+
+    public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        return mResultSet.getNCharacterStream(columnIndex);
+    }
+
+    public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        return mResultSet.getNCharacterStream(columnLabel);
+    }
+
+    public NClob getNClob(int columnIndex) throws SQLException {
+        return mResultSet.getNClob(columnIndex);
+    }
+
+    public NClob getNClob(String columnLabel) throws SQLException {
+        return mResultSet.getNClob(columnLabel);
+    }
+
+    public String getNString(String columnLabel) throws SQLException {
+        return mResultSet.getNString(columnLabel);
+    }
+
+    public String getNString(int columnIndex) throws SQLException {
+        return mResultSet.getNString(columnIndex);
+    }
+
+    public Object getObject(String columnLabel) throws SQLException {
+        return mResultSet.getObject(columnLabel);
+    }
+
+    public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+        return mResultSet.getObject(columnIndex, map);
+    }
+
+    public Object getObject(int columnIndex) throws SQLException {
+        return mResultSet.getObject(columnIndex);
+    }
+
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        return mResultSet.getObject(columnLabel, type);
+    }
+
+    public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+        return mResultSet.getObject(columnLabel, map);
+    }
+
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        return mResultSet.getObject(columnIndex, type);
+    }
+
+    public Ref getRef(int columnIndex) throws SQLException {
+        return mResultSet.getRef(columnIndex);
+    }
+
+    public Ref getRef(String columnLabel) throws SQLException {
+        return mResultSet.getRef(columnLabel);
+    }
+
+    public int getRow() throws SQLException {
+        return mResultSet.getRow();
+    }
+
+    public RowId getRowId(int columnIndex) throws SQLException {
+        return mResultSet.getRowId(columnIndex);
+    }
+
+    public RowId getRowId(String columnLabel) throws SQLException {
+        return mResultSet.getRowId(columnLabel);
+    }
+
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        return mResultSet.getSQLXML(columnIndex);
+    }
+
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        return mResultSet.getSQLXML(columnLabel);
+    }
+
+    public short getShort(String columnLabel) throws SQLException {
+        return mResultSet.getShort(columnLabel);
+    }
+
+    public short getShort(int columnIndex) throws SQLException {
+        return mResultSet.getShort(columnIndex);
+    }
+
+    public Statement getStatement() throws SQLException {
+        return mResultSet.getStatement();
+    }
+
+    public String getString(String columnLabel) throws SQLException {
+        return mResultSet.getString(columnLabel);
+    }
+
+    public String getString(int columnIndex) throws SQLException {
+        return mResultSet.getString(columnIndex);
+    }
+
+    public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+        return mResultSet.getTime(columnIndex, cal);
+    }
+
+    public Time getTime(String columnLabel) throws SQLException {
+        return mResultSet.getTime(columnLabel);
+    }
+
+    public Time getTime(int columnIndex) throws SQLException {
+        return mResultSet.getTime(columnIndex);
+    }
+
+    public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+        return mResultSet.getTime(columnLabel, cal);
+    }
+
+    public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+        return mResultSet.getTimestamp(columnIndex, cal);
+    }
+
+    public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+        return mResultSet.getTimestamp(columnLabel, cal);
+    }
+
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        return mResultSet.getTimestamp(columnLabel);
+    }
+
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        return mResultSet.getTimestamp(columnIndex);
+    }
+
+    public int getType() throws SQLException {
+        return mResultSet.getType();
+    }
+
+    public URL getURL(String columnLabel) throws SQLException {
+        return mResultSet.getURL(columnLabel);
+    }
+
+    public URL getURL(int columnIndex) throws SQLException {
+        return mResultSet.getURL(columnIndex);
+    }
+
+    @Deprecated
+    public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        return mResultSet.getUnicodeStream(columnLabel);
+    }
+
+    @Deprecated
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        return mResultSet.getUnicodeStream(columnIndex);
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return mResultSet.getWarnings();
+    }
+
+    public void insertRow() throws SQLException {
+        mResultSet.insertRow();
+    }
+
+    public boolean isAfterLast() throws SQLException {
+        return mResultSet.isAfterLast();
+    }
+
+    public boolean isBeforeFirst() throws SQLException {
+        return mResultSet.isBeforeFirst();
+    }
+
+    public boolean isClosed() throws SQLException {
+        return mResultSet.isClosed();
+    }
+
+    public boolean isFirst() throws SQLException {
+        return mResultSet.isFirst();
+    }
+
+    public boolean isLast() throws SQLException {
+        return mResultSet.isLast();
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return mResultSet.isWrapperFor(iface);
+    }
+
+    public boolean last() throws SQLException {
+        return mResultSet.last();
+    }
+
+    public void moveToCurrentRow() throws SQLException {
+        mResultSet.moveToCurrentRow();
+    }
+
+    public void moveToInsertRow() throws SQLException {
+        mResultSet.moveToInsertRow();
+    }
+
+    public boolean next() throws SQLException {
+        return mResultSet.next();
+    }
+
+    public boolean previous() throws SQLException {
+        return mResultSet.previous();
+    }
+
+    public void refreshRow() throws SQLException {
+        mResultSet.refreshRow();
+    }
+
+    public boolean relative(int rows) throws SQLException {
+        return mResultSet.relative(rows);
+    }
+
+    public boolean rowDeleted() throws SQLException {
+        return mResultSet.rowDeleted();
+    }
+
+    public boolean rowInserted() throws SQLException {
+        return mResultSet.rowInserted();
+    }
+
+    public boolean rowUpdated() throws SQLException {
+        return mResultSet.rowUpdated();
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        mResultSet.setFetchDirection(direction);
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        mResultSet.setFetchSize(rows);
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return mResultSet.unwrap(iface);
+    }
+
+    public void updateArray(int columnIndex, Array x) throws SQLException {
+        mResultSet.updateArray(columnIndex, x);
+    }
+
+    public void updateArray(String columnLabel, Array x) throws SQLException {
+        mResultSet.updateArray(columnLabel, x);
+    }
+
+    public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+        mResultSet.updateAsciiStream(columnIndex, x);
+    }
+
+    public void updateAsciiStream(String columnLabel, InputStream x, int length)
+        throws SQLException
+    {
+        mResultSet.updateAsciiStream(columnLabel, x, length);
+    }
+
+    public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+        mResultSet.updateAsciiStream(columnIndex, x, length);
+    }
+
+    public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+        mResultSet.updateAsciiStream(columnLabel, x);
+    }
+
+    public void updateAsciiStream(String columnLabel, InputStream x, long length)
+        throws SQLException
+    {
+        mResultSet.updateAsciiStream(columnLabel, x, length);
+    }
+
+    public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+        mResultSet.updateAsciiStream(columnIndex, x, length);
+    }
+
+    public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+        mResultSet.updateBigDecimal(columnLabel, x);
+    }
+
+    public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+        mResultSet.updateBigDecimal(columnIndex, x);
+    }
+
+    public void updateBinaryStream(String columnLabel, InputStream x, int length)
+        throws SQLException
+    {
+        mResultSet.updateBinaryStream(columnLabel, x, length);
+    }
+
+    public void updateBinaryStream(String columnLabel, InputStream x, long length)
+        throws SQLException
+    {
+        mResultSet.updateBinaryStream(columnLabel, x, length);
+    }
+
+    public void updateBinaryStream(int columnIndex, InputStream x, long length)
+        throws SQLException
+    {
+        mResultSet.updateBinaryStream(columnIndex, x, length);
+    }
+
+    public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+        mResultSet.updateBinaryStream(columnLabel, x);
+    }
+
+    public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+        mResultSet.updateBinaryStream(columnIndex, x, length);
+    }
+
+    public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+        mResultSet.updateBinaryStream(columnIndex, x);
+    }
+
+    public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+        mResultSet.updateBlob(columnLabel, x, length);
+    }
+
+    public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException {
+        mResultSet.updateBlob(columnIndex, x, length);
+    }
+
+    public void updateBlob(String columnLabel, Blob x) throws SQLException {
+        mResultSet.updateBlob(columnLabel, x);
+    }
+
+    public void updateBlob(int columnIndex, Blob x) throws SQLException {
+        mResultSet.updateBlob(columnIndex, x);
+    }
+
+    public void updateBlob(int columnIndex, InputStream x) throws SQLException {
+        mResultSet.updateBlob(columnIndex, x);
+    }
+
+    public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+        mResultSet.updateBlob(columnLabel, x);
+    }
+
+    public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+        mResultSet.updateBoolean(columnIndex, x);
+    }
+
+    public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+        mResultSet.updateBoolean(columnLabel, x);
+    }
+
+    public void updateByte(int columnIndex, byte x) throws SQLException {
+        mResultSet.updateByte(columnIndex, x);
+    }
+
+    public void updateByte(String columnLabel, byte x) throws SQLException {
+        mResultSet.updateByte(columnLabel, x);
+    }
+
+    public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+        mResultSet.updateBytes(columnIndex, x);
+    }
+
+    public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+        mResultSet.updateBytes(columnLabel, x);
+    }
+
+    public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+        mResultSet.updateCharacterStream(columnIndex, x);
+    }
+
+    public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+        mResultSet.updateCharacterStream(columnIndex, x, length);
+    }
+
+    public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+        mResultSet.updateCharacterStream(columnLabel, x);
+    }
+
+    public void updateCharacterStream(String columnLabel, Reader x, int length)
+        throws SQLException
+    {
+        mResultSet.updateCharacterStream(columnLabel, x, length);
+    }
+
+    public void updateCharacterStream(String columnLabel, Reader x, long length)
+        throws SQLException
+    {
+        mResultSet.updateCharacterStream(columnLabel, x, length);
+    }
+
+    public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+        mResultSet.updateCharacterStream(columnIndex, x, length);
+    }
+
+    public void updateClob(int columnIndex, Reader x) throws SQLException {
+        mResultSet.updateClob(columnIndex, x);
+    }
+
+    public void updateClob(int columnIndex, Clob x) throws SQLException {
+        mResultSet.updateClob(columnIndex, x);
+    }
+
+    public void updateClob(String columnLabel, Clob x) throws SQLException {
+        mResultSet.updateClob(columnLabel, x);
+    }
+
+    public void updateClob(String columnLabel, Reader x) throws SQLException {
+        mResultSet.updateClob(columnLabel, x);
+    }
+
+    public void updateClob(int columnIndex, Reader x, long length) throws SQLException {
+        mResultSet.updateClob(columnIndex, x, length);
+    }
+
+    public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+        mResultSet.updateClob(columnLabel, x, length);
+    }
+
+    public void updateDate(String columnLabel, Date x) throws SQLException {
+        mResultSet.updateDate(columnLabel, x);
+    }
+
+    public void updateDate(int columnIndex, Date x) throws SQLException {
+        mResultSet.updateDate(columnIndex, x);
+    }
+
+    public void updateDouble(int columnIndex, double x) throws SQLException {
+        mResultSet.updateDouble(columnIndex, x);
+    }
+
+    public void updateDouble(String columnLabel, double x) throws SQLException {
+        mResultSet.updateDouble(columnLabel, x);
+    }
+
+    public void updateFloat(String columnLabel, float x) throws SQLException {
+        mResultSet.updateFloat(columnLabel, x);
+    }
+
+    public void updateFloat(int columnIndex, float x) throws SQLException {
+        mResultSet.updateFloat(columnIndex, x);
+    }
+
+    public void updateInt(int columnIndex, int x) throws SQLException {
+        mResultSet.updateInt(columnIndex, x);
+    }
+
+    public void updateInt(String columnLabel, int x) throws SQLException {
+        mResultSet.updateInt(columnLabel, x);
+    }
+
+    public void updateLong(String columnLabel, long x) throws SQLException {
+        mResultSet.updateLong(columnLabel, x);
+    }
+
+    public void updateLong(int columnIndex, long x) throws SQLException {
+        mResultSet.updateLong(columnIndex, x);
+    }
+
+    public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+        mResultSet.updateNCharacterStream(columnIndex, x, length);
+    }
+
+    public void updateNCharacterStream(String columnLabel, Reader x, long length)
+        throws SQLException
+    {
+        mResultSet.updateNCharacterStream(columnLabel, x, length);
+    }
+
+    public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+        mResultSet.updateNCharacterStream(columnIndex, x);
+    }
+
+    public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+        mResultSet.updateNCharacterStream(columnLabel, x);
+    }
+
+    public void updateNClob(String columnLabel, NClob x) throws SQLException {
+        mResultSet.updateNClob(columnLabel, x);
+    }
+
+    public void updateNClob(int columnIndex, NClob x) throws SQLException {
+        mResultSet.updateNClob(columnIndex, x);
+    }
+
+    public void updateNClob(int columnIndex, Reader x, long length) throws SQLException {
+        mResultSet.updateNClob(columnIndex, x, length);
+    }
+
+    public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+        mResultSet.updateNClob(columnLabel, x, length);
+    }
+
+    public void updateNClob(String columnLabel, Reader x) throws SQLException {
+        mResultSet.updateNClob(columnLabel, x);
+    }
+
+    public void updateNClob(int columnIndex, Reader x) throws SQLException {
+        mResultSet.updateNClob(columnIndex, x);
+    }
+
+    public void updateNString(String columnLabel, String x) throws SQLException {
+        mResultSet.updateNString(columnLabel, x);
+    }
+
+    public void updateNString(int columnIndex, String x) throws SQLException {
+        mResultSet.updateNString(columnIndex, x);
+    }
+
+    public void updateNull(String columnLabel) throws SQLException {
+        mResultSet.updateNull(columnLabel);
+    }
+
+    public void updateNull(int columnIndex) throws SQLException {
+        mResultSet.updateNull(columnIndex);
+    }
+
+    public void updateObject(int columnIndex, Object x) throws SQLException {
+        mResultSet.updateObject(columnIndex, x);
+    }
+
+    public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+        mResultSet.updateObject(columnIndex, x, scaleOrLength);
+    }
+
+    public void updateObject(String columnLabel, Object x) throws SQLException {
+        mResultSet.updateObject(columnLabel, x);
+    }
+
+    public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+        mResultSet.updateObject(columnLabel, x, scaleOrLength);
+    }
+
+    public void updateRef(String columnLabel, Ref x) throws SQLException {
+        mResultSet.updateRef(columnLabel, x);
+    }
+
+    public void updateRef(int columnIndex, Ref x) throws SQLException {
+        mResultSet.updateRef(columnIndex, x);
+    }
+
+    public void updateRow() throws SQLException {
+        mResultSet.updateRow();
+    }
+
+    public void updateRowId(int columnIndex, RowId x) throws SQLException {
+        mResultSet.updateRowId(columnIndex, x);
+    }
+
+    public void updateRowId(String columnLabel, RowId x) throws SQLException {
+        mResultSet.updateRowId(columnLabel, x);
+    }
+
+    public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+        mResultSet.updateSQLXML(columnLabel, x);
+    }
+
+    public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+        mResultSet.updateSQLXML(columnIndex, x);
+    }
+
+    public void updateShort(String columnLabel, short x) throws SQLException {
+        mResultSet.updateShort(columnLabel, x);
+    }
+
+    public void updateShort(int columnIndex, short x) throws SQLException {
+        mResultSet.updateShort(columnIndex, x);
+    }
+
+    public void updateString(String columnLabel, String x) throws SQLException {
+        mResultSet.updateString(columnLabel, x);
+    }
+
+    public void updateString(int columnIndex, String x) throws SQLException {
+        mResultSet.updateString(columnIndex, x);
+    }
+
+    public void updateTime(String columnLabel, Time x) throws SQLException {
+        mResultSet.updateTime(columnLabel, x);
+    }
+
+    public void updateTime(int columnIndex, Time x) throws SQLException {
+        mResultSet.updateTime(columnIndex, x);
+    }
+
+    public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+        mResultSet.updateTimestamp(columnIndex, x);
+    }
+
+    public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+        mResultSet.updateTimestamp(columnLabel, x);
+    }
+
+    public boolean wasNull() throws SQLException {
+        return mResultSet.wasNull();
+    }
+}
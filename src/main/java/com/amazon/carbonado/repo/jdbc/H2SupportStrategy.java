@@ -26,11 +26,14 @@ package com.amazon.carbonado.repo.jdbc;
  */
 class H2SupportStrategy extends JDBCSupportStrategy {
     private static final String DEFAULT_SEQUENCE_SELECT_STATEMENT = "SELECT NEXT VALUE FOR %s";
+    private static final String DEFAULT_SEQUENCE_RESERVE_STATEMENT =
+        "SELECT NEXT VALUE FOR %s FROM SYSTEM_RANGE(1, %d)";
     private static final String TRUNCATE_STATEMENT = "TRUNCATE TABLE %s";
 
     protected H2SupportStrategy(JDBCRepository repo) {
         super(repo);
         setSequenceSelectStatement(DEFAULT_SEQUENCE_SELECT_STATEMENT);
+        setSequenceReserveStatement(DEFAULT_SEQUENCE_RESERVE_STATEMENT);
         setTruncateTableStatement(TRUNCATE_STATEMENT);
     }
 
@@ -58,4 +61,27 @@ class H2SupportStrategy extends JDBCSupportStrategy {
             return select;
         }
     }
+
+    @Override
+    String buildBulkInsert(String table, String[] columns, String[] keyColumns,
+                           int rowCount, boolean upsert)
+    {
+        StringBuilder b = new StringBuilder();
+        if (upsert) {
+            b.append("MERGE INTO ").append(table).append(" (");
+            appendColumns(b, null, columns);
+            b.append(") KEY (");
+            appendColumns(b, null, keyColumns);
+            b.append(") VALUES ");
+            for (int i=0; i<rowCount; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                appendParameters(b, columns.length);
+            }
+        } else {
+            appendInsertValues(b, "INSERT INTO ", table, columns, rowCount);
+        }
+        return b.toString();
+    }
 }
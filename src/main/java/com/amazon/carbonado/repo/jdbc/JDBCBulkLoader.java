@@ -0,0 +1,348 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazon.carbonado.ConstraintException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorablePropertyAdapter;
+
+import com.amazon.carbonado.lob.Lob;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+/**
+ * Inserts storables using statements which insert multiple rows at once.
+ *
+ * @see com.amazon.carbonado.capability.BulkInsertCapability
+ */
+class JDBCBulkLoader<S extends Storable> {
+    // Limit on rows per statement, regardless of the parameter limit.
+    private static final int MAX_ROWS = 500;
+
+    private final JDBCStorage<S> mStorage;
+    private final String mTableName;
+
+    // Is null if storables must be inserted individually.
+    private final JDBCStorableProperty<S>[] mProperties;
+
+    private final String[] mColumns;
+    private final String[] mKeyColumns;
+    private final Method[] mSetMethods;
+    private final Method[] mAdapterMethods;
+    private final Object[] mAdapterInstances;
+
+    private final int mRowsPerStatement;
+
+    /**
+     * @param autoVersioning true if storage supplies initial version numbers
+     */
+    @SuppressWarnings("unchecked")
+    JDBCBulkLoader(JDBCStorage<S> storage, boolean isMaster, boolean autoVersioning) {
+        mStorage = storage;
+
+        JDBCStorableInfo<S> info = storage.mInfo;
+        mTableName = info.getQualifiedTableName();
+
+        List<JDBCStorableProperty<S>> properties = new ArrayList<JDBCStorableProperty<S>>();
+        boolean individual = !isMaster;
+
+        for (JDBCStorableProperty<S> property : info.getAllProperties().values()) {
+            if (!property.isSelectable()) {
+                continue;
+            }
+            if (property.isVersion()) {
+                if (!autoVersioning) {
+                    // Database supplies the version.
+                    individual = true;
+                }
+            } else if (property.isAutomatic() && property.getSequenceName() == null) {
+                // Database supplies the value, which must be reloaded.
+                individual = true;
+            }
+            if (Lob.class.isAssignableFrom(property.getType())) {
+                // Large Lobs require an update after insert.
+                individual = true;
+            }
+            properties.add(property);
+        }
+
+        if (info.getVersionProperty() != null && info.getVersionProperty().isDerived()) {
+            individual = true;
+        }
+
+        int columnCount = properties.size();
+        mColumns = new String[columnCount];
+        mSetMethods = new Method[columnCount];
+        mAdapterMethods = new Method[columnCount];
+        mAdapterInstances = new Object[columnCount];
+
+        for (int i=0; i<columnCount; i++) {
+            JDBCStorableProperty<S> property = properties.get(i);
+            mColumns[i] = property.getColumnName();
+
+            Method psSetMethod = property.getPreparedStatementSetMethod();
+            mSetMethods[i] = psSetMethod;
+
+            StorablePropertyAdapter adapter = property.getAppliedAdapter();
+            if (adapter != null) {
+                Class toType = psSetMethod.getParameterTypes()[1];
+                Method adaptMethod = adapter.findAdaptMethod(property.getType(), toType);
+                // Special case for converting character to String.
+                if (adaptMethod == null && toType == String.class) {
+                    adaptMethod = adapter.findAdaptMethod(property.getType(), Character.class);
+                    if (adaptMethod == null) {
+                        adaptMethod = adapter.findAdaptMethod(property.getType(), char.class);
+                    }
+                }
+                if (adaptMethod == null) {
+                    individual = true;
+                }
+                mAdapterMethods[i] = adaptMethod;
+                mAdapterInstances[i] = adapter.getAdapterInstance();
+            }
+        }
+
+        List<String> keyColumns = new ArrayList<String>();
+        for (JDBCStorableProperty<S> property : info.getPrimaryKeyProperties().values()) {
+            keyColumns.add(property.getColumnName());
+        }
+        mKeyColumns = keyColumns.toArray(new String[keyColumns.size()]);
+
+        if (individual || columnCount == 0) {
+            mProperties = null;
+            mRowsPerStatement = 1;
+        } else {
+            mProperties = properties.toArray(new JDBCStorableProperty[columnCount]);
+            int maxParams = storage.mSupportStrategy.getMaxBulkParameters();
+            mRowsPerStatement = Math.max(1, Math.min(MAX_ROWS, maxParams / columnCount));
+        }
+    }
+
+    /**
+     * Inserts all storables produced by the cursor, and then closes it.
+     *
+     * @param upsert when true, replace existing storables
+     * @return amount of storables inserted
+     */
+    long insertAll(Cursor<? extends S> cursor, boolean upsert) throws PersistException {
+        try {
+            try {
+                String statement = null;
+                if (mProperties != null && mStorage.getInsertTrigger() == null &&
+                    !(upsert && mStorage.getUpdateTrigger() != null))
+                {
+                    statement = buildStatement(mRowsPerStatement, upsert);
+                }
+
+                if (statement == null) {
+                    return insertIndividually(cursor, upsert);
+                }
+
+                List<S> rows = new ArrayList<S>(mRowsPerStatement);
+                long count = 0;
+
+                while (cursor.hasNext()) {
+                    S storable = cursor.next();
+                    prepare(storable);
+                    rows.add(storable);
+                    if (rows.size() >= mRowsPerStatement) {
+                        execute(statement, rows);
+                        count += rows.size();
+                        rows.clear();
+                    }
+                }
+
+                if (rows.size() > 0) {
+                    execute(buildStatement(rows.size(), upsert), rows);
+                    count += rows.size();
+                }
+
+                return count;
+            } finally {
+                cursor.close();
+            }
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        }
+    }
+
+    private String buildStatement(int rowCount, boolean upsert) {
+        return mStorage.mSupportStrategy.buildBulkInsert
+            (mTableName, mColumns, mKeyColumns, rowCount, upsert);
+    }
+
+    private long insertIndividually(Cursor<? extends S> cursor, boolean upsert)
+        throws FetchException, PersistException
+    {
+        long count = 0;
+        while (cursor.hasNext()) {
+            S storable = cursor.next();
+            if (!upsert || !storable.tryUpdate()) {
+                storable.insert();
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Assigns sequence and version values, and verifies that required
+     * properties are set.
+     */
+    private void prepare(S storable) throws PersistException {
+        StringBuilder uninitialized = null;
+
+        for (JDBCStorableProperty<S> property : mProperties) {
+            String name = property.getName();
+            if (!storable.isPropertyUninitialized(name)) {
+                continue;
+            }
+
+            if (property.getSequenceName() != null) {
+                storable.setPropertyValue(name, nextSequenceValue(property));
+            } else if (property.isVersion()) {
+                Class type = property.getType();
+                if (type == int.class || type == Integer.class) {
+                    storable.setPropertyValue(name, 1);
+                } else if (type == long.class || type == Long.class) {
+                    storable.setPropertyValue(name, 1L);
+                } else {
+                    throw new PersistException
+                        ("Unable to supply initial version of type \"" +
+                         type.getName() + "\": " + name);
+                }
+            } else if (property.isPrimaryKeyMember() ||
+                       (!property.isNullable() && !property.isJoin()))
+            {
+                if (uninitialized == null) {
+                    uninitialized = new StringBuilder
+                        ("Not all required properties have been set: ");
+                } else {
+                    uninitialized.append(", ");
+                }
+                uninitialized.append(name);
+            }
+        }
+
+        if (uninitialized != null) {
+            throw new ConstraintException(uninitialized.toString());
+        }
+    }
+
+    private Object nextSequenceValue(JDBCStorableProperty<S> property)
+        throws PersistException
+    {
+        SequenceValueProducer producer =
+            mStorage.getSequenceValueProducer(property.getSequenceName());
+
+        if (producer instanceof JDBCSequenceValueProducer) {
+            ((JDBCSequenceValueProducer) producer).reserve(mRowsPerStatement);
+        }
+
+        Class type = property.getType();
+        if (type == long.class || type == Long.class) {
+            return producer.nextLongValue();
+        } else if (type == int.class || type == Integer.class) {
+            return producer.nextIntValue();
+        } else if (type == String.class) {
+            return producer.nextDecimalValue();
+        }
+
+        throw new PersistException
+            ("Unable to support sequence of type \"" + type.getName() +
+             "\" for property: " + property.getName());
+    }
+
+    private void execute(String statement, List<S> rows) throws PersistException {
+        try {
+            Connection con = mStorage.getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement(statement);
+                try {
+                    int psOrdinal = 1;
+                    for (S storable : rows) {
+                        psOrdinal = setParameters(ps, psOrdinal, storable);
+                    }
+                    ps.executeUpdate();
+                } finally {
+                    ps.close();
+                }
+            } finally {
+                mStorage.yieldConnection(con);
+            }
+        } catch (InvocationTargetException e) {
+            throw mStorage.toPersistException(e.getCause());
+        } catch (Exception e) {
+            throw mStorage.toPersistException(e);
+        }
+
+        for (S storable : rows) {
+            storable.markAllPropertiesClean();
+        }
+    }
+
+    /**
+     * @return next value ordinal
+     */
+    private int setParameters(PreparedStatement ps, int psOrdinal, S storable)
+        throws Exception
+    {
+        JDBCStorableProperty<S>[] properties = mProperties;
+        Method[] psSetMethods = mSetMethods;
+        Method[] adapterMethods = mAdapterMethods;
+        Object[] adapterInstances = mAdapterInstances;
+
+        for (int i=0; i<properties.length; i++) {
+            JDBCStorableProperty<S> property = properties[i];
+            Object value = storable.getPropertyValue(property.getName());
+
+            Method adapter = adapterMethods[i];
+            if (adapter != null) {
+                value = adapter.invoke(adapterInstances[i], value);
+            }
+
+            if (value == null) {
+                ps.setNull(psOrdinal, property.getDataType());
+            } else {
+                // Special case for converting character to String.
+                if (value instanceof Character) {
+                    value = String.valueOf((Character) value);
+                }
+                psSetMethods[i].invoke(ps, psOrdinal, value);
+            }
+
+            psOrdinal++;
+        }
+
+        return psOrdinal;
+    }
+}
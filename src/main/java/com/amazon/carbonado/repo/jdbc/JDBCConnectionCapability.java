@@ -21,6 +21,8 @@ package com.amazon.carbonado.repo.jdbc;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import java.util.List;
+
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.PersistException;
 import com.amazon.carbonado.capability.Capability;
@@ -110,4 +112,36 @@ public interface JDBCConnectionCapability extends Capability {
      * Returns the name of the database product connected to.
      */
     String getDatabaseProductName();
+
+    /**
+     * Returns the amount of times a prepared statement was reused from a
+     * connection's statement cache. Count is always zero if statement caching
+     * is disabled.
+     */
+    long getStatementCacheHitCount();
+
+    /**
+     * Returns the amount of times a statement was prepared because no cached
+     * statement was available. Count is always zero if statement caching is
+     * disabled.
+     */
+    long getStatementCacheMissCount();
+
+    /**
+     * Returns connection statistics for the primary DataSource, followed by
+     * statistics for each read-only replica, if any.
+     *
+     * @see JDBCRepositoryBuilder#setReplicaDataSources
+     */
+    List<DataSourceStats> getDataSourceStats();
+
+    /**
+     * Returns execution statistics for each distinct prepared statement, in
+     * descending order of total latency. Statements executed by read-only
+     * replicas have separate statistics from those executed by the primary
+     * DataSource. The list is empty unless statement statistics are enabled.
+     *
+     * @see JDBCRepositoryBuilder#setStatementStatsEnabled
+     */
+    List<StatementStats> getStatementStats();
 }
@@ -40,24 +40,29 @@ class JDBCCursor<S extends Storable> extends AbstractCursor<S> {
     private final TransactionScope<JDBCTransaction> mScope;
     private final Connection mConnection;
     private final PreparedStatement mStatement;
+    private final JDBCProjection<S> mProjection;
 
     private ResultSet mResultSet;
     private boolean mHasNext;
 
     /**
+     * @param projection optional projection, if statement doesn't select all
+     * properties
      * @throws SQLException from executeQuery on statement. Caller must clean
      * up when this happens by closing statement and connection.
      */
     JDBCCursor(JDBCStorage<S> storage,
                TransactionScope<JDBCTransaction> scope,
                Connection con,
-               PreparedStatement statement)
+               PreparedStatement statement,
+               JDBCProjection<S> projection)
         throws SQLException
     {
         mStorage = storage;
         mScope = scope;
         mConnection = con;
         mStatement = statement;
+        mProjection = projection;
         mResultSet = statement.executeQuery();
         scope.register(storage.getStorableType(), this);
     }
@@ -106,7 +111,9 @@ class JDBCCursor<S extends Storable> extends AbstractCursor<S> {
             throw new NoSuchElementException();
         }
         try {
-            S obj = mStorage.instantiate(mResultSet);
+            JDBCProjection<S> projection = mProjection;
+            S obj = projection == null ? mStorage.instantiate(mResultSet)
+                : projection.instantiate(mResultSet);
             mHasNext = false;
             return obj;
         } catch (SQLException e) {
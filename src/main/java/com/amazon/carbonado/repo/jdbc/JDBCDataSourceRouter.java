@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Opens connections from a primary DataSource or from a set of read-only
+ * replicas. Replicas are selected in round-robin order. A replica which fails
+ * to open a connection is logged and skipped until a backoff delay has
+ * passed, which doubles with each consecutive failure.
+ */
+class JDBCDataSourceRouter {
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Route mPrimary;
+    private final Route[] mReplicas;
+    private final AtomicInteger mNext;
+
+    /**
+     * @param replicas optional read-only replicas
+     */
+    JDBCDataSourceRouter(DataSource primary, DataSource[] replicas) {
+        mPrimary = new Route(primary, false);
+        if (replicas == null) {
+            mReplicas = new Route[0];
+        } else {
+            mReplicas = new Route[replicas.length];
+            for (int i=0; i<replicas.length; i++) {
+                mReplicas[i] = new Route(replicas[i], true);
+            }
+        }
+        mNext = new AtomicInteger();
+    }
+
+    DataSource getPrimary() {
+        return mPrimary.mDataSource;
+    }
+
+    boolean hasReplicas() {
+        return mReplicas.length > 0;
+    }
+
+    DataSource[] getReplicas() {
+        DataSource[] replicas = new DataSource[mReplicas.length];
+        for (int i=0; i<replicas.length; i++) {
+            replicas[i] = mReplicas[i].mDataSource;
+        }
+        return replicas;
+    }
+
+    Connection openPrimary() throws SQLException {
+        return mPrimary.open();
+    }
+
+    /**
+     * Opens a connection from the next available replica.
+     *
+     * @return null if no replica can open a connection
+     */
+    Connection openReplica() throws SQLException {
+        Route[] replicas = mReplicas;
+        int length = replicas.length;
+        if (length > 0) {
+            long now = System.nanoTime();
+            int start = (mNext.getAndIncrement() & Integer.MAX_VALUE) % length;
+            for (int i=0; i<length; i++) {
+                Route replica = replicas[(start + i) % length];
+                if (replica.isBackingOff(now)) {
+                    continue;
+                }
+                try {
+                    Connection con = replica.open();
+                    replica.succeeded();
+                    return con;
+                } catch (SQLException e) {
+                    replica.failed(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns statistics for the primary followed by the replicas.
+     */
+    List<DataSourceStats> getStats() {
+        List<DataSourceStats> stats = new ArrayList<DataSourceStats>(1 + mReplicas.length);
+        stats.add(mPrimary.snapshot());
+        for (Route replica : mReplicas) {
+            stats.add(replica.snapshot());
+        }
+        return stats;
+    }
+
+    private static class Route {
+        final DataSource mDataSource;
+        final boolean mIsReplica;
+
+        private final AtomicLong mConnectionCount = new AtomicLong();
+        private final AtomicLong mFailureCount = new AtomicLong();
+        private final AtomicLong mTotalLatency = new AtomicLong();
+        private final AtomicLong mMaxLatency = new AtomicLong();
+
+        // Consecutive failures, and when to try again after the last one,
+        // which is zero if not backing off.
+        private int mFailures;
+        private volatile long mRetryAt;
+
+        Route(DataSource ds, boolean isReplica) {
+            mDataSource = ds;
+            mIsReplica = isReplica;
+        }
+
+        boolean isBackingOff(long now) {
+            long retryAt = mRetryAt;
+            return retryAt != 0 && retryAt - now > 0;
+        }
+
+        synchronized void succeeded() {
+            mFailures = 0;
+            mRetryAt = 0;
+        }
+
+        void failed(SQLException e) {
+            long backoff;
+            synchronized (this) {
+                int failures = ++mFailures;
+                backoff = MIN_BACKOFF_NANOS << Math.min(failures - 1, 6);
+                backoff = Math.min(backoff, MAX_BACKOFF_NANOS);
+                mRetryAt = System.nanoTime() + backoff;
+            }
+            Log log = LogFactory.getLog(JDBCDataSourceRouter.class);
+            log.warn("Unable to open connection from replica " + mDataSource +
+                     "; skipping it for " + TimeUnit.NANOSECONDS.toMillis(backoff) +
+                     " milliseconds", e);
+        }
+
+        Connection open() throws SQLException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Connection con = mDataSource.getConnection();
+                success = true;
+                return con;
+            } finally {
+                long latency = System.nanoTime() - start;
+                (success ? mConnectionCount : mFailureCount).incrementAndGet();
+                mTotalLatency.addAndGet(latency);
+                long max;
+                while (latency > (max = mMaxLatency.get())) {
+                    if (mMaxLatency.compareAndSet(max, latency)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        DataSourceStats snapshot() {
+            return new Stats(mDataSource, mIsReplica,
+                             mConnectionCount.get(), mFailureCount.get(),
+                             mTotalLatency.get(), mMaxLatency.get());
+        }
+    }
+
+    private static class Stats implements DataSourceStats {
+        private final DataSource mDataSource;
+        private final boolean mIsReplica;
+        private final long mConnectionCount;
+        private final long mFailureCount;
+        private final long mTotalLatency;
+        private final long mMaxLatency;
+
+        Stats(DataSource ds, boolean isReplica,
+              long connectionCount, long failureCount, long totalLatency, long maxLatency)
+        {
+            mDataSource = ds;
+            mIsReplica = isReplica;
+            mConnectionCount = connectionCount;
+            mFailureCount = failureCount;
+            mTotalLatency = totalLatency;
+            mMaxLatency = maxLatency;
+        }
+
+        public DataSource getDataSource() {
+            return mDataSource;
+        }
+
+        public boolean isReplica() {
+            return mIsReplica;
+        }
+
+        public long getConnectionCount() {
+            return mConnectionCount;
+        }
+
+        public long getFailureCount() {
+            return mFailureCount;
+        }
+
+        public long getTotalLatencyNanos() {
+            return mTotalLatency;
+        }
+
+        public long getMaxLatencyNanos() {
+            return mMaxLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "DataSourceStats {dataSource=" + mDataSource +
+                ", replica=" + mIsReplica +
+                ", connections=" + mConnectionCount +
+                ", failures=" + mFailureCount +
+                ", totalLatencyNanos=" + mTotalLatency +
+                ", maxLatencyNanos=" + mMaxLatency + '}';
+        }
+    }
+}
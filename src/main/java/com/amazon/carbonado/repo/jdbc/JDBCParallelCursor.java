@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.AbstractCursor;
+
+import com.amazon.carbonado.spi.KeyRangeSplitter;
+
+import com.amazon.carbonado.util.WorkerPool;
+
+/**
+ * Cursor which fetches several queries concurrently, each with its own
+ * background thread and connection, returning results in no particular
+ * order. Fetched records are held in a bounded queue shared by all the
+ * threads. Any exception thrown by a query is thrown by this cursor when
+ * reached. Threads are drawn from the shared {@link WorkerPool}, and queries
+ * which cannot get a thread are fetched by the caller after the others have
+ * finished.
+ *
+ * @see JDBCPartitioner
+ */
+class JDBCParallelCursor<S extends Storable> extends AbstractCursor<S> {
+    // Amount of time to wait before checking for cancellation.
+    private static final long POLL_MILLIS = 100;
+
+    private final Query.Controller mController;
+    private final BlockingQueue<Object> mQueue;
+
+    private volatile boolean mClosed;
+
+    // Amount of fetchers which haven't finished.
+    private int mActive;
+
+    // Queries to fetch in the caller's thread, and the current one.
+    private final List<Query<S>> mDeferred;
+    private Cursor<S> mCursor;
+
+    private Object mNext;
+
+    /**
+     * @param queries queries to fetch concurrently
+     * @param controller optional controller to pass to each query
+     * @param capacity maximum amount of records to fetch ahead
+     */
+    JDBCParallelCursor(List<Query<S>> queries, Query.Controller controller, int capacity) {
+        mController = controller;
+        mQueue = new ArrayBlockingQueue<Object>(capacity);
+        mDeferred = new ArrayList<Query<S>>();
+        for (Query<S> query : queries) {
+            if (WorkerPool.tryExecute(new Fetcher(query))) {
+                mActive++;
+            } else {
+                mDeferred.add(query);
+            }
+        }
+    }
+
+    public void close() throws FetchException {
+        mClosed = true;
+        mNext = null;
+        mActive = 0;
+        mDeferred.clear();
+        // Unblock fetchers, which then see the closed state.
+        mQueue.clear();
+        Cursor<S> cursor = mCursor;
+        if (cursor != null) {
+            mCursor = null;
+            cursor.close();
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+
+        try {
+            while (mActive > 0) {
+                Object next = mQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (next == null) {
+                    if (mClosed) {
+                        return false;
+                    }
+                    Query.Controller controller = mController;
+                    if (controller != null) {
+                        try {
+                            controller.continueCheck();
+                        } catch (FetchException e) {
+                            silentClose();
+                            throw e;
+                        }
+                    }
+                    continue;
+                }
+
+                if (next instanceof Finished) {
+                    mActive--;
+                    Throwable failure = ((Finished) next).mFailure;
+                    if (failure != null) {
+                        silentClose();
+                        try {
+                            KeyRangeSplitter.rethrow(failure);
+                        } catch (RepositoryException e) {
+                            throw e.toFetchException();
+                        }
+                    }
+                    continue;
+                }
+
+                mNext = next;
+                return true;
+            }
+        } catch (InterruptedException e) {
+            silentClose();
+            throw new FetchInterruptedException(e);
+        }
+
+        try {
+            while (true) {
+                Cursor<S> cursor = mCursor;
+                if (cursor == null) {
+                    if (mClosed || mDeferred.isEmpty()) {
+                        return false;
+                    }
+                    mCursor = cursor = mDeferred.remove(0).fetch(mController);
+                }
+                if (cursor.hasNext()) {
+                    mNext = cursor.next();
+                    return true;
+                }
+                mCursor = null;
+                cursor.close();
+            }
+        } catch (FetchException e) {
+            silentClose();
+            throw e;
+        } catch (RuntimeException e) {
+            silentClose();
+            throw e;
+        }
+    }
+
+    public S next() throws FetchException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object next = mNext;
+        mNext = null;
+        return (S) next;
+    }
+
+    private void silentClose() {
+        try {
+            close();
+        } catch (FetchException e) {
+            // Ignore and allow triggering exception to propagate.
+        }
+    }
+
+    private static class Finished {
+        final Throwable mFailure;
+
+        Finished(Throwable failure) {
+            mFailure = failure;
+        }
+    }
+
+    private class Fetcher implements Runnable {
+        private final Query<S> mQuery;
+
+        Fetcher(Query<S> query) {
+            mQuery = query;
+        }
+
+        public void run() {
+            Throwable failure = null;
+            try {
+                if (mClosed) {
+                    return;
+                }
+                // Cursor is opened by this thread, and so it gets its own
+                // connection.
+                Cursor<S> cursor = mQuery.fetch(mController);
+                try {
+                    while (!mClosed && cursor.hasNext()) {
+                        if (!put(cursor.next())) {
+                            return;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+            put(new Finished(failure));
+        }
+
+        /**
+         * @return false if closed
+         */
+        private boolean put(Object obj) {
+            try {
+                while (!mClosed) {
+                    if (mQueue.offer(obj, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Treat as closed.
+            }
+            return false;
+        }
+    }
+}
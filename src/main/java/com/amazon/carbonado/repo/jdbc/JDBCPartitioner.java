@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.capability.Aggregate;
+
+import com.amazon.carbonado.cursor.AbstractCursor;
+import com.amazon.carbonado.cursor.AsyncFetchAheadCursor;
+import com.amazon.carbonado.cursor.EmptyCursor;
+import com.amazon.carbonado.cursor.SortedCursor;
+import com.amazon.carbonado.cursor.UnionCursor;
+
+import com.amazon.carbonado.info.ChainedProperty;
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.OrderedProperty;
+
+import com.amazon.carbonado.qe.OrderingList;
+import com.amazon.carbonado.qe.PartitionedScan;
+
+import com.amazon.carbonado.spi.KeyRangeSplitter;
+
+import com.amazon.carbonado.util.WorkerPool;
+
+/**
+ * Splits a query into ranges of its primary key, which are fetched
+ * concurrently over separate connections. Range boundaries are evenly spaced
+ * between the minimum and maximum key values selected by the query, and so
+ * only storables with a single integral primary key property are
+ * supported. Unordered results are returned in the order they arrive, and
+ * ordered results are merged.
+ *
+ * <p>Each partition holds its own connection until finished, and so the
+ * amount of partitions is limited by the connections and threads which are
+ * available when the query is fetched. If fewer than two are available, the
+ * query is fetched as usual.
+ *
+ * @see PartitionedScan
+ */
+class JDBCPartitioner<S extends Storable> {
+    // Amount of records to fetch ahead for each partition.
+    private static final int FETCH_AHEAD = 1000;
+
+    private final JDBCRepository mRepository;
+    private final Class<S> mType;
+    private final String mKeyName;
+    private final Class mKeyType;
+
+    JDBCPartitioner(JDBCRepository repository, JDBCStorableInfo<S> info) {
+        mRepository = repository;
+        mType = info.getStorableType();
+
+        String keyName = null;
+        Class keyType = null;
+
+        if (info.getPrimaryKeyProperties().size() == 1) {
+            JDBCStorableProperty<S> property =
+                info.getPrimaryKeyProperties().values().iterator().next();
+            Class type = property.getType();
+            if (property.isSelectable() && property.getAppliedAdapter() == null &&
+                KeyRangeSplitter.isSplittable(type))
+            {
+                keyName = property.getName();
+                keyType = type;
+            }
+        }
+
+        mKeyName = keyName;
+        mKeyType = keyType;
+    }
+
+    /**
+     * Fetches the given query in partitions.
+     *
+     * @return null if query cannot be partitioned
+     */
+    Cursor<S> fetch(Query<S> query, OrderingList<S> ordering, PartitionedScan scan)
+        throws FetchException
+    {
+        int partitions = scan.getPartitions();
+        if (partitions <= 1 || mKeyName == null || query.getBlankParameterCount() != 0) {
+            return null;
+        }
+
+        // All operations in a transaction share one connection.
+        if (mRepository.localTransactionScope().getIsolationLevel() != null) {
+            return null;
+        }
+
+        // Partitions which cannot get a connection would wait on the others,
+        // possibly until the pool times out.
+        partitions = Math.min(partitions, mRepository.getAvailableConnectionCount());
+        partitions = Math.min(partitions, WorkerPool.getAvailableThreadCount());
+        if (partitions <= 1) {
+            return null;
+        }
+
+        String[] orderBy = null;
+        if (ordering != null && ordering.size() > 0) {
+            orderBy = new String[ordering.size() + 1];
+            for (int i=0; i<ordering.size(); i++) {
+                OrderedProperty<S> property = ordering.get(i);
+                ChainedProperty<S> chained = property.getChainedProperty();
+                if (chained.getChainCount() != 0) {
+                    return null;
+                }
+                orderBy[i] = (property.getDirection() == Direction.DESCENDING ? "-" : "+")
+                    + chained.getPrimeProperty().getName();
+            }
+            // Primary key makes the ordering total, as required by UnionCursor.
+            orderBy[ordering.size()] = mKeyName;
+        }
+
+        List<Query<S>> ranges = split(query, partitions);
+        if (ranges == null) {
+            return null;
+        }
+
+        Query.Controller controller = scan.getController();
+
+        if (orderBy == null) {
+            return new JDBCParallelCursor<S>(ranges, controller, FETCH_AHEAD);
+        }
+
+        List<Cursor<S>> cursors = new ArrayList<Cursor<S>>(ranges.size());
+        for (Query<S> range : ranges) {
+            cursors.add(new AsyncFetchAheadCursor<S>
+                        (new DeferredCursor<S>(range, controller), FETCH_AHEAD, controller));
+        }
+
+        return merge(cursors, 0, cursors.size(), SortedCursor.createComparator(mType, orderBy));
+    }
+
+    /**
+     * @return null if not enough distinct key values
+     */
+    private List<Query<S>> split(Query<S> query, int partitions) throws FetchException {
+        Object[] row;
+        Cursor<Object[]> cursor = mRepository.aggregate
+            (query, new String[0], Aggregate.min(mKeyName), Aggregate.max(mKeyName));
+        try {
+            row = cursor.next();
+        } finally {
+            cursor.close();
+        }
+
+        if (row[0] == null || row[1] == null) {
+            // Query selects nothing.
+            return null;
+        }
+
+        long[] range = {((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+        Object[] bounds = KeyRangeSplitter.toKeys(mKeyType, range, partitions);
+        if (bounds == null) {
+            return null;
+        }
+
+        return KeyRangeSplitter.split(query, mKeyName, bounds);
+    }
+
+    /**
+     * Merges ordered cursors as a balanced tree of unions.
+     */
+    private static <S> Cursor<S> merge(List<Cursor<S>> cursors, int start, int end,
+                                       Comparator<S> order)
+    {
+        int count = end - start;
+        if (count == 1) {
+            return cursors.get(start);
+        }
+        int mid = start + (count >> 1);
+        return new UnionCursor<S>(merge(cursors, start, mid, order),
+                                  merge(cursors, mid, end, order),
+                                  order);
+    }
+
+    /**
+     * Fetches the query when first accessed, allowing it to be opened by a
+     * background thread.
+     */
+    private static class DeferredCursor<S extends Storable> extends AbstractCursor<S> {
+        private final Query<S> mQuery;
+        private final Query.Controller mController;
+
+        private Cursor<S> mCursor;
+        private boolean mClosed;
+
+        DeferredCursor(Query<S> query, Query.Controller controller) {
+            mQuery = query;
+            mController = controller;
+        }
+
+        public synchronized void close() throws FetchException {
+            mClosed = true;
+            if (mCursor != null) {
+                mCursor.close();
+            }
+        }
+
+        public boolean hasNext() throws FetchException {
+            return cursor().hasNext();
+        }
+
+        public S next() throws FetchException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mCursor.next();
+        }
+
+        private synchronized Cursor<S> cursor() throws FetchException {
+            Cursor<S> cursor = mCursor;
+            if (cursor == null) {
+                if (mClosed) {
+                    return EmptyCursor.the();
+                }
+                mCursor = cursor = mQuery.fetch(mController);
+            }
+            return cursor;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cojen.classfile.TypeDesc;
+import org.cojen.util.ThrowUnchecked;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Trigger;
+import com.amazon.carbonado.info.ChainedProperty;
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorablePropertyAdapter;
+import com.amazon.carbonado.lob.Lob;
+import com.amazon.carbonado.qe.OrderingList;
+
+/**
+ * Loads a subset of properties from a ResultSet row, as selected by {@link
+ * com.amazon.carbonado.Query#select Query.select}. Properties which aren't
+ * loaded are left uninitialized. Properties are set using reflection, which
+ * is slower per column than the generated code used for complete rows, but
+ * selecting fewer columns is usually a bigger win.
+ */
+class JDBCProjection<S extends Storable> {
+    private static final int FIRST_RESULT_INDEX = 1;
+
+    /**
+     * Returns a projection which loads the selected properties, along with
+     * the primary key, version and ordering properties.
+     *
+     * @param selected names of selected properties
+     * @param ordering optional ordering of query
+     * @return null if all properties would be loaded anyhow, or if any
+     * property cannot be loaded by a projection
+     */
+    static <S extends Storable> JDBCProjection<S> create(JDBCStorage<S> storage,
+                                                        Set<String> selected,
+                                                        OrderingList<S> ordering)
+    {
+        Set<String> required = new HashSet<String>(selected);
+
+        if (ordering != null) {
+            for (OrderedProperty<S> property : ordering) {
+                ChainedProperty<S> chained = property.getChainedProperty();
+                if (chained.getChainCount() > 0 || chained.isDerived()) {
+                    // Ordering might depend on properties which aren't loaded.
+                    return null;
+                }
+                required.add(chained.getPrimeProperty().getName());
+            }
+        }
+
+        List<JDBCStorableProperty<S>> properties = new ArrayList<JDBCStorableProperty<S>>();
+        boolean excluded = false;
+
+        for (JDBCStorableProperty<S> property :
+                 storage.getStorableInfo().getAllProperties().values())
+        {
+            if (!property.isSelectable()) {
+                continue;
+            }
+            if (property.isPrimaryKeyMember() || property.isVersion()
+                || required.contains(property.getName()))
+            {
+                properties.add(property);
+            } else {
+                excluded = true;
+            }
+        }
+
+        if (!excluded) {
+            return null;
+        }
+
+        JDBCProjection<S> projection = new JDBCProjection<S>(storage, properties.size());
+
+        for (int i=0; i<properties.size(); i++) {
+            if (!projection.init(i, properties.get(i))) {
+                return null;
+            }
+        }
+
+        return projection;
+    }
+
+    private final JDBCStorage<S> mStorage;
+    private final Set<String> mNameSet;
+
+    private final String[] mNames;
+    private final Method[] mResultSetGetMethods;
+    // Is true if String must be converted to a character.
+    private final boolean[] mToChar;
+    // Is true if property or adapter requires a primitive value.
+    private final boolean[] mPrimitive;
+
+    // Some entries may be null if no adapter required.
+    private final Method[] mAdapterMethods;
+    private final Object[] mAdapterInstances;
+
+    private JDBCProjection(JDBCStorage<S> storage, int count) {
+        mStorage = storage;
+        mNameSet = new HashSet<String>();
+        mNames = new String[count];
+        mResultSetGetMethods = new Method[count];
+        mToChar = new boolean[count];
+        mPrimitive = new boolean[count];
+        mAdapterMethods = new Method[count];
+        mAdapterInstances = new Object[count];
+    }
+
+    /**
+     * Returns true if the given property is loaded by this projection.
+     */
+    boolean includes(String propertyName) {
+        return mNameSet.contains(propertyName);
+    }
+
+    S instantiate(ResultSet rs) throws SQLException, FetchException {
+        S storable = mStorage.prepare();
+
+        try {
+            for (int i=0; i<mNames.length; i++) {
+                Object value = mResultSetGetMethods[i].invoke(rs, FIRST_RESULT_INDEX + i);
+                if (rs.wasNull()) {
+                    value = null;
+                } else if (mToChar[i]) {
+                    value = ((String) value).charAt(0);
+                }
+
+                if (value == null && mPrimitive[i]) {
+                    // Leave property uninitialized rather than guess a value.
+                    continue;
+                }
+
+                Method adapter = mAdapterMethods[i];
+                if (adapter != null) {
+                    value = adapter.invoke(mAdapterInstances[i], value);
+                }
+
+                storable.setPropertyValue(mNames[i], value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new UndeclaredThrowableException(e);
+        } catch (InvocationTargetException e) {
+            ThrowUnchecked.fireDeclaredCause(e, SQLException.class);
+        }
+
+        // Properties which were set become clean, and the rest remain
+        // uninitialized.
+        storable.markPropertiesClean();
+
+        Trigger<? super S> trigger = mStorage.getLoadTrigger();
+        if (trigger != null) {
+            trigger.afterLoad(storable);
+        }
+
+        return storable;
+    }
+
+    /**
+     * @return false if property isn't supported
+     */
+    private boolean init(int index, JDBCStorableProperty<S> property) {
+        Method rsGetMethod = property.getResultSetGetMethod();
+        if (rsGetMethod == null) {
+            return false;
+        }
+
+        Class<?> rsType = rsGetMethod.getReturnType();
+        if (Lob.class.isAssignableFrom(property.getType())
+            || java.sql.Blob.class.isAssignableFrom(rsType)
+            || java.sql.Clob.class.isAssignableFrom(rsType))
+        {
+            // Lobs require a generated loader.
+            return false;
+        }
+
+        Class<?> toType;
+
+        StorablePropertyAdapter adapter = property.getAppliedAdapter();
+        if (adapter == null) {
+            toType = property.getType();
+        } else {
+            Method adaptMethod = adapter.findAdaptMethod(rsType, property.getType());
+            if (adaptMethod == null && rsType == String.class) {
+                // Special case for converting String to character.
+                adaptMethod = adapter.findAdaptMethod(char.class, property.getType());
+                if (adaptMethod == null) {
+                    adaptMethod = adapter.findAdaptMethod(Character.class, property.getType());
+                }
+            }
+            if (adaptMethod == null) {
+                return false;
+            }
+            mAdapterMethods[index] = adaptMethod;
+            mAdapterInstances[index] = adapter.getAdapterInstance();
+            toType = adaptMethod.getParameterTypes()[0];
+        }
+
+        TypeDesc from = TypeDesc.forClass(rsType).toObjectType();
+        TypeDesc to = TypeDesc.forClass(toType).toObjectType();
+
+        if (from == TypeDesc.STRING && to == TypeDesc.forClass(Character.class)) {
+            mToChar[index] = true;
+        } else if (!from.equals(to)) {
+            // Conversion isn't supported.
+            return false;
+        }
+
+        mNames[index] = property.getName();
+        mNameSet.add(property.getName());
+        mResultSetGetMethods[index] = rsGetMethod;
+        mPrimitive[index] = toType.isPrimitive();
+
+        return true;
+    }
+}
@@ -24,7 +24,9 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -37,10 +39,12 @@ import org.apache.commons.logging.LogFactory;
 
 import org.cojen.util.ThrowUnchecked;
 
+import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
 import com.amazon.carbonado.MalformedTypeException;
 import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryException;
 import com.amazon.carbonado.Storable;
@@ -49,10 +53,16 @@ import com.amazon.carbonado.SupportException;
 import com.amazon.carbonado.Transaction;
 import com.amazon.carbonado.TriggerFactory;
 import com.amazon.carbonado.UnsupportedTypeException;
+import com.amazon.carbonado.capability.Aggregate;
+import com.amazon.carbonado.capability.AggregateCapability;
+import com.amazon.carbonado.capability.BulkInsertCapability;
 import com.amazon.carbonado.capability.IndexInfo;
 import com.amazon.carbonado.capability.IndexInfoCapability;
+import com.amazon.carbonado.capability.QueryCacheCapability;
+import com.amazon.carbonado.capability.QueryCacheStats;
 import com.amazon.carbonado.capability.ShutdownCapability;
 import com.amazon.carbonado.capability.StorableInfoCapability;
+import com.amazon.carbonado.cursor.IteratorCursor;
 import com.amazon.carbonado.info.StorableIntrospector;
 import com.amazon.carbonado.info.StorableProperty;
 import com.amazon.carbonado.sequence.SequenceCapability;
@@ -78,6 +88,9 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
                IndexInfoCapability,
                ShutdownCapability,
                StorableInfoCapability,
+               QueryCacheCapability,
+               BulkInsertCapability,
+               AggregateCapability,
                JDBCConnectionCapability,
                SequenceCapability
 {
@@ -172,10 +185,19 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
     private final String mDatabaseProductName;
     private final DataSource mDataSource;
     private final boolean mDataSourceClose;
+    private final JDBCDataSourceRouter mRouter;
     private final String mCatalog;
     private final String mSchema;
     private final Integer mFetchSize;
     private final boolean mPrimaryKeyCheckDisabled;
+    private final int mWriteBatchSize;
+    private final StatementStatsRecorder mStatementStats;
+    private final StatementStatsRecorder mReplicaStatementStats;
+
+    // Pools which supply connections, which may cache statements.
+    private final List<PooledDataSource> mPools;
+    // Pool which supplies primary connections, if known.
+    private final PooledDataSource mPrimaryPool;
 
     // Maps Storable types which should have automatic version management.
     private Map<String, Boolean> mAutoVersioningMap;
@@ -213,6 +235,7 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
      * @param isMaster when true, storables in this repository must manage
      * version properties and sequence properties
      * @param dataSource provides JDBC database connections
+     * @param replicas optional read-only replicas of the database
      * @param catalog optional catalog to search for tables -- actual meaning
      * is database independent
      * @param schema optional schema to search for tables -- actual meaning is
@@ -225,11 +248,13 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
                    String name, boolean isMaster,
                    Iterable<TriggerFactory> triggerFactories,
                    DataSource dataSource, boolean dataSourceClose,
+                   DataSource[] replicas,
                    String catalog, String schema,
                    Integer fetchSize,
                    Map<String, Boolean> autoVersioningMap,
                    Map<String, Boolean> suppressReloadMap,
                    String sequenceSelectStatement, boolean forceStoredSequence, boolean primaryKeyCheckDisabled,
+                   int writeBatchSize, int statementCacheSize, boolean statementStats,
                    SchemaResolver resolver)
         throws RepositoryException
     {
@@ -242,10 +267,33 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
         mRootRef = rootRef;
         mDataSource = dataSource;
         mDataSourceClose = dataSourceClose;
+        mRouter = new JDBCDataSourceRouter(dataSource, replicas);
         mCatalog = catalog;
         mSchema = schema;
         mFetchSize = fetchSize;
         mPrimaryKeyCheckDisabled = primaryKeyCheckDisabled;
+        mWriteBatchSize = writeBatchSize;
+        mStatementStats = statementStats ? new StatementStatsRecorder(false) : null;
+        mReplicaStatementStats = (statementStats && mRouter.hasReplicas())
+            ? new StatementStatsRecorder(true) : null;
+
+        mPools = new ArrayList<PooledDataSource>();
+        mPrimaryPool = addPool(dataSource);
+        if (replicas != null) {
+            for (DataSource replica : replicas) {
+                addPool(replica);
+            }
+        }
+        if (statementCacheSize > 0) {
+            if (mPools.isEmpty()) {
+                getLog().warn("Statement caching is only supported by PooledDataSource");
+            }
+            // Statements are cached by each physical connection in the pool,
+            // and so they're reused across pool checkouts.
+            for (PooledDataSource pool : mPools) {
+                pool.setStatementCacheSize(statementCacheSize);
+            }
+        }
 
         mAutoVersioningMap = autoVersioningMap;
         mSuppressReloadMap = suppressReloadMap;
@@ -322,6 +370,8 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
             mSupportStrategy.setSequenceSelectStatement(null);
         } else if (sequenceSelectStatement != null && sequenceSelectStatement.length() > 0) {
             mSupportStrategy.setSequenceSelectStatement(sequenceSelectStatement);
+            // Reserve statement doesn't necessarily match a custom statement.
+            mSupportStrategy.setSequenceReserveStatement(null);
         }
         mSupportStrategy.setForceStoredSequence(forceStoredSequence);
         mExceptionTransformer = mSupportStrategy.createExceptionTransformer();
@@ -367,6 +417,50 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
         return ((JDBCStorage) storageFor(storableType)).getIndexInfo();
     }
 
+    public <S extends Storable> QueryCacheStats getQueryCacheStats(Class<S> storableType)
+        throws RepositoryException
+    {
+        return ((JDBCStorage) storageFor(storableType)).getQueryCacheStats();
+    }
+
+    public <S extends Storable> long insertAll(Class<S> storableType,
+                                               Iterable<? extends S> storables)
+        throws RepositoryException
+    {
+        return insertAll(storableType, new IteratorCursor<S>((Iterable<S>) storables));
+    }
+
+    public <S extends Storable> long insertAll(Class<S> storableType,
+                                               Cursor<? extends S> storables)
+        throws RepositoryException
+    {
+        return ((JDBCStorage<S>) storageFor(storableType)).insertAll(storables, false);
+    }
+
+    public <S extends Storable> long upsertAll(Class<S> storableType,
+                                               Iterable<? extends S> storables)
+        throws RepositoryException
+    {
+        return upsertAll(storableType, new IteratorCursor<S>((Iterable<S>) storables));
+    }
+
+    public <S extends Storable> long upsertAll(Class<S> storableType,
+                                               Cursor<? extends S> storables)
+        throws RepositoryException
+    {
+        return ((JDBCStorage<S>) storageFor(storableType)).insertAll(storables, true);
+    }
+
+    public <S extends Storable> Cursor<Object[]> aggregate(Query<S> query, String[] groupBy,
+                                                            Aggregate... aggregates)
+        throws FetchException
+    {
+        if (query instanceof JDBCStorage.JDBCQuery) {
+            return ((JDBCStorage<S>.JDBCQuery) query).aggregate(groupBy, aggregates);
+        }
+        return super.aggregate(query, groupBy, aggregates);
+    }
+
     public String[] getUserStorableTypeNames() {
         // We don't register Storable types persistently, so just return what
         // we know right now.
@@ -424,6 +518,34 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
         return mDatabaseProductName;
     }
 
+    public long getStatementCacheHitCount() {
+        long count = 0;
+        for (PooledDataSource pool : mPools) {
+            count += pool.getStatementCacheHitCount();
+        }
+        return count;
+    }
+
+    public long getStatementCacheMissCount() {
+        long count = 0;
+        for (PooledDataSource pool : mPools) {
+            count += pool.getStatementCacheMissCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the amount of primary connections which can be opened now
+     * without waiting, or Integer.MAX_VALUE if not known.
+     */
+    int getAvailableConnectionCount() {
+        PooledDataSource pool = mPrimaryPool;
+        if (pool == null) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, pool.getMaxConnections() - pool.getActiveCount());
+    }
+
     /**
      * Any connection returned by this method must be closed by calling
      * yieldConnection on this repository.
@@ -437,30 +559,100 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
             JDBCTransaction txn = localTransactionScope().getTxn();
             if (txn != null) {
                 // Return the connection used by the current transaction.
+                txn.markWritten();
                 return txn.getConnection();
             }
 
-            // Get connection outside lock section since it may block.
-            Connection con = mDataSource.getConnection();
-            con.setAutoCommit(true);
+            return openAutoCommitConnection(false);
+        } catch (Exception e) {
+            throw toFetchException(e);
+        }
+    }
 
-            mOpenConnectionsLock.lock();
-            try {
-                if (mOpenConnections == null) {
-                    con.close();
-                    throw new FetchException("Repository is closed");
+    /**
+     * Returns a connection for executing a query, which is opened from a
+     * read-only replica if any are configured. Replicas are used outside of
+     * transactions, and by transactions which explicitly requested an
+     * isolation level lower than READ_COMMITTED, are not for update, and
+     * haven't requested a connection for writing. Any connection returned by
+     * this method must be closed by calling yieldConnection on this
+     * repository.
+     */
+    Connection getReadConnection() throws FetchException {
+        if (!mRouter.hasReplicas()) {
+            return getConnection();
+        }
+
+        try {
+            if (mOpenConnections == null) {
+                throw new FetchException("Repository is closed");
+            }
+
+            TransactionScope<JDBCTransaction> scope = localTransactionScope();
+            JDBCTransaction txn = scope.getTxn();
+            if (txn != null) {
+                // Transactions at the default level might read and then
+                // write, which loses updates if the read was stale. A level
+                // which matches the default is assumed to be the default.
+                IsolationLevel level = scope.getIsolationLevel();
+                if (txn.isWritten() || scope.isForUpdate() ||
+                    level == null || level.isAtLeast(IsolationLevel.READ_COMMITTED) ||
+                    level == mDefaultIsolationLevel)
+                {
+                    // Return the connection used by the current transaction.
+                    return txn.getConnection();
                 }
-                mOpenConnections.put(con, null);
-            } finally {
-                mOpenConnectionsLock.unlock();
             }
 
-            return con;
+            return openAutoCommitConnection(true);
         } catch (Exception e) {
             throw toFetchException(e);
         }
     }
 
+    /**
+     * Returns statistics for each distinct prepared statement, or an empty
+     * list if not enabled.
+     */
+    public List<StatementStats> getStatementStats() {
+        StatementStatsRecorder recorder = mStatementStats;
+        if (recorder == null) {
+            return Collections.emptyList();
+        }
+        List<StatementStats> stats = recorder.getStats();
+        if (mReplicaStatementStats != null) {
+            stats.addAll(mReplicaStatementStats.getStats());
+            StatementStatsRecorder.sort(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns statistics for the primary DataSource followed by any replicas.
+     */
+    public List<DataSourceStats> getDataSourceStats() {
+        return mRouter.getStats();
+    }
+
+    private Connection openAutoCommitConnection(boolean replica) throws Exception {
+        // Get connection outside lock section since it may block.
+        Connection con = openConnection(replica);
+        con.setAutoCommit(true);
+
+        mOpenConnectionsLock.lock();
+        try {
+            if (mOpenConnections == null) {
+                con.close();
+                throw new FetchException("Repository is closed");
+            }
+            mOpenConnections.put(con, null);
+        } finally {
+            mOpenConnectionsLock.unlock();
+        }
+
+        return con;
+    }
+
     /**
      * Called by JDBCTransactionManager.
      */
@@ -471,7 +663,7 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
             }
 
             // Get connection outside lock section since it may block.
-            Connection con = mDataSource.getConnection();
+            Connection con = openConnection(false);
 
             if (level == IsolationLevel.NONE) {
                 con.setAutoCommit(true);
@@ -480,6 +672,9 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
                 if (level != mDefaultIsolationLevel) {
                     con.setTransactionIsolation(mapIsolationLevelToJdbc(level));
                 }
+                if (mWriteBatchSize > 0) {
+                    con = new BatchingConnection(con, mWriteBatchSize);
+                }
             }
 
             mOpenConnectionsLock.lock();
@@ -499,6 +694,48 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
         }
     }
 
+    private Connection openConnection(boolean replica) throws SQLException {
+        if (replica) {
+            Connection con = mRouter.openReplica();
+            if (con != null) {
+                if (mReplicaStatementStats != null) {
+                    con = new StatementStatsConnection(con, mReplicaStatementStats);
+                }
+                return con;
+            }
+            // Fall back to the primary.
+        }
+        Connection con = mRouter.openPrimary();
+        if (mStatementStats != null) {
+            con = new StatementStatsConnection(con, mStatementStats);
+        }
+        return con;
+    }
+
+    /**
+     * @return pool which supplies the given data source, or null if not known
+     */
+    private PooledDataSource addPool(DataSource ds) {
+        PooledDataSource pool = null;
+        if (ds instanceof PooledDataSource) {
+            pool = (PooledDataSource) ds;
+        } else {
+            try {
+                if (ds.isWrapperFor(PooledDataSource.class)) {
+                    pool = ds.unwrap(PooledDataSource.class);
+                }
+            } catch (Exception e) {
+                // Not a wrapper.
+            } catch (AbstractMethodError e) {
+                // DataSource predates JDBC 4.
+            }
+        }
+        if (pool != null && !mPools.contains(pool)) {
+            mPools.add(pool);
+        }
+        return pool;
+    }
+
     /**
      * Gives up a connection returned from getConnection. Connection must be
      * yielded in same thread that retrieved it.
@@ -664,6 +901,15 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
             } catch (SQLException e) {
                 mLog.error("Failed to close DataSource", e);
             }
+
+            for (DataSource replica : mRouter.getReplicas()) {
+                mLog.info("Closing DataSource: " + replica);
+                try {
+                    closeDataSource(replica);
+                } catch (SQLException e) {
+                    mLog.error("Failed to close DataSource", e);
+                }
+            }
         }
     }
 
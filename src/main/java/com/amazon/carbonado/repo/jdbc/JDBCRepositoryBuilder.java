@@ -48,6 +48,8 @@ import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
  * <p>
  * The following extra capabilities are supported:
  * <ul>
+ * <li>{@link com.amazon.carbonado.capability.BulkInsertCapability BulkInsertCapability}
+ * <li>{@link com.amazon.carbonado.capability.AggregateCapability AggregateCapability}
  * <li>{@link com.amazon.carbonado.capability.IndexInfoCapability IndexInfoCapability}
  * <li>{@link com.amazon.carbonado.capability.StorableInfoCapability StorableInfoCapability}
  * <li>{@link com.amazon.carbonado.capability.ShutdownCapability ShutdownCapability}
@@ -63,8 +65,12 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
     private String mName;
     private boolean mIsMaster = true;
     private DataSource mDataSource;
+    private DataSource[] mReplicaDataSources;
     private boolean mDataSourceClose;
     private boolean mDataSourceLogging;
+    private int mDataSourcePoolSize = 10;
+    // Is true if DataSource is a pool created by this builder.
+    private boolean mDataSourcePooled;
     private String mCatalog;
     private String mSchema;
     private String mDriverClassName;
@@ -77,6 +83,9 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
     private String mSequenceSelectStatement;
     private boolean mForceStoredSequence;
     private boolean mPrimaryKeyCheckDisabled;
+    private int mWriteBatchSize;
+    private int mStatementCacheSize;
+    private boolean mStatementStatsEnabled;
 
     private SchemaResolver mResolver;
 
@@ -88,14 +97,20 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
 
         final Repository originalRoot = rootRef.get();
 
+        DataSource ds = getDataSource();
+        // A pool created by this builder is owned by the repository.
+        boolean dsClose = getDataSourceCloseOnShutdown() || mDataSourcePooled;
+
         JDBCRepository repo = new JDBCRepository
             (rootRef, getName(), isMaster(), getTriggerFactories(),
-             getDataSource(), getDataSourceCloseOnShutdown(),
+             ds, dsClose,
+             getReplicaDataSources(),
              mCatalog, mSchema,
              mFetchSize,
              getAutoVersioningMap(),
              getSuppressReloadMap(),
              mSequenceSelectStatement, mForceStoredSequence, mPrimaryKeyCheckDisabled,
+             mWriteBatchSize, mStatementCacheSize, mStatementStatsEnabled,
              mResolver);
 
         // Don't wipe out root when using BelatedRepositoryCreator.
@@ -133,6 +148,7 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
      */
     public void setDataSource(DataSource dataSource) {
         mDataSource = dataSource;
+        mDataSourcePooled = false;
         mDriverClassName = null;
         mURL = null;
         mUsername = null;
@@ -140,18 +156,29 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
     }
 
     /**
-     * Returns the source of JDBC connections, which defaults to a non-pooling
-     * source if driver class, driver URL, username, and password are all
-     * supplied.
+     * Returns the source of JDBC connections, which defaults to a {@link
+     * PooledDataSource pooling} source if driver class, driver URL, username,
+     * and password are all supplied.
      *
      * @throws ConfigurationException if driver class wasn't found
      */
     public DataSource getDataSource() throws ConfigurationException {
+        if (mDataSourcePooled && ((PooledDataSource) mDataSource).isClosed()) {
+            // Pool was closed by a previously built repository.
+            mDataSource = null;
+            mDataSourcePooled = false;
+        }
+
         if (mDataSource == null) {
             if (mDriverClassName != null && mURL != null) {
                 try {
-                    mDataSource = new SimpleDataSource
+                    DataSource ds = new SimpleDataSource
                         (mDriverClassName, mURL, mUsername, mPassword);
+                    if (mDataSourcePoolSize > 0) {
+                        ds = new PooledDataSource(ds, mDataSourcePoolSize);
+                        mDataSourcePooled = true;
+                    }
+                    mDataSource = ds;
                 } catch (SQLException e) {
                     Throwable cause = e.getCause();
                     if (cause == null) {
@@ -170,6 +197,49 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
         return ds;
     }
 
+    /**
+     * Set optional read-only replicas of the database. Queries and loads
+     * which are not in a transaction are load-balanced across the replicas.
+     * Within a transaction, only those which explicitly requested an
+     * isolation level lower than READ_COMMITTED, are not for update, and
+     * haven't yet written anything use the replicas. All other operations use
+     * the primary DataSource, including those in transactions entered with
+     * the default isolation level.
+     *
+     * <p>Replicas are typically updated asynchronously, and so reads routed
+     * to them might not observe recent writes. If a replica fails to supply
+     * a connection, the failure is logged and the replica is skipped for a
+     * while, backing off further if it keeps failing. The primary is used
+     * when no replica can supply a connection.
+     *
+     * @param replicas replicas, or null for none
+     * @see JDBCConnectionCapability#getDataSourceStats
+     */
+    public void setReplicaDataSources(DataSource... replicas) {
+        mReplicaDataSources = (replicas == null || replicas.length == 0) ? null
+            : replicas.clone();
+    }
+
+    /**
+     * Returns the read-only replicas of the database, which is null if none.
+     * If debug logging is enabled, the replicas are returned wrapped.
+     */
+    public DataSource[] getReplicaDataSources() {
+        DataSource[] replicas = mReplicaDataSources;
+        if (replicas == null) {
+            return null;
+        }
+        replicas = replicas.clone();
+        if (getDataSourceLogging()) {
+            for (int i=0; i<replicas.length; i++) {
+                if (!(replicas[i] instanceof LoggingDataSource)) {
+                    replicas[i] = LoggingDataSource.create(replicas[i]);
+                }
+            }
+        }
+        return replicas;
+    }
+
     /**
      * Pass true to cause the DataSource to be closed when the repository is
      * closed or shutdown. By default, this option is false.
@@ -190,6 +260,32 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
         return mDataSourceClose;
     }
 
+    /**
+     * Returns the maximum amount of connections pooled by the default
+     * DataSource, which is zero if pooling is disabled.
+     */
+    public int getDataSourcePoolSize() {
+        return mDataSourcePoolSize;
+    }
+
+    /**
+     * Set the maximum amount of connections pooled by the DataSource which is
+     * created when a driver class and URL are supplied. By default, up to 10
+     * connections are pooled. The pool is closed when the repository is
+     * closed or shutdown, and it can be examined and further configured by
+     * calling {@link #getDataSource} before building the repository.
+     *
+     * <p>This option has no effect if a DataSource is {@link #setDataSource
+     * supplied}.
+     *
+     * @param size maximum amount of connections; pass zero to open a new
+     * connection for every request
+     * @see PooledDataSource
+     */
+    public void setDataSourcePoolSize(int size) {
+        mDataSourcePoolSize = size;
+    }
+
     /**
      * Pass true to enable debug logging. By default, it is false.
      *
@@ -426,9 +522,102 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
         mPrimaryKeyCheckDisabled = primaryKeyCheckDisabled;
     }
 
+    /**
+     * Returns the maximum amount of writes batched within a transaction, which
+     * is zero if batching is disabled.
+     */
+    public int getWriteBatchSize() {
+        return mWriteBatchSize;
+    }
+
+    /**
+     * By default, every insert, update and delete is immediately executed by
+     * the database. When write batching is enabled, consecutive calls to
+     * insert or update of the same form within a transaction are queued and
+     * sent to the database together. Queued writes are executed before any
+     * other statement, before the transaction commits, or when the given
+     * amount of writes are queued. Failures are reported as exceptions when
+     * the batch executes, identifying the Storable which failed.
+     *
+     * <p>Note: Storables are reloaded after insert or update unless {@link
+     * #setSuppressReload suppressed}, and the reload executes the batch. Write
+     * batching is only effective for Storables which aren't reloaded and which
+     * have no identity properties.
+     *
+     * @param size maximum amount of queued writes; pass zero to disable
+     */
+    public void setWriteBatchSize(int size) {
+        mWriteBatchSize = size;
+    }
+
+    /**
+     * Returns the maximum amount of prepared statements cached per connection,
+     * which is zero if statement caching is disabled.
+     */
+    public int getStatementCacheSize() {
+        return mStatementCacheSize;
+    }
+
+    /**
+     * By default, statements are prepared every time they are executed,
+     * unless the JDBC driver or DataSource caches them. When statement caching
+     * is enabled, each physical connection of a {@link PooledDataSource}
+     * retains prepared statements for reuse, up to the given amount, and so
+     * statements are reused across pool checkouts. The least recently used
+     * statements are closed when the cache is full. Cache hit and miss counts
+     * are available from {@link JDBCConnectionCapability}.
+     *
+     * <p>Note: This option configures the pool created by this builder, and
+     * any supplied primary or replica DataSource which is a PooledDataSource.
+     * Other DataSources are expected to cache statements themselves, and this
+     * option has no effect on them.
+     *
+     * @param size maximum amount of cached statements per connection; pass
+     * zero to disable
+     */
+    public void setStatementCacheSize(int size) {
+        mStatementCacheSize = size;
+    }
+
+    /**
+     * Returns true if statement execution statistics are recorded.
+     */
+    public boolean isStatementStatsEnabled() {
+        return mStatementStatsEnabled;
+    }
+
+    /**
+     * Pass true to record execution statistics for each distinct prepared
+     * statement, which are available from {@link
+     * JDBCConnectionCapability#getStatementStats}. Latency histograms, row
+     * counts and batch sizes are recorded without logging, and so this
+     * option is suitable for production use, unlike {@link
+     * #setDataSourceLogging logging}. By default, it is false.
+     */
+    public void setStatementStatsEnabled(boolean b) {
+        mStatementStatsEnabled = b;
+    }
+
     @Override
     public void errorCheck(Collection<String> messages) throws ConfigurationException {
         super.errorCheck(messages);
+        if (mWriteBatchSize < 0) {
+            messages.add("writeBatchSize cannot be negative: " + mWriteBatchSize);
+        }
+        if (mDataSourcePoolSize < 0) {
+            messages.add("dataSourcePoolSize cannot be negative: " + mDataSourcePoolSize);
+        }
+        if (mStatementCacheSize < 0) {
+            messages.add("statementCacheSize cannot be negative: " + mStatementCacheSize);
+        }
+        if (mReplicaDataSources != null) {
+            for (DataSource replica : mReplicaDataSources) {
+                if (replica == null) {
+                    messages.add("replicaDataSources cannot contain null");
+                    break;
+                }
+            }
+        }
         if (mDataSource == null) {
             if (mDriverClassName == null) {
                 messages.add("driverClassName missing");
@@ -33,13 +33,34 @@ import com.amazon.carbonado.sequence.AbstractSequenceValueProducer;
 class JDBCSequenceValueProducer extends AbstractSequenceValueProducer {
     private final JDBCRepository mRepo;
     private final String mQuery;
+    private final String mReserveFormat;
+    private final String mName;
 
-    JDBCSequenceValueProducer(JDBCRepository repo, String sequenceQuery) {
+    // Values selected in advance by the reserve method.
+    private long[] mReserved;
+    private int mReservedPos;
+
+    /**
+     * @param reserveFormat optional format for selecting multiple values
+     * @param name sequence name to pass to reserve format
+     */
+    JDBCSequenceValueProducer(JDBCRepository repo, String sequenceQuery,
+                              String reserveFormat, String name)
+    {
         mRepo = repo;
         mQuery = sequenceQuery;
+        mReserveFormat = reserveFormat;
+        mName = name;
     }
 
     public long nextLongValue() throws PersistException {
+        synchronized (this) {
+            long[] reserved = mReserved;
+            if (reserved != null && mReservedPos < reserved.length) {
+                return reserved[mReservedPos++];
+            }
+        }
+
         try {
             Connection con = mRepo.getConnection();
             try {
@@ -65,6 +86,55 @@ class JDBCSequenceValueProducer extends AbstractSequenceValueProducer {
         }
     }
 
+    /**
+     * Selects the given amount of values with one query, unless values are
+     * already reserved or the database cannot select multiple values. Reserved
+     * values are returned by subsequent calls to nextLongValue.
+     */
+    synchronized void reserve(int amount) throws PersistException {
+        if (mReserveFormat == null ||
+            (mReserved != null && mReservedPos < mReserved.length))
+        {
+            return;
+        }
+
+        String query = String.format(mReserveFormat, mName, amount);
+        long[] reserved = new long[amount];
+        int count = 0;
+
+        try {
+            Connection con = mRepo.getConnection();
+            try {
+                Statement st = con.createStatement();
+                try {
+                    ResultSet rs = st.executeQuery(query);
+                    try {
+                        while (count < amount && rs.next()) {
+                            reserved[count++] = rs.getLong(1);
+                        }
+                    } finally {
+                        rs.close();
+                    }
+                } finally {
+                    st.close();
+                }
+            } finally {
+                mRepo.yieldConnection(con);
+            }
+        } catch (Exception e) {
+            throw mRepo.toPersistException(e);
+        }
+
+        if (count < amount) {
+            long[] trimmed = new long[count];
+            System.arraycopy(reserved, 0, trimmed, 0, count);
+            reserved = trimmed;
+        }
+
+        mReserved = reserved;
+        mReservedPos = 0;
+    }
+
     /**
      * @since 1.2
      */
@@ -79,6 +79,7 @@ class JDBCStorableGenerator<S extends Storable> {
     private static final String EXTRACT_ALL_METHOD_NAME = "extractAll$";
     private static final String EXTRACT_DATA_METHOD_NAME = "extractData$";
     private static final String LOB_LOADER_FIELD_PREFIX = "lobLoader$";
+    private static final String DEFERRABLE_WRITE_FIELD_NAME = "deferrableWrite$";
 
     // Initial StringBuilder capactity for update statement.
     private static final int INITIAL_UPDATE_BUFFER_SIZE = 100;
@@ -296,6 +297,11 @@ class JDBCStorableGenerator<S extends Storable> {
 
         CodeBuilderUtil.definePrepareMethod(mClassFile, mStorableType, jdbcSupportType);
 
+        // Set by the insert and update methods, which report failure with an
+        // exception, and so their writes can be deferred by write batching.
+        mClassFile.addField(Modifiers.PRIVATE.toTransient(true),
+                            DEFERRABLE_WRITE_FIELD_NAME, TypeDesc.BOOLEAN);
+
         // Add private method to extract all properties from a ResultSet row.
         defineExtractAllMethod(lobLoaderMap);
         // Add private method to extract non-pk properties from a ResultSet row.
@@ -347,7 +353,7 @@ class JDBCStorableGenerator<S extends Storable> {
 
             LocalVariable supportVar = getJDBCSupport(b);
             Label tryBeforeCon = b.createLabel().setLocation();
-            LocalVariable conVar = getConnection(b, supportVar);
+            LocalVariable conVar = getReadConnection(b, supportVar);
             Label tryAfterCon = b.createLabel().setLocation();
 
             b.loadThis();
@@ -458,6 +464,8 @@ class JDBCStorableGenerator<S extends Storable> {
             mi.addException(TypeDesc.forClass(PersistException.class));
             CodeBuilder b = new CodeBuilder(mi);
 
+            setDeferrableWrite(b, true);
+
             Label tryStart = b.createLabel().setLocation();
             b.loadThis();
             b.invokeSuper(mClassFile.getSuperClassName(), INSERT_METHOD_NAME, null, null);
@@ -484,6 +492,8 @@ class JDBCStorableGenerator<S extends Storable> {
             mi.addException(TypeDesc.forClass(PersistException.class));
             CodeBuilder b = new CodeBuilder(mi);
 
+            setDeferrableWrite(b, false);
+
             Label tryStart = b.createLabel().setLocation();
             b.loadThis();
             b.invokeSuper(mClassFile.getSuperClassName(),
@@ -523,6 +533,31 @@ class JDBCStorableGenerator<S extends Storable> {
             b.throwObject();
         }
 
+        // Override update method.
+        {
+            MethodInfo mi = mClassFile.addMethod
+                (Modifiers.PUBLIC, UPDATE_METHOD_NAME, null, null);
+            mi.addException(TypeDesc.forClass(PersistException.class));
+            CodeBuilder b = new CodeBuilder(mi);
+            setDeferrableWrite(b, true);
+            b.loadThis();
+            b.invokeSuper(mClassFile.getSuperClassName(), UPDATE_METHOD_NAME, null, null);
+            b.returnVoid();
+        }
+
+        // Override tryUpdate method.
+        {
+            MethodInfo mi = mClassFile.addMethod
+                (Modifiers.PUBLIC, TRY_UPDATE_METHOD_NAME, TypeDesc.BOOLEAN, null);
+            mi.addException(TypeDesc.forClass(PersistException.class));
+            CodeBuilder b = new CodeBuilder(mi);
+            setDeferrableWrite(b, false);
+            b.loadThis();
+            b.invokeSuper(mClassFile.getSuperClassName(),
+                          TRY_UPDATE_METHOD_NAME, TypeDesc.BOOLEAN, null);
+            b.returnValue(TypeDesc.BOOLEAN);
+        }
+
         // Add required protected doTryInsert method.
         {
             MethodInfo mi = mClassFile.addMethod
@@ -764,8 +799,7 @@ class JDBCStorableGenerator<S extends Storable> {
             }
 
             // Execute the statement.
-            b.loadLocal(psVar);
-            b.invokeInterface(preparedStatementType, "executeUpdate", TypeDesc.INT, null);
+            executeUpdate(b, supportVar, psVar, true);
             b.pop();
 
             if (identityProperties.size() > 0) {
@@ -1126,9 +1160,8 @@ class JDBCStorableGenerator<S extends Storable> {
 
             // Execute the update statement.
 
-            b.loadLocal(psVar);
             LocalVariable updateCount = b.createLocalVariable("updateCount", TypeDesc.INT);
-            b.invokeInterface(preparedStatementType, "executeUpdate", TypeDesc.INT, null);
+            executeUpdate(b, supportVar, psVar, true);
             b.storeLocal(updateCount);
 
             closeStatement(b, psVar, tryAfterPs);
@@ -1264,8 +1297,7 @@ class JDBCStorableGenerator<S extends Storable> {
             Label tryAfterPs = buildWhereClauseAndPreparedStatement
                 (b, deleteBuilder, conVar, psVar, null, null);
 
-            b.loadLocal(psVar);
-            b.invokeInterface(preparedStatementType, "executeUpdate", TypeDesc.INT, null);
+            executeUpdate(b, supportVar, psVar, false);
 
             // Return false if count is zero, true otherwise. Just return the
             // int as if it were boolean.
@@ -1367,6 +1399,21 @@ class JDBCStorableGenerator<S extends Storable> {
         return conVar;
     }
 
+    /**
+     * Generates code to get a connection for reading from JDBCSupport and
+     * store it in a local variable.
+     *
+     * @param supportVar reference to JDBCSupport
+     */
+    private LocalVariable getReadConnection(CodeBuilder b, LocalVariable supportVar) {
+        b.loadLocal(supportVar);
+        b.invokeInterface(TypeDesc.forClass(JDBCSupport.class),
+                          "getReadConnection", TypeDesc.forClass(Connection.class), null);
+        LocalVariable conVar = b.createLocalVariable("con", TypeDesc.forClass(Connection.class));
+        b.storeLocal(conVar);
+        return conVar;
+    }
+
     /**
      * Generates code which emulates this:
      *
@@ -1386,6 +1433,44 @@ class JDBCStorableGenerator<S extends Storable> {
         }
     }
 
+    /**
+     * Generates code which emulates this:
+     *
+     *     // May throw SQLException
+     *     int count = JDBCSupport.executeUpdate(ps, this, deferrableWrite$);
+     *
+     * @param supportVar required reference to JDBCSupport
+     * @param psVar insert, update or delete statement to execute
+     * @param deferrable when false, statement is always executed immediately
+     */
+    private void executeUpdate(CodeBuilder b, LocalVariable supportVar, LocalVariable psVar,
+                               boolean deferrable)
+    {
+        b.loadLocal(supportVar);
+        b.loadLocal(psVar);
+        b.loadThis();
+        if (deferrable) {
+            b.loadThis();
+            b.loadField(DEFERRABLE_WRITE_FIELD_NAME, TypeDesc.BOOLEAN);
+        } else {
+            b.loadConstant(false);
+        }
+        b.invokeInterface(TypeDesc.forClass(JDBCSupport.class), "executeUpdate", TypeDesc.INT,
+                          new TypeDesc[] {TypeDesc.forClass(PreparedStatement.class),
+                                          TypeDesc.forClass(Storable.class),
+                                          TypeDesc.BOOLEAN});
+    }
+
+    /**
+     * Generates code which sets the field which indicates if the next insert
+     * or update can be deferred.
+     */
+    private void setDeferrableWrite(CodeBuilder b, boolean deferrable) {
+        b.loadThis();
+        b.loadConstant(deferrable);
+        b.storeField(DEFERRABLE_WRITE_FIELD_NAME, TypeDesc.BOOLEAN);
+    }
+
     /**
      * Generates code that finishes the given SQL statement by appending a
      * WHERE clause. Prepared statement is then created and all parameters are
@@ -25,12 +25,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.LogFactory;
 
+import org.cojen.classfile.TypeDesc;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
@@ -43,9 +47,13 @@ import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.SupportException;
 import com.amazon.carbonado.Transaction;
 import com.amazon.carbonado.Trigger;
+import com.amazon.carbonado.capability.Aggregate;
 import com.amazon.carbonado.capability.IndexInfo;
+import com.amazon.carbonado.capability.QueryCacheStats;
+import com.amazon.carbonado.cursor.AggregateCursor;
 import com.amazon.carbonado.cursor.ControllerCursor;
 import com.amazon.carbonado.cursor.EmptyCursor;
+import com.amazon.carbonado.cursor.IteratorCursor;
 import com.amazon.carbonado.cursor.LimitCursor;
 import com.amazon.carbonado.filter.AndFilter;
 import com.amazon.carbonado.filter.Filter;
@@ -61,10 +69,12 @@ import com.amazon.carbonado.info.StorablePropertyAdapter;
 import com.amazon.carbonado.qe.AbstractQueryExecutor;
 import com.amazon.carbonado.qe.FilteredQueryExecutor;
 import com.amazon.carbonado.qe.OrderingList;
+import com.amazon.carbonado.qe.PartitionedScan;
 import com.amazon.carbonado.qe.QueryExecutor;
 import com.amazon.carbonado.qe.QueryExecutorCache;
 import com.amazon.carbonado.qe.QueryExecutorFactory;
 import com.amazon.carbonado.qe.QueryFactory;
+import com.amazon.carbonado.qe.QueryHint;
 import com.amazon.carbonado.qe.QueryHints;
 import com.amazon.carbonado.qe.SortedQueryExecutor;
 import com.amazon.carbonado.qe.StandardQuery;
@@ -88,10 +98,13 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
     final JDBCSupportStrategy mSupportStrategy;
     final JDBCStorableInfo<S> mInfo;
     final InstanceFactory mInstanceFactory;
-    final QueryExecutorFactory<S> mExecutorFactory;
+    final QueryExecutorCache<S> mExecutorFactory;
 
     final TriggerManager<S> mTriggerManager;
 
+    private final JDBCBulkLoader<S> mBulkLoader;
+    private final JDBCPartitioner<S> mPartitioner;
+
     JDBCStorage(JDBCRepository repository, JDBCStorableInfo<S> info,
                 boolean isMaster, boolean autoVersioning, boolean suppressReload)
         throws SupportException, RepositoryException
@@ -111,6 +124,9 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
 
         mTriggerManager = new TriggerManager<S>
             (info.getStorableType(), repository.mTriggerFactories);
+
+        mBulkLoader = new JDBCBulkLoader<S>(this, isMaster, autoVersioning);
+        mPartitioner = new JDBCPartitioner<S>(repository, info);
     }
 
     @Override
@@ -177,6 +193,20 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         return mInfo.getIndexInfo();
     }
 
+    public QueryCacheStats getQueryCacheStats() {
+        return mExecutorFactory.getStats();
+    }
+
+    /**
+     * Inserts all storables produced by the cursor, and then closes it.
+     *
+     * @param upsert when true, replace existing storables
+     * @return amount of storables inserted
+     */
+    long insertAll(Cursor<? extends S> storables, boolean upsert) throws PersistException {
+        return mBulkLoader.insertAll(storables, upsert);
+    }
+
     public SequenceValueProducer getSequenceValueProducer(String name) throws PersistException {
         try {
             return mRepository.getSequenceValueProducer(name);
@@ -222,13 +252,19 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
     }
 
     public boolean isUniqueConstraintError(SQLException e) {
-        return mRepository.isUniqueConstraintError(e);
+        // Failure of a queued write doesn't belong to the current write.
+        return !BatchingConnection.isQueuedWriteFailure(e)
+            && mRepository.isUniqueConstraintError(e);
     }
 
     public Connection getConnection() throws FetchException {
         return mRepository.getConnection();
     }
 
+    public Connection getReadConnection() throws FetchException {
+        return mRepository.getReadConnection();
+    }
+
     public void yieldConnection(Connection con) throws FetchException {
         mRepository.yieldConnection(con);
     }
@@ -237,6 +273,22 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         return mRepository.getDatabaseProductName();
     }
 
+    public long getStatementCacheHitCount() {
+        return mRepository.getStatementCacheHitCount();
+    }
+
+    public long getStatementCacheMissCount() {
+        return mRepository.getStatementCacheMissCount();
+    }
+
+    public List<DataSourceStats> getDataSourceStats() {
+        return mRepository.getDataSourceStats();
+    }
+
+    public List<StatementStats> getStatementStats() {
+        return mRepository.getStatementStats();
+    }
+
     /**
      * @param loader used to reload Blob outside original transaction
      */
@@ -319,6 +371,12 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         mSupportStrategy.updateClob(oldClob, newClob);
     }
 
+    public int executeUpdate(PreparedStatement ps, S storable, boolean deferrable)
+        throws SQLException
+    {
+        return BatchingConnection.executeUpdate(ps, storable, deferrable);
+    }
+
     protected JDBCStorableInfo<S> getStorableInfo() {
         return mInfo;
     }
@@ -391,6 +449,18 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                 throw toFetchException(e);
             }
 
+            // Only select a subset of columns if query selected a subset of
+            // properties, and if filter doesn't need to be evaluated against
+            // loaded storables.
+            JDBCProjection<S> projection = null;
+            if (hints != null) {
+                Object selected = hints.get(QueryHint.PROJECTION);
+                if (selected instanceof Set && (filter == null || !usesDerivedProperty(filter))) {
+                    projection = JDBCProjection.create
+                        (JDBCStorage.this, (Set<String>) selected, ordering);
+                }
+            }
+
             SQLStatementBuilder<S> selectBuilder = new SQLStatementBuilder<S>(mRepository);
             selectBuilder.append("SELECT ");
 
@@ -404,6 +474,9 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                 if (!property.isSelectable()) {
                     continue;
                 }
+                if (projection != null && !projection.includes(property.getName())) {
+                    continue;
+                }
                 if (ordinal > 0) {
                     selectBuilder.append(',');
                 }
@@ -529,6 +602,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
 
             QueryExecutor<S> executor = new Executor(filter,
                                                      sqlOrdering,
+                                                     alias,
+                                                     projection,
                                                      selectStatement,
                                                      fromWhere,
                                                      deleteFromWhere,
@@ -594,6 +669,12 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         private final Filter<S> mFilter;
         private final OrderingList<S> mOrdering;
 
+        // Table alias used by statements, or null if none.
+        private final String mAlias;
+
+        // Properties loaded by select statement, or null if all.
+        private final JDBCProjection<S> mProjection;
+
         private final SQLStatement<S> mSelectStatement;
         private final int mMaxSelectStatementLength;
         private final SQLStatement<S> mFromWhere;
@@ -616,6 +697,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
 
         Executor(Filter<S> filter,
                  OrderingList<S> ordering,
+                 String alias,
+                 JDBCProjection<S> projection,
                  SQLStatement<S> selectStatement,
                  SQLStatement<S> fromWhere,
                  SQLStatement<S> deleteFromWhere,
@@ -625,6 +708,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         {
             mFilter = filter;
             mOrdering = ordering;
+            mAlias = alias;
+            mProjection = projection;
 
             mSelectStatement = selectStatement;
             mMaxSelectStatementLength = selectStatement.maxLength();
@@ -704,7 +789,7 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         {
             TransactionScope<JDBCTransaction> scope = mRepository.localTransactionScope();
             boolean forUpdate = scope.isForUpdate();
-            Connection con = getConnection();
+            Connection con = getReadConnection();
             try {
                 PreparedStatement ps =
                     prepareStatement(con, prepareSelect(values, forUpdate), controller);
@@ -716,7 +801,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                 try {
                     setParameters(ps, values);
                     return ControllerCursor.apply
-                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps), controller);
+                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps, mProjection),
+                         controller);
                 } catch (Exception e) {
                     // in case of exception, close statement
                     try {
@@ -787,7 +873,7 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                 select = select.concat(" FOR UPDATE");
             }
 
-            Connection con = getConnection();
+            Connection con = getReadConnection();
             try {
                 PreparedStatement ps = prepareStatement(con, select, controller);
                 Integer fetchSize = mRepository.getFetchSize();
@@ -805,7 +891,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                                 ps.setLong(psOrdinal, from);
                                 Cursor<S> c =
                                     ControllerCursor.apply
-                                    (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps),
+                                    (new JDBCCursor<S>
+                                     (JDBCStorage.this, scope, con, ps, mProjection),
                                      controller);
                                 return new LimitCursor<S>(c, to - from);
                             case LIMIT_AND_OFFSET:
@@ -829,7 +916,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                     }
 
                     return ControllerCursor.apply
-                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps), controller);
+                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps, mProjection),
+                         controller);
                 } catch (Exception e) {
                     // in case of exception, close statement
                     try {
@@ -859,7 +947,7 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         public long count(FilterValues<S> values, Query.Controller controller)
             throws FetchException
         {
-            Connection con = getConnection();
+            Connection con = getReadConnection();
             try {
                 PreparedStatement ps = prepareStatement(con, prepareCount(values), controller);
 
@@ -882,6 +970,176 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             }
         }
 
+        /**
+         * Computes aggregates using a GROUP BY statement. All results are
+         * read before returning, and so the connection isn't held by the
+         * returned cursor.
+         *
+         * @return null if aggregates cannot be computed by the database
+         */
+        Cursor<Object[]> aggregate(FilterValues<S> values, String[] groupBy,
+                                   Aggregate[] aggregates)
+            throws FetchException
+        {
+            Map<String, JDBCStorableProperty<S>> properties =
+                getStorableInfo().getAllProperties();
+
+            int columnCount = groupBy.length + aggregates.length;
+            Method[] rsGetMethods = new Method[columnCount];
+
+            StringBuilder groupColumns = new StringBuilder();
+            for (int i=0; i<groupBy.length; i++) {
+                JDBCStorableProperty<S> property = properties.get(groupBy[i]);
+                if ((rsGetMethods[i] = resultSetGetMethod(property, null)) == null) {
+                    return null;
+                }
+                if (i > 0) {
+                    groupColumns.append(',');
+                }
+                appendColumn(groupColumns, property);
+            }
+
+            StringBuilder b = new StringBuilder();
+            b.append("SELECT ");
+            b.append(groupColumns);
+
+            for (int i=0; i<aggregates.length; i++) {
+                Aggregate aggregate = aggregates[i];
+                Method rsGetMethod;
+                JDBCStorableProperty<S> property = null;
+
+                switch (aggregate.getFunction()) {
+                case COUNT:
+                    rsGetMethod = resultSetGetMethod(Long.class);
+                    break;
+                case SUM:
+                    property = properties.get(aggregate.getPropertyName());
+                    if (resultSetGetMethod(property, aggregate) == null) {
+                        return null;
+                    }
+                    rsGetMethod = resultSetGetMethod(aggregate.getResultType(property.getType()));
+                    break;
+                default:
+                    property = properties.get(aggregate.getPropertyName());
+                    rsGetMethod = resultSetGetMethod(property, aggregate);
+                    break;
+                }
+
+                if (rsGetMethod == null) {
+                    return null;
+                }
+                rsGetMethods[groupBy.length + i] = rsGetMethod;
+
+                if (i > 0 || groupBy.length > 0) {
+                    b.append(',');
+                }
+                b.append(aggregate.getFunction().name());
+                b.append('(');
+                if (property == null) {
+                    b.append('*');
+                } else {
+                    appendColumn(b, property);
+                }
+                b.append(')');
+            }
+
+            mFromWhere.appendTo(b, values);
+
+            if (groupBy.length > 0) {
+                b.append(" GROUP BY ");
+                b.append(groupColumns);
+                b.append(" ORDER BY ");
+                b.append(groupColumns);
+            }
+
+            Connection con = getReadConnection();
+            try {
+                PreparedStatement ps = prepareStatement(con, b.toString(), null);
+                try {
+                    setParameters(ps, values);
+                    ResultSet rs = ps.executeQuery();
+                    try {
+                        List<Object[]> rows = new ArrayList<Object[]>();
+                        while (rs.next()) {
+                            Object[] row = new Object[columnCount];
+                            for (int i=0; i<columnCount; i++) {
+                                Object value = rsGetMethods[i].invoke(rs, i + 1);
+                                row[i] = rs.wasNull() ? null : value;
+                            }
+                            rows.add(row);
+                        }
+                        return new IteratorCursor<Object[]>(rows);
+                    } finally {
+                        rs.close();
+                    }
+                } finally {
+                    ps.close();
+                }
+            } catch (Exception e) {
+                throw toFetchException(e);
+            } finally {
+                yieldConnection(con);
+            }
+        }
+
+        private void appendColumn(StringBuilder b, JDBCStorableProperty<S> property) {
+            if (mAlias != null) {
+                b.append(mAlias);
+                b.append('.');
+            }
+            b.append(property.getColumnName());
+        }
+
+        /**
+         * Returns the ResultSet method which reads a property value, or
+         * aggregate of a property, without an adapter.
+         *
+         * @param aggregate optional aggregate to check the property type against
+         * @return null if not supported
+         */
+        private Method resultSetGetMethod(JDBCStorableProperty<S> property, Aggregate aggregate) {
+            if (property == null || !property.isSelectable()
+                || property.getAppliedAdapter() != null)
+            {
+                return null;
+            }
+            if (aggregate != null) {
+                try {
+                    aggregate.getResultType(property.getType());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+            Method rsGetMethod = property.getResultSetGetMethod();
+            if (rsGetMethod == null) {
+                return null;
+            }
+            TypeDesc returnType = TypeDesc.forClass(rsGetMethod.getReturnType()).toObjectType();
+            if (!returnType.equals(TypeDesc.forClass(property.getType()).toObjectType())) {
+                return null;
+            }
+            return rsGetMethod;
+        }
+
+        /**
+         * Returns the ResultSet method which reads an aggregate result type.
+         */
+        private Method resultSetGetMethod(Class<?> resultType) {
+            String name;
+            if (resultType == Long.class) {
+                name = "getLong";
+            } else if (resultType == Double.class) {
+                name = "getDouble";
+            } else {
+                name = "getBigDecimal";
+            }
+            try {
+                return ResultSet.class.getMethod(name, int.class);
+            } catch (NoSuchMethodException e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
         @Override
         public Filter<S> getFilter() {
             return mFilter;
@@ -1026,7 +1284,7 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         }
     }
 
-    private class JDBCQuery extends StandardQuery<S> {
+    class JDBCQuery extends StandardQuery<S> {
         JDBCQuery(Filter<S> filter,
                   FilterValues<S> values,
                   OrderingList<S> ordering,
@@ -1055,6 +1313,80 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             }
         }
 
+        /**
+         * Fetches in partitions if requested by a PartitionedScan controller
+         * and supported by the primary key.
+         */
+        @Override
+        public Cursor<S> fetch(Controller controller) throws FetchException {
+            if (controller instanceof PartitionedScan) {
+                PartitionedScan scan = (PartitionedScan) controller;
+                Cursor<S> cursor = mPartitioner.fetch(this, getOrdering(), scan);
+                if (cursor != null) {
+                    return cursor;
+                }
+            }
+            return super.fetch(controller);
+        }
+
+        /**
+         * Adds a redundant bound on the leading ordering property, allowing
+         * the database to seek to the start of the results using an index,
+         * instead of evaluating the disjunction for every row. Paging with
+         * {@link Query#fetchAfter fetchAfter}, or with a slice of this query
+         * starting at zero, therefore costs the same at any depth. Slices with
+         * a non-zero start still skip rows.
+         */
+        @Override
+        public <T extends S> Query<S> after(T start) throws FetchException {
+            Query<S> query = super.after(start);
+            OrderingList<S> ordering = getOrdering();
+            if (start == null || ordering.size() <= 1) {
+                return query;
+            }
+
+            OrderedProperty<S> leading = ordering.get(0);
+            String name = leading.getChainedProperty().toString();
+            Object value = start.getPropertyValue(name);
+            if (value == null) {
+                return query;
+            }
+
+            if (leading.getDirection() == Direction.DESCENDING) {
+                return query.and(name + " <= ?").with(value);
+            } else {
+                return query.and(name + " >= ?").with(value);
+            }
+        }
+
+        /**
+         * Computes aggregates with a GROUP BY statement if the filter and all
+         * properties can be handled by the database, or else by streaming
+         * the results through an AggregateCursor.
+         */
+        Cursor<Object[]> aggregate(String[] groupBy, Aggregate[] aggregates)
+            throws FetchException
+        {
+            if (getBlankParameterCount() == 0) {
+                QueryExecutor<S> executor;
+                try {
+                    // Ordering is ignored, so don't let it affect the executor.
+                    executor = mExecutorFactory
+                        .executor(getFilter(), OrderingList.<S>emptyList(), null);
+                } catch (RepositoryException e) {
+                    throw e.toFetchException();
+                }
+                if (executor instanceof JDBCStorage.Executor) {
+                    Cursor<Object[]> cursor =
+                        ((Executor) executor).aggregate(getFilterValues(), groupBy, aggregates);
+                    if (cursor != null) {
+                        return cursor;
+                    }
+                }
+            }
+            return AggregateCursor.fetch(this, groupBy, aggregates);
+        }
+
         @Override
         protected Transaction enterTransaction(IsolationLevel level) {
             return getRootRepository().enterTransaction(level);
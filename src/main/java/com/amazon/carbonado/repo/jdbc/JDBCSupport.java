@@ -34,6 +34,12 @@ import com.amazon.carbonado.gen.MasterSupport;
  */
 public interface JDBCSupport<S extends Storable> extends MasterSupport<S>, JDBCConnectionCapability
 {
+    /**
+     * Returns a connection for reading, which might be opened from a
+     * read-only replica. It must be yielded like any other connection.
+     */
+    public java.sql.Connection getReadConnection() throws FetchException;
+
     /**
      * @param loader used to reload Blob outside original transaction
      */
@@ -71,4 +77,16 @@ public interface JDBCSupport<S extends Storable> extends MasterSupport<S>, JDBCC
     public void updateClob(com.amazon.carbonado.lob.Clob oldClob,
                            com.amazon.carbonado.lob.Clob newClob)
         throws PersistException;
+
+    /**
+     * Executes an insert, update or delete statement on behalf of the given
+     * storable. If write batching is enabled and the write is deferrable,
+     * execution of inserts and updates is deferred while in a transaction,
+     * and the returned update count is one.
+     *
+     * @param deferrable false if the actual update count is required
+     * @return update count
+     */
+    public int executeUpdate(PreparedStatement ps, S storable, boolean deferrable)
+        throws SQLException;
 }
@@ -27,6 +27,9 @@ import java.io.Writer;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.cojen.util.ThrowUnchecked;
 
 import com.amazon.carbonado.FetchException;
@@ -81,6 +84,7 @@ class JDBCSupportStrategy {
     
     protected final JDBCRepository mRepo;
     private String mSequenceSelectStatement;
+    private String mSequenceReserveStatement;
     private boolean mForceStoredSequence = false;
     private String mTruncateTableStatement;
     
@@ -104,7 +108,8 @@ class JDBCSupportStrategy {
         String format = getSequenceSelectStatement();
         if (format != null && format.length() > 0 && !isForceStoredSequence()) {
             String sequenceQuery = String.format(format, name);
-            return new JDBCSequenceValueProducer(mRepo, sequenceQuery);
+            return new JDBCSequenceValueProducer
+                (mRepo, sequenceQuery, getSequenceReserveStatement(), name);
         } else {
             try {
                 return new SequenceValueGenerator(mRepo, name);
@@ -256,6 +261,19 @@ class JDBCSupportStrategy {
         mSequenceSelectStatement = sequenceSelectStatement;
     }
 
+    /**
+     * Returns the optional statement format which selects multiple values
+     * from a sequence. The format is printf style with 1 string parameter for
+     * the sequence name and 1 integer parameter for the amount of values.
+     */
+    String getSequenceReserveStatement() {
+        return mSequenceReserveStatement;
+    }
+
+    void setSequenceReserveStatement(String sequenceReserveStatement) {
+        mSequenceReserveStatement = sequenceReserveStatement;
+    }
+
     /**
      * @since 1.2
      */
@@ -288,6 +306,99 @@ class JDBCSupportStrategy {
         mTruncateTableStatement = truncateTableStatement;
     }
 
+    /**
+     * Returns the maximum amount of parameters to bind to one bulk insert
+     * statement.
+     */
+    int getMaxBulkParameters() {
+        return 2000;
+    }
+
+    /**
+     * Builds a statement which inserts multiple rows, with a parameter for
+     * each column of each row. Parameters are ordered by row and then by
+     * column.
+     *
+     * @param table qualified table name
+     * @param columns names of all inserted columns
+     * @param keyColumns names of primary key columns, which are also in columns
+     * @param rowCount amount of rows to insert
+     * @param upsert when true, rows replace existing rows with the same key
+     * @return statement, or null if not supported
+     */
+    String buildBulkInsert(String table, String[] columns, String[] keyColumns,
+                           int rowCount, boolean upsert)
+    {
+        if (upsert) {
+            return null;
+        }
+        StringBuilder b = new StringBuilder();
+        appendInsertValues(b, "INSERT INTO ", table, columns, rowCount);
+        return b.toString();
+    }
+
+    /**
+     * Appends a statement like "INSERT INTO table (a,b) VALUES (?,?),(?,?)".
+     */
+    static void appendInsertValues(StringBuilder b, String command, String table,
+                                   String[] columns, int rowCount)
+    {
+        b.append(command).append(table).append(" (");
+        appendColumns(b, null, columns);
+        b.append(") VALUES ");
+        for (int i=0; i<rowCount; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            appendParameters(b, columns.length);
+        }
+    }
+
+    /**
+     * Appends a comma separated list of columns, each with an optional prefix.
+     */
+    static void appendColumns(StringBuilder b, String prefix, String[] columns) {
+        for (int i=0; i<columns.length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            if (prefix != null) {
+                b.append(prefix);
+            }
+            b.append(columns[i]);
+        }
+    }
+
+    /**
+     * Appends a parenthesized list of parameters, like "(?,?)".
+     */
+    static void appendParameters(StringBuilder b, int count) {
+        b.append('(');
+        for (int i=0; i<count; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append('?');
+        }
+        b.append(')');
+    }
+
+    /**
+     * Returns the columns which aren't key columns.
+     */
+    static String[] nonKeyColumns(String[] columns, String[] keyColumns) {
+        List<String> list = new ArrayList<String>(columns.length);
+        outer: for (String column : columns) {
+            for (String key : keyColumns) {
+                if (column.equals(key)) {
+                    continue outer;
+                }
+            }
+            list.add(column);
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
     /**
      * @since 1.2
      */
@@ -43,6 +43,11 @@ class JDBCTransaction {
     private final Connection mConnection;
     private final int mOriginalLevel;
 
+    // Top-level transaction, which tracks if the connection was used for
+    // writing.
+    private final JDBCTransaction mRoot;
+    private boolean mWritten;
+
     private boolean mReady = true;
 
     private Savepoint mSavepoint;
@@ -52,6 +57,7 @@ class JDBCTransaction {
     JDBCTransaction(Connection con) {
         mIsNested = false;
         mConnection = con;
+        mRoot = this;
         // Don't change level upon abort.
         mOriginalLevel = LEVEL_NOT_CHANGED;
     }
@@ -62,6 +68,7 @@ class JDBCTransaction {
     JDBCTransaction(JDBCTransaction parent, IsolationLevel level) throws SQLException {
         mIsNested = true;
         mConnection = parent.mConnection;
+        mRoot = parent.mRoot;
 
         if (level == null) {
             // Don't change level upon abort.
@@ -89,6 +96,18 @@ class JDBCTransaction {
         return mConnection;
     }
 
+    /**
+     * Called when the connection is requested for potential writing, which
+     * prevents further reads from being routed to a replica.
+     */
+    void markWritten() {
+        mRoot.mWritten = true;
+    }
+
+    boolean isWritten() {
+        return mRoot.mWritten;
+    }
+
     void reuse() throws SQLException {
         if (mIsNested && mSavepoint == null) {
             mSavepoint = mConnection.setSavepoint();
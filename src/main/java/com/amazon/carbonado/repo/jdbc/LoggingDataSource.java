@@ -107,14 +107,17 @@ public class LoggingDataSource implements DataSource {
      * @since 1.2
      */
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new UnsupportedOperationException();
+        if (iface.isInstance(mDataSource)) {
+            return iface.cast(mDataSource);
+        }
+        return mDataSource.unwrap(iface);
     }
 
     /**
      * @since 1.2
      */
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new UnsupportedOperationException();
+        return iface.isInstance(mDataSource) || mDataSource.isWrapperFor(iface);
     }
 
     public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
@@ -56,4 +56,32 @@ class MysqlSupportStrategy extends JDBCSupportStrategy {
             return select;
         }
     }
+
+    @Override
+    int getMaxBulkParameters() {
+        return 10000;
+    }
+
+    @Override
+    String buildBulkInsert(String table, String[] columns, String[] keyColumns,
+                           int rowCount, boolean upsert)
+    {
+        StringBuilder b = new StringBuilder();
+        appendInsertValues(b, "INSERT INTO ", table, columns, rowCount);
+        if (upsert) {
+            String[] updated = nonKeyColumns(columns, keyColumns);
+            if (updated.length == 0) {
+                // Clause requires at least one assignment.
+                updated = keyColumns;
+            }
+            b.append(" ON DUPLICATE KEY UPDATE ");
+            for (int i=0; i<updated.length; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                b.append(updated[i]).append("=VALUES(").append(updated[i]).append(')');
+            }
+        }
+        return b.toString();
+    }
 }
@@ -37,6 +37,8 @@ import com.amazon.carbonado.PersistException;
 class OracleSupportStrategy extends JDBCSupportStrategy {
 
     private static final String DEFAULT_SEQUENCE_SELECT_STATEMENT = "SELECT %s.NEXTVAL FROM DUAL";
+    private static final String DEFAULT_SEQUENCE_RESERVE_STATEMENT =
+        "SELECT %s.NEXTVAL FROM DUAL CONNECT BY LEVEL <= %d";
 
     private static final String TRUNCATE_STATEMENT = "TRUNCATE TABLE %s";
 
@@ -62,6 +64,7 @@ class OracleSupportStrategy extends JDBCSupportStrategy {
 
         // Set printf style format to create sequence query
         setSequenceSelectStatement(DEFAULT_SEQUENCE_SELECT_STATEMENT);
+        setSequenceReserveStatement(DEFAULT_SEQUENCE_RESERVE_STATEMENT);
 
         setTruncateTableStatement(TRUNCATE_STATEMENT);
 
@@ -245,6 +248,73 @@ class OracleSupportStrategy extends JDBCSupportStrategy {
         }
     }
 
+    @Override
+    int getMaxBulkParameters() {
+        return 1000;
+    }
+
+    @Override
+    String buildBulkInsert(String table, String[] columns, String[] keyColumns,
+                           int rowCount, boolean upsert)
+    {
+        StringBuilder b = new StringBuilder();
+
+        if (!upsert) {
+            // Oracle doesn't support multiple rows in a VALUES clause.
+            b.append("INSERT ALL");
+            for (int i=0; i<rowCount; i++) {
+                b.append(" INTO ").append(table).append(" (");
+                appendColumns(b, null, columns);
+                b.append(") VALUES ");
+                appendParameters(b, columns.length);
+            }
+            b.append(" SELECT * FROM DUAL");
+            return b.toString();
+        }
+
+        b.append("MERGE INTO ").append(table).append(" T USING (");
+        for (int i=0; i<rowCount; i++) {
+            if (i > 0) {
+                b.append(" UNION ALL ");
+            }
+            b.append("SELECT ");
+            for (int j=0; j<columns.length; j++) {
+                if (j > 0) {
+                    b.append(',');
+                }
+                b.append("? ").append(columns[j]);
+            }
+            b.append(" FROM DUAL");
+        }
+        b.append(") S ON (");
+        for (int i=0; i<keyColumns.length; i++) {
+            if (i > 0) {
+                b.append(" AND ");
+            }
+            b.append("T.").append(keyColumns[i]).append("=S.").append(keyColumns[i]);
+        }
+        b.append(')');
+
+        String[] updated = nonKeyColumns(columns, keyColumns);
+        if (updated.length > 0) {
+            b.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i=0; i<updated.length; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                b.append("T.").append(updated[i]).append("=S.").append(updated[i]);
+            }
+        }
+
+        b.append(" WHEN NOT MATCHED THEN INSERT (");
+        appendColumns(b, null, columns);
+        b.append(") VALUES (");
+        appendColumns(b, "S.", columns);
+        b.append(')');
+
+        return b.toString();
+    }
+
     /* FIXME
     @Override
     boolean printPlan(Appendable app, int indentLevel, String statement)
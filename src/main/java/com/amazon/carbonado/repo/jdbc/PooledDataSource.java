@@ -0,0 +1,827 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.io.PrintWriter;
+
+import java.lang.ref.WeakReference;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import java.util.Iterator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * DataSource which pools the connections opened by another DataSource. Idle
+ * connections are kept in a lock-free stack, and so the most recently used
+ * connection is borrowed first. Connections which have been idle for longer
+ * than the validation interval are validated before being borrowed, and
+ * connections which have been idle for longer than the idle timeout are
+ * closed by a background thread.
+ *
+ * <p>Closing a borrowed connection returns it to the pool, after rolling back
+ * any uncommitted work and restoring the auto-commit, transaction isolation
+ * and read-only settings. Statements created by the borrower are not closed,
+ * and a closed connection must not be used again.
+ *
+ * <p>If a leak threshold is set, connections which have been borrowed for
+ * longer than the threshold are logged as warnings, along with the stack trace
+ * of the borrower. Time spent waiting for a connection is also recorded, and
+ * it can be examined to determine if the pool is too small.
+ *
+ * <p>If a statement cache size is set, each physical connection keeps a cache
+ * of prepared statements, which is retained while the connection is idle in
+ * the pool. Statements closed by one borrower are then reused by later
+ * borrowers of the same connection.
+ *
+ * @see JDBCRepositoryBuilder#setDataSourcePoolSize
+ */
+public class PooledDataSource implements DataSource {
+    private final Log mLog = LogFactory.getLog(getClass());
+
+    private final DataSource mSource;
+    private final int mMaxConnections;
+    private final Semaphore mPermits;
+
+    // Idle connections, with the most recently used at the head.
+    private final ConcurrentLinkedDeque<PhysicalConnection> mIdle;
+
+    // Borrowed connections which are checked for leaks.
+    private final ConcurrentMap<PooledConnection, Boolean> mBorrowed;
+
+    private volatile long mConnectionTimeout = 30000;
+    private volatile long mIdleTimeout = 600000;
+    private volatile long mValidationInterval = 1000;
+    private volatile int mValidationTimeout = 5;
+    private volatile long mLeakThreshold;
+    private volatile int mStatementCacheSize;
+
+    private final AtomicLong mCreatedCount;
+    private final AtomicLong mWaitCount;
+    private final AtomicLong mWaitNanos;
+    private final AtomicLong mLongestWaitNanos;
+    private final AtomicLong mTimeoutCount;
+    private final AtomicLong mStatementCacheHits;
+    private final AtomicLong mStatementCacheMisses;
+
+    private volatile boolean mClosed;
+    private volatile Housekeeper mHousekeeper;
+
+    /**
+     * @param source source of new connections
+     * @param maxConnections maximum amount of connections which can be open
+     * at once, both idle and borrowed
+     */
+    public PooledDataSource(DataSource source, int maxConnections) {
+        if (source == null) {
+            throw new IllegalArgumentException("Must supply a DataSource");
+        }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Maximum connections must be positive");
+        }
+        mSource = source;
+        mMaxConnections = maxConnections;
+        mPermits = new Semaphore(maxConnections, true);
+        mIdle = new ConcurrentLinkedDeque<PhysicalConnection>();
+        mBorrowed = new ConcurrentHashMap<PooledConnection, Boolean>();
+        mCreatedCount = new AtomicLong();
+        mWaitCount = new AtomicLong();
+        mWaitNanos = new AtomicLong();
+        mLongestWaitNanos = new AtomicLong();
+        mTimeoutCount = new AtomicLong();
+        mStatementCacheHits = new AtomicLong();
+        mStatementCacheMisses = new AtomicLong();
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none are
+     * idle. If the maximum amount of connections are borrowed, waits up to
+     * the connection timeout for one to be returned.
+     *
+     * @throws SQLException if timed out or if pool is closed
+     */
+    public Connection getConnection() throws SQLException {
+        checkClosed();
+
+        if (!mPermits.tryAcquire()) {
+            awaitPermit();
+        }
+
+        boolean borrowed = false;
+        try {
+            Connection con = borrow();
+            borrowed = true;
+            return con;
+        } finally {
+            if (!borrowed) {
+                mPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Opens a new connection with the given credentials, which is not pooled.
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkClosed();
+        return mSource.getConnection(username, password);
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return mSource.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter writer) throws SQLException {
+        mSource.setLogWriter(writer);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        mSource.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return mSource.getLoginTimeout();
+    }
+
+    /**
+     * Returns the maximum amount of milliseconds to wait for a connection to
+     * be returned when all are borrowed. Default is 30 seconds.
+     */
+    public long getConnectionTimeout() {
+        return mConnectionTimeout;
+    }
+
+    /**
+     * Set the maximum amount of milliseconds to wait for a connection to be
+     * returned when all are borrowed.
+     *
+     * @param millis maximum time to wait; pass zero to never wait
+     */
+    public void setConnectionTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative: " + millis);
+        }
+        mConnectionTimeout = millis;
+    }
+
+    /**
+     * Returns the amount of milliseconds a connection can be idle before it
+     * is closed. Default is 10 minutes.
+     */
+    public long getIdleTimeout() {
+        return mIdleTimeout;
+    }
+
+    /**
+     * Set the amount of milliseconds a connection can be idle before it is
+     * closed.
+     *
+     * @param millis idle timeout; pass zero to never close idle connections
+     */
+    public void setIdleTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative: " + millis);
+        }
+        mIdleTimeout = millis;
+        wakeHousekeeper();
+    }
+
+    /**
+     * Returns the amount of milliseconds a connection can be idle before it
+     * is validated when borrowed. Default is one second.
+     */
+    public long getValidationInterval() {
+        return mValidationInterval;
+    }
+
+    /**
+     * Set the amount of milliseconds a connection can be idle before it is
+     * validated when borrowed. Connections which fail validation are closed.
+     *
+     * @param millis validation interval; pass zero to always validate
+     */
+    public void setValidationInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Interval cannot be negative: " + millis);
+        }
+        mValidationInterval = millis;
+    }
+
+    /**
+     * Returns the amount of seconds to wait for a connection to be
+     * validated. Default is five seconds.
+     */
+    public int getValidationTimeout() {
+        return mValidationTimeout;
+    }
+
+    /**
+     * Set the amount of seconds to wait for a connection to be validated.
+     *
+     * @param seconds validation timeout; pass zero to wait forever
+     * @see Connection#isValid
+     */
+    public void setValidationTimeout(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative: " + seconds);
+        }
+        mValidationTimeout = seconds;
+    }
+
+    /**
+     * Returns the amount of milliseconds a connection can be borrowed before
+     * it is logged as a possible leak, which is zero if leak detection is
+     * disabled. By default, leak detection is disabled.
+     */
+    public long getLeakThreshold() {
+        return mLeakThreshold;
+    }
+
+    /**
+     * Set the amount of milliseconds a connection can be borrowed before it is
+     * logged as a possible leak. Leak detection captures a stack trace for
+     * every borrowed connection, and so it should only be enabled when
+     * diagnosing leaks.
+     *
+     * @param millis leak threshold; pass zero to disable leak detection
+     */
+    public void setLeakThreshold(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative: " + millis);
+        }
+        mLeakThreshold = millis;
+        wakeHousekeeper();
+    }
+
+    /**
+     * Returns the maximum amount of prepared statements cached per physical
+     * connection, which is zero if statement caching is disabled. By default,
+     * statement caching is disabled.
+     */
+    public int getStatementCacheSize() {
+        return mStatementCacheSize;
+    }
+
+    /**
+     * Set the maximum amount of prepared statements cached per physical
+     * connection. Only statements prepared with just SQL text are
+     * cached. Connections which are already open only start caching the next
+     * time they are borrowed, and they keep their existing caches if the size
+     * is changed.
+     *
+     * @param size maximum amount of cached statements; pass zero to disable
+     */
+    public void setStatementCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative: " + size);
+        }
+        mStatementCacheSize = size;
+    }
+
+    /**
+     * Returns the amount of times a prepared statement was reused from a
+     * connection's statement cache.
+     */
+    public long getStatementCacheHitCount() {
+        return mStatementCacheHits.get();
+    }
+
+    /**
+     * Returns the amount of times a statement was prepared because no cached
+     * statement was available.
+     */
+    public long getStatementCacheMissCount() {
+        return mStatementCacheMisses.get();
+    }
+
+    /**
+     * Returns the maximum amount of connections which can be open at once.
+     */
+    public int getMaxConnections() {
+        return mMaxConnections;
+    }
+
+    /**
+     * Returns the amount of connections currently borrowed.
+     */
+    public int getActiveCount() {
+        return mMaxConnections - mPermits.availablePermits();
+    }
+
+    /**
+     * Returns the amount of connections currently idle. This method traverses
+     * all idle connections, and so it is not a constant-time operation.
+     */
+    public int getIdleCount() {
+        return mIdle.size();
+    }
+
+    /**
+     * Returns the total amount of connections which have been opened.
+     */
+    public long getCreatedCount() {
+        return mCreatedCount.get();
+    }
+
+    /**
+     * Returns the amount of times a connection could not be borrowed
+     * immediately, and so the borrower had to wait.
+     */
+    public long getWaitCount() {
+        return mWaitCount.get();
+    }
+
+    /**
+     * Returns the total amount of milliseconds spent waiting for connections.
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(mWaitNanos.get());
+    }
+
+    /**
+     * Returns the longest amount of milliseconds spent waiting for a
+     * connection.
+     */
+    public long getLongestWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(mLongestWaitNanos.get());
+    }
+
+    /**
+     * Returns the amount of times the connection timeout elapsed while
+     * waiting for a connection.
+     */
+    public long getTimeoutCount() {
+        return mTimeoutCount.get();
+    }
+
+    /**
+     * Returns true if this pool has been closed.
+     */
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    /**
+     * Closes all idle connections, and borrowed connections are closed when
+     * returned. The wrapped DataSource is not closed.
+     */
+    public void close() throws SQLException {
+        Housekeeper housekeeper;
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            housekeeper = mHousekeeper;
+            mHousekeeper = null;
+        }
+
+        if (housekeeper != null) {
+            housekeeper.interrupt();
+        }
+
+        PhysicalConnection pc;
+        while ((pc = mIdle.pollFirst()) != null) {
+            pc.closeQuietly();
+        }
+
+        // Wake up any waiting threads, which then fail.
+        mPermits.release(mMaxConnections);
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return mSource.getParentLogger();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledDataSource {maxConnections=" + mMaxConnections +
+            ", active=" + getActiveCount() +
+            ", idle=" + getIdleCount() +
+            ", created=" + getCreatedCount() +
+            ", waits=" + getWaitCount() +
+            ", totalWaitTime=" + getTotalWaitTime() +
+            ", longestWaitTime=" + getLongestWaitTime() +
+            ", timeouts=" + getTimeoutCount() + '}';
+    }
+
+    private void checkClosed() throws SQLException {
+        if (mClosed) {
+            throw new SQLException("DataSource is closed");
+        }
+    }
+
+    private void awaitPermit() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = mPermits.tryAcquire(mConnectionTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection");
+        }
+
+        long waited = System.nanoTime() - start;
+        mWaitCount.incrementAndGet();
+        mWaitNanos.addAndGet(waited);
+        long longest;
+        while (waited > (longest = mLongestWaitNanos.get())) {
+            if (mLongestWaitNanos.compareAndSet(longest, waited)) {
+                break;
+            }
+        }
+
+        if (!acquired) {
+            mTimeoutCount.incrementAndGet();
+            throw new SQLException("Timed out waiting for a connection: all " +
+                                   mMaxConnections + " connections are in use");
+        }
+    }
+
+    /**
+     * Caller must have acquired a permit, which is released when the
+     * returned connection is closed.
+     */
+    private Connection borrow() throws SQLException {
+        checkClosed();
+
+        PhysicalConnection pc;
+        while ((pc = mIdle.pollFirst()) != null) {
+            if (validate(pc)) {
+                break;
+            }
+            pc.closeQuietly();
+        }
+
+        if (pc == null) {
+            pc = new PhysicalConnection(mSource.getConnection());
+            mCreatedCount.incrementAndGet();
+        }
+
+        if (pc.mStatements == null) {
+            int cacheSize = mStatementCacheSize;
+            if (cacheSize > 0) {
+                pc.mStatements = new StatementCache
+                    (pc.mCon, cacheSize, mStatementCacheHits, mStatementCacheMisses);
+            }
+        }
+
+        startHousekeeper();
+
+        PooledConnection con;
+        if (mLeakThreshold > 0) {
+            con = new PooledConnection(pc, new Throwable("Connection borrowed"));
+            mBorrowed.put(con, Boolean.TRUE);
+        } else {
+            con = new PooledConnection(pc, null);
+        }
+
+        return con;
+    }
+
+    private boolean validate(PhysicalConnection pc) {
+        if (System.currentTimeMillis() - pc.mLastUsed < mValidationInterval) {
+            return true;
+        }
+        try {
+            return pc.mCon.isValid(mValidationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called when a borrowed connection is closed.
+     */
+    void release(PooledConnection con) {
+        if (con.mBorrowTrace != null) {
+            mBorrowed.remove(con);
+        }
+
+        PhysicalConnection pc = con.mPhysical;
+        try {
+            boolean reuse = false;
+            if (!mClosed) {
+                try {
+                    if (!pc.mCon.isClosed()) {
+                        con.reset();
+                        reuse = true;
+                    }
+                } catch (SQLException e) {
+                    // Connection is broken, so discard it.
+                }
+            }
+
+            if (!reuse) {
+                pc.closeQuietly();
+                return;
+            }
+
+            pc.mLastUsed = System.currentTimeMillis();
+            mIdle.offerFirst(pc);
+
+            if (mClosed && mIdle.removeFirstOccurrence(pc)) {
+                // Pool was closed concurrently.
+                pc.closeQuietly();
+            }
+        } finally {
+            mPermits.release();
+        }
+    }
+
+    private void startHousekeeper() {
+        if (mHousekeeper == null) {
+            synchronized (this) {
+                if (mHousekeeper == null && !mClosed) {
+                    Housekeeper housekeeper = new Housekeeper(this);
+                    housekeeper.start();
+                    mHousekeeper = housekeeper;
+                }
+            }
+        }
+    }
+
+    private void wakeHousekeeper() {
+        // Housekeeper is interrupted only to exit, so replace it instead.
+        Housekeeper housekeeper;
+        synchronized (this) {
+            housekeeper = mHousekeeper;
+            mHousekeeper = null;
+        }
+        if (housekeeper != null) {
+            housekeeper.interrupt();
+            startHousekeeper();
+        }
+    }
+
+    /**
+     * Returns milliseconds to sleep between housekeeping runs.
+     */
+    long housekeepingInterval() {
+        long interval = 30000;
+        long idleTimeout = mIdleTimeout;
+        if (idleTimeout > 0) {
+            interval = Math.min(interval, idleTimeout >> 1);
+        }
+        long leakThreshold = mLeakThreshold;
+        if (leakThreshold > 0) {
+            interval = Math.min(interval, leakThreshold >> 1);
+        }
+        return Math.max(interval, 100);
+    }
+
+    /**
+     * Closes connections which have been idle for too long, and reports
+     * connections which might have been leaked.
+     */
+    void housekeep() {
+        long now = System.currentTimeMillis();
+
+        long idleTimeout = mIdleTimeout;
+        if (idleTimeout > 0) {
+            // Least recently used connections are at the tail.
+            Iterator<PhysicalConnection> it = mIdle.descendingIterator();
+            while (it.hasNext()) {
+                PhysicalConnection pc = it.next();
+                if (now - pc.mLastUsed < idleTimeout) {
+                    break;
+                }
+                if (mIdle.removeLastOccurrence(pc)) {
+                    pc.closeQuietly();
+                }
+            }
+        }
+
+        long leakThreshold = mLeakThreshold;
+        if (leakThreshold > 0) {
+            for (PooledConnection con : mBorrowed.keySet()) {
+                long borrowed = now - con.mBorrowTime;
+                if (!con.mLeakReported && borrowed >= leakThreshold) {
+                    con.mLeakReported = true;
+                    mLog.warn("Connection has been borrowed for " + borrowed +
+                              " milliseconds, and it might have been leaked", con.mBorrowTrace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection opened by the wrapped DataSource, along with its original
+     * settings.
+     */
+    private static class PhysicalConnection {
+        final Connection mCon;
+        final boolean mAutoCommit;
+        final int mIsolation;
+        final boolean mReadOnly;
+
+        volatile long mLastUsed;
+
+        // Is null if statement caching is disabled.
+        volatile StatementCache mStatements;
+
+        PhysicalConnection(Connection con) throws SQLException {
+            try {
+                mAutoCommit = con.getAutoCommit();
+                mIsolation = con.getTransactionIsolation();
+                mReadOnly = con.isReadOnly();
+            } catch (SQLException e) {
+                try {
+                    con.close();
+                } catch (SQLException e2) {
+                    // Don't care.
+                }
+                throw e;
+            }
+            mCon = con;
+        }
+
+        void closeQuietly() {
+            StatementCache statements = mStatements;
+            if (statements != null) {
+                statements.close();
+            }
+            try {
+                mCon.close();
+            } catch (SQLException e) {
+                // Don't care.
+            }
+        }
+    }
+
+    /**
+     * Connection given to the borrower, which returns the physical connection
+     * to the pool when closed.
+     */
+    private class PooledConnection extends DelegatingConnection {
+        final PhysicalConnection mPhysical;
+        final long mBorrowTime;
+        final Throwable mBorrowTrace;
+
+        volatile boolean mLeakReported;
+
+        private boolean mReturned;
+
+        private boolean mAutoCommitChanged;
+        private boolean mIsolationChanged;
+        private boolean mReadOnlyChanged;
+
+        PooledConnection(PhysicalConnection pc, Throwable borrowTrace) {
+            super(pc.mCon);
+            mPhysical = pc;
+            mBorrowTime = System.currentTimeMillis();
+            mBorrowTrace = borrowTrace;
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            StatementCache statements = mPhysical.mStatements;
+            if (statements == null) {
+                return mCon.prepareStatement(sql);
+            }
+            return statements.prepareStatement(this, sql);
+        }
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) throws SQLException {
+            mAutoCommitChanged = true;
+            mCon.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public void setTransactionIsolation(int level) throws SQLException {
+            mIsolationChanged = true;
+            mCon.setTransactionIsolation(level);
+        }
+
+        @Override
+        public void setReadOnly(boolean readOnly) throws SQLException {
+            mReadOnlyChanged = true;
+            mCon.setReadOnly(readOnly);
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        @Override
+        public void close() throws SQLException {
+            synchronized (this) {
+                if (mReturned) {
+                    return;
+                }
+                mReturned = true;
+            }
+            release(this);
+        }
+
+        @Override
+        public synchronized boolean isClosed() throws SQLException {
+            return mReturned || mCon.isClosed();
+        }
+
+        /**
+         * Rolls back uncommitted work and restores original settings.
+         */
+        void reset() throws SQLException {
+            PhysicalConnection pc = mPhysical;
+            if ((mAutoCommitChanged || !pc.mAutoCommit) && !mCon.getAutoCommit()) {
+                mCon.rollback();
+            }
+            if (mAutoCommitChanged) {
+                mCon.setAutoCommit(pc.mAutoCommit);
+            }
+            if (mIsolationChanged) {
+                mCon.setTransactionIsolation(pc.mIsolation);
+            }
+            if (mReadOnlyChanged) {
+                mCon.setReadOnly(pc.mReadOnly);
+            }
+            mCon.clearWarnings();
+        }
+    }
+
+    private static class Housekeeper extends Thread {
+        private final WeakReference<PooledDataSource> mPool;
+
+        Housekeeper(PooledDataSource pool) {
+            super(pool.getClass().getSimpleName() + " housekeeper");
+            setDaemon(true);
+            mPool = new WeakReference<PooledDataSource>(pool);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                PooledDataSource pool = mPool.get();
+                if (pool == null) {
+                    break;
+                }
+                long interval = pool.housekeepingInterval();
+                pool = null;
+
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                pool = mPool.get();
+                if (pool == null || pool.isClosed()) {
+                    break;
+                }
+
+                try {
+                    pool.housekeep();
+                } catch (ThreadDeath e) {
+                    break;
+                } catch (Throwable e) {
+                    LogFactory.getLog(PooledDataSource.class).error("Housekeeping failed", e);
+                }
+
+                pool = null;
+            }
+        }
+    }
+}
@@ -52,4 +52,35 @@ class PostgresqlSupportStrategy extends JDBCSupportStrategy {
             return select;
         }
     }
+
+    @Override
+    int getMaxBulkParameters() {
+        // Protocol limit is 32767.
+        return 30000;
+    }
+
+    @Override
+    String buildBulkInsert(String table, String[] columns, String[] keyColumns,
+                           int rowCount, boolean upsert)
+    {
+        StringBuilder b = new StringBuilder();
+        appendInsertValues(b, "INSERT INTO ", table, columns, rowCount);
+        if (upsert) {
+            b.append(" ON CONFLICT (");
+            appendColumns(b, null, keyColumns);
+            String[] updated = nonKeyColumns(columns, keyColumns);
+            if (updated.length == 0) {
+                b.append(") DO NOTHING");
+            } else {
+                b.append(") DO UPDATE SET ");
+                for (int i=0; i<updated.length; i++) {
+                    if (i > 0) {
+                        b.append(',');
+                    }
+                    b.append(updated[i]).append("=EXCLUDED.").append(updated[i]);
+                }
+            }
+        }
+        return b.toString();
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Bounded cache of prepared statements for one physical connection, keyed by
+ * SQL text. The cache lives as long as the physical connection, and so
+ * statements are reused by every borrower of a pooled connection. Closing a
+ * statement returns it to the cache, and the least recently used statements
+ * are closed when the cache is full. A cached statement is removed from the
+ * cache while in use, and so a statement is never shared.
+ *
+ * <p>Only statements prepared with the default result set type and
+ * concurrency are cached. All cached statements are closed when the cache is
+ * closed, which happens when the physical connection is closed.
+ *
+ * @see PooledDataSource#setStatementCacheSize
+ */
+class StatementCache {
+    private final Connection mCon;
+    private final Map<String, PreparedStatement> mCache;
+    private final AtomicLong mHits;
+    private final AtomicLong mMisses;
+
+    private boolean mClosed;
+
+    /**
+     * @param con physical connection which prepares the statements
+     * @param capacity maximum amount of idle statements to cache
+     * @param hits counter incremented when a cached statement is reused
+     * @param misses counter incremented when a new statement is prepared
+     */
+    StatementCache(Connection con, final int capacity, AtomicLong hits, AtomicLong misses) {
+        mCon = con;
+        mHits = hits;
+        mMisses = misses;
+        mCache = new LinkedHashMap<String, PreparedStatement>(17, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement or prepares a new one.
+     *
+     * @param owner connection which the statement reports as its own
+     */
+    PreparedStatement prepareStatement(Connection owner, String sql) throws SQLException {
+        PreparedStatement ps;
+        synchronized (this) {
+            ps = mCache.remove(sql);
+        }
+        if (ps != null) {
+            mHits.incrementAndGet();
+        } else {
+            mMisses.incrementAndGet();
+            ps = mCon.prepareStatement(sql);
+        }
+        return new CachedStatement(owner, ps, sql);
+    }
+
+    /**
+     * Closes all cached statements. Statements which are in use are closed
+     * when they are released.
+     */
+    void close() {
+        synchronized (this) {
+            mClosed = true;
+            Iterator<PreparedStatement> it = mCache.values().iterator();
+            while (it.hasNext()) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+        }
+    }
+
+    void release(String sql, PreparedStatement ps) {
+        PreparedStatement existing;
+        synchronized (this) {
+            existing = mClosed ? ps : mCache.put(sql, ps);
+        }
+        if (existing != null) {
+            // Another statement with the same SQL was in use at the same
+            // time, and it was released first, or else the cache is closed.
+            closeQuietly(existing);
+        }
+    }
+
+    static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            // Don't care.
+        }
+    }
+
+    /**
+     * Statement handed to a borrower, which returns the underlying statement
+     * to the cache when closed.
+     */
+    private class CachedStatement extends DelegatingPreparedStatement {
+        private final String mSQL;
+
+        // Set when released, to detect redundant closes.
+        private boolean mReleased;
+
+        // Set when options were changed which must be reset before reuse.
+        private boolean mModified;
+
+        CachedStatement(Connection con, PreparedStatement ps, String sql) {
+            super(con, ps);
+            mSQL = sql;
+        }
+
+        @Override
+        public void setMaxRows(int max) throws SQLException {
+            mModified = true;
+            mStatement.setMaxRows(max);
+        }
+
+        @Override
+        public void setQueryTimeout(int seconds) throws SQLException {
+            mModified = true;
+            mStatement.setQueryTimeout(seconds);
+        }
+
+        @Override
+        public void setFetchSize(int rows) throws SQLException {
+            mModified = true;
+            mStatement.setFetchSize(rows);
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return mReleased || mStatement.isClosed();
+        }
+
+        /**
+         * Returns the statement to the cache.
+         */
+        @Override
+        public void close() throws SQLException {
+            if (mReleased) {
+                return;
+            }
+            mReleased = true;
+
+            try {
+                mStatement.clearParameters();
+                if (mModified) {
+                    mStatement.setMaxRows(0);
+                    mStatement.setQueryTimeout(0);
+                    mStatement.setFetchSize(0);
+                }
+            } catch (SQLException e) {
+                mStatement.close();
+                throw e;
+            }
+
+            release(mSQL, mStatement);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+/**
+ * Snapshot of the execution statistics of a SQL statement template, as
+ * recorded by a JDBC repository with statement statistics enabled. Counts
+ * accumulate from the time the repository was opened. Latency is measured
+ * from the start of statement execution until the database responds, and so
+ * it doesn't include the time spent reading query results.
+ *
+ * <p>Latencies are recorded in a histogram with logarithmically sized
+ * buckets, and percentiles are accurate to within about 6%.
+ *
+ * <p>StatementStats instances are thread-safe and immutable.
+ *
+ * @see JDBCConnectionCapability#getStatementStats
+ * @see JDBCRepositoryBuilder#setStatementStatsEnabled
+ */
+public interface StatementStats {
+    /**
+     * Returns the SQL text of the prepared statement, which contains
+     * parameter placeholders instead of values. Returns null for the combined
+     * statistics of statements which weren't tracked individually, because
+     * too many distinct statements were executed.
+     */
+    String getSQL();
+
+    /**
+     * Returns true if these statistics are for executions by read-only
+     * replicas, and false if for executions by the primary DataSource. The
+     * same statement can have separate statistics for each.
+     *
+     * @see JDBCRepositoryBuilder#setReplicaDataSources
+     */
+    boolean isReplica();
+
+    /**
+     * Returns the amount of times the statement was executed, including
+     * batch executions and failures.
+     */
+    long getExecutionCount();
+
+    /**
+     * Returns the amount of executions which threw an exception.
+     */
+    long getErrorCount();
+
+    /**
+     * Returns the total amount of rows read from query results and rows
+     * affected by updates.
+     */
+    long getRowCount();
+
+    /**
+     * Returns the amount of batch executions.
+     */
+    long getBatchCount();
+
+    /**
+     * Returns the total amount of statements executed in batches.
+     */
+    long getBatchedStatementCount();
+
+    /**
+     * Returns the total execution time, in nanoseconds.
+     */
+    long getTotalLatencyNanos();
+
+    /**
+     * Returns the longest execution time, in nanoseconds.
+     */
+    long getMaxLatencyNanos();
+
+    /**
+     * Returns the execution time, in nanoseconds, at or below which the
+     * given percentage of executions completed. Returns zero if the
+     * statement was never executed.
+     *
+     * @param percentile percentage in the range 0 to 100
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    long getLatencyPercentileNanos(double percentile);
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Connection which records the execution statistics of prepared statements,
+ * keyed by SQL text. Statement executions are timed, rows read from query
+ * results and affected by updates are counted, and batch sizes are
+ * recorded. Nothing is logged.
+ *
+ * @see StatementStatsRecorder
+ */
+class StatementStatsConnection extends DelegatingConnection {
+    private final StatementStatsRecorder mRecorder;
+
+    StatementStatsConnection(Connection con, StatementStatsRecorder recorder) {
+        super(con);
+        mRecorder = recorder;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new RecordingStatement(this, mCon.prepareStatement(sql), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+                                              int resultSetConcurrency)
+        throws SQLException
+    {
+        return new RecordingStatement
+            (this, mCon.prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+                                              int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException
+    {
+        return new RecordingStatement
+            (this, mCon.prepareStatement(sql, resultSetType,
+                                         resultSetConcurrency, resultSetHoldability), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+        throws SQLException
+    {
+        return new RecordingStatement
+            (this, mCon.prepareStatement(sql, autoGeneratedKeys), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int columnIndexes[])
+        throws SQLException
+    {
+        return new RecordingStatement
+            (this, mCon.prepareStatement(sql, columnIndexes), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String columnNames[])
+        throws SQLException
+    {
+        return new RecordingStatement
+            (this, mCon.prepareStatement(sql, columnNames), sql);
+    }
+
+    private class RecordingStatement extends DelegatingPreparedStatement {
+        private final StatementStatsRecorder.Entry mEntry;
+
+        private int mBatchSize;
+
+        RecordingStatement(Connection con, PreparedStatement ps, String sql) {
+            super(con, ps);
+            mEntry = mRecorder.entry(sql);
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                ResultSet rs = mStatement.executeQuery();
+                error = false;
+                return rs == null ? null : new RowCounter(rs, mEntry);
+            } finally {
+                mEntry.recordExecution(System.nanoTime() - start, error);
+            }
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                int count = mStatement.executeUpdate();
+                error = false;
+                mEntry.recordRows(count);
+                return count;
+            } finally {
+                mEntry.recordExecution(System.nanoTime() - start, error);
+            }
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                boolean result = mStatement.execute();
+                error = false;
+                return result;
+            } finally {
+                mEntry.recordExecution(System.nanoTime() - start, error);
+            }
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+            mStatement.addBatch();
+            mBatchSize++;
+        }
+
+        @Override
+        public void clearBatch() throws SQLException {
+            mBatchSize = 0;
+            mStatement.clearBatch();
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            int size = mBatchSize;
+            mBatchSize = 0;
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                int[] counts = mStatement.executeBatch();
+                error = false;
+                for (int count : counts) {
+                    mEntry.recordRows(count);
+                }
+                return counts;
+            } finally {
+                mEntry.recordExecution(System.nanoTime() - start, error);
+                mEntry.recordBatch(size);
+            }
+        }
+    }
+
+    /**
+     * Counts rows read from a result set, and records the total when the
+     * end is reached or the result set is closed.
+     */
+    private static class RowCounter extends DelegatingResultSet {
+        private final StatementStatsRecorder.Entry mEntry;
+
+        private long mRows;
+        private boolean mRecorded;
+
+        RowCounter(ResultSet rs, StatementStatsRecorder.Entry entry) {
+            super(rs);
+            mEntry = entry;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            if (mResultSet.next()) {
+                mRows++;
+                return true;
+            }
+            record();
+            return false;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            record();
+            mResultSet.close();
+        }
+
+        private void record() {
+            if (!mRecorded) {
+                mRecorded = true;
+                mEntry.recordRows(mRows);
+            }
+        }
+    }
+}
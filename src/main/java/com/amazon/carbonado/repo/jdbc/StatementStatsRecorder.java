@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects execution statistics for SQL statement templates. Recording is
+ * lock-free, and only updates atomic counters.
+ *
+ * <p>Latencies are recorded in a histogram in which each power of two range
+ * is divided into 16 linear buckets. Values below 16 nanoseconds have exact
+ * buckets, and larger values are accurate to within 1/16.
+ *
+ * @see StatementStatsConnection
+ */
+class StatementStatsRecorder {
+    // Limit on distinct statements, in case SQL is generated with literals.
+    private static final int MAX_ENTRIES = 1000;
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final boolean mReplica;
+    private final ConcurrentMap<String, Entry> mEntries;
+    private final Entry mOverflow;
+
+    /**
+     * @param replica true if recording statements executed by replicas
+     */
+    StatementStatsRecorder(boolean replica) {
+        mReplica = replica;
+        mEntries = new ConcurrentHashMap<String, Entry>();
+        mOverflow = new Entry(null);
+    }
+
+    Entry entry(String sql) {
+        Entry entry = mEntries.get(sql);
+        if (entry == null) {
+            if (mEntries.size() >= MAX_ENTRIES) {
+                return mOverflow;
+            }
+            Entry newEntry = new Entry(sql);
+            entry = mEntries.putIfAbsent(sql, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns statistics for all statements, in descending order of total
+     * latency.
+     */
+    List<StatementStats> getStats() {
+        List<StatementStats> stats = new ArrayList<StatementStats>(mEntries.size() + 1);
+        for (Entry entry : mEntries.values()) {
+            stats.add(entry.snapshot(mReplica));
+        }
+        if (mOverflow.mExecutions.get() > 0) {
+            stats.add(mOverflow.snapshot(mReplica));
+        }
+        sort(stats);
+        return stats;
+    }
+
+    /**
+     * Sorts statistics in descending order of total latency.
+     */
+    static void sort(List<StatementStats> stats) {
+        Collections.sort(stats, new Comparator<StatementStats>() {
+            public int compare(StatementStats a, StatementStats b) {
+                long ta = a.getTotalLatencyNanos();
+                long tb = b.getTotalLatencyNanos();
+                return ta > tb ? -1 : (ta < tb ? 1 : 0);
+            }
+        });
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    /**
+     * Returns the highest value which maps to the given bucket.
+     */
+    static long bucketMaxValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >> SUB_BITS) - 1;
+        long low = ((long) (SUB_COUNT + (index & (SUB_COUNT - 1)))) << shift;
+        return low + ((1L << shift) - 1);
+    }
+
+    static class Entry {
+        final String mSQL;
+
+        final AtomicLong mExecutions = new AtomicLong();
+        final AtomicLong mErrors = new AtomicLong();
+        final AtomicLong mRows = new AtomicLong();
+        final AtomicLong mBatches = new AtomicLong();
+        final AtomicLong mBatchedStatements = new AtomicLong();
+        final AtomicLong mTotalLatency = new AtomicLong();
+        final AtomicLong mMaxLatency = new AtomicLong();
+        final AtomicLongArray mHistogram = new AtomicLongArray(BUCKET_COUNT);
+
+        Entry(String sql) {
+            mSQL = sql;
+        }
+
+        void recordExecution(long latency, boolean error) {
+            mExecutions.incrementAndGet();
+            if (error) {
+                mErrors.incrementAndGet();
+            }
+            mTotalLatency.addAndGet(latency);
+            long max;
+            while (latency > (max = mMaxLatency.get())) {
+                if (mMaxLatency.compareAndSet(max, latency)) {
+                    break;
+                }
+            }
+            mHistogram.incrementAndGet(bucketIndex(latency));
+        }
+
+        void recordRows(long rows) {
+            if (rows > 0) {
+                mRows.addAndGet(rows);
+            }
+        }
+
+        void recordBatch(int size) {
+            mBatches.incrementAndGet();
+            mBatchedStatements.addAndGet(size);
+        }
+
+        StatementStats snapshot(boolean replica) {
+            long[] histogram = new long[BUCKET_COUNT];
+            for (int i=0; i<histogram.length; i++) {
+                histogram[i] = mHistogram.get(i);
+            }
+            return new Stats(mSQL, replica, mExecutions.get(), mErrors.get(), mRows.get(),
+                             mBatches.get(), mBatchedStatements.get(),
+                             mTotalLatency.get(), mMaxLatency.get(), histogram);
+        }
+    }
+
+    private static class Stats implements StatementStats {
+        private final String mSQL;
+        private final boolean mReplica;
+        private final long mExecutions;
+        private final long mErrors;
+        private final long mRows;
+        private final long mBatches;
+        private final long mBatchedStatements;
+        private final long mTotalLatency;
+        private final long mMaxLatency;
+        private final long[] mHistogram;
+
+        Stats(String sql, boolean replica, long executions, long errors, long rows,
+              long batches, long batchedStatements,
+              long totalLatency, long maxLatency, long[] histogram)
+        {
+            mSQL = sql;
+            mReplica = replica;
+            mExecutions = executions;
+            mErrors = errors;
+            mRows = rows;
+            mBatches = batches;
+            mBatchedStatements = batchedStatements;
+            mTotalLatency = totalLatency;
+            mMaxLatency = maxLatency;
+            mHistogram = histogram;
+        }
+
+        public String getSQL() {
+            return mSQL;
+        }
+
+        public boolean isReplica() {
+            return mReplica;
+        }
+
+        public long getExecutionCount() {
+            return mExecutions;
+        }
+
+        public long getErrorCount() {
+            return mErrors;
+        }
+
+        public long getRowCount() {
+            return mRows;
+        }
+
+        public long getBatchCount() {
+            return mBatches;
+        }
+
+        public long getBatchedStatementCount() {
+            return mBatchedStatements;
+        }
+
+        public long getTotalLatencyNanos() {
+            return mTotalLatency;
+        }
+
+        public long getMaxLatencyNanos() {
+            return mMaxLatency;
+        }
+
+        public long getLatencyPercentileNanos(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+            }
+
+            // Histogram was copied bucket by bucket, and so its total might
+            // not match the execution count.
+            long total = 0;
+            for (long count : mHistogram) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long sum = 0;
+            for (int i=0; i<mHistogram.length; i++) {
+                sum += mHistogram[i];
+                if (sum >= target) {
+                    return Math.min(bucketMaxValue(i), mMaxLatency);
+                }
+            }
+
+            return mMaxLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "StatementStats {sql=" + mSQL +
+                ", replica=" + mReplica +
+                ", executions=" + mExecutions +
+                ", errors=" + mErrors +
+                ", rows=" + mRows +
+                ", batches=" + mBatches +
+                ", batchedStatements=" + mBatchedStatements +
+                ", totalLatencyNanos=" + mTotalLatency +
+                ", maxLatencyNanos=" + mMaxLatency + '}';
+        }
+    }
+}
@@ -150,6 +150,11 @@ class LoggingQuery<S extends Storable> implements Query<S> {
         return newInstance(mQuery.orderBy(strings));
     }
 
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        return newInstance(mQuery.select(properties));
+    }
+
     @Override
     public <T extends S> Query<S> after(T start) throws FetchException {
         return newInstance(mQuery.after(start));
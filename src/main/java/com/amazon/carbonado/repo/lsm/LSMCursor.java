@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.raw.RawCursor;
+import com.amazon.carbonado.raw.RawUtil;
+
+import com.amazon.carbonado.txn.TransactionScope;
+
+/**
+ * Cursor over an {@link LSMStorage}, which merges the layers of its tree and
+ * only decodes the entries it returns. The cursor holds no position within
+ * any layer. Instead, each move searches all layers for the key which follows
+ * the current one, and so the cursor always reflects the latest committed
+ * changes, and the uncommitted changes of its own transaction.
+ */
+class LSMCursor<S extends Storable> extends RawCursor<S> {
+    private final LSMStorage<S> mStorage;
+    private final TransactionScope<LSMTransaction> mScope;
+    private final LSMTransaction mTxn;
+    private final LSMTree mTree;
+
+    private byte[] mCurrentKey;
+    private byte[] mCurrentValue;
+
+    LSMCursor(LSMStorage<S> storage,
+              TransactionScope<LSMTransaction> scope,
+              LSMTree tree,
+              byte[] startBound, boolean inclusiveStart,
+              byte[] endBound, boolean inclusiveEnd,
+              int maxPrefix,
+              boolean reverse)
+        throws Exception
+    {
+        super(null, startBound, inclusiveStart, endBound, inclusiveEnd, maxPrefix, reverse);
+
+        LSMTransaction txn = scope.getTxn();
+        if (txn != null && scope.isForUpdate()) {
+            txn.lockForUpdate();
+        }
+
+        mStorage = storage;
+        mScope = scope;
+        mTxn = txn;
+        mTree = tree;
+
+        scope.register(storage.getStorableType(), this);
+    }
+
+    @Override
+    public void close() throws FetchException {
+        try {
+            super.close();
+        } finally {
+            mScope.unregister(mStorage.getStorableType(), this);
+        }
+    }
+
+    @Override
+    protected void release() {
+        mCurrentKey = null;
+        mCurrentValue = null;
+    }
+
+    @Override
+    protected byte[] getCurrentKey() {
+        return mCurrentKey;
+    }
+
+    @Override
+    protected byte[] getCurrentValue() {
+        return mCurrentValue;
+    }
+
+    @Override
+    protected S instantiateCurrent() throws FetchException {
+        byte[] key = mCurrentKey;
+        if (key == null) {
+            throw new IllegalStateException();
+        }
+        return mStorage.instantiate(key, mCurrentValue);
+    }
+
+    @Override
+    protected boolean toFirst() {
+        return select(LSMTree.ceiling(layers(), null, true));
+    }
+
+    @Override
+    protected boolean toFirst(byte[] key) {
+        return select(LSMTree.ceiling(layers(), key, true));
+    }
+
+    @Override
+    protected boolean toLast() {
+        return select(LSMTree.floor(layers(), null, true));
+    }
+
+    @Override
+    protected boolean toLast(byte[] key) {
+        // Search for the entry just before the next possible partial match.
+        // This destroys the caller's key value, which is allowed.
+        if (!RawUtil.increment(key)) {
+            return toLast();
+        }
+        return select(LSMTree.floor(layers(), key, false));
+    }
+
+    @Override
+    protected boolean toNext() {
+        byte[] key = mCurrentKey;
+        return key != null && select(LSMTree.ceiling(layers(), key, false));
+    }
+
+    @Override
+    protected boolean toPrevious() {
+        byte[] key = mCurrentKey;
+        return key != null && select(LSMTree.floor(layers(), key, false));
+    }
+
+    private LSMTree.Layer[] layers() {
+        LSMTransaction txn = mTxn;
+        return txn == null ? mTree.getVersion().mLayers : txn.layers(mTree);
+    }
+
+    private boolean select(byte[][] entry) {
+        if (entry == null) {
+            mCurrentKey = null;
+            mCurrentValue = null;
+            return false;
+        }
+        mCurrentKey = entry[0];
+        mCurrentValue = entry[1];
+        return true;
+    }
+}
@@ -0,0 +1,660 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded key-value engine which manages a set of named {@link LSMTree
+ * trees} in a single directory. Changes are written to a shared {@link LSMLog
+ * write-ahead log} and then applied to memtables. A checkpoint starts a new
+ * log, flushes the memtables to segment files, and records the segments in a
+ * manifest, after which the old log is deleted. When opened, the manifest is
+ * loaded and the logs which follow it are replayed.
+ *
+ * <p>The manifest is written to a temporary file, which atomically replaces
+ * the old manifest. If only the temporary file exists after a crash, it's
+ * used if complete. If no usable manifest exists but other files do, opening
+ * fails rather than discarding them.
+ *
+ * <p>Trees accumulate segments as memtables are flushed, and so a checkpoint
+ * also compacts any tree which has too many segments, merging them into one.
+ * Compaction discards deleted entries, since no older segment remains to be
+ * hidden.
+ *
+ * <p>The engine doesn't lock entries. Callers must prevent concurrent
+ * modifications of the same entries, typically by serializing writers.
+ */
+class LSMDatabase {
+    private static final String PREFIX = "lsm.";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String MANIFEST_NAME = "lsm.manifest";
+
+    private static final long MAGIC_NUMBER = 0x436172624c534d4dL;
+    private static final int VERSION = 1;
+
+    // Trees are compacted when they have more segments than this.
+    private static final int MAX_SEGMENTS = 4;
+
+    private final File mHome;
+    private final long mMaxMemtableSize;
+
+    // Guarded by this.
+    private final Map<String, LSMTree> mTrees;
+
+    // Shared by writers, and held exclusively when the log is switched.
+    private final ReadWriteLock mCommitLock;
+    // Is null if closed.
+    private volatile LSMLog mLog;
+    private final AtomicLong mMemtableSize;
+
+    private final Object mCheckpointLock;
+    // Remaining fields are guarded by checkpoint lock.
+    private long mNextSegmentId;
+    private long mManifestGeneration;
+    private Set<Long> mManifestSegments;
+
+    /**
+     * @param home directory for all files, which is created if necessary
+     * @param maxMemtableSize approximate memtable size, in bytes, at which a
+     * checkpoint is needed
+     */
+    LSMDatabase(File home, long maxMemtableSize) throws IOException {
+        mHome = home;
+        mMaxMemtableSize = maxMemtableSize;
+        mTrees = new HashMap<String, LSMTree>();
+        mCommitLock = new ReentrantReadWriteLock();
+        mMemtableSize = new AtomicLong();
+        mCheckpointLock = new Object();
+
+        synchronized (mCheckpointLock) {
+            recover();
+        }
+    }
+
+    File getHome() {
+        return mHome;
+    }
+
+    /**
+     * Returns the tree with the given name, creating it if necessary. Trees
+     * are created lazily, and so an empty tree has no files.
+     */
+    synchronized LSMTree openTree(String name) {
+        LSMTree tree = mTrees.get(name);
+        if (tree == null) {
+            tree = new LSMTree(name, new LSMSegment[0]);
+            mTrees.put(name, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Appends the batch to the log and applies it to the trees. The log is not
+     * forced, and so caller should call {@link #sync(LSMLog.Batch)} for the
+     * batch to be durable. To allow group commit, call it after releasing any
+     * locks which other writers need.
+     */
+    void write(LSMLog.Batch batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Lock lock = mCommitLock.readLock();
+        lock.lock();
+        try {
+            LSMLog log = mLog;
+            if (log == null) {
+                throw new IOException("Database is closed: " + mHome);
+            }
+            batch.mPosition = log.append(batch);
+            batch.mLog = log;
+            mMemtableSize.addAndGet(batch.apply());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the log to the device, up to the end of the given batch.
+     */
+    void sync(LSMLog.Batch batch) throws IOException {
+        LSMLog log = batch.mLog;
+        if (log != null) {
+            log.sync(batch.mPosition);
+        }
+    }
+
+    /**
+     * Forces all appended batches to the device.
+     */
+    void sync() throws IOException {
+        LSMLog log = mLog;
+        if (log != null) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Returns true if memtables have grown large enough to be flushed by a
+     * checkpoint.
+     */
+    boolean isCheckpointNeeded() {
+        return mMemtableSize.get() >= mMaxMemtableSize;
+    }
+
+    /**
+     * Starts a new log and flushes all memtables to segments, unless nothing
+     * has changed since the last checkpoint. Trees with too many segments are
+     * then compacted. Reads and writes may proceed concurrently.
+     */
+    void checkpoint() throws IOException {
+        synchronized (mCheckpointLock) {
+            LSMLog oldLog = mLog;
+            if (oldLog == null) {
+                return;
+            }
+
+            boolean changed = !oldLog.isEmpty();
+            if (!changed) {
+                // Memtables which failed to flush earlier must be retried.
+                for (LSMTree tree : trees()) {
+                    if (tree.getVersion().mFrozen.length > 0) {
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+
+            if (changed) {
+                LSMTree[] trees;
+                NavigableMap<byte[], byte[]>[][] frozen;
+
+                // Switch to the new log while writers are excluded. Changes
+                // written to the old log are in the frozen memtables, and
+                // changes written to the new log are in the new memtables.
+                Lock lock = mCommitLock.writeLock();
+                lock.lock();
+                try {
+                    long generation = oldLog.getGeneration() + 1;
+                    mLog = new LSMLog(logFile(generation), generation, 0);
+                    trees = trees();
+                    frozen = new NavigableMap[trees.length][];
+                    for (int i=0; i<trees.length; i++) {
+                        frozen[i] = trees[i].freeze();
+                    }
+                    mMemtableSize.set(0);
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    for (int i=0; i<trees.length; i++) {
+                        for (NavigableMap<byte[], byte[]> memtable : frozen[i]) {
+                            // If tree was truncated concurrently, then segment
+                            // is not installed, and it's deleted later.
+                            trees[i].flushed(memtable, flush(trees[i], memtable));
+                        }
+                    }
+                    writeManifest(mLog.getGeneration());
+                } finally {
+                    // Old log is no longer appended to. If anything failed, its
+                    // file is still required for recovery, and so it's only
+                    // deleted after a manifest is written.
+                    oldLog.close();
+                }
+            }
+
+            boolean compacted = false;
+            for (LSMTree tree : trees()) {
+                compacted |= compact(tree);
+            }
+            if (compacted) {
+                writeManifest(mManifestGeneration);
+            }
+
+            if (changed || compacted) {
+                deleteFiles();
+            }
+        }
+    }
+
+    /**
+     * Forces the log and closes it. Database cannot be modified afterwards.
+     */
+    void close() throws IOException {
+        synchronized (mCheckpointLock) {
+            LSMLog log;
+            Lock lock = mCommitLock.writeLock();
+            lock.lock();
+            try {
+                log = mLog;
+                mLog = null;
+            } finally {
+                lock.unlock();
+            }
+            if (log != null) {
+                log.close();
+            }
+        }
+    }
+
+    private synchronized LSMTree[] trees() {
+        return mTrees.values().toArray(new LSMTree[mTrees.size()]);
+    }
+
+    /**
+     * Writes a frozen memtable to a new segment file. Caller must hold
+     * checkpoint lock.
+     *
+     * @return new segment, or null if memtable has no entries to write
+     */
+    private LSMSegment flush(LSMTree tree, NavigableMap<byte[], byte[]> memtable)
+        throws IOException
+    {
+        // Deleted entries only need to be written if they might hide entries
+        // in older segments. Memtables are flushed oldest first, and so only
+        // segments are older.
+        boolean keepDeleted = tree.getVersion().mSegments.length > 0;
+
+        long id = mNextSegmentId++;
+        LSMSegment.Writer writer = new LSMSegment.Writer(segmentFile(id));
+        boolean finished = false;
+        try {
+            for (Map.Entry<byte[], byte[]> entry : memtable.entrySet()) {
+                byte[] value = entry.getValue();
+                if (keepDeleted || value != LSMTree.DELETED) {
+                    writer.write(entry.getKey(), value);
+                }
+            }
+            if (writer.size() == 0) {
+                return null;
+            }
+            LSMSegment segment = writer.finish(id);
+            finished = true;
+            return segment;
+        } finally {
+            if (!finished) {
+                writer.abort();
+            }
+        }
+    }
+
+    /**
+     * Merges all segments of the tree into one, if it has too many. Caller
+     * must hold checkpoint lock.
+     *
+     * @return true if tree was compacted
+     */
+    private boolean compact(LSMTree tree) throws IOException {
+        LSMSegment[] segments = tree.getVersion().mSegments;
+        if (segments.length <= MAX_SEGMENTS) {
+            return false;
+        }
+
+        long id = mNextSegmentId++;
+        LSMSegment.Writer writer = new LSMSegment.Writer(segmentFile(id));
+        LSMSegment merged = null;
+        boolean finished = false;
+        try {
+            int[] positions = new int[segments.length];
+            byte[][] keys = new byte[segments.length][];
+            for (int i=0; i<segments.length; i++) {
+                keys[i] = segments[i].size() > 0 ? segments[i].key(0) : null;
+            }
+
+            while (true) {
+                // Segments are ordered newest first, and so the first segment
+                // positioned at the smallest key supplies its current value.
+                int found = -1;
+                for (int i=0; i<segments.length; i++) {
+                    if (keys[i] != null &&
+                        (found < 0 || LSMTree.COMPARATOR.compare(keys[i], keys[found]) < 0))
+                    {
+                        found = i;
+                    }
+                }
+                if (found < 0) {
+                    break;
+                }
+
+                byte[] key = keys[found];
+                byte[] value = segments[found].value(positions[found]);
+                if (value != LSMTree.DELETED) {
+                    writer.write(key, value);
+                }
+
+                for (int i=0; i<segments.length; i++) {
+                    if (keys[i] != null && LSMTree.COMPARATOR.compare(keys[i], key) == 0) {
+                        int pos = ++positions[i];
+                        keys[i] = pos < segments[i].size() ? segments[i].key(pos) : null;
+                    }
+                }
+            }
+
+            if (writer.size() > 0) {
+                merged = writer.finish(id);
+                finished = true;
+            }
+        } finally {
+            if (!finished) {
+                writer.abort();
+            }
+        }
+
+        // If tree was truncated concurrently, then merged segment is deleted later.
+        return tree.compacted(segments, merged);
+    }
+
+    /**
+     * Writes the manifest into a temporary file, which atomically replaces
+     * the old manifest when finished. Caller must hold checkpoint lock.
+     *
+     * @param generation generation of first log to replay when recovering
+     */
+    private void writeManifest(long generation) throws IOException {
+        LSMTree[] trees = trees();
+        Set<Long> ids = new HashSet<Long>();
+
+        File file = new File(mHome, MANIFEST_NAME);
+        File temp = new File(mHome, MANIFEST_NAME + ".tmp");
+        FileOutputStream fout = new FileOutputStream(temp);
+        boolean finished = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fout));
+            out.writeLong(MAGIC_NUMBER);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(mNextSegmentId);
+
+            int count = 0;
+            LSMSegment[][] segments = new LSMSegment[trees.length][];
+            for (int i=0; i<trees.length; i++) {
+                segments[i] = trees[i].getVersion().mSegments;
+                if (segments[i].length > 0) {
+                    count++;
+                }
+            }
+
+            out.writeInt(count);
+            for (int i=0; i<trees.length; i++) {
+                if (segments[i].length > 0) {
+                    out.writeUTF(trees[i].getName());
+                    out.writeInt(segments[i].length);
+                    for (LSMSegment segment : segments[i]) {
+                        out.writeLong(segment.getId());
+                        ids.add(segment.getId());
+                    }
+                }
+            }
+            out.writeLong(MAGIC_NUMBER);
+
+            out.flush();
+            fout.getFD().sync();
+            out.close();
+            finished = true;
+        } finally {
+            if (!finished) {
+                try {
+                    fout.close();
+                } catch (IOException e) {
+                    // Ignore.
+                }
+                temp.delete();
+            }
+        }
+
+        Files.move(temp.toPath(), file.toPath(),
+                   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Makes the rename durable, and also the new segment files.
+        syncDirectory();
+
+        mManifestGeneration = generation;
+        mManifestSegments = ids;
+    }
+
+    /**
+     * Forces directory entries to be durable, such that created and renamed
+     * files survive a crash. Does nothing on platforms which don't support
+     * it.
+     */
+    private void syncDirectory() {
+        try {
+            FileChannel fc = FileChannel.open(mHome.toPath(), StandardOpenOption.READ);
+            try {
+                fc.force(true);
+            } finally {
+                fc.close();
+            }
+        } catch (IOException e) {
+            // Not supported.
+        }
+    }
+
+    /**
+     * Loads the manifest, if any, and replays all the logs which follow it.
+     * Caller must hold checkpoint lock.
+     */
+    private void recover() throws IOException {
+        if (!mHome.isDirectory() && !mHome.mkdirs()) {
+            throw new IOException("Unable to create directory: " + mHome);
+        }
+
+        long generation = 0;
+        Set<Long> ids = new HashSet<Long>();
+
+        File manifest = new File(mHome, MANIFEST_NAME);
+        if (manifest.exists()) {
+            generation = readManifest(manifest, ids);
+        } else {
+            File temp = new File(mHome, MANIFEST_NAME + ".tmp");
+            if (temp.exists()) {
+                // Crash happened while replacing the manifest. The temporary
+                // file is only usable if it was completely written.
+                try {
+                    generation = readManifest(temp, ids);
+                } catch (IOException e) {
+                    throw new IOException
+                        ("Manifest is missing, and temporary manifest is incomplete: " +
+                         temp + ": " + e, e);
+                }
+                Files.move(temp.toPath(), manifest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+            }
+        }
+
+        SortedSet<Long> logs = new TreeSet<Long>();
+        String[] names = mHome.list();
+        if (names != null) {
+            for (String name : names) {
+                long logGeneration = number(name, LOG_SUFFIX);
+                if (logGeneration >= generation) {
+                    logs.add(logGeneration);
+                }
+                if (!manifest.exists() &&
+                    (logGeneration > 0 || number(name, SEGMENT_SUFFIX) >= 0))
+                {
+                    // Only the first log can exist before the first manifest
+                    // is written, and so the manifest was lost. Refuse to
+                    // open, since the files would otherwise be deleted.
+                    throw new IOException("Manifest is missing, but data files exist: " +
+                                          new File(mHome, name));
+                }
+            }
+        }
+
+        mManifestGeneration = generation;
+        mManifestSegments = ids;
+
+        LSMLog.Visitor visitor = new LSMLog.Visitor() {
+            public void store(String tree, byte[] key, byte[] value) throws IOException {
+                openTree(checkName(tree)).put(key, value);
+                mMemtableSize.addAndGet(key.length + value.length + 64);
+            }
+
+            public void delete(String tree, byte[] key) throws IOException {
+                openTree(checkName(tree)).put(key, LSMTree.DELETED);
+                mMemtableSize.addAndGet(key.length + 64);
+            }
+
+            public void truncate(String tree) throws IOException {
+                openTree(checkName(tree)).truncate();
+            }
+
+            private String checkName(String tree) throws IOException {
+                if (tree == null) {
+                    throw new IOException("Log record has no tree");
+                }
+                return tree;
+            }
+        };
+
+        long logGeneration = generation;
+        long validLength = 0;
+        for (long g : logs) {
+            validLength = LSMLog.replay(logFile(g), visitor);
+            logGeneration = g;
+        }
+
+        mLog = new LSMLog(logFile(logGeneration), logGeneration, validLength);
+
+        deleteFiles();
+    }
+
+    /**
+     * Reads a manifest file, opening the trees and segments it references.
+     *
+     * @param ids receives the referenced segment ids
+     * @return generation of first log to replay
+     */
+    private long readManifest(File file, Set<Long> ids) throws IOException {
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readLong() != MAGIC_NUMBER) {
+                throw new IOException("Not a manifest file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported manifest version: " + version);
+            }
+            long generation = in.readLong();
+            mNextSegmentId = in.readLong();
+            int count = in.readInt();
+            for (int i=0; i<count; i++) {
+                String name = in.readUTF();
+                LSMSegment[] segments = new LSMSegment[in.readInt()];
+                for (int j=0; j<segments.length; j++) {
+                    long id = in.readLong();
+                    segments[j] = LSMSegment.open(id, segmentFile(id));
+                    ids.add(id);
+                }
+                mTrees.put(name, new LSMTree(name, segments));
+            }
+            if (in.readLong() != MAGIC_NUMBER) {
+                throw new IOException("Manifest is corrupt: " + file);
+            }
+            return generation;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Deletes temporary files, logs which precede the manifest, and segments
+     * which aren't referenced by it. Caller must hold checkpoint lock.
+     */
+    private void deleteFiles() {
+        String[] names = mHome.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            boolean delete;
+            if (name.startsWith(PREFIX) && name.endsWith(".tmp")) {
+                delete = true;
+            } else {
+                long logGeneration = number(name, LOG_SUFFIX);
+                if (logGeneration >= 0) {
+                    delete = logGeneration < mManifestGeneration;
+                } else {
+                    long id = number(name, SEGMENT_SUFFIX);
+                    delete = id >= 0 && !mManifestSegments.contains(id);
+                }
+            }
+            if (delete) {
+                // Segment might still be mapped by a reader of an old
+                // version. File contents remain accessible on most platforms,
+                // and otherwise deletion is retried by a later checkpoint.
+                new File(mHome, name).delete();
+            }
+        }
+    }
+
+    private File logFile(long generation) {
+        return new File(mHome, PREFIX + generation + LOG_SUFFIX);
+    }
+
+    private File segmentFile(long id) {
+        return new File(mHome, PREFIX + id + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return number of named file, or -1 if not a file with the given suffix
+     */
+    private static long number(String name, String suffix) {
+        if (!name.startsWith(PREFIX) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong
+                (name.substring(PREFIX.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        } catch (IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
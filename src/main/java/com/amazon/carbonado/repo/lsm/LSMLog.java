@@ -0,0 +1,405 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of an {@link LSMDatabase}. Each committed transaction or
+ * auto-commit operation is written as a single frame, with a length and
+ * checksum. A frame which was only partially written is discarded when the
+ * log is replayed, and so a transaction is recovered entirely or not at all.
+ *
+ * <p>Appending a frame only writes it to the operating system. Forcing frames
+ * to the device is performed separately, by {@link #sync(long)}, which
+ * implements group commit. While one thread forces the log, others continue
+ * to append, and when it finishes, all the frames which were appended before
+ * it started are durable. Threads waiting to sync these frames return without
+ * forcing the log again.
+ */
+class LSMLog {
+    static final byte OP_TREE = 1, OP_STORE = 2, OP_DELETE = 3, OP_TRUNCATE = 4;
+
+    private final File mFile;
+    private final long mGeneration;
+    // File is written without a channel, which would be closed if a writing
+    // thread is interrupted.
+    private final RandomAccessFile mRaf;
+
+    // Guarded by this.
+    private long mLength;
+    private boolean mClosed;
+
+    // Held while forcing the log. Threads which wait for it are likely to
+    // find their frames already forced.
+    private final Object mSyncLock;
+    private volatile long mSyncedLength;
+
+    /**
+     * Opens the log for appending, discarding anything after the given
+     * length.
+     *
+     * @param validLength length returned by {@link #replay}, or zero
+     */
+    LSMLog(File file, long generation, long validLength) throws IOException {
+        mFile = file;
+        mGeneration = generation;
+        mRaf = new RandomAccessFile(file, "rw");
+        if (mRaf.length() > validLength) {
+            mRaf.setLength(validLength);
+        }
+        mRaf.seek(validLength);
+        mLength = validLength;
+        mSyncLock = new Object();
+        mSyncedLength = validLength;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    long getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Returns true if nothing has been written to the log.
+     */
+    synchronized boolean isEmpty() {
+        return mLength == 0;
+    }
+
+    /**
+     * Writes the batch as one frame, but doesn't force it to the device.
+     *
+     * @return log position after the frame, for passing to {@link #sync(long)}
+     */
+    synchronized long append(Batch batch) throws IOException {
+        if (mClosed) {
+            throw new IOException("Log is closed: " + mFile);
+        }
+        try {
+            mLength += batch.writeTo(mRaf);
+            return mLength;
+        } catch (IOException e) {
+            // Discard partial frame, or else later frames cannot be replayed.
+            try {
+                mRaf.setLength(mLength);
+                mRaf.seek(mLength);
+            } catch (IOException e2) {
+                // Ignore.
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forces all frames up to the given position to the device, unless
+     * already forced. If the log was closed, then the frames were made durable
+     * by a checkpoint.
+     */
+    void sync(long position) throws IOException {
+        if (mSyncedLength >= position) {
+            return;
+        }
+        synchronized (mSyncLock) {
+            // Check again, since the thread which held the lock might have
+            // forced this position too.
+            if (mSyncedLength >= position) {
+                return;
+            }
+            long length;
+            synchronized (this) {
+                if (mClosed) {
+                    return;
+                }
+                length = mLength;
+            }
+            mRaf.getFD().sync();
+            mSyncedLength = length;
+        }
+    }
+
+    /**
+     * Forces all appended frames to the device.
+     */
+    void sync() throws IOException {
+        long length;
+        synchronized (this) {
+            length = mLength;
+        }
+        sync(length);
+    }
+
+    /**
+     * Forces all appended frames to the device and closes the log.
+     */
+    void close() throws IOException {
+        synchronized (mSyncLock) {
+            synchronized (this) {
+                if (mClosed) {
+                    return;
+                }
+                try {
+                    mRaf.getFD().sync();
+                } finally {
+                    mClosed = true;
+                    mRaf.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays all complete frames in the given log file.
+     *
+     * @return length of log which contains complete frames
+     */
+    static long replay(File file, Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            long validLength = 0;
+            CRC32 crc = new CRC32();
+
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    long checksum = in.readInt() & 0xffffffffL;
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if (crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream frame = new DataInputStream
+                    (new ByteArrayInputStream(payload));
+                String tree = null;
+                while (frame.available() > 0) {
+                    byte op = frame.readByte();
+                    switch (op) {
+                    case OP_TREE:
+                        tree = frame.readUTF();
+                        break;
+                    case OP_STORE: {
+                        byte[] key = readArray(frame);
+                        visitor.store(tree, key, readArray(frame));
+                        break;
+                    }
+                    case OP_DELETE:
+                        visitor.delete(tree, readArray(frame));
+                        break;
+                    case OP_TRUNCATE:
+                        visitor.truncate(tree);
+                        break;
+                    default:
+                        throw new IOException("Unknown log operation: " + op);
+                    }
+                }
+
+                validLength += 8 + payload.length;
+            }
+
+            return validLength;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readArray(DataInputStream in) throws IOException {
+        byte[] array = new byte[in.readInt()];
+        in.readFully(array);
+        return array;
+    }
+
+    /**
+     * Receives the records of a replayed log.
+     */
+    static interface Visitor {
+        void store(String tree, byte[] key, byte[] value) throws IOException;
+
+        void delete(String tree, byte[] key) throws IOException;
+
+        void truncate(String tree) throws IOException;
+    }
+
+    /**
+     * Collects records which are appended to the log as one frame, and which
+     * are then applied to their trees.
+     */
+    static class Batch {
+        private final Buffer mBuffer;
+        private final DataOutputStream mOut;
+
+        // Changes to apply after the frame is appended. A null key indicates
+        // that the tree is truncated.
+        private final List<LSMTree> mTrees;
+        private final List<byte[]> mKeys;
+        private final List<byte[]> mValues;
+
+        private LSMTree mTree;
+
+        // Assigned when batch is appended to the log.
+        LSMLog mLog;
+        long mPosition;
+
+        Batch() {
+            mBuffer = new Buffer();
+            mOut = new DataOutputStream(mBuffer);
+            mTrees = new ArrayList<LSMTree>();
+            mKeys = new ArrayList<byte[]>();
+            mValues = new ArrayList<byte[]>();
+            try {
+                // Reserve space for length and checksum.
+                mOut.writeLong(0);
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        boolean isEmpty() {
+            return mTrees.isEmpty();
+        }
+
+        /**
+         * @param value new value, or {@link LSMTree#DELETED}
+         */
+        void add(LSMTree tree, byte[] key, byte[] value) {
+            try {
+                selectTree(tree);
+                if (value == LSMTree.DELETED) {
+                    mOut.writeByte(OP_DELETE);
+                    writeArray(key);
+                } else {
+                    mOut.writeByte(OP_STORE);
+                    writeArray(key);
+                    writeArray(value);
+                }
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+            mTrees.add(tree);
+            mKeys.add(key);
+            mValues.add(value);
+        }
+
+        void addTruncate(LSMTree tree) {
+            try {
+                selectTree(tree);
+                mOut.writeByte(OP_TRUNCATE);
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+            mTrees.add(tree);
+            mKeys.add(null);
+            mValues.add(null);
+        }
+
+        /**
+         * Applies all the changes to their trees.
+         *
+         * @return approximate amount of memory added to memtables
+         */
+        long apply() {
+            long size = 0;
+            for (int i=0; i<mTrees.size(); i++) {
+                LSMTree tree = mTrees.get(i);
+                byte[] key = mKeys.get(i);
+                if (key == null) {
+                    tree.truncate();
+                } else {
+                    byte[] value = mValues.get(i);
+                    tree.put(key, value);
+                    // Estimate includes skip list node overhead.
+                    size += key.length + value.length + 64;
+                }
+            }
+            return size;
+        }
+
+        private void selectTree(LSMTree tree) throws IOException {
+            if (tree != mTree) {
+                mOut.writeByte(OP_TREE);
+                mOut.writeUTF(tree.getName());
+                mTree = tree;
+            }
+        }
+
+        private void writeArray(byte[] array) throws IOException {
+            mOut.writeInt(array.length);
+            mOut.write(array);
+        }
+
+        /**
+         * Writes the batch as one frame.
+         *
+         * @return amount of bytes written
+         */
+        int writeTo(RandomAccessFile raf) throws IOException {
+            byte[] buf = mBuffer.array();
+            int length = mBuffer.size() - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buf, 8, length);
+            putInt(buf, 0, length);
+            putInt(buf, 4, (int) crc.getValue());
+            raf.write(buf, 0, length + 8);
+            return length + 8;
+        }
+
+        private static void putInt(byte[] buf, int offset, int v) {
+            buf[offset] = (byte) (v >> 24);
+            buf[offset + 1] = (byte) (v >> 16);
+            buf[offset + 2] = (byte) (v >> 8);
+            buf[offset + 3] = (byte) v;
+        }
+    }
+
+    // Exposes the internal array, to avoid copying it.
+    private static class Buffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
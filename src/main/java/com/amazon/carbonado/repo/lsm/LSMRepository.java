@@ -0,0 +1,470 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.ref.WeakReference;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.TriggerFactory;
+
+import com.amazon.carbonado.capability.IndexInfo;
+import com.amazon.carbonado.capability.IndexInfoCapability;
+
+import com.amazon.carbonado.layout.Layout;
+import com.amazon.carbonado.layout.LayoutCapability;
+import com.amazon.carbonado.layout.LayoutFactory;
+
+import com.amazon.carbonado.qe.RepositoryAccess;
+import com.amazon.carbonado.qe.StorageAccess;
+
+import com.amazon.carbonado.raw.GenericStorableCodecFactory;
+import com.amazon.carbonado.raw.StorableCodecFactory;
+
+import com.amazon.carbonado.repo.sleepycat.CheckpointCapability;
+
+import com.amazon.carbonado.sequence.SequenceValueGenerator;
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+import com.amazon.carbonado.spi.AbstractRepository;
+import com.amazon.carbonado.spi.LobEngine;
+
+import com.amazon.carbonado.txn.TransactionManager;
+import com.amazon.carbonado.txn.TransactionScope;
+
+/**
+ * 
+ *
+ * @see LSMRepositoryBuilder
+ */
+class LSMRepository extends AbstractRepository<LSMTransaction>
+    implements RepositoryAccess, IndexInfoCapability, LayoutCapability, CheckpointCapability
+{
+    private final Log mLog = LogFactory.getLog(getClass());
+
+    private final AtomicReference<Repository> mRootRef;
+    private final boolean mIsMaster;
+    private final int mLockTimeout;
+    private final TimeUnit mLockTimeoutUnit;
+    private final boolean mNoSync;
+    private final StorableCodecFactory mStorableCodecFactory;
+
+    final Iterable<TriggerFactory> mTriggerFactories;
+    private final LSMTransactionManager mTxnManager;
+
+    private final LSMDatabase mDatabase;
+    // Serializes all writers. Is owned by a thread, and so nested top-level
+    // transactions don't wait on their enclosing transaction.
+    private final LSMWriteLock mWriteLock;
+
+    private LayoutFactory mLayoutFactory;
+    private LobEngine mLobEngine;
+
+    private Checkpointer mCheckpointer;
+
+    LSMRepository(AtomicReference<Repository> rootRef, LSMRepositoryBuilder builder)
+        throws RepositoryException
+    {
+        super(builder.getName());
+        mRootRef = rootRef;
+        mIsMaster = builder.isMaster();
+        mLockTimeout = builder.getLockTimeout();
+        mLockTimeoutUnit = builder.getLockTimeoutUnit();
+        mNoSync = builder.getTransactionNoSync();
+        mStorableCodecFactory = new GenericStorableCodecFactory();
+
+        mTriggerFactories = builder.getTriggerFactories();
+        mTxnManager = new LSMTransactionManager(this, mLockTimeout, mLockTimeoutUnit);
+
+        File home = builder.getEnvironmentHomeFile();
+        try {
+            mDatabase = new LSMDatabase(home, builder.getMaxMemtableSize());
+        } catch (IOException e) {
+            throw new RepositoryException("Unable to open repository: " + home, e);
+        }
+
+        mWriteLock = new LSMWriteLock();
+
+        mCheckpointer = new Checkpointer(this, builder.getCheckpointInterval());
+        mCheckpointer.start();
+    }
+
+    public Repository getRootRepository() {
+        return mRootRef.get();
+    }
+
+    public <S extends Storable> StorageAccess<S> storageAccessFor(Class<S> type)
+        throws RepositoryException
+    {
+        return (StorageAccess<S>) storageFor(type);
+    }
+
+    public <S extends Storable> IndexInfo[] getIndexInfo(Class<S> storableType)
+        throws RepositoryException
+    {
+        return ((LSMStorage) storageFor(storableType)).getIndexInfo();
+    }
+
+    public Layout layoutFor(Class<? extends Storable> type)
+        throws FetchException, PersistException
+    {
+        try {
+            return ((LSMStorage) storageFor(type)).getLayout(true, mStorableCodecFactory);
+        } catch (PersistException e) {
+            throw e;
+        } catch (RepositoryException e) {
+            throw e.toFetchException();
+        }
+    }
+
+    public Layout layoutFor(Class<? extends Storable> type, int generation)
+        throws FetchException
+    {
+        try {
+            return getLayoutFactory().layoutFor(type, generation);
+        } catch (FetchException e) {
+            throw e;
+        } catch (RepositoryException e) {
+            throw e.toFetchException();
+        }
+    }
+
+    /**
+     * Suspend the checkpointer until the suspension time has expired or until
+     * manually resumed. If a checkpoint is in progress, this method will block
+     * until it is finished.
+     *
+     * @param suspensionTime minimum length of suspension, in milliseconds,
+     * unless checkpointer is manually resumed
+     */
+    public void suspendCheckpointer(long suspensionTime) {
+        Checkpointer checkpointer = mCheckpointer;
+        if (checkpointer != null) {
+            checkpointer.suspendCheckpointer(suspensionTime);
+        }
+    }
+
+    /**
+     * Resumes the checkpointer if it was suspended.
+     */
+    public void resumeCheckpointer() {
+        Checkpointer checkpointer = mCheckpointer;
+        if (checkpointer != null) {
+            checkpointer.resumeCheckpointer();
+        }
+    }
+
+    /**
+     * Forces a checkpoint to run now, even if checkpointer is suspended. If a
+     * checkpoint is in progress, then this method will block until it is
+     * finished, and then run another checkpoint.
+     */
+    public void forceCheckpoint() throws PersistException {
+        try {
+            mDatabase.checkpoint();
+        } catch (IOException e) {
+            throw new PersistException(e);
+        }
+    }
+
+    /**
+     * Forces the log to the device, which is cheaper than performing a
+     * checkpoint.
+     */
+    public void sync() throws PersistException {
+        try {
+            mDatabase.sync();
+        } catch (IOException e) {
+            throw new PersistException(e);
+        }
+    }
+
+    @Override
+    protected void finalize() {
+        close();
+    }
+
+    @Override
+    protected void shutdownHook() {
+        if (mCheckpointer != null) {
+            mCheckpointer.interrupt();
+            try {
+                mCheckpointer.join();
+            } catch (InterruptedException e) {
+            }
+            mCheckpointer = null;
+        }
+
+        // Flush memtables, making the next open faster.
+        try {
+            mDatabase.checkpoint();
+        } catch (Throwable e) {
+            mLog.error("Failed to checkpoint repository: " + mDatabase.getHome(), e);
+        }
+
+        try {
+            mDatabase.close();
+        } catch (Throwable e) {
+            mLog.error("Failed to close repository: " + mDatabase.getHome(), e);
+        }
+    }
+
+    @Override
+    protected Log getLog() {
+        return mLog;
+    }
+
+    @Override
+    protected TransactionManager<LSMTransaction> transactionManager() {
+        return mTxnManager;
+    }
+
+    @Override
+    protected TransactionScope<LSMTransaction> localTransactionScope() {
+        return mTxnManager.localScope();
+    }
+
+    @Override
+    protected <S extends Storable> Storage<S> createStorage(Class<S> type)
+        throws RepositoryException
+    {
+        return new LSMStorage<S>(this, type, mStorableCodecFactory);
+    }
+
+    @Override
+    protected SequenceValueProducer createSequenceValueProducer(String name)
+        throws RepositoryException
+    {
+        return new SequenceValueGenerator(this, name);
+    }
+
+    LayoutFactory getLayoutFactory() throws RepositoryException {
+        if (mLayoutFactory == null) {
+            mLayoutFactory = new LayoutFactory(getRootRepository());
+        }
+        return mLayoutFactory;
+    }
+
+    LobEngine getLobEngine() throws RepositoryException {
+        if (mLobEngine == null) {
+            mLobEngine = new LobEngine(this, getRootRepository());
+        }
+        return mLobEngine;
+    }
+
+    boolean isMaster() {
+        return mIsMaster;
+    }
+
+    int getLockTimeout() {
+        return mLockTimeout;
+    }
+
+    TimeUnit getLockTimeoutUnit() {
+        return mLockTimeoutUnit;
+    }
+
+    LSMTree openTree(String name) {
+        return mDatabase.openTree(name);
+    }
+
+    boolean tryLockForWrite(int timeout, TimeUnit unit) throws InterruptedException {
+        return mWriteLock.tryLock(timeout, unit);
+    }
+
+    void unlockFromWrite() {
+        mWriteLock.unlock();
+    }
+
+    void writeLockDetached() {
+        mWriteLock.detached();
+    }
+
+    void writeLockAttached() {
+        mWriteLock.attached();
+    }
+
+    void lendWriteLock() {
+        mWriteLock.lend();
+    }
+
+    void stopLendingWriteLock() {
+        mWriteLock.stopLending();
+    }
+
+    /**
+     * Appends the batch to the log and applies it. Caller must hold the write
+     * lock.
+     */
+    void write(LSMLog.Batch batch) throws PersistException {
+        try {
+            mDatabase.write(batch);
+        } catch (IOException e) {
+            throw new PersistException(e);
+        }
+        if (mDatabase.isCheckpointNeeded()) {
+            Checkpointer checkpointer = mCheckpointer;
+            if (checkpointer != null) {
+                checkpointer.wakeUp();
+            }
+        }
+    }
+
+    /**
+     * Forces the log to the device, up to the end of the given batch, unless
+     * transactions are not synced. Caller should not hold the write lock, so
+     * that concurrent commits can be forced together.
+     */
+    void sync(LSMLog.Batch batch) throws PersistException {
+        if (!mNoSync) {
+            try {
+                mDatabase.sync(batch);
+            } catch (IOException e) {
+                throw new PersistException(e);
+            }
+        }
+    }
+
+    /**
+     * Periodically runs checkpoints on the repository, and also when woken up
+     * because memtables have grown too large.
+     */
+    private static class Checkpointer extends Thread {
+        private final WeakReference<LSMRepository> mRepository;
+        private final long mSleepInterval;
+
+        private boolean mInProgress;
+        private boolean mWakeUp;
+        private long mSuspendUntil = Long.MIN_VALUE;
+
+        /**
+         * @param repository outer class
+         * @param sleepInterval milliseconds to sleep before running
+         * checkpoint; zero only runs checkpoint when woken up
+         */
+        Checkpointer(LSMRepository repository, long sleepInterval) {
+            super(repository.getClass().getSimpleName() + " checkpointer (" +
+                  repository.getName() + ')');
+            setDaemon(true);
+            mRepository = new WeakReference<LSMRepository>(repository);
+            mSleepInterval = sleepInterval;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    boolean wokenUp;
+                    synchronized (this) {
+                        if (!mWakeUp) {
+                            try {
+                                wait(mSleepInterval);
+                            } catch (InterruptedException e) {
+                                break;
+                            }
+                        }
+                        wokenUp = mWakeUp;
+                        mWakeUp = false;
+                    }
+
+                    LSMRepository repository = mRepository.get();
+                    if (repository == null) {
+                        break;
+                    }
+
+                    synchronized (this) {
+                        // Memtables must be flushed even if suspended, or else
+                        // they consume all memory.
+                        if (!wokenUp && System.currentTimeMillis() < mSuspendUntil) {
+                            continue;
+                        }
+                        mInProgress = true;
+                    }
+
+                    try {
+                        repository.mDatabase.checkpoint();
+                    } catch (ThreadDeath e) {
+                        break;
+                    } catch (Throwable e) {
+                        repository.getLog().error("Checkpoint failed", e);
+                    } finally {
+                        synchronized (this) {
+                            mInProgress = false;
+                            notifyAll();
+                        }
+                        repository = null;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    mInProgress = false;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void wakeUp() {
+            if (!mWakeUp) {
+                mWakeUp = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Blocks until checkpoint has finished.
+         */
+        synchronized void suspendCheckpointer(long suspensionTime) {
+            while (mInProgress) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                }
+            }
+
+            if (suspensionTime <= 0) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long suspendUntil = now + suspensionTime;
+            if (now >= 0 && suspendUntil < 0) {
+                // Overflow.
+                suspendUntil = Long.MAX_VALUE;
+            }
+            mSuspendUntil = suspendUntil;
+        }
+
+        synchronized void resumeCheckpointer() {
+            mSuspendUntil = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Collection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazon.carbonado.ConfigurationException;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+
+import com.amazon.carbonado.repo.indexed.IndexedRepositoryBuilder;
+
+import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
+
+/**
+ * Builds a persistent repository which is implemented entirely in Java, with
+ * no external dependencies. Each storable type is kept in a log-structured
+ * merge tree, ordered by encoded primary key. Changes are recorded in a
+ * write-ahead log and in memory, and a checkpoint flushes them to immutable
+ * segment files. Segment files are mapped into memory, and so reads are cached
+ * by the operating system rather than in the Java heap.
+ *
+ * <p>Committing a transaction forces the log to the device, unless {@link
+ * #setTransactionNoSync no sync} is enabled. Concurrent commits are grouped,
+ * and so a single force of the log can make several transactions durable.
+ *
+ * <p>Writers are serialized by a repository-wide lock, which a transaction
+ * holds from its first modification until it exits. Reads never acquire
+ * locks, unless for update. Transactions may be nested, and supported
+ * isolation levels are read committed and serializable. Read uncommitted is
+ * promoted to read committed, and repeatable read is promoted to
+ * serializable. Serializable transactions acquire the write lock when they
+ * begin.
+ *
+ * <p>
+ * The following extra capabilities are supported:
+ * <ul>
+ * <li>{@link com.amazon.carbonado.capability.IndexInfoCapability IndexInfoCapability}
+ * <li>{@link com.amazon.carbonado.capability.ShutdownCapability ShutdownCapability}
+ * <li>{@link com.amazon.carbonado.layout.LayoutCapability LayoutCapability}
+ * <li>{@link com.amazon.carbonado.sequence.SequenceCapability SequenceCapability}
+ * <li>{@link com.amazon.carbonado.repo.sleepycat.CheckpointCapability CheckpointCapability}
+ * </ul>
+ */
+public class LSMRepositoryBuilder extends AbstractRepositoryBuilder {
+    private String mName = "";
+    private boolean mIsMaster = true;
+    private boolean mIndexSupport = true;
+    private boolean mIndexRepairEnabled = true;
+    private double mIndexThrottle = 1.0;
+    private File mEnvHome;
+    private int mLockTimeout;
+    private TimeUnit mLockTimeoutUnit;
+    private boolean mTxnNoSync;
+    private long mMaxMemtableSize = 16 * 1024 * 1024;
+    private int mCheckpointInterval = 60000;
+
+    public LSMRepositoryBuilder() {
+        setLockTimeoutMillis(500);
+    }
+
+    public Repository build(AtomicReference<Repository> rootRef) throws RepositoryException {
+        if (mIndexSupport) {
+            // Wrap LSMRepository with IndexedRepository.
+
+            // Temporarily set to false to avoid infinite recursion.
+            mIndexSupport = false;
+            try {
+                IndexedRepositoryBuilder ixBuilder = new IndexedRepositoryBuilder();
+                ixBuilder.setWrappedRepository(this);
+                ixBuilder.setMaster(isMaster());
+                ixBuilder.setIndexRepairEnabled(mIndexRepairEnabled);
+                ixBuilder.setIndexRepairThrottle(mIndexThrottle);
+                return ixBuilder.build(rootRef);
+            } finally {
+                mIndexSupport = true;
+            }
+        }
+
+        assertReady();
+
+        Repository repo = new LSMRepository(rootRef, this);
+
+        rootRef.set(repo);
+        return repo;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public void setName(String name) {
+        mName = name;
+    }
+
+    public boolean isMaster() {
+        return mIsMaster;
+    }
+
+    public void setMaster(boolean b) {
+        mIsMaster = b;
+    }
+
+    /**
+     * Sets the repository environment home directory, which is required. All
+     * logs and segment files are stored in this directory.
+     */
+    public void setEnvironmentHomeFile(File envHome) {
+        if (envHome != null) {
+            try {
+                // Switch to canonical for more detailed error messages.
+                envHome = envHome.getCanonicalFile();
+            } catch (IOException e) {
+            }
+        }
+        mEnvHome = envHome;
+    }
+
+    /**
+     * Returns the repository environment home directory.
+     */
+    public File getEnvironmentHomeFile() {
+        return mEnvHome;
+    }
+
+    /**
+     * Sets the repository environment home directory, which is required. All
+     * logs and segment files are stored in this directory.
+     */
+    public void setEnvironmentHome(String envHome) {
+        if (envHome == null) {
+            mEnvHome = null;
+        } else {
+            setEnvironmentHomeFile(new File(envHome));
+        }
+    }
+
+    /**
+     * Returns the repository environment home directory.
+     */
+    public String getEnvironmentHome() {
+        return mEnvHome == null ? null : mEnvHome.getPath();
+    }
+
+    /**
+     * By default, user specified indexes are supported. Pass false to disable
+     * this, and no indexes will be built. Another consequence of this option
+     * is that no unique constraint checks will be applied to alternate keys.
+     */
+    public void setIndexSupport(boolean indexSupport) {
+        mIndexSupport = indexSupport;
+    }
+
+    /**
+     * Returns true if indexes are supported, which is true by default.
+     */
+    public boolean getIndexSupport() {
+        return mIndexSupport;
+    }
+
+    /**
+     * Returns true if indexes are repaired when they are found to be
+     * inconsistent, which is true by default.
+     */
+    public boolean isIndexRepairEnabled() {
+        return mIndexRepairEnabled;
+    }
+
+    /**
+     * Pass false to disable repair of inconsistent indexes, which is enabled
+     * by default.
+     */
+    public void setIndexRepairEnabled(boolean enabled) {
+        mIndexRepairEnabled = enabled;
+    }
+
+    /**
+     * Returns the throttle parameter used when indexes are added, dropped or
+     * bulk repaired. By default this value is 1.0, or maximum speed.
+     */
+    public double getIndexRepairThrottle() {
+        return mIndexThrottle;
+    }
+
+    /**
+     * Sets the throttle parameter used when indexes are added, dropped or bulk
+     * repaired. By default this value is 1.0, or maximum speed.
+     *
+     * @param desiredSpeed 1.0 = perform work at full speed,
+     * 0.5 = perform work at half speed, 0.0 = fully suspend work
+     */
+    public void setIndexRepairThrottle(double desiredSpeed) {
+        mIndexThrottle = desiredSpeed;
+    }
+
+    /**
+     * Set the lock timeout, in milliseconds. Default value is 500 milliseconds.
+     */
+    public void setLockTimeoutMillis(int timeout) {
+        setLockTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the lock timeout. Default value is 500 milliseconds.
+     */
+    public void setLockTimeout(int timeout, TimeUnit unit) {
+        if (timeout < 0 || unit == null) {
+            throw new IllegalArgumentException();
+        }
+        mLockTimeout = timeout;
+        mLockTimeoutUnit = unit;
+    }
+
+    /**
+     * Returns the lock timeout. Call getLockTimeoutUnit to get the unit.
+     */
+    public int getLockTimeout() {
+        return mLockTimeout;
+    }
+
+    /**
+     * Returns the lock timeout unit. Call getLockTimeout to get the timeout.
+     */
+    public TimeUnit getLockTimeoutUnit() {
+        return mLockTimeoutUnit;
+    }
+
+    /**
+     * When true, commits are written to the log, but the log is not forced to
+     * the device. This improves performance, but there is a chance of losing
+     * the most recent commits if the machine crashes. The log is always forced
+     * by checkpoints and when the repository is closed.
+     */
+    public void setTransactionNoSync(boolean noSync) {
+        mTxnNoSync = noSync;
+    }
+
+    /**
+     * Returns true if the log is not forced when transactions commit.
+     */
+    public boolean getTransactionNoSync() {
+        return mTxnNoSync;
+    }
+
+    /**
+     * Set the approximate amount of memory, in bytes, which committed changes
+     * can consume before a checkpoint flushes them to segment files. Default
+     * value is 16 megabytes.
+     */
+    public void setMaxMemtableSize(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxMemtableSize = bytes;
+    }
+
+    /**
+     * Returns the amount of memory which committed changes can consume before
+     * they are flushed.
+     */
+    public long getMaxMemtableSize() {
+        return mMaxMemtableSize;
+    }
+
+    /**
+     * Set the interval to run checkpoints, which flush changes to segment
+     * files and delete old logs. A checkpoint does nothing if nothing has
+     * changed since the last one. Checkpoints also run when changes exceed
+     * the {@link #setMaxMemtableSize maximum memtable size}, and when the
+     * repository is closed. Default value is one minute.
+     *
+     * @param intervalMillis interval between checkpoints, in milliseconds;
+     * zero only runs checkpoints when needed
+     */
+    public void setCheckpointInterval(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException();
+        }
+        mCheckpointInterval = intervalMillis;
+    }
+
+    /**
+     * @return interval between checkpoints, in milliseconds
+     */
+    public int getCheckpointInterval() {
+        return mCheckpointInterval;
+    }
+
+    @Override
+    public void errorCheck(Collection<String> messages) throws ConfigurationException {
+        super.errorCheck(messages);
+
+        File envHome = getEnvironmentHomeFile();
+        if (envHome == null) {
+            messages.add("environmentHome missing");
+        } else {
+            if (envHome.exists() && !envHome.isDirectory()) {
+                messages.add("environment home is not a directory: " + envHome);
+            }
+        }
+    }
+}
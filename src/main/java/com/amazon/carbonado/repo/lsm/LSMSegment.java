@@ -0,0 +1,365 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * Immutable file of sorted entries, which is written when a memtable is
+ * flushed or when segments are compacted. Files are mapped into memory, and so
+ * reads are served directly from the operating system page cache. Opening a
+ * segment doesn't read its entries, and so opening time doesn't depend on the
+ * size of the file.
+ *
+ * <p>Entries are written in key order, and no entry crosses a chunk
+ * boundary. Each chunk is mapped separately, since a mapped buffer cannot
+ * exceed 2GB. An index of entry positions follows the entries, allowing binary
+ * search. Deleted entries are retained until compaction, since they must hide
+ * entries in older segments.
+ */
+class LSMSegment implements LSMTree.Layer {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private static final long MAGIC_NUMBER = 0x436172624c534d53L;
+    private static final int VERSION = 1;
+
+    // Length of header, which is padded to keep index aligned.
+    private static final int HEADER_SIZE = 16;
+    // Length of trailer, which has the entry count, index position and magic number.
+    private static final int TRAILER_SIZE = 24;
+
+    /**
+     * Opens an existing segment file.
+     */
+    static LSMSegment open(long id, File file) throws IOException {
+        ByteBuffer[] chunks;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Segment is corrupt: " + file);
+            }
+            chunks = new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i=0; i<chunks.length; i++) {
+                long pos = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                                        Math.min(CHUNK_SIZE, size - pos));
+            }
+            return new LSMSegment(id, file, chunks, size);
+        } finally {
+            // Mappings remain valid after the file is closed.
+            raf.close();
+        }
+    }
+
+    private final long mId;
+    private final File mFile;
+    private final ByteBuffer[] mChunks;
+    private final long mIndexPos;
+    private final int mCount;
+
+    private LSMSegment(long id, File file, ByteBuffer[] chunks, long size) throws IOException {
+        mId = id;
+        mFile = file;
+        mChunks = chunks;
+
+        if (getLong(0) != MAGIC_NUMBER) {
+            throw new IOException("Not a segment file: " + file);
+        }
+        int version = chunks[0].getInt(8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment version: " + version);
+        }
+        long trailer = size - TRAILER_SIZE;
+        if (getLong(trailer + 16) != MAGIC_NUMBER) {
+            throw new IOException("Segment is corrupt: " + file);
+        }
+        long count = getLong(trailer);
+        mIndexPos = getLong(trailer + 8);
+        if (count < 0 || count > Integer.MAX_VALUE || mIndexPos + count * 8 != trailer) {
+            throw new IOException("Segment is corrupt: " + file);
+        }
+        mCount = (int) count;
+    }
+
+    long getId() {
+        return mId;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns the number of entries, including deleted entries.
+     */
+    int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns a copy of the key at the given entry index.
+     */
+    byte[] key(int index) {
+        long pos = entryPos(index);
+        ByteBuffer chunk = mChunks[(int) (pos >>> CHUNK_SHIFT)];
+        int offset = (int) (pos & (CHUNK_SIZE - 1));
+        byte[] key = new byte[chunk.getInt(offset)];
+        copy(chunk, offset + 4, key);
+        return key;
+    }
+
+    /**
+     * Returns a copy of the value at the given entry index, or {@link
+     * LSMTree#DELETED} if entry is deleted.
+     */
+    byte[] value(int index) {
+        long pos = entryPos(index);
+        ByteBuffer chunk = mChunks[(int) (pos >>> CHUNK_SHIFT)];
+        int offset = (int) (pos & (CHUNK_SIZE - 1));
+        offset += 4 + chunk.getInt(offset);
+        int length = chunk.getInt(offset);
+        if (length < 0) {
+            return LSMTree.DELETED;
+        }
+        byte[] value = new byte[length];
+        copy(chunk, offset + 4, value);
+        return value;
+    }
+
+    /**
+     * Searches for the given key, with the same conventions as {@link
+     * java.util.Arrays#binarySearch(Object[], Object) Arrays.binarySearch}.
+     */
+    int search(byte[] key) {
+        int low = 0;
+        int high = mCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareKey(mid, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~low;
+    }
+
+    public byte[] ceilingKey(byte[] key, boolean inclusive) {
+        int index;
+        if (key == null) {
+            index = 0;
+        } else if ((index = search(key)) < 0) {
+            index = ~index;
+        } else if (!inclusive) {
+            index++;
+        }
+        return index < mCount ? key(index) : null;
+    }
+
+    public byte[] floorKey(byte[] key, boolean inclusive) {
+        int index;
+        if (key == null) {
+            index = mCount - 1;
+        } else if ((index = search(key)) < 0) {
+            index = ~index - 1;
+        } else if (!inclusive) {
+            index--;
+        }
+        return index >= 0 ? key(index) : null;
+    }
+
+    public byte[] get(byte[] key) {
+        int index = search(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public String toString() {
+        return "LSMSegment {file=" + mFile + ", size=" + mCount + '}';
+    }
+
+    /**
+     * Compares the key at the given entry index to the given key, as unsigned
+     * bytes, without copying it.
+     */
+    private int compareKey(int index, byte[] key) {
+        long pos = entryPos(index);
+        ByteBuffer chunk = mChunks[(int) (pos >>> CHUNK_SHIFT)];
+        int offset = (int) (pos & (CHUNK_SIZE - 1));
+        int length = chunk.getInt(offset);
+        offset += 4;
+        int end = Math.min(length, key.length);
+        for (int i=0; i<end; i++) {
+            int a = chunk.get(offset + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    private long entryPos(int index) {
+        return getLong(mIndexPos + ((long) index << 3));
+    }
+
+    // Long values in the file are aligned, and so they never cross a chunk.
+    private long getLong(long pos) {
+        return mChunks[(int) (pos >>> CHUNK_SHIFT)].getLong((int) (pos & (CHUNK_SIZE - 1)));
+    }
+
+    private static void copy(ByteBuffer chunk, int offset, byte[] dest) {
+        // Absolute bulk get isn't available, and so use a duplicate to avoid
+        // changing the position of the shared buffer.
+        ByteBuffer bb = chunk.duplicate();
+        bb.position(offset);
+        bb.get(dest);
+    }
+
+    /**
+     * Writes a new segment into a temporary file, which is renamed when
+     * finished. Entries must be written in key order.
+     */
+    static class Writer {
+        private final File mFile;
+        private final File mTemp;
+        private final FileOutputStream mFileOut;
+        private final DataOutputStream mOut;
+
+        private long mPos;
+        private long[] mIndex;
+        private int mCount;
+
+        Writer(File file) throws IOException {
+            mFile = file;
+            mTemp = new File(file.getPath() + ".tmp");
+            mFileOut = new FileOutputStream(mTemp);
+            mOut = new DataOutputStream(new BufferedOutputStream(mFileOut, 65536));
+            mIndex = new long[1024];
+
+            mOut.writeLong(MAGIC_NUMBER);
+            mOut.writeInt(VERSION);
+            mOut.writeInt(0);
+            mPos = HEADER_SIZE;
+        }
+
+        /**
+         * @param value value to write, or {@link LSMTree#DELETED}
+         */
+        void write(byte[] key, byte[] value) throws IOException {
+            boolean deleted = value == LSMTree.DELETED;
+            long entrySize = 8L + key.length + (deleted ? 0 : value.length);
+            if (entrySize > CHUNK_SIZE) {
+                throw new IOException("Entry is too large: " + entrySize);
+            }
+
+            long remaining = CHUNK_SIZE - (mPos & (CHUNK_SIZE - 1));
+            if (entrySize > remaining) {
+                // Pad to the next chunk.
+                pad(remaining);
+            }
+
+            if (mCount >= mIndex.length) {
+                long[] newIndex = new long[mIndex.length << 1];
+                System.arraycopy(mIndex, 0, newIndex, 0, mCount);
+                mIndex = newIndex;
+            }
+            mIndex[mCount++] = mPos;
+
+            mOut.writeInt(key.length);
+            mOut.write(key);
+            if (deleted) {
+                mOut.writeInt(-1);
+            } else {
+                mOut.writeInt(value.length);
+                mOut.write(value);
+            }
+
+            mPos += entrySize;
+        }
+
+        /**
+         * Returns the number of entries written so far.
+         */
+        int size() {
+            return mCount;
+        }
+
+        /**
+         * Writes the index, forces the file to the device and opens it.
+         */
+        LSMSegment finish(long id) throws IOException {
+            // Align index, which also keeps longs from crossing chunks.
+            pad((8 - (mPos & 7)) & 7);
+
+            long indexPos = mPos;
+            for (int i=0; i<mCount; i++) {
+                mOut.writeLong(mIndex[i]);
+            }
+            mOut.writeLong(mCount);
+            mOut.writeLong(indexPos);
+            mOut.writeLong(MAGIC_NUMBER);
+
+            mOut.flush();
+            mFileOut.getFD().sync();
+            mOut.close();
+
+            mFile.delete();
+            if (!mTemp.renameTo(mFile)) {
+                throw new IOException("Unable to rename " + mTemp + " to " + mFile);
+            }
+
+            return open(id, mFile);
+        }
+
+        void abort() {
+            try {
+                mOut.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            mTemp.delete();
+        }
+
+        private void pad(long amount) throws IOException {
+            if (amount > 0) {
+                byte[] padding = new byte[(int) Math.min(amount, 65536)];
+                for (long i=amount; i>0; i-=padding.length) {
+                    mOut.write(padding, 0, (int) Math.min(i, padding.length));
+                }
+                mPos += amount;
+            }
+        }
+    }
+}
@@ -0,0 +1,681 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PersistInterruptedException;
+import com.amazon.carbonado.PersistTimeoutException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Trigger;
+
+import com.amazon.carbonado.capability.IndexInfo;
+
+import com.amazon.carbonado.cursor.ControllerCursor;
+import com.amazon.carbonado.cursor.EmptyCursor;
+import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.SingletonCursor;
+import com.amazon.carbonado.cursor.SortBuffer;
+
+import com.amazon.carbonado.filter.Filter;
+
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableIntrospector;
+
+import com.amazon.carbonado.layout.Layout;
+import com.amazon.carbonado.layout.LayoutFactory;
+import com.amazon.carbonado.layout.Unevolvable;
+
+import com.amazon.carbonado.lob.Blob;
+import com.amazon.carbonado.lob.Clob;
+
+import com.amazon.carbonado.qe.BoundaryType;
+import com.amazon.carbonado.qe.QueryExecutorFactory;
+import com.amazon.carbonado.qe.QueryEngine;
+import com.amazon.carbonado.qe.StorageAccess;
+
+import com.amazon.carbonado.raw.RawSupport;
+import com.amazon.carbonado.raw.RawUtil;
+import com.amazon.carbonado.raw.StorableCodec;
+import com.amazon.carbonado.raw.StorableCodecFactory;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+import com.amazon.carbonado.spi.IndexInfoImpl;
+import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.TriggerManager;
+
+import com.amazon.carbonado.txn.TransactionScope;
+
+/**
+ * Storage which keeps encoded storables in an {@link LSMTree}, ordered by
+ * encoded primary key. Storables are only decoded when loaded or returned by
+ * a cursor. If layouts are supported, the generation of each storable is
+ * encoded with it, allowing storable definitions to evolve.
+ *
+ * <p>Reads acquire no locks. Modifications acquire the repository write lock,
+ * which is held by transactions until they exit, and only briefly by
+ * auto-commit operations. Loads and queries which are for update also
+ * acquire the write lock.
+ */
+class LSMStorage<S extends Storable> implements Storage<S>, StorageAccess<S> {
+    private static final int DEFAULT_LOB_BLOCK_SIZE = 1000;
+
+    private final LSMRepository mRepo;
+    private final Class<S> mType;
+    private final LSMTree mTree;
+    private final TriggerManager<S> mTriggers;
+    private final StorableCodec<S> mCodec;
+    private final StorableIndex<S> mPrimaryKeyIndex;
+    private final QueryEngine<S> mQueryEngine;
+
+    LSMStorage(LSMRepository repo, Class<S> type, StorableCodecFactory codecFactory)
+        throws RepositoryException
+    {
+        mRepo = repo;
+        mType = type;
+        {
+            String name = codecFactory.getStorageName(type);
+            if (name == null) {
+                name = type.getName();
+            }
+            mTree = repo.openTree(name);
+        }
+        mTriggers = new TriggerManager<S>();
+
+        StorableIndex<S> pkIndex = new StorableIndex<S>
+            (StorableIntrospector.examine(type).getPrimaryKey(), Direction.ASCENDING)
+            .clustered(true);
+
+        Layout layout = getLayout(false, codecFactory);
+
+        mCodec = codecFactory.createCodec(type, pkIndex, repo.isMaster(), layout, new Support());
+
+        mPrimaryKeyIndex = mCodec.getPrimaryKeyIndex();
+
+        mQueryEngine = new QueryEngine<S>(type, repo);
+
+        try {
+            if (LobEngine.hasLobs(type)) {
+                Trigger<S> lobTrigger = repo.getLobEngine()
+                    .getSupportTrigger(type, DEFAULT_LOB_BLOCK_SIZE);
+                addTrigger(lobTrigger);
+            }
+
+            // Don't install automatic triggers until we're completely ready.
+            mTriggers.addTriggers(type, repo.mTriggerFactories);
+        } catch (SupportException e) {
+            throw e;
+        } catch (RepositoryException e) {
+            throw new SupportException(e);
+        }
+    }
+
+    public Class<S> getStorableType() {
+        return mType;
+    }
+
+    public S prepare() {
+        return mCodec.instantiate();
+    }
+
+    public Query<S> query() throws FetchException {
+        return mQueryEngine.query();
+    }
+
+    public Query<S> query(String filter) throws FetchException {
+        return mQueryEngine.query(filter);
+    }
+
+    public Query<S> query(Filter<S> filter) throws FetchException {
+        return mQueryEngine.query(filter);
+    }
+
+    public void truncate() throws PersistException {
+        TransactionScope<LSMTransaction> scope = mRepo.localTransactionScope();
+        LSMTransaction txn = persistTxn(scope);
+        LSMLog.Batch batch = new LSMLog.Batch();
+        batch.addTruncate(mTree);
+        if (txn == null) {
+            lockForWrite();
+            try {
+                mRepo.write(batch);
+            } finally {
+                mRepo.unlockFromWrite();
+            }
+        } else {
+            txn.lockForWrite();
+            // Non-transactional truncate, which also discards uncommitted changes.
+            txn.truncated(mTree);
+            mRepo.write(batch);
+        }
+        mRepo.sync(batch);
+    }
+
+    public boolean addTrigger(Trigger<? super S> trigger) {
+        return mTriggers.addTrigger(trigger);
+    }
+
+    public boolean removeTrigger(Trigger<? super S> trigger) {
+        return mTriggers.removeTrigger(trigger);
+    }
+
+    public IndexInfo[] getIndexInfo() {
+        StorableIndex<S> pkIndex = mPrimaryKeyIndex;
+
+        if (pkIndex == null) {
+            return new IndexInfo[0];
+        }
+
+        int i = pkIndex.getPropertyCount();
+        String[] propertyNames = new String[i];
+        Direction[] directions = new Direction[i];
+        while (--i >= 0) {
+            propertyNames[i] = pkIndex.getProperty(i).getName();
+            directions[i] = pkIndex.getPropertyDirection(i);
+        }
+
+        return new IndexInfo[] {
+            new IndexInfoImpl(getStorableType().getName(), true, true, propertyNames, directions)
+        };
+    }
+
+    public QueryExecutorFactory<S> getQueryExecutorFactory() {
+        return mQueryEngine;
+    }
+
+    public Collection<StorableIndex<S>> getAllIndexes() {
+        return Collections.singletonList(mPrimaryKeyIndex);
+    }
+
+    public Storage<S> storageDelegate(StorableIndex<S> index) {
+        // We're the grunt and don't delegate.
+        return null;
+    }
+
+    public SortBuffer<S> createSortBuffer() {
+        return new MergeSortBuffer<S>();
+    }
+
+    public SortBuffer<S> createSortBuffer(Query.Controller controller) {
+        return new MergeSortBuffer<S>(controller);
+    }
+
+    public long countAll() throws FetchException {
+        return countAll(null);
+    }
+
+    public long countAll(Query.Controller controller) throws FetchException {
+        // Skipping doesn't decode storables.
+        Cursor<S> cursor = fetchAll(controller);
+        try {
+            long count = 0;
+            int amount;
+            while ((amount = cursor.skipNext(Integer.MAX_VALUE)) > 0) {
+                count += amount;
+            }
+            return count;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public Cursor<S> fetchAll() throws FetchException {
+        return fetchAll(null);
+    }
+
+    public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+        return fetchSubset(null, null,
+                           BoundaryType.OPEN, null,
+                           BoundaryType.OPEN, null,
+                           false, false,
+                           controller);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues)
+        throws FetchException
+    {
+        return fetchOne(index, identityValues, null);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues,
+                              Query.Controller controller)
+        throws FetchException
+    {
+        // Note: Controller is never called.
+        byte[] key = mCodec.encodePrimaryKey(identityValues);
+        byte[] value = load(key);
+        if (value == null) {
+            return EmptyCursor.the();
+        }
+        return new SingletonCursor<S>(instantiate(key, value));
+    }
+
+    public Query<?> indexEntryQuery(StorableIndex<S> index) {
+        return null;
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery) {
+        // This method should never be called since null was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery,
+                                              Query.Controller controller)
+    {
+        // This method should never be called since null was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder)
+        throws FetchException
+    {
+        if (reverseRange) {
+            {
+                BoundaryType temp = rangeStartBoundary;
+                rangeStartBoundary = rangeEndBoundary;
+                rangeEndBoundary = temp;
+            }
+
+            {
+                Object temp = rangeStartValue;
+                rangeStartValue = rangeEndValue;
+                rangeEndValue = temp;
+            }
+        }
+
+        StorableCodec<S> codec = mCodec;
+
+        final byte[] identityKey;
+        if (identityValues == null || identityValues.length == 0) {
+            identityKey = codec.encodePrimaryKeyPrefix();
+        } else {
+            identityKey = codec.encodePrimaryKey(identityValues, 0, identityValues.length);
+        }
+
+        final byte[] startBound;
+        if (rangeStartBoundary == BoundaryType.OPEN) {
+            startBound = identityKey;
+        } else {
+            startBound = createBound(identityValues, identityKey, rangeStartValue, codec);
+            if (!reverseOrder && rangeStartBoundary == BoundaryType.EXCLUSIVE) {
+                // If key is composite and partial, need to skip trailing
+                // unspecified keys by adding one and making inclusive.
+                if (!RawUtil.increment(startBound)) {
+                    return EmptyCursor.the();
+                }
+                rangeStartBoundary = BoundaryType.INCLUSIVE;
+            }
+        }
+
+        final byte[] endBound;
+        if (rangeEndBoundary == BoundaryType.OPEN) {
+            endBound = identityKey;
+        } else {
+            endBound = createBound(identityValues, identityKey, rangeEndValue, codec);
+            if (reverseOrder && rangeEndBoundary == BoundaryType.EXCLUSIVE) {
+                // If key is composite and partial, need to skip trailing
+                // unspecified keys by subtracting one and making
+                // inclusive.
+                if (!RawUtil.decrement(endBound)) {
+                    return EmptyCursor.the();
+                }
+                rangeEndBoundary = BoundaryType.INCLUSIVE;
+            }
+        }
+
+        final boolean inclusiveStart = rangeStartBoundary != BoundaryType.EXCLUSIVE;
+        final boolean inclusiveEnd = rangeEndBoundary != BoundaryType.EXCLUSIVE;
+
+        try {
+            return new LSMCursor<S>(this, mRepo.localTransactionScope(), mTree,
+                                    startBound, inclusiveStart,
+                                    endBound, inclusiveEnd,
+                                    codec.getPrimaryKeyPrefixLength(),
+                                    reverseOrder);
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return ControllerCursor.apply(fetchSubset(index,
+                                                  identityValues,
+                                                  rangeStartBoundary,
+                                                  rangeStartValue,
+                                                  rangeEndBoundary,
+                                                  rangeEndValue,
+                                                  reverseRange,
+                                                  reverseOrder),
+                                      controller);
+    }
+
+    private byte[] createBound(Object[] exactValues, byte[] exactKey, Object rangeValue,
+                               StorableCodec<S> codec) {
+        Object[] values = {rangeValue};
+        if (exactValues == null || exactValues.length == 0) {
+            return codec.encodePrimaryKey(values, 0, 1);
+        }
+
+        byte[] rangeKey = codec.encodePrimaryKey
+            (values, exactValues.length, exactValues.length + 1);
+        byte[] bound = new byte[exactKey.length + rangeKey.length];
+        System.arraycopy(exactKey, 0, bound, 0, exactKey.length);
+        System.arraycopy(rangeKey, 0, bound, exactKey.length, rangeKey.length);
+        return bound;
+    }
+
+    Layout getLayout(boolean readOnly, StorableCodecFactory codecFactory)
+        throws RepositoryException
+    {
+        if (Unevolvable.class.isAssignableFrom(getStorableType())) {
+            // Don't record generation for storables marked as unevolvable.
+            return null;
+        }
+
+        LayoutFactory factory;
+        try {
+            factory = mRepo.getLayoutFactory();
+        } catch (SupportException e) {
+            // Metadata repository does not support layout storables, so it
+            // cannot support generations.
+            return null;
+        }
+
+        Class<S> type = getStorableType();
+
+        // Layout is recorded by a separate thread, which must not wait for a
+        // write lock held by this thread.
+        mRepo.lendWriteLock();
+        try {
+            return factory.layoutFor(readOnly, type, codecFactory.getLayoutOptions(type));
+        } finally {
+            mRepo.stopLendingWriteLock();
+        }
+    }
+
+    S instantiate(byte[] key, byte[] value) throws FetchException {
+        return mCodec.instantiate(key, value);
+    }
+
+    /**
+     * @return null if not found
+     */
+    byte[] load(byte[] key) throws FetchException {
+        TransactionScope<LSMTransaction> scope = mRepo.localTransactionScope();
+        LSMTransaction txn = fetchTxn(scope);
+        if (txn == null) {
+            return mTree.get(key);
+        }
+        if (scope.isForUpdate()) {
+            txn.lockForUpdate();
+        }
+        return txn.load(mTree, key);
+    }
+
+    boolean tryInsert(byte[] key, byte[] value) throws PersistException {
+        TransactionScope<LSMTransaction> scope = mRepo.localTransactionScope();
+        LSMTransaction txn = persistTxn(scope);
+        if (txn == null) {
+            LSMLog.Batch batch = new LSMLog.Batch();
+            lockForWrite();
+            try {
+                if (mTree.get(key) != null) {
+                    return false;
+                }
+                batch.add(mTree, key, value);
+                mRepo.write(batch);
+            } finally {
+                mRepo.unlockFromWrite();
+            }
+            mRepo.sync(batch);
+        } else {
+            txn.lockForWrite();
+            if (txn.load(mTree, key) != null) {
+                return false;
+            }
+            txn.put(mTree, key, value);
+        }
+        return true;
+    }
+
+    void store(byte[] key, byte[] value) throws PersistException {
+        TransactionScope<LSMTransaction> scope = mRepo.localTransactionScope();
+        LSMTransaction txn = persistTxn(scope);
+        if (txn == null) {
+            LSMLog.Batch batch = new LSMLog.Batch();
+            batch.add(mTree, key, value);
+            lockForWrite();
+            try {
+                mRepo.write(batch);
+            } finally {
+                mRepo.unlockFromWrite();
+            }
+            mRepo.sync(batch);
+        } else {
+            txn.lockForWrite();
+            txn.put(mTree, key, value);
+        }
+    }
+
+    boolean tryDelete(byte[] key) throws PersistException {
+        TransactionScope<LSMTransaction> scope = mRepo.localTransactionScope();
+        LSMTransaction txn = persistTxn(scope);
+        if (txn == null) {
+            LSMLog.Batch batch = new LSMLog.Batch();
+            lockForWrite();
+            try {
+                if (mTree.get(key) == null) {
+                    return false;
+                }
+                batch.add(mTree, key, LSMTree.DELETED);
+                mRepo.write(batch);
+            } finally {
+                mRepo.unlockFromWrite();
+            }
+            mRepo.sync(batch);
+        } else {
+            txn.lockForWrite();
+            if (txn.load(mTree, key) == null) {
+                return false;
+            }
+            txn.put(mTree, key, LSMTree.DELETED);
+        }
+        return true;
+    }
+
+    private static LSMTransaction fetchTxn(TransactionScope<LSMTransaction> scope)
+        throws FetchException
+    {
+        try {
+            return scope.getTxn();
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    private static LSMTransaction persistTxn(TransactionScope<LSMTransaction> scope)
+        throws PersistException
+    {
+        try {
+            return scope.getTxn();
+        } catch (PersistException e) {
+            throw e;
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    /**
+     * Acquires the write lock for an auto-commit operation.
+     */
+    private void lockForWrite() throws PersistException {
+        int timeout = mRepo.getLockTimeout();
+        TimeUnit unit = mRepo.getLockTimeoutUnit();
+        try {
+            if (!mRepo.tryLockForWrite(timeout, unit)) {
+                throw new PersistTimeoutException
+                    ("" + timeout + ' ' + unit.toString().toLowerCase());
+            }
+        } catch (InterruptedException e) {
+            throw new PersistInterruptedException(e);
+        }
+    }
+
+    // Note: LSMStorage could just implement the RawSupport interface, but
+    // then these hidden methods would be public. A simple cast of Storage to
+    // RawSupport would expose them.
+    private class Support implements RawSupport<S> {
+        public Repository getRootRepository() {
+            return mRepo.getRootRepository();
+        }
+
+        public boolean isPropertySupported(String name) {
+            if (name == null) {
+                return false;
+            }
+            return StorableIntrospector.examine(mType).getAllProperties().containsKey(name);
+        }
+
+        public byte[] tryLoad(S storable, byte[] key) throws FetchException {
+            return load(key);
+        }
+
+        public boolean tryInsert(S storable, byte[] key, byte[] value) throws PersistException {
+            return LSMStorage.this.tryInsert(key, value);
+        }
+
+        public void store(S storable, byte[] key, byte[] value) throws PersistException {
+            LSMStorage.this.store(key, value);
+        }
+
+        public boolean tryDelete(S storable, byte[] key) throws PersistException {
+            return LSMStorage.this.tryDelete(key);
+        }
+
+        public Blob getBlob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mRepo.getLobEngine().getBlobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Blob blob) throws PersistException {
+            try {
+                return mRepo.getLobEngine().getLocator(blob);
+            } catch (ClassCastException e) {
+                throw new PersistException(e);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public Clob getClob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mRepo.getLobEngine().getClobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Clob clob) throws PersistException {
+            try {
+                return mRepo.getLobEngine().getLocator(clob);
+            } catch (ClassCastException e) {
+                throw new PersistException(e);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public void decode(S dest, int generation, byte[] data) throws CorruptEncodingException {
+            mCodec.decode(dest, generation, data);
+        }
+
+        public SequenceValueProducer getSequenceValueProducer(String name)
+            throws PersistException
+        {
+            try {
+                return mRepo.getSequenceValueProducer(name);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public Trigger<? super S> getInsertTrigger() {
+            return mTriggers.getInsertTrigger();
+        }
+
+        public Trigger<? super S> getUpdateTrigger() {
+            return mTriggers.getUpdateTrigger();
+        }
+
+        public Trigger<? super S> getDeleteTrigger() {
+            return mTriggers.getDeleteTrigger();
+        }
+
+        public Trigger<? super S> getLoadTrigger() {
+            return mTriggers.getLoadTrigger();
+        }
+
+        public void locallyDisableLoadTrigger() {
+            mTriggers.locallyDisableLoad();
+        }
+
+        public void locallyEnableLoadTrigger() {
+            mTriggers.locallyEnableLoad();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.FetchTimeoutException;
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PersistInterruptedException;
+import com.amazon.carbonado.PersistTimeoutException;
+
+/**
+ * Transaction which buffers its changes until it commits. Changes of nested
+ * transactions are passed to the parent when committed, and the top-level
+ * transaction writes all changes to the log as one batch.
+ *
+ * <p>Writers are serialized by a repository-wide write lock, which is
+ * acquired by the first modification and held until the top-level
+ * transaction exits. Serializable transactions acquire the lock when they
+ * begin, and so what they read cannot be changed by other threads until they
+ * exit. The lock is owned by the current thread, and so a top-level
+ * transaction entered while another is in progress can also write. The log
+ * is forced after the lock is released, allowing concurrent commits to share
+ * a single force of the log.
+ */
+class LSMTransaction {
+    private final LSMRepository mRepo;
+    private final LSMTransaction mParent;
+    private final LSMTransaction mRoot;
+    private final IsolationLevel mLevel;
+    private final int mLockTimeout;
+    private final TimeUnit mLockTimeoutUnit;
+
+    // Uncommitted changes made at this nesting level, per tree.
+    private Map<LSMTree, NavigableMap<byte[], byte[]>> mChanges;
+
+    // Only defined by top-level transaction.
+    private boolean mHasWriteLock;
+
+    LSMTransaction(LSMRepository repo, LSMTransaction parent, IsolationLevel level,
+                   int lockTimeout, TimeUnit lockTimeoutUnit)
+        throws FetchException
+    {
+        mRepo = repo;
+        mParent = parent;
+        mRoot = parent == null ? this : parent.mRoot;
+        mLevel = level;
+        mLockTimeout = lockTimeout;
+        mLockTimeoutUnit = lockTimeoutUnit;
+
+        if (level == IsolationLevel.SERIALIZABLE) {
+            lockForUpdate();
+        }
+    }
+
+    IsolationLevel getIsolationLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Returns true if the top-level transaction holds the write lock.
+     */
+    boolean hasWriteLock() {
+        return mRoot.mHasWriteLock;
+    }
+
+    /**
+     * Acquires the write lock for modifying, unless already held by the
+     * top-level transaction.
+     */
+    void lockForWrite() throws PersistException {
+        LSMTransaction root = mRoot;
+        if (!root.mHasWriteLock) {
+            try {
+                if (!mRepo.tryLockForWrite(mLockTimeout, mLockTimeoutUnit)) {
+                    throw new PersistTimeoutException("" + mLockTimeout + ' ' +
+                                                      mLockTimeoutUnit.toString().toLowerCase());
+                }
+            } catch (InterruptedException e) {
+                throw new PersistInterruptedException(e);
+            }
+            root.mHasWriteLock = true;
+        }
+    }
+
+    /**
+     * Acquires the write lock for reading with the intention of modifying,
+     * unless already held by the top-level transaction.
+     */
+    void lockForUpdate() throws FetchException {
+        LSMTransaction root = mRoot;
+        if (!root.mHasWriteLock) {
+            try {
+                if (!mRepo.tryLockForWrite(mLockTimeout, mLockTimeoutUnit)) {
+                    throw new FetchTimeoutException("" + mLockTimeout + ' ' +
+                                                    mLockTimeoutUnit.toString().toLowerCase());
+                }
+            } catch (InterruptedException e) {
+                throw new FetchInterruptedException(e);
+            }
+            root.mHasWriteLock = true;
+        }
+    }
+
+    /**
+     * Returns the value of the given key, as seen by this transaction.
+     *
+     * @return value, or null if not found
+     */
+    byte[] load(LSMTree tree, byte[] key) {
+        for (LSMTransaction txn = this; txn != null; txn = txn.mParent) {
+            Map<LSMTree, NavigableMap<byte[], byte[]>> changes = txn.mChanges;
+            if (changes != null) {
+                NavigableMap<byte[], byte[]> map = changes.get(tree);
+                if (map != null) {
+                    byte[] value = map.get(key);
+                    if (value != null) {
+                        return value == LSMTree.DELETED ? null : value;
+                    }
+                }
+            }
+        }
+        return tree.get(key);
+    }
+
+    /**
+     * Returns the layers of the given tree as seen by this transaction, which
+     * places uncommitted changes over the current version of the tree.
+     */
+    LSMTree.Layer[] layers(LSMTree tree) {
+        List<LSMTree.Layer> changeLayers = null;
+        for (LSMTransaction txn = this; txn != null; txn = txn.mParent) {
+            Map<LSMTree, NavigableMap<byte[], byte[]>> changes = txn.mChanges;
+            if (changes != null) {
+                NavigableMap<byte[], byte[]> map = changes.get(tree);
+                if (map != null) {
+                    if (changeLayers == null) {
+                        changeLayers = new ArrayList<LSMTree.Layer>(2);
+                    }
+                    changeLayers.add(new LSMTree.MapLayer(map));
+                }
+            }
+        }
+
+        LSMTree.Layer[] treeLayers = tree.getVersion().mLayers;
+        if (changeLayers == null) {
+            return treeLayers;
+        }
+
+        int size = changeLayers.size();
+        LSMTree.Layer[] layers = new LSMTree.Layer[size + treeLayers.length];
+        changeLayers.toArray(layers);
+        System.arraycopy(treeLayers, 0, layers, size, treeLayers.length);
+        return layers;
+    }
+
+    /**
+     * Records an uncommitted change. Caller must hold the write lock.
+     *
+     * @param value new value, or {@link LSMTree#DELETED}
+     */
+    void put(LSMTree tree, byte[] key, byte[] value) {
+        Map<LSMTree, NavigableMap<byte[], byte[]>> changes = mChanges;
+        if (changes == null) {
+            mChanges = changes = new LinkedHashMap<LSMTree, NavigableMap<byte[], byte[]>>();
+        }
+        NavigableMap<byte[], byte[]> map = changes.get(tree);
+        if (map == null) {
+            map = new TreeMap<byte[], byte[]>(LSMTree.COMPARATOR);
+            changes.put(tree, map);
+        }
+        map.put(key, value);
+    }
+
+    /**
+     * Discards uncommitted changes to a tree which was truncated, at all
+     * nesting levels.
+     */
+    void truncated(LSMTree tree) {
+        for (LSMTransaction txn = this; txn != null; txn = txn.mParent) {
+            if (txn.mChanges != null) {
+                txn.mChanges.remove(tree);
+            }
+        }
+    }
+
+    void commit() throws PersistException {
+        Map<LSMTree, NavigableMap<byte[], byte[]>> changes = mChanges;
+        mChanges = null;
+
+        LSMTransaction parent = mParent;
+
+        if (parent != null) {
+            // Pass changes to parent. Write lock, if any, is already held by
+            // the top-level transaction.
+            if (changes != null) {
+                for (Map.Entry<LSMTree, NavigableMap<byte[], byte[]>> entry
+                         : changes.entrySet())
+                {
+                    LSMTree tree = entry.getKey();
+                    for (Map.Entry<byte[], byte[]> change : entry.getValue().entrySet()) {
+                        parent.put(tree, change.getKey(), change.getValue());
+                    }
+                }
+            }
+            return;
+        }
+
+        LSMLog.Batch batch = null;
+        try {
+            if (changes != null) {
+                batch = new LSMLog.Batch();
+                for (Map.Entry<LSMTree, NavigableMap<byte[], byte[]>> entry
+                         : changes.entrySet())
+                {
+                    LSMTree tree = entry.getKey();
+                    for (Map.Entry<byte[], byte[]> change : entry.getValue().entrySet()) {
+                        batch.add(tree, change.getKey(), change.getValue());
+                    }
+                }
+                // Write while lock is still held, which prevents concurrent
+                // modifications of the same entries.
+                mRepo.write(batch);
+            }
+        } finally {
+            unlockFromWrite();
+        }
+
+        if (batch != null) {
+            mRepo.sync(batch);
+        }
+    }
+
+    void abort() {
+        mChanges = null;
+        if (mParent == null) {
+            unlockFromWrite();
+        }
+    }
+
+    private void unlockFromWrite() {
+        if (mHasWriteLock) {
+            mHasWriteLock = false;
+            mRepo.unlockFromWrite();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LSMTransaction {level=" + mLevel + ", nested=" + (mParent != null) + '}';
+    }
+}
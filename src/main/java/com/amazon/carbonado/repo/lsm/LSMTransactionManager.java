@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.txn.TransactionManager;
+
+/**
+ * This class is used for creating and completing LSM transactions.
+ */
+class LSMTransactionManager extends TransactionManager<LSMTransaction> {
+    private final LSMRepository mRepo;
+    private final int mLockTimeout;
+    private final TimeUnit mLockTimeoutUnit;
+
+    LSMTransactionManager(LSMRepository repo, int lockTimeout, TimeUnit lockTimeoutUnit) {
+        mRepo = repo;
+        mLockTimeout = lockTimeout;
+        mLockTimeoutUnit = lockTimeoutUnit;
+    }
+
+    @Override
+    protected IsolationLevel selectIsolationLevel(Transaction parent, IsolationLevel level) {
+        if (level == null) {
+            if (parent == null) {
+                return IsolationLevel.READ_COMMITTED;
+            }
+            return parent.getIsolationLevel();
+        }
+
+        switch (level) {
+        case NONE:
+            return IsolationLevel.NONE;
+        case READ_UNCOMMITTED:
+        case READ_COMMITTED:
+            return IsolationLevel.READ_COMMITTED;
+        case REPEATABLE_READ:
+        case SERIALIZABLE:
+            return IsolationLevel.SERIALIZABLE;
+        default:
+            // Not supported.
+            return null;
+        }
+    }
+
+    @Override
+    protected boolean supportsForUpdate() {
+        return true;
+    }
+
+    @Override
+    protected LSMTransaction createTxn(LSMTransaction parent, IsolationLevel level)
+        throws Exception
+    {
+        if (level == IsolationLevel.NONE) {
+            return null;
+        }
+        return new LSMTransaction(mRepo, parent, level, mLockTimeout, mLockTimeoutUnit);
+    }
+
+    @Override
+    protected LSMTransaction createTxn(LSMTransaction parent, IsolationLevel level,
+                                       int timeout, TimeUnit unit)
+        throws Exception
+    {
+        if (level == IsolationLevel.NONE) {
+            return null;
+        }
+        return new LSMTransaction(mRepo, parent, level, timeout, unit);
+    }
+
+    @Override
+    protected void attachNotification(LSMTransaction txn) {
+        if (txn != null && txn.hasWriteLock()) {
+            mRepo.writeLockAttached();
+        }
+    }
+
+    @Override
+    protected void detachNotification(LSMTransaction txn) {
+        // Lock might be held by an enclosing top-level transaction.
+        mRepo.writeLockDetached();
+    }
+
+    @Override
+    protected boolean commitTxn(LSMTransaction txn) throws PersistException {
+        txn.commit();
+        return false;
+    }
+
+    @Override
+    protected void abortTxn(LSMTransaction txn) throws PersistException {
+        txn.abort();
+    }
+}
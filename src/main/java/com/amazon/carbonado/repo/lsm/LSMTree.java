@@ -0,0 +1,343 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.amazon.carbonado.util.Comparators;
+
+/**
+ * Ordered map of encoded keys to encoded values, structured as a
+ * log-structured merge tree. Recent changes are held in a concurrent memtable,
+ * which is periodically frozen and flushed to an immutable {@link
+ * LSMSegment}. Reads merge the memtable, any frozen memtables and the
+ * segments, with newer entries hiding older ones.
+ *
+ * <p>The layers of the tree are described by an immutable {@link Version},
+ * which is replaced when a memtable is frozen or flushed, when segments are
+ * compacted and when the tree is truncated. Readers never block, and a reader
+ * which holds an older version continues to see a complete tree.
+ */
+class LSMTree {
+    /**
+     * Value which marks a deleted entry, compared by identity. Deleted
+     * entries hide older entries until they are compacted away.
+     */
+    static final byte[] DELETED = new byte[0];
+
+    static final Comparator<byte[]> COMPARATOR = Comparators.arrayComparator(byte[].class, true);
+
+    private static final LSMSegment[] NO_SEGMENTS = new LSMSegment[0];
+    private static final NavigableMap[] NO_MEMTABLES = new NavigableMap[0];
+
+    /**
+     * Creates a new empty memtable.
+     */
+    static NavigableMap<byte[], byte[]> newMemtable() {
+        return new ConcurrentSkipListMap<byte[], byte[]>(COMPARATOR);
+    }
+
+    /**
+     * Returns the value of the given key, searching layers in order.
+     *
+     * @return value, {@link #DELETED}, or null if no layer has the key
+     */
+    static byte[] get(Layer[] layers, byte[] key) {
+        for (Layer layer : layers) {
+            byte[] value = layer.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entry with the smallest key which is greater than the given
+     * key, or equal if inclusive. Deleted entries are skipped.
+     *
+     * @param key search key, or null for first entry
+     * @return key and value pair, or null if none
+     */
+    static byte[][] ceiling(Layer[] layers, byte[] key, boolean inclusive) {
+        while (true) {
+            // Layers are ordered newest first, and so the first layer to
+            // supply the smallest key supplies its current value.
+            Layer found = null;
+            byte[] foundKey = null;
+            for (Layer layer : layers) {
+                byte[] k = layer.ceilingKey(key, inclusive);
+                if (k != null && (foundKey == null || COMPARATOR.compare(k, foundKey) < 0)) {
+                    found = layer;
+                    foundKey = k;
+                }
+            }
+            if (found == null) {
+                return null;
+            }
+            byte[] value = found.get(foundKey);
+            if (value != null && value != DELETED) {
+                return new byte[][] {foundKey, value};
+            }
+            key = foundKey;
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Returns the entry with the largest key which is less than the given
+     * key, or equal if inclusive. Deleted entries are skipped.
+     *
+     * @param key search key, or null for last entry
+     * @return key and value pair, or null if none
+     */
+    static byte[][] floor(Layer[] layers, byte[] key, boolean inclusive) {
+        while (true) {
+            Layer found = null;
+            byte[] foundKey = null;
+            for (Layer layer : layers) {
+                byte[] k = layer.floorKey(key, inclusive);
+                if (k != null && (foundKey == null || COMPARATOR.compare(k, foundKey) > 0)) {
+                    found = layer;
+                    foundKey = k;
+                }
+            }
+            if (found == null) {
+                return null;
+            }
+            byte[] value = found.get(foundKey);
+            if (value != null && value != DELETED) {
+                return new byte[][] {foundKey, value};
+            }
+            key = foundKey;
+            inclusive = false;
+        }
+    }
+
+    private final String mName;
+    private volatile Version mVersion;
+
+    LSMTree(String name, LSMSegment[] segments) {
+        mName = name;
+        mVersion = new Version(newMemtable(), NO_MEMTABLES, segments);
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    Version getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns the value of the given key, or null if not found.
+     */
+    byte[] get(byte[] key) {
+        byte[] value = get(mVersion.mLayers, key);
+        return value == DELETED ? null : value;
+    }
+
+    /**
+     * Stores an entry into the memtable. Caller must prevent the version from
+     * changing concurrently.
+     *
+     * @param value new value or {@link #DELETED}
+     */
+    void put(byte[] key, byte[] value) {
+        mVersion.mMemtable.put(key, value);
+    }
+
+    /**
+     * Removes all entries. Caller must prevent the version from changing
+     * concurrently, except by flushing and compaction.
+     */
+    synchronized void truncate() {
+        mVersion = new Version(newMemtable(), NO_MEMTABLES, NO_SEGMENTS);
+    }
+
+    /**
+     * Freezes the memtable and replaces it with an empty one. Caller must
+     * prevent the version from changing concurrently, except by flushing and
+     * compaction.
+     *
+     * @return frozen memtables, oldest first, which includes any that
+     * previously failed to flush
+     */
+    synchronized NavigableMap<byte[], byte[]>[] freeze() {
+        Version v = mVersion;
+        NavigableMap<byte[], byte[]>[] frozen = v.mFrozen;
+        if (!v.mMemtable.isEmpty()) {
+            NavigableMap<byte[], byte[]>[] newFrozen = new NavigableMap[frozen.length + 1];
+            newFrozen[0] = v.mMemtable;
+            System.arraycopy(frozen, 0, newFrozen, 1, frozen.length);
+            mVersion = new Version(newMemtable(), newFrozen, v.mSegments);
+            frozen = newFrozen;
+        }
+
+        NavigableMap<byte[], byte[]>[] oldestFirst = new NavigableMap[frozen.length];
+        for (int i=0; i<frozen.length; i++) {
+            oldestFirst[i] = frozen[frozen.length - 1 - i];
+        }
+        return oldestFirst;
+    }
+
+    /**
+     * Replaces a frozen memtable with the segment it was flushed to. Memtables
+     * must be flushed oldest first.
+     *
+     * @return false if tree was truncated, and so segment isn't needed
+     */
+    synchronized boolean flushed(NavigableMap<byte[], byte[]> frozen, LSMSegment segment) {
+        Version v = mVersion;
+        NavigableMap<byte[], byte[]>[] oldFrozen = v.mFrozen;
+        int last = oldFrozen.length - 1;
+        if (last < 0 || oldFrozen[last] != frozen) {
+            return false;
+        }
+
+        NavigableMap<byte[], byte[]>[] newFrozen = new NavigableMap[last];
+        System.arraycopy(oldFrozen, 0, newFrozen, 0, last);
+
+        LSMSegment[] segments = v.mSegments;
+        if (segment != null) {
+            LSMSegment[] newSegments = new LSMSegment[segments.length + 1];
+            newSegments[0] = segment;
+            System.arraycopy(segments, 0, newSegments, 1, segments.length);
+            segments = newSegments;
+        }
+
+        mVersion = new Version(v.mMemtable, newFrozen, segments);
+        return true;
+    }
+
+    /**
+     * Replaces the given segments with the one they were compacted into.
+     *
+     * @param merged compacted segment, or null if all entries were deleted
+     * @return false if segments were changed concurrently, and so the
+     * compacted segment isn't needed
+     */
+    synchronized boolean compacted(LSMSegment[] segments, LSMSegment merged) {
+        Version v = mVersion;
+        if (v.mSegments != segments) {
+            return false;
+        }
+        mVersion = new Version(v.mMemtable, v.mFrozen,
+                               merged == null ? NO_SEGMENTS : new LSMSegment[] {merged});
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "LSMTree {name=" + mName + '}';
+    }
+
+    /**
+     * Ordered source of entries, which is searched for keys without holding
+     * any position.
+     */
+    static interface Layer {
+        /**
+         * @param key search key, or null for first key
+         * @return smallest key greater than (or equal to) the given key, or null
+         */
+        byte[] ceilingKey(byte[] key, boolean inclusive);
+
+        /**
+         * @param key search key, or null for last key
+         * @return largest key less than (or equal to) the given key, or null
+         */
+        byte[] floorKey(byte[] key, boolean inclusive);
+
+        /**
+         * @return value, {@link LSMTree#DELETED}, or null if not found
+         */
+        byte[] get(byte[] key);
+    }
+
+    /**
+     * Layer which is backed by a memtable or by uncommitted changes.
+     */
+    static class MapLayer implements Layer {
+        private final NavigableMap<byte[], byte[]> mMap;
+
+        MapLayer(NavigableMap<byte[], byte[]> map) {
+            mMap = map;
+        }
+
+        public byte[] ceilingKey(byte[] key, boolean inclusive) {
+            if (key == null) {
+                // Concurrent map might become empty, and so don't call firstKey.
+                Map.Entry<byte[], byte[]> first = mMap.firstEntry();
+                return first == null ? null : first.getKey();
+            }
+            return inclusive ? mMap.ceilingKey(key) : mMap.higherKey(key);
+        }
+
+        public byte[] floorKey(byte[] key, boolean inclusive) {
+            if (key == null) {
+                Map.Entry<byte[], byte[]> last = mMap.lastEntry();
+                return last == null ? null : last.getKey();
+            }
+            return inclusive ? mMap.floorKey(key) : mMap.lowerKey(key);
+        }
+
+        public byte[] get(byte[] key) {
+            return mMap.get(key);
+        }
+    }
+
+    /**
+     * Immutable description of the layers of a tree.
+     */
+    static class Version {
+        final NavigableMap<byte[], byte[]> mMemtable;
+        // Frozen memtables which are not yet flushed, newest first.
+        final NavigableMap<byte[], byte[]>[] mFrozen;
+        // Segments, newest first.
+        final LSMSegment[] mSegments;
+        // All layers, newest first.
+        final Layer[] mLayers;
+
+        Version(NavigableMap<byte[], byte[]> memtable,
+                NavigableMap<byte[], byte[]>[] frozen,
+                LSMSegment[] segments)
+        {
+            mMemtable = memtable;
+            mFrozen = frozen;
+            mSegments = segments;
+
+            Layer[] layers = new Layer[1 + frozen.length + segments.length];
+            int i = 0;
+            layers[i++] = new MapLayer(memtable);
+            for (NavigableMap<byte[], byte[]> map : frozen) {
+                layers[i++] = new MapLayer(map);
+            }
+            for (LSMSegment segment : segments) {
+                layers[i++] = segment;
+            }
+            mLayers = layers;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository-wide write lock, which is owned by a thread. A thread which
+ * owns the lock can acquire it again, such that a top-level transaction
+ * entered while another is in progress, as done by sequence generators, does
+ * not wait on itself. Each acquisition must be released once, and releasing
+ * doesn't need to be performed by the owner.
+ *
+ * <p>When a transaction which holds the lock is detached, the thread no
+ * longer owns it. Attaching the transaction to a thread makes that thread
+ * the owner.
+ *
+ * <p>The owner can also lend the lock to threads it starts, which is
+ * required when layout metadata is recorded by a separate thread.
+ */
+class LSMWriteLock {
+    private final InheritableThreadLocal<Thread> mLender =
+        new InheritableThreadLocal<Thread>();
+
+    private Thread mOwner;
+    private int mHolds;
+
+    /**
+     * @return false if timed out
+     */
+    synchronized boolean tryLock(int timeout, TimeUnit unit) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        if (mHolds > 0 && mOwner != current && !isBorrower()) {
+            long nanos = unit.toNanos(timeout);
+            long end = System.nanoTime() + nanos;
+            do {
+                if (nanos <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, nanos);
+                nanos = end - System.nanoTime();
+            } while (mHolds > 0);
+        }
+        if (mHolds == 0) {
+            mOwner = current;
+        }
+        mHolds++;
+        return true;
+    }
+
+    synchronized void unlock() {
+        if (mHolds <= 0) {
+            throw new IllegalMonitorStateException();
+        }
+        if (--mHolds == 0) {
+            mOwner = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Allows threads started by the current thread to acquire the lock while
+     * the current thread owns it, until {@link #stopLending} is called.
+     */
+    void lend() {
+        mLender.set(Thread.currentThread());
+    }
+
+    void stopLending() {
+        mLender.remove();
+    }
+
+    /**
+     * Called when a transaction which holds the lock is detached from the
+     * current thread.
+     */
+    synchronized void detached() {
+        if (mOwner == Thread.currentThread()) {
+            mOwner = null;
+        }
+    }
+
+    /**
+     * Called when a transaction which holds the lock is attached to the
+     * current thread.
+     */
+    synchronized void attached() {
+        if (mHolds > 0) {
+            mOwner = Thread.currentThread();
+        }
+    }
+
+    private boolean isBorrower() {
+        Thread lender = mLender.get();
+        return lender != null && lender == mOwner;
+    }
+}
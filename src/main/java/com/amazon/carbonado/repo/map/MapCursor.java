@@ -20,6 +20,8 @@ package com.amazon.carbonado.repo.map;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -46,11 +48,17 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
     private final MapTransaction mTxn;
     private final boolean mIsForUpdate;
 
-    private volatile Iterator<S> mIterator;
+    // Is null if locks are held instead.
+    private final MapVersions.Snapshot mSnapshot;
+
+    private volatile Iterator<Map.Entry<Key<S>, S>> mIterator;
+
+    // Next visible value, not copied yet.
+    private S mNext;
 
     MapCursor(MapStorage<S> storage,
               TransactionScope<MapTransaction> scope,
-              Iterable<S> iterable)
+              NavigableMap<Key<S>, S> map)
         throws Exception
     {
         MapTransaction txn = scope.getTxn();
@@ -59,28 +67,32 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
         mScope = scope;
         mTxn = txn;
 
-        if (txn == null) {
-            mStorage.mLock.lockForRead(scope);
+        if ((mSnapshot = storage.readSnapshot(scope, txn)) != null) {
+            mIsForUpdate = false;
+        } else if (txn == null) {
+            mStorage.lockAllForRead(scope);
             mIsForUpdate = false;
         } else {
             // Since lock is so coarse, all reads in transaction scope are
             // upgrade to avoid deadlocks.
-            txn.lockForUpgrade(mStorage.mLock, mIsForUpdate = scope.isForUpdate());
+            txn.lockForUpgrade(mStorage.mLocks, mIsForUpdate = scope.isForUpdate());
         }
 
         scope.register(storage.getStorableType(), this);
-        mIterator = iterable.iterator();
+        mIterator = map.entrySet().iterator();
     }
 
     public void close() {
-        Iterator<S> it = mIterator;
+        Iterator<Map.Entry<Key<S>, S>> it = mIterator;
         if (it != null) {
             if (cIteratorRef.compareAndSet(this, it, null)) {
-                UpgradableLock lock = mStorage.mLock;
-                if (mTxn == null) {
-                    lock.unlockFromRead(mScope);
+                mNext = null;
+                if (mSnapshot != null) {
+                    mSnapshot.release();
+                } else if (mTxn == null) {
+                    mStorage.unlockAllFromRead(mScope);
                 } else {
-                    mTxn.unlockFromUpgrade(lock, mIsForUpdate);
+                    mTxn.unlockFromUpgrade(mStorage.mLocks, mIsForUpdate);
                 }
                 mScope.unregister(mStorage.getStorableType(), this);
             }
@@ -88,13 +100,22 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
     }
 
     public boolean hasNext() throws FetchException {
-        Iterator<S> it = mIterator;
+        if (mNext != null) {
+            return true;
+        }
+        Iterator<Map.Entry<Key<S>, S>> it = mIterator;
         try {
-            if (it != null && it.hasNext()) {
-                return true;
-            } else {
-                close();
+            if (it != null) {
+                while (it.hasNext()) {
+                    Map.Entry<Key<S>, S> entry = it.next();
+                    S next = mStorage.resolve(mSnapshot, entry.getKey(), entry.getValue());
+                    if (next != null) {
+                        mNext = next;
+                        return true;
+                    }
+                }
             }
+            close();
             return false;
         } catch (ConcurrentModificationException e) {
             close();
@@ -110,20 +131,17 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
     }
 
     public S next() throws FetchException {
-        Iterator<S> it = mIterator;
-        if (it == null) {
+        if (!hasNext()) {
             close();
             throw new NoSuchElementException();
         }
         try {
-            S next = mStorage.copyAndFireLoadTrigger(it.next());
+            S next = mStorage.copyAndFireLoadTrigger(mNext);
+            mNext = null;
             if (!hasNext()) {
                 close();
             }
             return next;
-        } catch (ConcurrentModificationException e) {
-            close();
-            throw new FetchException(e);
         } catch (Error e) {
             try {
                 close();
@@ -146,25 +164,9 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
         // Skip over entries without copying them.
 
         int count = 0;
-        Iterator<S> it = mIterator;
-
-        if (it != null) {
-            try {
-                while (--amount >= 0 && it.hasNext()) {
-                    it.next();
-                    count++;
-                }
-            } catch (ConcurrentModificationException e) {
-                close();
-                throw new FetchException(e);
-            } catch (Error e) {
-                try {
-                    close();
-                } catch (Error e2) {
-                    // Ignore.
-                }
-                throw e;
-            }
+        while (--amount >= 0 && hasNext()) {
+            mNext = null;
+            count++;
         }
 
         return count;
@@ -18,10 +18,16 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.ref.WeakReference;
+
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryException;
@@ -57,20 +63,52 @@ class MapRepository extends AbstractRepository<MapTransaction>
     private final boolean mIsMaster;
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
+    private final int mLockStripeCount;
+    private final MapVersions mVersions;
+    private final boolean mOffHeap;
+    // Are null if repository is volatile.
+    private final File mDataHome;
+    private final OffHeapCommitLog mCommitLog;
 
     final Iterable<TriggerFactory> mTriggerFactories;
     private final MapTransactionManager mTxnManager;
     private LobEngine mLobEngine;
 
-    MapRepository(AtomicReference<Repository> rootRef, MapRepositoryBuilder builder) {
+    private Checkpointer mCheckpointer;
+
+    MapRepository(AtomicReference<Repository> rootRef, MapRepositoryBuilder builder)
+        throws RepositoryException
+    {
         super(builder.getName());
         mRootRef = rootRef;
         mIsMaster = builder.isMaster();
         mLockTimeout = builder.getLockTimeout();
         mLockTimeoutUnit = builder.getLockTimeoutUnit();
+        mLockStripeCount = builder.getLockStripeCount();
+        mVersions = builder.isMultiversion() ? new MapVersions() : null;
+        mDataHome = builder.getDataHomeFile();
+        mOffHeap = builder.isOffHeap() || mDataHome != null;
+
+        if (mDataHome == null) {
+            mCommitLog = null;
+        } else {
+            try {
+                if (!mDataHome.isDirectory() && !mDataHome.mkdirs()) {
+                    throw new IOException("Unable to create directory: " + mDataHome);
+                }
+                mCommitLog = new OffHeapCommitLog(new File(mDataHome, "commit.log"));
+            } catch (IOException e) {
+                throw new RepositoryException("Unable to open repository: " + mDataHome, e);
+            }
+        }
 
         mTriggerFactories = builder.getTriggerFactories();
-        mTxnManager = new MapTransactionManager(mLockTimeout, mLockTimeoutUnit);
+        mTxnManager = new MapTransactionManager(mLockTimeout, mLockTimeoutUnit, mVersions);
+
+        if (mDataHome != null && builder.getCheckpointInterval() > 0) {
+            mCheckpointer = new Checkpointer(this, builder.getCheckpointInterval());
+            mCheckpointer.start();
+        }
     }
 
     public Repository getRootRepository() {
@@ -86,7 +124,11 @@ class MapRepository extends AbstractRepository<MapTransaction>
     public <S extends Storable> IndexInfo[] getIndexInfo(Class<S> storableType)
         throws RepositoryException
     {
-        return ((MapStorage) storageFor(storableType)).getIndexInfo();
+        Storage<S> storage = storageFor(storableType);
+        if (storage instanceof OffHeapStorage) {
+            return ((OffHeapStorage) storage).getIndexInfo();
+        }
+        return ((MapStorage) storage).getIndexInfo();
     }
 
     @Override
@@ -94,6 +136,43 @@ class MapRepository extends AbstractRepository<MapTransaction>
         close();
     }
 
+    @Override
+    protected void shutdownHook() {
+        if (mCheckpointer != null) {
+            mCheckpointer.interrupt();
+            try {
+                mCheckpointer.join();
+            } catch (InterruptedException e) {
+            }
+            mCheckpointer = null;
+        }
+
+        if (mDataHome != null) {
+            for (Storage storage : allStorage()) {
+                if (storage instanceof OffHeapStorage) {
+                    OffHeapStorage offHeap = (OffHeapStorage) storage;
+                    try {
+                        offHeap.checkpoint();
+                    } catch (Throwable e) {
+                        LogFactory.getLog(MapRepository.class)
+                            .error("Failed to checkpoint " + storage.getStorableType(), e);
+                    }
+                    try {
+                        offHeap.close();
+                    } catch (Throwable e) {
+                        LogFactory.getLog(MapRepository.class)
+                            .error("Failed to close " + storage.getStorableType(), e);
+                    }
+                }
+            }
+            try {
+                mCommitLog.close();
+            } catch (Throwable e) {
+                LogFactory.getLog(MapRepository.class).error("Failed to close commit log", e);
+            }
+        }
+    }
+
     @Override
     protected Log getLog() {
         return null;
@@ -113,7 +192,12 @@ class MapRepository extends AbstractRepository<MapTransaction>
     protected <S extends Storable> Storage<S> createStorage(Class<S> type)
         throws RepositoryException
     {
-        return new MapStorage<S>(this, type, mLockTimeout, mLockTimeoutUnit);
+        if (mOffHeap) {
+            return new OffHeapStorage<S>(this, type, mLockTimeout, mLockTimeoutUnit,
+                                         mLockStripeCount, mDataHome);
+        }
+        return new MapStorage<S>(this, type, mLockTimeout, mLockTimeoutUnit,
+                                 mLockStripeCount, mVersions);
     }
 
     @Override
@@ -133,4 +217,66 @@ class MapRepository extends AbstractRepository<MapTransaction>
     boolean isMaster() {
         return mIsMaster;
     }
+
+    /**
+     * Returns the log which makes commits to several persistent storages
+     * atomic, or null if repository is volatile.
+     */
+    OffHeapCommitLog getCommitLog() {
+        return mCommitLog;
+    }
+
+    /**
+     * Writes snapshots of all persistent storages which have changed.
+     */
+    void checkpoint() throws IOException {
+        for (Storage storage : allStorage()) {
+            if (storage instanceof OffHeapStorage) {
+                ((OffHeapStorage) storage).checkpoint();
+            }
+        }
+    }
+
+    private static class Checkpointer extends Thread {
+        private final WeakReference<MapRepository> mRepository;
+        private final long mSleepInterval;
+
+        /**
+         * @param repository outer class
+         * @param sleepInterval milliseconds to sleep before running checkpoint
+         */
+        Checkpointer(MapRepository repository, long sleepInterval) {
+            super(repository.getClass().getSimpleName() + " checkpointer (" +
+                  repository.getName() + ')');
+            setDaemon(true);
+            mRepository = new WeakReference<MapRepository>(repository);
+            mSleepInterval = sleepInterval;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    Thread.sleep(mSleepInterval);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                MapRepository repository = mRepository.get();
+                if (repository == null) {
+                    break;
+                }
+
+                try {
+                    repository.checkpoint();
+                } catch (ThreadDeath e) {
+                    break;
+                } catch (Throwable e) {
+                    LogFactory.getLog(MapRepository.class).error("Checkpoint failed", e);
+                }
+
+                repository = null;
+            }
+        }
+    }
 }
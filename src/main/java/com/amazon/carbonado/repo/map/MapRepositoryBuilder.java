@@ -18,9 +18,15 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Collection;
+
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.TimeUnit;
 
+import com.amazon.carbonado.ConfigurationException;
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryException;
 
@@ -35,10 +41,33 @@ import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
  * transactions, loads and queries always acquire upgradable locks, to reduce
  * the likelihood of deadlock.
  *
+ * <p>Locks can be made finer by {@link #setLockStripeCount striping} them by
+ * primary key hash. Loads and modifications of a single storable then only
+ * acquire the stripe for its key, allowing concurrent writers to proceed in
+ * parallel. Queries still acquire all stripes.
+ *
+ * <p>When {@link #setMultiversion multiversion} concurrency control is
+ * enabled, auto-commit reads and non-update reads within read committed and
+ * snapshot transactions don't acquire any locks. Instead, they see a
+ * consistent snapshot of the repository, and writers are not blocked.
+ *
  * <p>This repository supports transactions, which also may be
  * nested. Supported isolation levels are read committed and serializable. Read
  * uncommitted is promoted to read committed, and repeatable read is promoted
- * to serializable.
+ * to serializable. If multiversion concurrency control is enabled, snapshot
+ * isolation is also supported, and repeatable read is promoted to snapshot.
+ *
+ * <p>When {@link #setOffHeap off-heap} storage is enabled, storables are kept
+ * in their encoded form, with values held in direct buffers outside the Java
+ * heap. This reduces garbage collection overhead for large data sets, at the
+ * cost of decoding storables as they are loaded.
+ *
+ * <p>If a {@link #setDataHome data home} directory is set, off-heap storage is
+ * made persistent. Committed changes are appended to a log, and each storage
+ * is periodically written to a snapshot file. When the repository is opened
+ * again, snapshots are mapped into memory, and so reopening a large
+ * repository doesn't require reloading it row by row. Storable definitions
+ * must not be changed while persistent files exist.
  *
  * <p>
  * The following extra capabilities are supported:
@@ -73,6 +102,11 @@ public class MapRepositoryBuilder extends AbstractRepositoryBuilder {
     private boolean mIndexSupport = true;
     private int mLockTimeout;
     private TimeUnit mLockTimeoutUnit;
+    private int mLockStripeCount = 1;
+    private boolean mMultiversion;
+    private boolean mOffHeap;
+    private File mDataHome;
+    private int mCheckpointInterval = 60000;
 
     public MapRepositoryBuilder() {
         setLockTimeoutMillis(500);
@@ -148,4 +182,139 @@ public class MapRepositoryBuilder extends AbstractRepositoryBuilder {
     public TimeUnit getLockTimeoutUnit() {
         return mLockTimeoutUnit;
     }
+
+    /**
+     * Set the number of lock stripes used by each storage, which is rounded
+     * up to a power of two. Default value is 1, which locks the entire
+     * storage. Larger values allow concurrent modifications of different
+     * storables, but queries must acquire all stripes.
+     */
+    public void setLockStripeCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException();
+        }
+        mLockStripeCount = count;
+    }
+
+    /**
+     * Returns the number of lock stripes used by each storage.
+     */
+    public int getLockStripeCount() {
+        return mLockStripeCount;
+    }
+
+    /**
+     * Set true to enable multiversion concurrency control (MVCC). This enables
+     * snapshot isolation, and reads which don't block writers. Prior versions
+     * of storables are retained only as long as an open snapshot can see them.
+     */
+    public void setMultiversion(boolean multiversion) {
+        mMultiversion = multiversion;
+    }
+
+    /**
+     * Returns false by default because multiversion concurrency control (MVCC)
+     * is not enabled.
+     */
+    public boolean isMultiversion() {
+        return mMultiversion;
+    }
+
+    /**
+     * Set true to store encoded storables in direct buffers, outside the Java
+     * heap. Only encoded primary keys are kept in the heap. Off-heap storage
+     * cannot be combined with multiversion concurrency control.
+     */
+    public void setOffHeap(boolean offHeap) {
+        mOffHeap = offHeap;
+    }
+
+    /**
+     * Returns false by default because storables are kept in the Java heap.
+     */
+    public boolean isOffHeap() {
+        return mOffHeap;
+    }
+
+    /**
+     * Set the directory which stores persistent snapshots and logs. Setting a
+     * data home implicitly enables off-heap storage. By default, the
+     * repository is volatile.
+     */
+    public void setDataHomeFile(File dir) {
+        if (dir != null) {
+            try {
+                // Switch to canonical for more detailed error messages.
+                dir = dir.getCanonicalFile();
+            } catch (IOException e) {
+            }
+        }
+        mDataHome = dir;
+    }
+
+    /**
+     * Returns the directory which stores persistent files, or null if the
+     * repository is volatile.
+     */
+    public File getDataHomeFile() {
+        return mDataHome;
+    }
+
+    /**
+     * Set the directory which stores persistent snapshots and logs. Setting a
+     * data home implicitly enables off-heap storage. By default, the
+     * repository is volatile.
+     */
+    public void setDataHome(String dir) {
+        if (dir == null) {
+            mDataHome = null;
+        } else {
+            setDataHomeFile(new File(dir));
+        }
+    }
+
+    /**
+     * Returns the directory which stores persistent files, or null if the
+     * repository is volatile.
+     */
+    public String getDataHome() {
+        return mDataHome == null ? null : mDataHome.getPath();
+    }
+
+    /**
+     * Set the interval to write snapshots of persistent storages. A storage
+     * is not written if it hasn't changed since its last snapshot. Snapshots
+     * are also written when the repository is closed. Default value is one
+     * minute.
+     *
+     * @param intervalMillis interval between checkpoints, in milliseconds;
+     * zero only writes snapshots when the repository is closed
+     */
+    public void setCheckpointInterval(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException();
+        }
+        mCheckpointInterval = intervalMillis;
+    }
+
+    /**
+     * @return interval between checkpoints, in milliseconds
+     */
+    public int getCheckpointInterval() {
+        return mCheckpointInterval;
+    }
+
+    @Override
+    public void errorCheck(Collection<String> messages) throws ConfigurationException {
+        super.errorCheck(messages);
+        if (mMultiversion) {
+            if (mDataHome != null) {
+                messages.add("persistent storage doesn't support " +
+                             "multiversion concurrency control");
+            } else if (mOffHeap) {
+                messages.add("off-heap storage doesn't support " +
+                             "multiversion concurrency control");
+            }
+        }
+    }
 }
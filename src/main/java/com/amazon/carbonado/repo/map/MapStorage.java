@@ -19,6 +19,7 @@
 package com.amazon.carbonado.repo.map;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,6 +34,7 @@ import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchInterruptedException;
 import com.amazon.carbonado.FetchTimeoutException;
+import com.amazon.carbonado.OptimisticLockException;
 import com.amazon.carbonado.PersistException;
 import com.amazon.carbonado.PersistInterruptedException;
 import com.amazon.carbonado.PersistTimeoutException;
@@ -111,19 +113,30 @@ class MapStorage<S extends Storable>
     private final Key.Assigner<S> mKeyAssigner;
 
     /**
-     * Simple lock which is reentrant for transactions, but auto-commit does not
-     * need to support reentrancy. Read lock requests in transactions can starve
-     * write lock requests, but auto-commit cannot cause starvation. In practice
-     * starvation is not possible since transactions always lock for upgrade.
+     * Simple locks which are reentrant for transactions, but auto-commit does
+     * not need to support reentrancy. Read lock requests in transactions can
+     * starve write lock requests, but auto-commit cannot cause starvation. In
+     * practice starvation is not possible since transactions always lock for
+     * upgrade.
+     *
+     * <p>Operations against a single key only acquire the lock stripe which
+     * the key hashes to. Operations which span the whole map acquire all
+     * stripes, in order. With just one stripe, the lock is coarse, much like a
+     * table lock.
      */
-    final UpgradableLock<Object> mLock = new UpgradableLock<Object>() {
-        @Override
-        protected boolean isReadLockHeld(Object locker) {
-            return locker instanceof MapTransaction;
-        }
-    };
+    final UpgradableLock<Object>[] mLocks;
+
+    // Primary key property names, used for selecting a lock stripe.
+    private final String[] mPkPropertyNames;
 
-    MapStorage(MapRepository repo, Class<S> type, int lockTimeout, TimeUnit lockTimeoutUnit)
+    // Fields are null if multiversion concurrency control is disabled.
+    private final MapVersions mVersions;
+    private final ConcurrentNavigableMap<Key<S>, MapVersions.Chain<S>> mHistory;
+    // Replaces deleted storables in the map until no snapshot can see them.
+    private final S mTombstone;
+
+    MapStorage(MapRepository repo, Class<S> type, int lockTimeout, TimeUnit lockTimeoutUnit,
+               int lockStripeCount, MapVersions versions)
         throws SupportException
     {
         mRepo = repo;
@@ -163,6 +176,32 @@ class MapStorage<S extends Storable>
 
         mKeyAssigner = Key.getAssigner(type);
 
+        {
+            int count = 1;
+            while (count < lockStripeCount) {
+                count <<= 1;
+            }
+            mLocks = new UpgradableLock[count];
+            for (int i=0; i<count; i++) {
+                mLocks[i] = newLock();
+            }
+        }
+
+        mVersions = versions;
+        if (versions == null) {
+            mHistory = null;
+            mTombstone = null;
+        } else {
+            mHistory = new ConcurrentSkipListMap<Key<S>, MapVersions.Chain<S>>();
+            mTombstone = prepare();
+        }
+
+        mPkPropertyNames = new String[propList.size()];
+        for (int i=0; i<mPkPropertyNames.length; i++) {
+            mPkPropertyNames[i] =
+                propList.get(i).getChainedProperty().getPrimeProperty().getName();
+        }
+
         try {
             if (LobEngine.hasLobs(type)) {
                 Trigger<S> lobTrigger = repo.getLobEngine()
@@ -204,16 +243,18 @@ class MapStorage<S extends Storable>
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
             if (txn == null) {
-                doLockForWrite(scope);
+                doLockAllForWrite(scope);
                 try {
                     mMap.clear();
+                    discardHistory();
                 } finally {
-                    mLock.unlockFromWrite(scope);
+                    unlockAllFromWrite(scope);
                 }
             } else {
-                txn.lockForWrite(mLock);
+                txn.lockForWrite(mLocks);
                 // Non-transactional truncate. (is not added to undo log)
                 mMap.clear();
+                discardHistory();
             }
         } catch (PersistException e) {
             throw e;
@@ -254,22 +295,31 @@ class MapStorage<S extends Storable>
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            MapVersions.Snapshot snapshot = readSnapshot(scope, txn);
+            if (snapshot != null) {
+                try {
+                    return doTryLoadNoLock(storable, snapshot);
+                } finally {
+                    snapshot.release();
+                }
+            }
+            UpgradableLock<Object> lock = lockFor(storable);
             if (txn == null) {
-                doLockForRead(scope);
+                doLockForRead(lock, scope);
                 try {
-                    return doTryLoadNoLock(storable);
+                    return doTryLoadNoLock(storable, null);
                 } finally {
-                    mLock.unlockFromRead(scope);
+                    lock.unlockFromRead(scope);
                 }
             } else {
                 // Since lock is so coarse, all reads in transaction scope are
                 // upgrade to avoid deadlocks.
                 final boolean isForUpdate = scope.isForUpdate();
-                txn.lockForUpgrade(mLock, isForUpdate);
+                txn.lockForUpgrade(lock, isForUpdate);
                 try {
-                    return doTryLoadNoLock(storable);
+                    return doTryLoadNoLock(storable, null);
                 } finally {
-                    txn.unlockFromUpgrade(mLock, isForUpdate);
+                    txn.unlockFromUpgrade(lock, isForUpdate);
                 }
             }
         } catch (FetchException e) {
@@ -279,9 +329,9 @@ class MapStorage<S extends Storable>
         }
     }
 
-    // Caller must hold lock.
-    boolean doTryLoadNoLock(S storable) {
-        S existing = mMap.get(new Key<S>(storable, mFullComparator));
+    // Caller must hold lock or pass a snapshot.
+    private boolean doTryLoadNoLock(S storable, MapVersions.Snapshot snapshot) {
+        S existing = get(new Key<S>(storable, mFullComparator), snapshot);
         if (existing == null) {
             return false;
         } else {
@@ -296,19 +346,31 @@ class MapStorage<S extends Storable>
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(storable);
             if (txn == null) {
                 // No need to acquire full write lock since map is concurrent
                 // and existing storable (if any) is not being
                 // modified. Upgrade lock is required because a concurrent
                 // transaction might be in progress, and so insert should wait.
-                doLockForUpgrade(scope);
+                doLockForUpgrade(lock, scope);
                 try {
-                    return doTryInsertNoLock(storable);
+                    if (mVersions == null) {
+                        return doTryInsertNoLock(storable);
+                    }
+                    MapVersions.Stamp stamp = new MapVersions.Stamp();
+                    try {
+                        return doTryInsertNoLock(storable, null, stamp);
+                    } finally {
+                        mVersions.commit(stamp);
+                    }
                 } finally {
-                    mLock.unlockFromUpgrade(scope);
+                    lock.unlockFromUpgrade(scope);
                 }
             } else {
-                txn.lockForWrite(mLock);
+                txn.lockForWrite(lock);
+                if (mVersions != null) {
+                    return doTryInsertNoLock(storable, txn, txn.stamp());
+                }
                 if (doTryInsertNoLock(storable)) {
                     txn.inserted(this, storable);
                     return true;
@@ -341,23 +403,53 @@ class MapStorage<S extends Storable>
         return true;
     }
 
+    // Caller must hold upgrade or write lock.
+    private boolean doTryInsertNoLock(S storable, MapTransaction txn, MapVersions.Stamp stamp)
+        throws PersistException
+    {
+        // Create a fresh copy to ensure that custom fields are not saved.
+        S copy = (S) storable.prepare();
+        storable.copyAllProperties(copy);
+        copy.markAllPropertiesClean();
+        Key<S> key = new Key<S>(copy, mFullComparator);
+        S prior = mMap.get(key);
+        if (prior != null && prior != mTombstone) {
+            return false;
+        }
+        modify(key, prior, null, copy, txn, stamp);
+        storable.markAllPropertiesClean();
+        return true;
+    }
+
     public boolean doTryUpdate(S storable) throws PersistException {
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(storable);
             if (txn == null) {
                 // Full write lock is required since existing storable is being
                 // modified. Readers cannot be allowed to see modifications
                 // until they are complete. In addtion, a concurrent
                 // transaction might be in progress, and so update should wait.
-                doLockForWrite(scope);
+                doLockForWrite(lock, scope);
                 try {
-                    return doTryUpdateNoLock(storable);
+                    if (mVersions == null) {
+                        return doTryUpdateNoLock(storable);
+                    }
+                    MapVersions.Stamp stamp = new MapVersions.Stamp();
+                    try {
+                        return doTryUpdateNoLock(storable, null, stamp);
+                    } finally {
+                        mVersions.commit(stamp);
+                    }
                 } finally {
-                    mLock.unlockFromWrite(scope);
+                    lock.unlockFromWrite(scope);
                 }
             } else {
-                txn.lockForWrite(mLock);
+                txn.lockForWrite(lock);
+                if (mVersions != null) {
+                    return doTryUpdateNoLock(storable, txn, txn.stamp());
+                }
                 S existing = mMap.get(new Key<S>(storable, mFullComparator));
                 if (existing == null) {
                     return false;
@@ -405,23 +497,61 @@ class MapStorage<S extends Storable>
         }
     }
 
+    // Caller must hold write lock.
+    private boolean doTryUpdateNoLock(S storable, MapTransaction txn, MapVersions.Stamp stamp)
+        throws PersistException
+    {
+        S existing = mMap.get(new Key<S>(storable, mFullComparator));
+        if (existing == null || existing == mTombstone) {
+            return false;
+        }
+
+        // Existing object cannot be modified, since snapshots might be
+        // reading it concurrently. Modify a copy instead.
+        S updated = (S) existing.copy();
+        updated.markAllPropertiesDirty();
+        storable.copyDirtyProperties(updated);
+        updated.markAllPropertiesClean();
+
+        modify(new Key<S>(updated, mFullComparator), existing, existing, updated, txn, stamp);
+
+        // Copy all values to user object, to simulate a reload.
+        storable.markAllPropertiesDirty();
+        updated.copyAllProperties(storable);
+        storable.markAllPropertiesClean();
+
+        return true;
+    }
+
     public boolean doTryDelete(S storable) throws PersistException {
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(storable);
             if (txn == null) {
                 // No need to acquire full write lock since map is concurrent
                 // and existing storable (if any) is not being
                 // modified. Upgrade lock is required because a concurrent
                 // transaction might be in progress, and so delete should wait.
-                doLockForUpgrade(scope);
+                doLockForUpgrade(lock, scope);
                 try {
-                    return doTryDeleteNoLock(storable);
+                    if (mVersions == null) {
+                        return doTryDeleteNoLock(storable);
+                    }
+                    MapVersions.Stamp stamp = new MapVersions.Stamp();
+                    try {
+                        return doTryDeleteNoLock(storable, null, stamp);
+                    } finally {
+                        mVersions.commit(stamp);
+                    }
                 } finally {
-                    mLock.unlockFromUpgrade(scope);
+                    lock.unlockFromUpgrade(scope);
                 }
             } else {
-                txn.lockForWrite(mLock);
+                txn.lockForWrite(lock);
+                if (mVersions != null) {
+                    return doTryDeleteNoLock(storable, txn, txn.stamp());
+                }
                 S existing = mMap.remove(new Key<S>(storable, mFullComparator));
                 if (existing == null) {
                     return false;
@@ -444,6 +574,145 @@ class MapStorage<S extends Storable>
         return mMap.remove(new Key<S>(storable, mFullComparator)) != null;
     }
 
+    // Caller must hold upgrade or write lock.
+    private boolean doTryDeleteNoLock(S storable, MapTransaction txn, MapVersions.Stamp stamp)
+        throws PersistException
+    {
+        S existing = mMap.get(new Key<S>(storable, mFullComparator));
+        if (existing == null || existing == mTombstone) {
+            return false;
+        }
+        // Replace with a tombstone, to allow snapshots to find the prior version.
+        modify(new Key<S>(existing, mFullComparator), existing, existing, mTombstone, txn, stamp);
+        return true;
+    }
+
+    /**
+     * Records the prior version of a storable and then replaces it in the
+     * map. Caller must hold upgrade or write lock.
+     *
+     * @param prior prior value in map, which is null if absent
+     * @param before prior version of storable, which is null if it didn't exist
+     * @param after new value to put in the map
+     * @param txn optional transaction, which is checked for conflicts and
+     * which logs the modification for undo
+     */
+    private void modify(Key<S> key, S prior, S before, S after,
+                        MapTransaction txn, MapVersions.Stamp stamp)
+        throws PersistException
+    {
+        if (txn != null) {
+            MapVersions.Snapshot snapshot = txn.snapshot();
+            if (snapshot != null && snapshot.hasConflict(mHistory.get(key))) {
+                throw new OptimisticLockException
+                    ("Storable was modified by a concurrent transaction: " + key);
+            }
+        }
+
+        MapVersions.Record<S> record;
+        while (true) {
+            MapVersions.Chain<S> chain = mHistory.get(key);
+            if (chain == null) {
+                chain = new MapVersions.Chain<S>(this, key);
+                MapVersions.Chain<S> existing = mHistory.putIfAbsent(key, chain);
+                if (existing != null) {
+                    chain = existing;
+                }
+            }
+            record = new MapVersions.Record<S>(before, stamp, chain);
+            if (chain.push(record)) {
+                break;
+            }
+            // Chain was concurrently removed, so try again.
+        }
+
+        stamp.add(record);
+
+        // Record must be pushed before changing the map. Snapshots read the
+        // map first and then the chain, and so they never miss a change.
+        mMap.put(key, after);
+
+        if (txn != null) {
+            txn.modified(this, key, prior, record);
+        }
+    }
+
+    /**
+     * Returns the value for the given key, or null if not found.
+     *
+     * @param snapshot optional snapshot to read from; if null, caller must hold lock
+     */
+    private S get(Key<S> key, MapVersions.Snapshot snapshot) {
+        return resolve(snapshot, key, mMap.get(key));
+    }
+
+    /**
+     * Returns the version of a storable which is visible to the given
+     * snapshot, or null if it doesn't exist.
+     *
+     * @param snapshot optional snapshot to read from; if null, caller must hold lock
+     * @param value current value in the map, which can be null
+     */
+    S resolve(MapVersions.Snapshot snapshot, Key<S> key, S value) {
+        if (mVersions != null) {
+            if (snapshot != null && !mHistory.isEmpty()) {
+                value = snapshot.resolve(value, mHistory.get(key));
+            }
+            if (value == mTombstone) {
+                value = null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns a snapshot for performing a read without acquiring locks, or
+     * null if locks must be acquired. Caller must release the snapshot when
+     * the read is finished.
+     */
+    MapVersions.Snapshot readSnapshot(TransactionScope<MapTransaction> scope,
+                                      MapTransaction txn)
+    {
+        if (mVersions == null) {
+            return null;
+        }
+        if (txn == null) {
+            return mVersions.openSnapshot(null, false);
+        }
+        if (scope.isForUpdate()) {
+            return null;
+        }
+        return txn.readSnapshot();
+    }
+
+    /**
+     * Discards all prior versions, which refer to storables that no longer
+     * exist after a truncate. Caller must hold all write locks.
+     */
+    private void discardHistory() {
+        if (mHistory != null) {
+            for (MapVersions.Chain<S> chain : mHistory.values()) {
+                chain.discard();
+            }
+            mHistory.clear();
+        }
+    }
+
+    // Called by MapVersions when all prior versions for a key have been discarded.
+    void chainRemoved(MapVersions.Chain<S> chain) {
+        mHistory.remove(chain.mKey, chain);
+        mMap.remove(chain.mKey, mTombstone);
+    }
+
+    // Called by MapTransaction, which implicitly holds lock.
+    void mapRestore(Key<S> key, S prior) {
+        if (prior == null) {
+            mMap.remove(key);
+        } else {
+            mMap.put(key, prior);
+        }
+    }
+
     // Called by MapTransaction, which implicitly holds lock.
     void mapPut(S storable) {
         mMap.put(new Key<S>(storable, mFullComparator), storable);
@@ -454,9 +723,94 @@ class MapStorage<S extends Storable>
         mMap.remove(new Key<S>(storable, mFullComparator));
     }
 
-    private void doLockForRead(Object locker) throws FetchException {
+    static UpgradableLock<Object> newLock() {
+        return new UpgradableLock<Object>() {
+            @Override
+            protected boolean isReadLockHeld(Object locker) {
+                return locker instanceof MapTransaction;
+            }
+        };
+    }
+
+    /**
+     * Returns the lock stripe which guards the given storable's primary key.
+     */
+    UpgradableLock<Object> lockFor(S storable) {
+        UpgradableLock<Object>[] locks = mLocks;
+        if (locks.length == 1) {
+            return locks[0];
+        }
+
+        String[] names = mPkPropertyNames;
+        Object[] values = new Object[names.length];
+        for (int i=0; i<names.length; i++) {
+            values[i] = storable.getPropertyValue(names[i]);
+        }
+
+        int hash = Arrays.deepHashCode(values);
+        // Spread the bits, since only the low bits select the stripe.
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+        return locks[hash & (locks.length - 1)];
+    }
+
+    // Acquires all lock stripes in order, blocking indefinitely.
+    void lockAllForRead(Object locker) {
+        for (UpgradableLock<Object> lock : mLocks) {
+            lock.lockForRead(locker);
+        }
+    }
+
+    void unlockAllFromRead(Object locker) {
+        UpgradableLock<Object>[] locks = mLocks;
+        for (int i=locks.length; --i>=0; ) {
+            locks[i].unlockFromRead(locker);
+        }
+    }
+
+    private void doLockAllForRead(Object locker) throws FetchException {
+        UpgradableLock<Object>[] locks = mLocks;
+        int i = 0;
         try {
-            if (!mLock.tryLockForRead(locker, mLockTimeout, mLockTimeoutUnit)) {
+            for (; i<locks.length; i++) {
+                doLockForRead(locks[i], locker);
+            }
+        } catch (FetchException e) {
+            while (--i >= 0) {
+                locks[i].unlockFromRead(locker);
+            }
+            throw e;
+        }
+    }
+
+    private void doLockAllForWrite(Object locker) throws PersistException {
+        UpgradableLock<Object>[] locks = mLocks;
+        int i = 0;
+        try {
+            for (; i<locks.length; i++) {
+                doLockForWrite(locks[i], locker);
+            }
+        } catch (PersistException e) {
+            while (--i >= 0) {
+                locks[i].unlockFromWrite(locker);
+            }
+            throw e;
+        }
+    }
+
+    private void unlockAllFromWrite(Object locker) {
+        UpgradableLock<Object>[] locks = mLocks;
+        for (int i=locks.length; --i>=0; ) {
+            locks[i].unlockFromWrite(locker);
+        }
+    }
+
+    private void doLockForRead(UpgradableLock<Object> lock, Object locker)
+        throws FetchException
+    {
+        try {
+            if (!lock.tryLockForRead(locker, mLockTimeout, mLockTimeoutUnit)) {
                 throw new FetchTimeoutException("" + mLockTimeout + ' ' +
                                                 mLockTimeoutUnit.toString().toLowerCase());
             }
@@ -465,9 +819,11 @@ class MapStorage<S extends Storable>
         }
     }
 
-    private void doLockForUpgrade(Object locker) throws FetchException {
+    private void doLockForUpgrade(UpgradableLock<Object> lock, Object locker)
+        throws FetchException
+    {
         try {
-            if (!mLock.tryLockForUpgrade(locker, mLockTimeout, mLockTimeoutUnit)) {
+            if (!lock.tryLockForUpgrade(locker, mLockTimeout, mLockTimeoutUnit)) {
                 throw new FetchTimeoutException("" + mLockTimeout + ' ' +
                                                 mLockTimeoutUnit.toString().toLowerCase());
             }
@@ -476,9 +832,11 @@ class MapStorage<S extends Storable>
         }
     }
 
-    private void doLockForWrite(Object locker) throws PersistException {
+    private void doLockForWrite(UpgradableLock<Object> lock, Object locker)
+        throws PersistException
+    {
         try {
-            if (!mLock.tryLockForWrite(locker, mLockTimeout, mLockTimeoutUnit)) {
+            if (!lock.tryLockForWrite(locker, mLockTimeout, mLockTimeoutUnit)) {
                 throw new PersistTimeoutException("" + mLockTimeout + ' ' +
                                                   mLockTimeoutUnit.toString().toLowerCase());
             }
@@ -545,25 +903,41 @@ class MapStorage<S extends Storable>
     }
 
     public long countAll(Query.Controller controller) throws FetchException {
+        if (mVersions != null) {
+            // Map contains tombstones and versions which might not be
+            // visible, and so its size cannot be used.
+            Cursor<S> cursor = fetchAll(controller);
+            try {
+                long count = 0;
+                int amount;
+                while ((amount = cursor.skipNext(Integer.MAX_VALUE)) > 0) {
+                    count += amount;
+                }
+                return count;
+            } finally {
+                cursor.close();
+            }
+        }
+
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
             if (txn == null) {
-                doLockForRead(scope);
+                doLockAllForRead(scope);
                 try {
                     return mMap.size();
                 } finally {
-                    mLock.unlockFromRead(scope);
+                    unlockAllFromRead(scope);
                 }
             } else {
                 // Since lock is so coarse, all reads in transaction scope are
                 // upgrade to avoid deadlocks.
                 final boolean isForUpdate = scope.isForUpdate();
-                txn.lockForUpgrade(mLock, isForUpdate);
+                txn.lockForUpgrade(mLocks, isForUpdate);
                 try {
                     return mMap.size();
                 } finally {
-                    txn.unlockFromUpgrade(mLock, isForUpdate);
+                    txn.unlockFromUpgrade(mLocks, isForUpdate);
                 }
             }
         } catch (FetchException e) {
@@ -575,7 +949,7 @@ class MapStorage<S extends Storable>
 
     public Cursor<S> fetchAll() throws FetchException {
         try {
-            return new MapCursor<S>(this, mRepo.localTransactionScope(), mMap.values());
+            return new MapCursor<S>(this, mRepo.localTransactionScope(), mMap);
         } catch (FetchException e) {
             throw e;
         } catch (Exception e) {
@@ -605,32 +979,46 @@ class MapStorage<S extends Storable>
 
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            MapVersions.Snapshot snapshot = readSnapshot(scope, txn);
+            if (snapshot != null) {
+                try {
+                    S value = get(new Key<S>(key, mFullComparator), snapshot);
+                    if (value == null) {
+                        return EmptyCursor.the();
+                    } else {
+                        return new SingletonCursor<S>(copyAndFireLoadTrigger(value));
+                    }
+                } finally {
+                    snapshot.release();
+                }
+            }
+            UpgradableLock<Object> lock = lockFor(key);
             if (txn == null) {
-                doLockForRead(scope);
+                doLockForRead(lock, scope);
                 try {
-                    S value = mMap.get(new Key<S>(key, mFullComparator));
+                    S value = get(new Key<S>(key, mFullComparator), null);
                     if (value == null) {
                         return EmptyCursor.the();
                     } else {
                         return new SingletonCursor<S>(copyAndFireLoadTrigger(value));
                     }
                 } finally {
-                    mLock.unlockFromRead(scope);
+                    lock.unlockFromRead(scope);
                 }
             } else {
                 // Since lock is so coarse, all reads in transaction scope are
                 // upgrade to avoid deadlocks.
                 final boolean isForUpdate = scope.isForUpdate();
-                txn.lockForUpgrade(mLock, isForUpdate);
+                txn.lockForUpgrade(lock, isForUpdate);
                 try {
-                    S value = mMap.get(new Key<S>(key, mFullComparator));
+                    S value = get(new Key<S>(key, mFullComparator), null);
                     if (value == null) {
                         return EmptyCursor.the();
                     } else {
                         return new SingletonCursor<S>(copyAndFireLoadTrigger(value));
                     }
                 } finally {
-                    txn.unlockFromUpgrade(mLock, isForUpdate);
+                    txn.unlockFromUpgrade(lock, isForUpdate);
                 }
             }
         } catch (FetchException e) {
@@ -731,7 +1119,7 @@ class MapStorage<S extends Storable>
 
         Cursor<S> cursor;
         try {
-            cursor = new MapCursor<S>(this, mRepo.localTransactionScope(), map.values());
+            cursor = new MapCursor<S>(this, mRepo.localTransactionScope(), map);
         } catch (FetchException e) {
             throw e;
         } catch (Exception e) {
@@ -18,11 +18,15 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.IOException;
+
 import java.util.concurrent.TimeUnit;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.amazon.carbonado.FetchException;
@@ -46,19 +50,84 @@ class MapTransaction {
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
 
+    // Is null if multiversion concurrency control is disabled.
+    private final MapVersions mVersions;
+
     private Set<UpgradableLock> mUpgradeLocks;
     private Set<UpgradableLock> mWriteLocks;
 
     private List<Undoable> mUndoLog;
 
+    // Changes to persistent storages, which are logged when top-level
+    // transaction commits.
+    private Map<OffHeapStorage, OffHeapLog.Batch> mRedo;
+
+    // Only defined by top-level transaction.
+    private MapVersions.Stamp mStamp;
+
+    // Only defined by top-level transaction.
+    private MapVersions.Snapshot mSnapshot;
+
     MapTransaction(MapTransaction parent, IsolationLevel level,
-                   int lockTimeout, TimeUnit lockTimeoutUnit)
+                   int lockTimeout, TimeUnit lockTimeoutUnit,
+                   MapVersions versions)
     {
         mParent = parent;
         mLevel = level;
         mLocker = parent == null ? this : parent.mLocker;
         mLockTimeout = lockTimeout;
         mLockTimeoutUnit = lockTimeoutUnit;
+        mVersions = versions;
+    }
+
+    /**
+     * Returns the stamp which tags all modifications made by this transaction
+     * and its nested transactions. Multiversion concurrency control must be
+     * enabled.
+     */
+    MapVersions.Stamp stamp() {
+        MapTransaction root = (MapTransaction) mLocker;
+        MapVersions.Stamp stamp = root.mStamp;
+        if (stamp == null) {
+            root.mStamp = stamp = new MapVersions.Stamp();
+        }
+        return stamp;
+    }
+
+    /**
+     * Returns the snapshot which is held for the duration of the transaction,
+     * opening it if necessary. Returns null if isolation level isn't snapshot
+     * or if multiversion concurrency control is disabled.
+     */
+    MapVersions.Snapshot snapshot() {
+        if (mVersions == null || mLevel != IsolationLevel.SNAPSHOT) {
+            return null;
+        }
+        // Snapshot is held by the top-level transaction, and so nested
+        // transactions share it, and it stays open until the top-level
+        // transaction exits.
+        MapTransaction root = (MapTransaction) mLocker;
+        MapVersions.Snapshot snapshot = root.mSnapshot;
+        if (snapshot == null) {
+            root.mSnapshot = snapshot = mVersions.openSnapshot(stamp(), true);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns a snapshot for performing a read without acquiring locks, or
+     * null if locks must be acquired. Caller must release the snapshot when
+     * the read is finished.
+     */
+    MapVersions.Snapshot readSnapshot() {
+        if (mVersions == null) {
+            return null;
+        }
+        if (mLevel.isAtMost(IsolationLevel.READ_COMMITTED)) {
+            // Each read sees the latest committed state, as of when it started.
+            return mVersions.openSnapshot(stamp(), false);
+        }
+        return snapshot();
     }
 
     void lockForUpgrade(UpgradableLock lock, boolean isForUpdate) throws FetchException {
@@ -94,6 +163,30 @@ class MapTransaction {
         }
     }
 
+    /**
+     * Acquires all the given lock stripes, in order.
+     */
+    void lockForUpgrade(UpgradableLock[] locks, boolean isForUpdate) throws FetchException {
+        int i = 0;
+        try {
+            for (; i<locks.length; i++) {
+                lockForUpgrade(locks[i], isForUpdate);
+            }
+        } catch (FetchException e) {
+            // Release the stripes acquired so far, unless retained by transaction.
+            while (--i >= 0) {
+                unlockFromUpgrade(locks[i], isForUpdate);
+            }
+            throw e;
+        }
+    }
+
+    void unlockFromUpgrade(UpgradableLock[] locks, boolean isForUpdate) {
+        for (int i=locks.length; --i>=0; ) {
+            unlockFromUpgrade(locks[i], isForUpdate);
+        }
+    }
+
     void lockForWrite(UpgradableLock lock) throws PersistException {
         Set<UpgradableLock> locks = mWriteLocks;
         if (locks == null) {
@@ -106,6 +199,16 @@ class MapTransaction {
         }
     }
 
+    /**
+     * Acquires all the given lock stripes, in order. Write locks are held
+     * until the transaction exits.
+     */
+    void lockForWrite(UpgradableLock[] locks) throws PersistException {
+        for (UpgradableLock lock : locks) {
+            lockForWrite(lock);
+        }
+    }
+
     private void doLockForWrite(UpgradableLock lock) throws PersistException {
         try {
             if (!lock.tryLockForWrite(mLocker, mLockTimeout, mLockTimeoutUnit)) {
@@ -117,6 +220,65 @@ class MapTransaction {
         }
     }
 
+    /**
+     * Add to undo log. Multiversion concurrency control must be enabled.
+     *
+     * @param prior prior value in map, which is null if absent
+     */
+    <S extends Storable> void modified(final MapStorage<S> storage, final Key<S> key,
+                                       final S prior, final MapVersions.Record<S> record)
+    {
+        addToUndoLog(new Undoable() {
+            public void undo() {
+                storage.mapRestore(key, prior);
+                record.mAborted = true;
+            }
+
+            @Override
+            public String toString() {
+                return "undo modification by restore: " + key;
+            }
+        });
+    }
+
+    /**
+     * Add to undo log.
+     *
+     * @param prior prior encoded value, which is null if absent
+     */
+    <S extends Storable> void replaced(final OffHeapStorage<S> storage, final byte[] key,
+                                       final byte[] prior)
+    {
+        addToUndoLog(new Undoable() {
+            public void undo() {
+                storage.restore(key, prior);
+            }
+
+            @Override
+            public String toString() {
+                return "undo replacement by restore: " + key.length + " byte key";
+            }
+        });
+    }
+
+    /**
+     * Add to redo log of persistent storage.
+     *
+     * @param value new encoded value, which is null if deleted
+     */
+    void logged(OffHeapStorage storage, byte[] key, byte[] value) {
+        Map<OffHeapStorage, OffHeapLog.Batch> redo = mRedo;
+        if (redo == null) {
+            mRedo = redo = new LinkedHashMap<OffHeapStorage, OffHeapLog.Batch>();
+        }
+        OffHeapLog.Batch batch = redo.get(storage);
+        if (batch == null) {
+            batch = new OffHeapLog.Batch();
+            redo.put(storage, batch);
+        }
+        batch.add(key, value);
+    }
+
     /**
      * Add to undo log.
      */
@@ -165,11 +327,25 @@ class MapTransaction {
         });
     }
 
-    void commit() {
+    void commit() throws PersistException {
         MapTransaction parent = mParent;
 
         if (parent == null) {
+            if (mRedo != null) {
+                // Log while write locks are still held, preventing a
+                // concurrent checkpoint from missing the changes.
+                try {
+                    OffHeapStorage.appendAll(mRedo);
+                } catch (IOException e) {
+                    throw new PersistException(e);
+                }
+                mRedo = null;
+            }
+            if (mStamp != null) {
+                mVersions.commit(mStamp);
+            }
             releaseLocks();
+            closeSnapshot();
             return;
         }
 
@@ -181,6 +357,23 @@ class MapTransaction {
         }
         mUndoLog = null;
 
+        // Pass redo log to parent.
+        if (mRedo != null) {
+            if (parent.mRedo == null) {
+                parent.mRedo = mRedo;
+            } else {
+                for (Map.Entry<OffHeapStorage, OffHeapLog.Batch> entry : mRedo.entrySet()) {
+                    OffHeapLog.Batch batch = parent.mRedo.get(entry.getKey());
+                    if (batch == null) {
+                        parent.mRedo.put(entry.getKey(), entry.getValue());
+                    } else {
+                        batch.addAll(entry.getValue());
+                    }
+                }
+            }
+            mRedo = null;
+        }
+
         // Pass write locks to parent or release if parent already has the lock.
         {
             Set<UpgradableLock> locks = mWriteLocks;
@@ -211,8 +404,16 @@ class MapTransaction {
             }
         }
         mUndoLog = null;
+        mRedo = null;
 
         releaseLocks();
+
+        if (mParent == null) {
+            if (mStamp != null) {
+                mVersions.abort(mStamp);
+            }
+            closeSnapshot();
+        }
     }
 
     private void addToUndoLog(Undoable entry) {
@@ -223,6 +424,14 @@ class MapTransaction {
         log.add(entry);
     }
 
+    private void closeSnapshot() {
+        MapVersions.Snapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            mSnapshot = null;
+            snapshot.close();
+        }
+    }
+
     private void releaseLocks() {
         releaseWriteLocks();
         releaseUpgradeLocks();
@@ -34,10 +34,12 @@ import com.amazon.carbonado.txn.TransactionManager;
 class MapTransactionManager extends TransactionManager<MapTransaction> {
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
+    private final MapVersions mVersions;
 
-    MapTransactionManager(int lockTimeout, TimeUnit lockTimeoutUnit) {
+    MapTransactionManager(int lockTimeout, TimeUnit lockTimeoutUnit, MapVersions versions) {
         mLockTimeout = lockTimeout;
         mLockTimeoutUnit = lockTimeoutUnit;
+        mVersions = versions;
     }
 
     @Override
@@ -56,6 +58,16 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         case READ_COMMITTED:
             return IsolationLevel.READ_COMMITTED;
         case REPEATABLE_READ:
+            if (mVersions != null) {
+                return IsolationLevel.SNAPSHOT;
+            }
+            return IsolationLevel.SERIALIZABLE;
+        case SNAPSHOT:
+            if (mVersions != null) {
+                return IsolationLevel.SNAPSHOT;
+            }
+            // Not supported.
+            return null;
         case SERIALIZABLE:
             return IsolationLevel.SERIALIZABLE;
         default:
@@ -76,7 +88,7 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         if (level == IsolationLevel.NONE) {
             return null;
         }
-        return new MapTransaction(parent, level, mLockTimeout, mLockTimeoutUnit);
+        return new MapTransaction(parent, level, mLockTimeout, mLockTimeoutUnit, mVersions);
     }
 
     @Override
@@ -87,7 +99,7 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         if (level == IsolationLevel.NONE) {
             return null;
         }
-        return new MapTransaction(parent, level, timeout, unit);
+        return new MapTransaction(parent, level, timeout, unit, mVersions);
     }
 
     @Override
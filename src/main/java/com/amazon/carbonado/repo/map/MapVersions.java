@@ -0,0 +1,337 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+import com.amazon.carbonado.Storable;
+
+/**
+ * Supports multiversion concurrency control for MapRepository. Modifications
+ * record the prior state of each storable they change, tagged with a stamp
+ * which is assigned a version when the modifying transaction exits. Snapshots
+ * read the current map, but substitute prior states for any modifications
+ * which are not visible to them. Prior states are discarded once no open
+ * snapshot can see them.
+ */
+class MapVersions {
+    // Version of the most recently finished stamp.
+    private long mClock;
+
+    // Maps open snapshot versions to reference counts.
+    private final TreeMap<Long, int[]> mOpenSnapshots = new TreeMap<Long, int[]>();
+
+    // Finished stamps with records, in version order.
+    private final LinkedList<Stamp> mFinished = new LinkedList<Stamp>();
+
+    MapVersions() {
+    }
+
+    /**
+     * @param owner optional stamp of transaction which owns the snapshot;
+     * modifications tagged with this stamp are visible to the snapshot
+     * @param txnScoped when true, snapshot is closed by the owning
+     * transaction and {@link Snapshot#release} does nothing
+     */
+    Snapshot openSnapshot(Stamp owner, boolean txnScoped) {
+        synchronized (this) {
+            long version = mClock;
+            Long key = version;
+            int[] count = mOpenSnapshots.get(key);
+            if (count == null) {
+                mOpenSnapshots.put(key, new int[] {1});
+            } else {
+                count[0]++;
+            }
+            return new Snapshot(this, version, owner, txnScoped);
+        }
+    }
+
+    void closeSnapshot(Snapshot snapshot) {
+        List<Stamp> prunable;
+        synchronized (this) {
+            Long key = snapshot.mVersion;
+            int[] count = mOpenSnapshots.get(key);
+            if (count == null) {
+                return;
+            }
+            if (--count[0] <= 0) {
+                mOpenSnapshots.remove(key);
+            }
+            prunable = collectPrunable();
+        }
+        prune(prunable);
+    }
+
+    /**
+     * Makes all modifications tagged with the given stamp visible to
+     * snapshots opened afterwards.
+     */
+    void commit(Stamp stamp) {
+        finish(stamp, false);
+    }
+
+    /**
+     * Makes all modifications tagged with the given stamp permanently
+     * invisible. Caller must have already restored the prior states.
+     */
+    void abort(Stamp stamp) {
+        finish(stamp, true);
+    }
+
+    private void finish(Stamp stamp, boolean aborted) {
+        List<Stamp> prunable;
+        synchronized (this) {
+            if (aborted) {
+                stamp.mAborted = true;
+            }
+            stamp.mVersion = ++mClock;
+            if (stamp.mRecords != null) {
+                mFinished.add(stamp);
+            }
+            prunable = collectPrunable();
+        }
+        prune(prunable);
+    }
+
+    // Caller must be synchronized.
+    private List<Stamp> collectPrunable() {
+        if (mFinished.isEmpty()) {
+            return null;
+        }
+        long oldest = mOpenSnapshots.isEmpty() ? mClock : mOpenSnapshots.firstKey();
+        List<Stamp> prunable = null;
+        while (!mFinished.isEmpty() && mFinished.getFirst().mVersion <= oldest) {
+            if (prunable == null) {
+                prunable = new ArrayList<Stamp>();
+            }
+            prunable.add(mFinished.removeFirst());
+        }
+        return prunable;
+    }
+
+    private static void prune(List<Stamp> prunable) {
+        if (prunable != null) {
+            for (Stamp stamp : prunable) {
+                for (Record record : stamp.mRecords) {
+                    record.mChain.unlink(record);
+                }
+                stamp.mRecords = null;
+            }
+        }
+    }
+
+    /**
+     * Tags all modifications made by a transaction or auto-commit operation.
+     */
+    static final class Stamp {
+        // Zero while pending.
+        volatile long mVersion;
+        volatile boolean mAborted;
+
+        // Only accessed by the thread which owns the stamp, until finished.
+        List<Record> mRecords;
+
+        Stamp() {
+        }
+
+        void add(Record record) {
+            List<Record> records = mRecords;
+            if (records == null) {
+                mRecords = records = new ArrayList<Record>();
+            }
+            records.add(record);
+        }
+    }
+
+    /**
+     * Prior state of a storable, before it was modified.
+     */
+    static final class Record<S extends Storable> {
+        // Null if storable didn't exist.
+        final S mBefore;
+        final Stamp mStamp;
+        final Chain<S> mChain;
+
+        // Next older record.
+        volatile Record<S> mNext;
+
+        // Set when a nested transaction which made the modification aborts.
+        volatile boolean mAborted;
+
+        Record(S before, Stamp stamp, Chain<S> chain) {
+            mBefore = before;
+            mStamp = stamp;
+            mChain = chain;
+        }
+    }
+
+    /**
+     * Records for a single key, ordered newest first.
+     */
+    static final class Chain<S extends Storable> {
+        final MapStorage<S> mStorage;
+        final Key<S> mKey;
+
+        volatile Record<S> mHead;
+
+        // Set when chain is empty and has been removed from the storage.
+        private boolean mDead;
+
+        Chain(MapStorage<S> storage, Key<S> key) {
+            mStorage = storage;
+            mKey = key;
+        }
+
+        /**
+         * @return false if chain is dead and record was not added
+         */
+        synchronized boolean push(Record<S> record) {
+            if (mDead) {
+                return false;
+            }
+            record.mNext = mHead;
+            mHead = record;
+            return true;
+        }
+
+        /**
+         * Discards all records, without calling back into the storage. Records
+         * are still unlinked when their stamps are pruned, but this has no
+         * effect.
+         */
+        synchronized void discard() {
+            mDead = true;
+            mHead = null;
+        }
+
+        void unlink(Record<S> record) {
+            synchronized (this) {
+                Record<S> prev = null;
+                for (Record<S> r = mHead; r != null; r = r.mNext) {
+                    if (r == record) {
+                        if (prev == null) {
+                            mHead = r.mNext;
+                        } else {
+                            prev.mNext = r.mNext;
+                        }
+                        break;
+                    }
+                    prev = r;
+                }
+                if (mHead != null || mDead) {
+                    return;
+                }
+                mDead = true;
+                mStorage.chainRemoved(this);
+            }
+        }
+    }
+
+    /**
+     * Consistent view of all storages in the repository, as of the time the
+     * snapshot was opened.
+     */
+    static final class Snapshot {
+        private final MapVersions mVersions;
+        final long mVersion;
+        final Stamp mOwner;
+        private final boolean mTxnScoped;
+
+        Snapshot(MapVersions versions, long version, Stamp owner, boolean txnScoped) {
+            mVersions = versions;
+            mVersion = version;
+            mOwner = owner;
+            mTxnScoped = txnScoped;
+        }
+
+        /**
+         * Returns true if the modification described by the given record is
+         * visible to this snapshot.
+         */
+        boolean isVisible(Record record) {
+            if (record.mAborted) {
+                return false;
+            }
+            Stamp stamp = record.mStamp;
+            if (stamp == mOwner) {
+                return true;
+            }
+            if (stamp.mAborted) {
+                return false;
+            }
+            long version = stamp.mVersion;
+            return version != 0 && version <= mVersion;
+        }
+
+        /**
+         * Returns the state of a storable as seen by this snapshot, given its
+         * current state and its chain of prior states.
+         *
+         * @param current current state, or null if it doesn't exist
+         * @param chain optional chain of prior states
+         * @return visible state, or null if it doesn't exist
+         */
+        <S extends Storable> S resolve(S current, Chain<S> chain) {
+            if (chain != null) {
+                for (Record<S> r = chain.mHead; r != null; r = r.mNext) {
+                    if (isVisible(r)) {
+                        break;
+                    }
+                    current = r.mBefore;
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Returns true if any modification in the given chain was finished
+         * after this snapshot was opened.
+         */
+        boolean hasConflict(Chain<?> chain) {
+            if (chain != null) {
+                for (Record r = chain.mHead; r != null; r = r.mNext) {
+                    if (!isVisible(r) && !r.mAborted && !r.mStamp.mAborted) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Closes the snapshot, unless it is scoped to a transaction.
+         */
+        void release() {
+            if (!mTxnScoped) {
+                mVersions.closeSnapshot(this);
+            }
+        }
+
+        /**
+         * Closes the snapshot, even if it is scoped to a transaction.
+         */
+        void close() {
+            mVersions.closeSnapshot(this);
+        }
+    }
+}
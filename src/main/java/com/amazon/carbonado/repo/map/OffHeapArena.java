@@ -0,0 +1,217 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Allocates byte array values outside the Java heap, in direct byte
+ * buffers. Values are stored in blocks carved out of fixed-size slabs, with a
+ * four byte length header. Block sizes are rounded up to a power of two, and
+ * freed blocks are recycled by size. Values too large for a slab are given a
+ * dedicated buffer.
+ *
+ * <p>Slabs can also be supplied by mapping a snapshot file into memory. Blocks
+ * in mapped slabs are never recycled, since their sizes are not rounded up.
+ *
+ * <p>Values are referenced by a handle, which encodes the slab number in the
+ * upper 32 bits and the block offset in the lower 32 bits. Callers must
+ * ensure that a block is not read after it has been freed.
+ */
+class OffHeapArena {
+    private static final int SLAB_SHIFT = 20;
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+
+    // Smallest block must be able to hold a free list link.
+    private static final int MIN_BLOCK_SHIFT = 4;
+
+    private static final long NO_BLOCK = -1;
+
+    // Array is replaced when grown. Elements are null for freed large values.
+    private volatile ByteBuffer[] mSlabs;
+    private int mSlabCount;
+
+    // Slabs numbered below this are mapped, and their blocks aren't recycled.
+    private int mMappedCount;
+
+    // Stack of slab numbers released by large values, available for reuse.
+    private int[] mFreeSlabs;
+    private int mFreeSlabCount;
+
+    // Slab currently being carved into new blocks.
+    private int mCarveSlab;
+    private int mCarveOffset;
+
+    // Heads of free block lists, indexed by block size shift.
+    private final long[] mFreeBlocks;
+
+    OffHeapArena() {
+        mSlabs = new ByteBuffer[16];
+        mFreeSlabs = new int[4];
+        mCarveSlab = -1;
+        mCarveOffset = SLAB_SIZE;
+        mFreeBlocks = new long[SLAB_SHIFT + 1];
+        Arrays.fill(mFreeBlocks, NO_BLOCK);
+    }
+
+    /**
+     * Copies the given value into a newly allocated block.
+     *
+     * @return handle to block
+     */
+    long allocate(byte[] value) {
+        long handle = allocateBlock(value.length + 4);
+        ByteBuffer bb = buffer(handle);
+        bb.putInt(value.length);
+        bb.put(value);
+        return handle;
+    }
+
+    /**
+     * Returns a copy of the value stored in the given block.
+     */
+    byte[] read(long handle) {
+        ByteBuffer bb = buffer(handle);
+        byte[] value = new byte[bb.getInt()];
+        bb.get(value);
+        return value;
+    }
+
+    /**
+     * Frees the given block, allowing it to be recycled.
+     */
+    void free(long handle) {
+        int length = buffer(handle).getInt() + 4;
+        int slab = (int) (handle >>> 32);
+
+        synchronized (this) {
+            if (slab < mMappedCount) {
+                return;
+            }
+
+            if (length > SLAB_SIZE) {
+                mSlabs[slab] = null;
+                int[] free = mFreeSlabs;
+                if (mFreeSlabCount >= free.length) {
+                    int[] newFree = new int[free.length << 1];
+                    System.arraycopy(free, 0, newFree, 0, free.length);
+                    mFreeSlabs = free = newFree;
+                }
+                free[mFreeSlabCount++] = slab;
+                return;
+            }
+
+            // Link block into free list, overwriting the length header.
+            int shift = blockShift(length);
+            buffer(handle).putLong(mFreeBlocks[shift]);
+            mFreeBlocks[shift] = handle;
+        }
+    }
+
+    /**
+     * Frees all blocks and releases all slabs. Caller must ensure that no
+     * handles are in use.
+     */
+    synchronized void clear() {
+        mSlabs = new ByteBuffer[16];
+        mSlabCount = 0;
+        mMappedCount = 0;
+        mFreeSlabCount = 0;
+        mCarveSlab = -1;
+        mCarveOffset = SLAB_SIZE;
+        Arrays.fill(mFreeBlocks, NO_BLOCK);
+    }
+
+    /**
+     * Adds a slab of existing blocks, which must be in the same format as
+     * allocated blocks. Mapped slabs must be added before any blocks are
+     * allocated, and they are assigned consecutive numbers.
+     *
+     * @return slab number
+     */
+    synchronized int addMapped(ByteBuffer slab) {
+        if (mSlabCount != mMappedCount) {
+            throw new IllegalStateException();
+        }
+        int num = addSlab(slab);
+        mMappedCount++;
+        return num;
+    }
+
+    private synchronized long allocateBlock(int length) {
+        if (length > SLAB_SIZE) {
+            return (long) addSlab(ByteBuffer.allocateDirect(length)) << 32;
+        }
+
+        int shift = blockShift(length);
+        long handle = mFreeBlocks[shift];
+        if (handle != NO_BLOCK) {
+            // Unlink block from free list.
+            mFreeBlocks[shift] = buffer(handle).getLong();
+            return handle;
+        }
+
+        int size = 1 << shift;
+        if (mCarveOffset + size > SLAB_SIZE) {
+            // Remainder of current slab is abandoned.
+            mCarveSlab = addSlab(ByteBuffer.allocateDirect(SLAB_SIZE));
+            mCarveOffset = 0;
+        }
+
+        handle = ((long) mCarveSlab << 32) | mCarveOffset;
+        mCarveOffset += size;
+        return handle;
+    }
+
+    // Caller must be synchronized.
+    private int addSlab(ByteBuffer slab) {
+        ByteBuffer[] slabs = mSlabs;
+        int num;
+        if (mFreeSlabCount > 0) {
+            num = mFreeSlabs[--mFreeSlabCount];
+        } else {
+            num = mSlabCount++;
+            if (num >= slabs.length) {
+                ByteBuffer[] newSlabs = new ByteBuffer[slabs.length << 1];
+                System.arraycopy(slabs, 0, newSlabs, 0, slabs.length);
+                slabs = newSlabs;
+            }
+        }
+        slabs[num] = slab;
+        // Publish slab to readers.
+        mSlabs = slabs;
+        return num;
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the given block. Buffer is
+     * not shared, and so its position can be freely modified.
+     */
+    private ByteBuffer buffer(long handle) {
+        ByteBuffer bb = mSlabs[(int) (handle >>> 32)].duplicate();
+        bb.position((int) handle);
+        return bb;
+    }
+
+    private static int blockShift(int length) {
+        return Math.max(MIN_BLOCK_SHIFT, 32 - Integer.numberOfLeadingZeros(length - 1));
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.zip.CRC32;
+
+/**
+ * Makes transactions which change more than one persistent {@link
+ * OffHeapStorage} atomic. Each storage has its own {@link OffHeapLog}, and so
+ * a crash can interrupt a commit after only some of the logs were appended
+ * to. Such a commit is tagged with an id, which is recorded here before the
+ * first log is appended to and again after the last. When a log is replayed,
+ * frames tagged with an id which was begun but never ended are skipped.
+ *
+ * <p>Only the ids of incomplete commits are retained when the file is
+ * compacted, and so it stays small. Ids are reserved in blocks before being
+ * used, and so an id is never reused after a restart.
+ */
+class OffHeapCommitLog {
+    private static final byte OP_RESERVE = 1, OP_BEGIN = 2, OP_END = 3, OP_ABORT = 4;
+
+    private static final int RECORD_SIZE = 13;
+    private static final int RESERVE_BLOCK = 1024;
+    private static final long COMPACT_THRESHOLD = 1L << 20;
+
+    private final File mFile;
+    private RandomAccessFile mRaf;
+    private long mLength;
+
+    private long mNextId;
+    private long mReserved;
+
+    // Ids begun but not yet ended, in this process.
+    private final Set<Long> mInFlight = new HashSet<Long>();
+    // Ids which must be skipped when logs are replayed.
+    private final Set<Long> mIncomplete = new HashSet<Long>();
+
+    OffHeapCommitLog(File file) throws IOException {
+        mFile = file;
+
+        Set<Long> begun = new HashSet<Long>();
+        long reserved = 0;
+
+        if (file.exists()) {
+            DataInputStream in = new DataInputStream
+                (new BufferedInputStream(new FileInputStream(file), 65536));
+            try {
+                byte[] record = new byte[RECORD_SIZE];
+                CRC32 crc = new CRC32();
+                while (true) {
+                    try {
+                        in.readFully(record);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(record, 0, 9);
+                    if ((int) crc.getValue() != getInt(record, 9)) {
+                        // Partially written record.
+                        break;
+                    }
+                    long value = getLong(record, 1);
+                    switch (record[0]) {
+                    case OP_RESERVE:
+                        reserved = Math.max(reserved, value);
+                        break;
+                    case OP_BEGIN:
+                        begun.add(value);
+                        break;
+                    case OP_END:
+                        begun.remove(value);
+                        break;
+                    case OP_ABORT:
+                        mIncomplete.add(value);
+                        break;
+                    default:
+                        throw new IOException("Unknown commit log operation: " + record[0]);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        // Commits which began before a crash and never ended are incomplete.
+        mIncomplete.addAll(begun);
+
+        mNextId = reserved;
+        mReserved = reserved;
+
+        rewrite();
+    }
+
+    /**
+     * Returns false if frames tagged with the given id must be skipped when
+     * a log is replayed.
+     */
+    synchronized boolean isCommitted(long id) {
+        return !mIncomplete.contains(id);
+    }
+
+    /**
+     * Appends the given batches to the logs of their storages, as one atomic
+     * commit.
+     */
+    void append(Map<OffHeapStorage, OffHeapLog.Batch> redo) throws IOException {
+        long id = begin();
+        boolean ended = false;
+        try {
+            for (Map.Entry<OffHeapStorage, OffHeapLog.Batch> entry : redo.entrySet()) {
+                entry.getKey().append(entry.getValue().tagged(id));
+            }
+            end(id);
+            ended = true;
+        } finally {
+            if (!ended) {
+                abort(id);
+            }
+        }
+    }
+
+    synchronized void close() throws IOException {
+        mRaf.close();
+    }
+
+    private synchronized long begin() throws IOException {
+        if (mNextId >= mReserved) {
+            write(OP_RESERVE, mReserved + RESERVE_BLOCK);
+            mReserved += RESERVE_BLOCK;
+        }
+        long id = mNextId++;
+        write(OP_BEGIN, id);
+        mInFlight.add(id);
+        return id;
+    }
+
+    private synchronized void end(long id) throws IOException {
+        write(OP_END, id);
+        mInFlight.remove(id);
+        if (mLength >= COMPACT_THRESHOLD) {
+            rewrite();
+        }
+    }
+
+    private synchronized void abort(long id) {
+        mInFlight.remove(id);
+        // Skip partially written frames even if abort record cannot be written,
+        // which is still treated as incomplete after a restart.
+        mIncomplete.add(id);
+        try {
+            write(OP_ABORT, id);
+        } catch (IOException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Replaces the file with one which only contains the reservation and the
+     * ids which must still be tracked.
+     */
+    private void rewrite() throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            raf.setLength(0);
+            long length = writeTo(raf, OP_RESERVE, mReserved);
+            for (Long id : mIncomplete) {
+                length += writeTo(raf, OP_ABORT, id);
+            }
+            for (Long id : mInFlight) {
+                length += writeTo(raf, OP_BEGIN, id);
+            }
+            raf.getFD().sync();
+            raf.close();
+            raf = null;
+
+            Files.move(temp.toPath(), mFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            if (mRaf != null) {
+                mRaf.close();
+            }
+            mRaf = new RandomAccessFile(mFile, "rw");
+            mRaf.seek(length);
+            mLength = length;
+        } finally {
+            if (raf != null) {
+                raf.close();
+                temp.delete();
+            }
+        }
+    }
+
+    private void write(byte op, long value) throws IOException {
+        try {
+            mLength += writeTo(mRaf, op, value);
+        } catch (IOException e) {
+            // Discard partial record, or else later records cannot be read.
+            try {
+                mRaf.setLength(mLength);
+                mRaf.seek(mLength);
+            } catch (IOException e2) {
+                // Ignore.
+            }
+            throw e;
+        }
+    }
+
+    private static int writeTo(RandomAccessFile raf, byte op, long value) throws IOException {
+        byte[] record = new byte[RECORD_SIZE];
+        record[0] = op;
+        for (int i=0; i<8; i++) {
+            record[1 + i] = (byte) (value >> (56 - i * 8));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 9);
+        int check = (int) crc.getValue();
+        for (int i=0; i<4; i++) {
+            record[9 + i] = (byte) (check >> (24 - i * 8));
+        }
+        raf.write(record);
+        return RECORD_SIZE;
+    }
+
+    private static long getLong(byte[] b, int offset) {
+        long v = 0;
+        for (int i=0; i<8; i++) {
+            v = (v << 8) | (b[offset + i] & 0xff);
+        }
+        return v;
+    }
+
+    private static int getInt(byte[] b, int offset) {
+        int v = 0;
+        for (int i=0; i<4; i++) {
+            v = (v << 8) | (b[offset + i] & 0xff);
+        }
+        return v;
+    }
+}
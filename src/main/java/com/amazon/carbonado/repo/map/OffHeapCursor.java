@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.raw.RawCursor;
+import com.amazon.carbonado.raw.RawUtil;
+
+import com.amazon.carbonado.txn.TransactionScope;
+
+/**
+ * Cursor over an {@link OffHeapStorage}, which only decodes the entries it
+ * returns. Lock stripes are held until the cursor is closed, preventing
+ * blocks from being freed while they are referenced.
+ */
+class OffHeapCursor<S extends Storable> extends RawCursor<S> {
+    private final OffHeapStorage<S> mStorage;
+    private final TransactionScope<MapTransaction> mScope;
+    private final MapTransaction mTxn;
+    private final boolean mIsForUpdate;
+    private final NavigableMap<byte[], Long> mMap;
+
+    private Map.Entry<byte[], Long> mCurrent;
+
+    OffHeapCursor(OffHeapStorage<S> storage,
+                  TransactionScope<MapTransaction> scope,
+                  NavigableMap<byte[], Long> map,
+                  byte[] startBound, boolean inclusiveStart,
+                  byte[] endBound, boolean inclusiveEnd,
+                  int maxPrefix,
+                  boolean reverse)
+        throws Exception
+    {
+        super(null, startBound, inclusiveStart, endBound, inclusiveEnd, maxPrefix, reverse);
+
+        MapTransaction txn = scope.getTxn();
+
+        mStorage = storage;
+        mScope = scope;
+        mTxn = txn;
+        mMap = map;
+
+        if (txn == null) {
+            storage.doLockAllForRead(scope);
+            mIsForUpdate = false;
+        } else {
+            // Since lock is so coarse, all reads in transaction scope are
+            // upgrade to avoid deadlocks.
+            txn.lockForUpgrade(storage.mLocks, mIsForUpdate = scope.isForUpdate());
+        }
+
+        scope.register(storage.getStorableType(), this);
+    }
+
+    @Override
+    public void close() throws FetchException {
+        try {
+            super.close();
+        } finally {
+            mScope.unregister(mStorage.getStorableType(), this);
+        }
+    }
+
+    @Override
+    protected void release() {
+        mCurrent = null;
+        if (mTxn == null) {
+            mStorage.unlockAllFromRead(mScope);
+        } else {
+            mTxn.unlockFromUpgrade(mStorage.mLocks, mIsForUpdate);
+        }
+    }
+
+    @Override
+    protected byte[] getCurrentKey() {
+        Map.Entry<byte[], Long> current = mCurrent;
+        return current == null ? null : current.getKey();
+    }
+
+    @Override
+    protected byte[] getCurrentValue() throws FetchException {
+        Map.Entry<byte[], Long> current = mCurrent;
+        return current == null ? null : mStorage.readValue(currentHandle(current));
+    }
+
+    @Override
+    protected S instantiateCurrent() throws FetchException {
+        Map.Entry<byte[], Long> current = mCurrent;
+        if (current == null) {
+            throw new IllegalStateException();
+        }
+        byte[] key = current.getKey();
+        return mStorage.instantiate(key, mStorage.readValue(currentHandle(current)));
+    }
+
+    @Override
+    protected boolean toFirst() {
+        return (mCurrent = mMap.firstEntry()) != null;
+    }
+
+    @Override
+    protected boolean toFirst(byte[] key) {
+        return (mCurrent = mMap.ceilingEntry(key)) != null;
+    }
+
+    @Override
+    protected boolean toLast() {
+        return (mCurrent = mMap.lastEntry()) != null;
+    }
+
+    @Override
+    protected boolean toLast(byte[] key) {
+        // Search for the entry just before the next possible partial match.
+        // This destroys the caller's key value, which is allowed.
+        if (!RawUtil.increment(key)) {
+            return toLast();
+        }
+        return (mCurrent = mMap.lowerEntry(key)) != null;
+    }
+
+    @Override
+    protected boolean toNext() {
+        Map.Entry<byte[], Long> current = mCurrent;
+        return current != null && (mCurrent = mMap.higherEntry(current.getKey())) != null;
+    }
+
+    @Override
+    protected boolean toPrevious() {
+        Map.Entry<byte[], Long> current = mCurrent;
+        return current != null && (mCurrent = mMap.lowerEntry(current.getKey())) != null;
+    }
+
+    private long currentHandle(Map.Entry<byte[], Long> current) throws FetchException {
+        if (mTxn == null) {
+            // Locks prevent the block from being freed.
+            return current.getValue();
+        }
+        // Transaction which holds the locks might have replaced or deleted
+        // the entry since the cursor moved to it.
+        Long handle = mMap.get(current.getKey());
+        if (handle == null) {
+            throw new FetchException("Current entry was deleted");
+        }
+        return handle;
+    }
+}
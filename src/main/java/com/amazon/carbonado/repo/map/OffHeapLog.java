@@ -0,0 +1,304 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.zip.CRC32;
+
+/**
+ * Append-only redo log for a persistent {@link OffHeapStorage}. Each
+ * committed transaction or auto-commit operation is written as a single
+ * frame, with a length and checksum. A frame which was only partially written
+ * is discarded when the log is replayed, and so a transaction is recovered
+ * entirely or not at all.
+ *
+ * <p>Records contain complete encoded values, and so replaying a record
+ * which is already reflected in a snapshot is harmless. A transaction which
+ * changes several storages writes a frame to each of their logs, tagged with
+ * an id from the {@link OffHeapCommitLog}. Such a frame is skipped when
+ * replayed unless the commit log says all the frames were written.
+ */
+class OffHeapLog {
+    static final byte OP_STORE = 1, OP_DELETE = 2, OP_TRUNCATE = 3, OP_COMMIT_ID = 4;
+
+    private final File mFile;
+    // File is written without a channel, which would be closed if a writing
+    // thread is interrupted.
+    private final RandomAccessFile mRaf;
+    private long mLength;
+
+    /**
+     * Opens the log for appending, discarding anything after the given
+     * length.
+     *
+     * @param validLength length returned by {@link #replay}, or zero
+     */
+    OffHeapLog(File file, long validLength) throws IOException {
+        mFile = file;
+        mRaf = new RandomAccessFile(file, "rw");
+        if (mRaf.length() > validLength) {
+            mRaf.setLength(validLength);
+        }
+        mRaf.seek(validLength);
+        mLength = validLength;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns true if nothing has been written to the log.
+     */
+    synchronized boolean isEmpty() {
+        return mLength == 0;
+    }
+
+    synchronized void append(Batch batch) throws IOException {
+        try {
+            mLength += batch.writeTo(mRaf);
+        } catch (IOException e) {
+            // Discard partial frame, or else later frames cannot be replayed.
+            try {
+                mRaf.setLength(mLength);
+                mRaf.seek(mLength);
+            } catch (IOException e2) {
+                // Ignore.
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forces all appended frames to be written to the device.
+     */
+    synchronized void sync() throws IOException {
+        mRaf.getFD().sync();
+    }
+
+    synchronized void close() throws IOException {
+        mRaf.close();
+    }
+
+    /**
+     * Replays all complete frames in the given log file.
+     *
+     * @return length of log which contains complete frames
+     */
+    static long replay(File file, Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            long validLength = 0;
+            CRC32 crc = new CRC32();
+
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    long checksum = in.readInt() & 0xffffffffL;
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if (crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream frame = new DataInputStream
+                    (new ByteArrayInputStream(payload));
+                records: while (frame.available() > 0) {
+                    byte op = frame.readByte();
+                    switch (op) {
+                    case OP_COMMIT_ID:
+                        if (!visitor.isCommitted(frame.readLong())) {
+                            break records;
+                        }
+                        break;
+                    case OP_STORE: {
+                        byte[] key = readArray(frame);
+                        visitor.store(key, readArray(frame));
+                        break;
+                    }
+                    case OP_DELETE:
+                        visitor.delete(readArray(frame));
+                        break;
+                    case OP_TRUNCATE:
+                        visitor.truncate();
+                        break;
+                    default:
+                        throw new IOException("Unknown log operation: " + op);
+                    }
+                }
+
+                validLength += 8 + payload.length;
+            }
+
+            return validLength;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readArray(DataInputStream in) throws IOException {
+        byte[] array = new byte[in.readInt()];
+        in.readFully(array);
+        return array;
+    }
+
+    /**
+     * Receives the records of a replayed log.
+     */
+    static interface Visitor {
+        void store(byte[] key, byte[] value);
+
+        void delete(byte[] key);
+
+        void truncate();
+
+        /**
+         * Returns false if frames tagged with the given commit id must be
+         * skipped.
+         */
+        boolean isCommitted(long commitId);
+    }
+
+    /**
+     * Collects records which are appended to the log as one frame.
+     */
+    static class Batch {
+        private final Buffer mBuffer;
+        private final DataOutputStream mOut;
+
+        Batch() {
+            mBuffer = new Buffer();
+            mOut = new DataOutputStream(mBuffer);
+            try {
+                // Reserve space for length and checksum.
+                mOut.writeLong(0);
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @param value new value, or null if deleted
+         */
+        void add(byte[] key, byte[] value) {
+            try {
+                if (value == null) {
+                    mOut.writeByte(OP_DELETE);
+                    writeArray(key);
+                } else {
+                    mOut.writeByte(OP_STORE);
+                    writeArray(key);
+                    writeArray(value);
+                }
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Appends all the records of the given batch to this one.
+         */
+        void addAll(Batch batch) {
+            mBuffer.write(batch.mBuffer.array(), 8, batch.mBuffer.size() - 8);
+        }
+
+        /**
+         * Returns a copy of this batch which is tagged with the given commit
+         * id.
+         */
+        Batch tagged(long commitId) {
+            Batch batch = new Batch();
+            try {
+                batch.mOut.writeByte(OP_COMMIT_ID);
+                batch.mOut.writeLong(commitId);
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+            batch.addAll(this);
+            return batch;
+        }
+
+        void addTruncate() {
+            try {
+                mOut.writeByte(OP_TRUNCATE);
+            } catch (IOException e) {
+                // Not expected.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeArray(byte[] array) throws IOException {
+            mOut.writeInt(array.length);
+            mOut.write(array);
+        }
+
+        /**
+         * Writes the batch as one frame.
+         *
+         * @return amount of bytes written
+         */
+        int writeTo(RandomAccessFile raf) throws IOException {
+            byte[] buf = mBuffer.array();
+            int length = mBuffer.size() - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buf, 8, length);
+            putInt(buf, 0, length);
+            putInt(buf, 4, (int) crc.getValue());
+            raf.write(buf, 0, length + 8);
+            return length + 8;
+        }
+
+        private static void putInt(byte[] buf, int offset, int v) {
+            buf[offset] = (byte) (v >> 24);
+            buf[offset + 1] = (byte) (v >> 16);
+            buf[offset + 2] = (byte) (v >> 8);
+            buf[offset + 3] = (byte) v;
+        }
+    }
+
+    // Exposes the internal array, to avoid copying it.
+    private static class Buffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
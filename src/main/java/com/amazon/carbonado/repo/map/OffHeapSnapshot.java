@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.channels.FileChannel;
+
+import java.util.Map;
+
+/**
+ * Snapshot of a persistent {@link OffHeapStorage}, consisting of a values
+ * file and a keys file. The values file is mapped into memory when loaded,
+ * and its blocks are referenced directly by the storage. Only the keys file
+ * is read, and so loading time is proportional to the size of the keys.
+ *
+ * <p>Values are stored in the same format as {@link OffHeapArena} blocks, and
+ * no block crosses a chunk boundary. Each chunk is mapped separately, since a
+ * mapped buffer cannot exceed 2GB.
+ */
+class OffHeapSnapshot {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private static final long MAGIC_NUMBER = 0x4361726d61704b73L;
+    private static final int VERSION = 1;
+
+    /**
+     * Loads a snapshot into an empty storage map and arena.
+     */
+    static void load(File keysFile, File valuesFile, OffHeapArena arena, Map<byte[], Long> map)
+        throws IOException
+    {
+        int firstSlab = 0;
+        RandomAccessFile raf = new RandomAccessFile(valuesFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += CHUNK_SIZE) {
+                int slab = arena.addMapped
+                    (channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                                 Math.min(CHUNK_SIZE, size - pos)));
+                if (pos == 0) {
+                    firstSlab = slab;
+                }
+            }
+        } finally {
+            raf.close();
+        }
+
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(new FileInputStream(keysFile), 65536));
+        try {
+            if (in.readLong() != MAGIC_NUMBER) {
+                throw new IOException("Not a snapshot file: " + keysFile);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+
+            long count = 0;
+            int keyLength;
+            while ((keyLength = in.readInt()) >= 0) {
+                byte[] key = new byte[keyLength];
+                in.readFully(key);
+                long pos = in.readLong();
+                long slab = firstSlab + (int) (pos >>> CHUNK_SHIFT);
+                map.put(key, (slab << 32) | (pos & (CHUNK_SIZE - 1)));
+                count++;
+            }
+
+            if (in.readLong() != count) {
+                throw new IOException("Snapshot is corrupt: " + keysFile);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a new snapshot into temporary files, which are renamed when
+     * finished. The keys file is renamed last, and so a snapshot is complete
+     * if its keys file exists.
+     */
+    static class Writer {
+        private final File mKeysFile;
+        private final File mValuesFile;
+        private final File mKeysTemp;
+        private final File mValuesTemp;
+
+        private final FileOutputStream mKeysOut;
+        private final FileOutputStream mValuesOut;
+        private final DataOutputStream mKeys;
+        private final DataOutputStream mValues;
+
+        private long mPos;
+        private long mCount;
+
+        Writer(File keysFile, File valuesFile) throws IOException {
+            mKeysFile = keysFile;
+            mValuesFile = valuesFile;
+            mKeysTemp = new File(keysFile.getPath() + ".tmp");
+            mValuesTemp = new File(valuesFile.getPath() + ".tmp");
+
+            mKeysOut = new FileOutputStream(mKeysTemp);
+            mKeys = new DataOutputStream(new BufferedOutputStream(mKeysOut, 65536));
+            mValuesOut = new FileOutputStream(mValuesTemp);
+            mValues = new DataOutputStream(new BufferedOutputStream(mValuesOut, 65536));
+
+            mKeys.writeLong(MAGIC_NUMBER);
+            mKeys.writeInt(VERSION);
+        }
+
+        void write(byte[] key, byte[] value) throws IOException {
+            long blockSize = 4L + value.length;
+            if (blockSize > CHUNK_SIZE) {
+                throw new IOException("Value is too large: " + value.length);
+            }
+
+            long remaining = CHUNK_SIZE - (mPos & (CHUNK_SIZE - 1));
+            if (blockSize > remaining) {
+                // Pad to the next chunk.
+                byte[] padding = new byte[(int) Math.min(remaining, 65536)];
+                for (long i=remaining; i>0; i-=padding.length) {
+                    mValues.write(padding, 0, (int) Math.min(i, padding.length));
+                }
+                mPos += remaining;
+            }
+
+            mKeys.writeInt(key.length);
+            mKeys.write(key);
+            mKeys.writeLong(mPos);
+
+            mValues.writeInt(value.length);
+            mValues.write(value);
+
+            mPos += blockSize;
+            mCount++;
+        }
+
+        void finish() throws IOException {
+            mValues.flush();
+            mValuesOut.getFD().sync();
+            mValues.close();
+            rename(mValuesTemp, mValuesFile);
+
+            mKeys.writeInt(-1);
+            mKeys.writeLong(mCount);
+            mKeys.flush();
+            mKeysOut.getFD().sync();
+            mKeys.close();
+            rename(mKeysTemp, mKeysFile);
+        }
+
+        void abort() {
+            try {
+                mValues.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            try {
+                mKeys.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            mValuesTemp.delete();
+            mKeysTemp.delete();
+        }
+
+        private static void rename(File from, File to) throws IOException {
+            to.delete();
+            if (!from.renameTo(to)) {
+                throw new IOException("Unable to rename " + from + " to " + to);
+            }
+        }
+    }
+}
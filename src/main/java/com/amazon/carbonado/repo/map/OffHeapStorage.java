@@ -0,0 +1,1141 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.FetchTimeoutException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PersistInterruptedException;
+import com.amazon.carbonado.PersistTimeoutException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Trigger;
+
+import com.amazon.carbonado.capability.IndexInfo;
+
+import com.amazon.carbonado.cursor.ControllerCursor;
+import com.amazon.carbonado.cursor.EmptyCursor;
+import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.SingletonCursor;
+import com.amazon.carbonado.cursor.SortBuffer;
+
+import com.amazon.carbonado.filter.Filter;
+
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableIntrospector;
+
+import com.amazon.carbonado.lob.Blob;
+import com.amazon.carbonado.lob.Clob;
+
+import com.amazon.carbonado.qe.BoundaryType;
+import com.amazon.carbonado.qe.QueryExecutorFactory;
+import com.amazon.carbonado.qe.QueryEngine;
+import com.amazon.carbonado.qe.StorageAccess;
+
+import com.amazon.carbonado.raw.GenericStorableCodecFactory;
+import com.amazon.carbonado.raw.RawSupport;
+import com.amazon.carbonado.raw.RawUtil;
+import com.amazon.carbonado.raw.StorableCodec;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+import com.amazon.carbonado.spi.IndexInfoImpl;
+import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.TriggerManager;
+
+import com.amazon.carbonado.txn.TransactionScope;
+
+import com.amazon.carbonado.util.Comparators;
+
+/**
+ * Storage which keeps storables encoded, with values held outside the Java
+ * heap. Encoded keys remain in the heap, in a concurrent map ordered by
+ * unsigned byte comparison, which matches the primary key ordering. Storables
+ * are only decoded when loaded or returned by a cursor.
+ *
+ * <p>Locking follows the same rules as {@link MapStorage}, except updates and
+ * deletes always acquire write locks, because they free the memory which
+ * concurrent readers might otherwise be referencing.
+ *
+ * <p>If given a data home directory, the storage is persistent. Committed
+ * changes are appended to an {@link OffHeapLog}, and a {@link #checkpoint
+ * checkpoint} writes an {@link OffHeapSnapshot} and starts a new log. When
+ * opened, the latest snapshot is mapped into memory and subsequent logs are
+ * replayed. Logs are not forced to the device when a transaction commits, and
+ * so durability matches that of a "no sync" transaction mode.
+ */
+class OffHeapStorage<S extends Storable> implements Storage<S>, StorageAccess<S> {
+    private static final int DEFAULT_LOB_BLOCK_SIZE = 1000;
+
+    private final MapRepository mRepo;
+    private final Class<S> mType;
+    private final TriggerManager<S> mTriggers;
+    private final StorableCodec<S> mCodec;
+    private final StorableIndex<S> mPrimaryKeyIndex;
+    private final QueryEngine<S> mQueryEngine;
+
+    private final int mLockTimeout;
+    private final TimeUnit mLockTimeoutUnit;
+
+    /**
+     * Lock stripes, selected by key hash. See {@link MapStorage#mLocks}.
+     */
+    final UpgradableLock<Object>[] mLocks;
+
+    // Maps encoded keys to arena handles of encoded values.
+    private final ConcurrentNavigableMap<byte[], Long> mMap;
+    private final OffHeapArena mArena;
+
+    // Is null if storage is not persistent.
+    private final File mDataHome;
+    // Is null if storage is not persistent or if closed.
+    private volatile OffHeapLog mLog;
+    // Generation of current log and latest snapshot, guarded by checkpoint lock.
+    private int mGeneration;
+    private final Object mCheckpointLock;
+
+    /**
+     * @param dataHome directory for persistent files, or null if not persistent
+     */
+    OffHeapStorage(MapRepository repo, Class<S> type, int lockTimeout, TimeUnit lockTimeoutUnit,
+                   int lockStripeCount, File dataHome)
+        throws RepositoryException
+    {
+        mRepo = repo;
+        mType = type;
+        mTriggers = new TriggerManager<S>();
+
+        StorableIndex<S> pkIndex = new StorableIndex<S>
+            (StorableIntrospector.examine(type).getPrimaryKey(), Direction.ASCENDING)
+            .clustered(true);
+
+        mCodec = new GenericStorableCodecFactory()
+            .createCodec(type, pkIndex, repo.isMaster(), null, new Support());
+
+        mPrimaryKeyIndex = mCodec.getPrimaryKeyIndex();
+
+        mQueryEngine = new QueryEngine<S>(type, repo);
+
+        mLockTimeout = lockTimeout;
+        mLockTimeoutUnit = lockTimeoutUnit;
+
+        {
+            int count = 1;
+            while (count < lockStripeCount) {
+                count <<= 1;
+            }
+            mLocks = new UpgradableLock[count];
+            for (int i=0; i<count; i++) {
+                mLocks[i] = MapStorage.newLock();
+            }
+        }
+
+        mMap = new ConcurrentSkipListMap<byte[], Long>
+            (Comparators.arrayComparator(byte[].class, true));
+        mArena = new OffHeapArena();
+
+        mDataHome = dataHome;
+        mCheckpointLock = new Object();
+        if (dataHome != null) {
+            try {
+                recover();
+            } catch (IOException e) {
+                throw new RepositoryException("Unable to open storage for " + type.getName(), e);
+            }
+        }
+
+        try {
+            if (LobEngine.hasLobs(type)) {
+                Trigger<S> lobTrigger = repo.getLobEngine()
+                    .getSupportTrigger(type, DEFAULT_LOB_BLOCK_SIZE);
+                addTrigger(lobTrigger);
+            }
+
+            // Don't install automatic triggers until we're completely ready.
+            mTriggers.addTriggers(type, repo.mTriggerFactories);
+        } catch (SupportException e) {
+            throw e;
+        } catch (RepositoryException e) {
+            throw new SupportException(e);
+        }
+    }
+
+    public Class<S> getStorableType() {
+        return mType;
+    }
+
+    public S prepare() {
+        return mCodec.instantiate();
+    }
+
+    public Query<S> query() throws FetchException {
+        return mQueryEngine.query();
+    }
+
+    public Query<S> query(String filter) throws FetchException {
+        return mQueryEngine.query(filter);
+    }
+
+    public Query<S> query(Filter<S> filter) throws FetchException {
+        return mQueryEngine.query(filter);
+    }
+
+    public void truncate() throws PersistException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            if (txn == null) {
+                doLockAllForWrite(scope);
+                try {
+                    truncateNoLock();
+                } finally {
+                    unlockAllFromWrite(scope);
+                }
+            } else {
+                txn.lockForWrite(mLocks);
+                // Non-transactional truncate. (is not added to undo log)
+                truncateNoLock();
+            }
+        } catch (PersistException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    // Caller must hold all write locks.
+    private void truncateNoLock() throws IOException {
+        if (mDataHome != null) {
+            OffHeapLog.Batch batch = new OffHeapLog.Batch();
+            batch.addTruncate();
+            append(batch);
+        }
+        mMap.clear();
+        mArena.clear();
+    }
+
+    public boolean addTrigger(Trigger<? super S> trigger) {
+        return mTriggers.addTrigger(trigger);
+    }
+
+    public boolean removeTrigger(Trigger<? super S> trigger) {
+        return mTriggers.removeTrigger(trigger);
+    }
+
+    public IndexInfo[] getIndexInfo() {
+        StorableIndex<S> pkIndex = mPrimaryKeyIndex;
+
+        if (pkIndex == null) {
+            return new IndexInfo[0];
+        }
+
+        int i = pkIndex.getPropertyCount();
+        String[] propertyNames = new String[i];
+        Direction[] directions = new Direction[i];
+        while (--i >= 0) {
+            propertyNames[i] = pkIndex.getProperty(i).getName();
+            directions[i] = pkIndex.getPropertyDirection(i);
+        }
+
+        return new IndexInfo[] {
+            new IndexInfoImpl(getStorableType().getName(), true, true, propertyNames, directions)
+        };
+    }
+
+    public QueryExecutorFactory<S> getQueryExecutorFactory() {
+        return mQueryEngine;
+    }
+
+    public Collection<StorableIndex<S>> getAllIndexes() {
+        return Collections.singletonList(mPrimaryKeyIndex);
+    }
+
+    public Storage<S> storageDelegate(StorableIndex<S> index) {
+        // We're the grunt and don't delegate.
+        return null;
+    }
+
+    public SortBuffer<S> createSortBuffer() {
+        return new MergeSortBuffer<S>();
+    }
+
+    public SortBuffer<S> createSortBuffer(Query.Controller controller) {
+        return new MergeSortBuffer<S>(controller);
+    }
+
+    public long countAll() throws FetchException {
+        return countAll(null);
+    }
+
+    public long countAll(Query.Controller controller) throws FetchException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            if (txn == null) {
+                doLockAllForRead(scope);
+                try {
+                    return mMap.size();
+                } finally {
+                    unlockAllFromRead(scope);
+                }
+            } else {
+                // Since lock is so coarse, all reads in transaction scope are
+                // upgrade to avoid deadlocks.
+                final boolean isForUpdate = scope.isForUpdate();
+                txn.lockForUpgrade(mLocks, isForUpdate);
+                try {
+                    return mMap.size();
+                } finally {
+                    txn.unlockFromUpgrade(mLocks, isForUpdate);
+                }
+            }
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    public Cursor<S> fetchAll() throws FetchException {
+        return fetchAll(null);
+    }
+
+    public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+        return fetchSubset(null, null,
+                           BoundaryType.OPEN, null,
+                           BoundaryType.OPEN, null,
+                           false, false,
+                           controller);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues)
+        throws FetchException
+    {
+        return fetchOne(index, identityValues, null);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues,
+                              Query.Controller controller)
+        throws FetchException
+    {
+        // Note: Controller is never called.
+        byte[] key = mCodec.encodePrimaryKey(identityValues);
+        byte[] value = load(key);
+        if (value == null) {
+            return EmptyCursor.the();
+        }
+        return new SingletonCursor<S>(instantiate(key, value));
+    }
+
+    public Query<?> indexEntryQuery(StorableIndex<S> index) {
+        return null;
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery) {
+        // This method should never be called since null was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery,
+                                              Query.Controller controller)
+    {
+        // This method should never be called since null was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder)
+        throws FetchException
+    {
+        if (reverseRange) {
+            {
+                BoundaryType temp = rangeStartBoundary;
+                rangeStartBoundary = rangeEndBoundary;
+                rangeEndBoundary = temp;
+            }
+
+            {
+                Object temp = rangeStartValue;
+                rangeStartValue = rangeEndValue;
+                rangeEndValue = temp;
+            }
+        }
+
+        StorableCodec<S> codec = mCodec;
+
+        final byte[] identityKey;
+        if (identityValues == null || identityValues.length == 0) {
+            identityKey = codec.encodePrimaryKeyPrefix();
+        } else {
+            identityKey = codec.encodePrimaryKey(identityValues, 0, identityValues.length);
+        }
+
+        final byte[] startBound;
+        if (rangeStartBoundary == BoundaryType.OPEN) {
+            startBound = identityKey;
+        } else {
+            startBound = createBound(identityValues, identityKey, rangeStartValue, codec);
+            if (!reverseOrder && rangeStartBoundary == BoundaryType.EXCLUSIVE) {
+                // If key is composite and partial, need to skip trailing
+                // unspecified keys by adding one and making inclusive.
+                if (!RawUtil.increment(startBound)) {
+                    return EmptyCursor.the();
+                }
+                rangeStartBoundary = BoundaryType.INCLUSIVE;
+            }
+        }
+
+        final byte[] endBound;
+        if (rangeEndBoundary == BoundaryType.OPEN) {
+            endBound = identityKey;
+        } else {
+            endBound = createBound(identityValues, identityKey, rangeEndValue, codec);
+            if (reverseOrder && rangeEndBoundary == BoundaryType.EXCLUSIVE) {
+                // If key is composite and partial, need to skip trailing
+                // unspecified keys by subtracting one and making
+                // inclusive.
+                if (!RawUtil.decrement(endBound)) {
+                    return EmptyCursor.the();
+                }
+                rangeEndBoundary = BoundaryType.INCLUSIVE;
+            }
+        }
+
+        final boolean inclusiveStart = rangeStartBoundary != BoundaryType.EXCLUSIVE;
+        final boolean inclusiveEnd = rangeEndBoundary != BoundaryType.EXCLUSIVE;
+
+        try {
+            return new OffHeapCursor<S>(this, mRepo.localTransactionScope(), mMap,
+                                        startBound, inclusiveStart,
+                                        endBound, inclusiveEnd,
+                                        codec.getPrimaryKeyPrefixLength(),
+                                        reverseOrder);
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return ControllerCursor.apply(fetchSubset(index,
+                                                  identityValues,
+                                                  rangeStartBoundary,
+                                                  rangeStartValue,
+                                                  rangeEndBoundary,
+                                                  rangeEndValue,
+                                                  reverseRange,
+                                                  reverseOrder),
+                                      controller);
+    }
+
+    private byte[] createBound(Object[] exactValues, byte[] exactKey, Object rangeValue,
+                               StorableCodec<S> codec) {
+        Object[] values = {rangeValue};
+        if (exactValues == null || exactValues.length == 0) {
+            return codec.encodePrimaryKey(values, 0, 1);
+        }
+
+        byte[] rangeKey = codec.encodePrimaryKey
+            (values, exactValues.length, exactValues.length + 1);
+        byte[] bound = new byte[exactKey.length + rangeKey.length];
+        System.arraycopy(exactKey, 0, bound, 0, exactKey.length);
+        System.arraycopy(rangeKey, 0, bound, exactKey.length, rangeKey.length);
+        return bound;
+    }
+
+    S instantiate(byte[] key, byte[] value) throws FetchException {
+        return mCodec.instantiate(key, value);
+    }
+
+    // Caller must hold a lock which prevents the block from being freed.
+    byte[] readValue(long handle) {
+        return mArena.read(handle);
+    }
+
+    /**
+     * @return null if not found
+     */
+    byte[] load(byte[] key) throws FetchException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(key);
+            if (txn == null) {
+                doLockForRead(lock, scope);
+                try {
+                    return loadNoLock(key);
+                } finally {
+                    lock.unlockFromRead(scope);
+                }
+            } else {
+                // Since lock is so coarse, all reads in transaction scope are
+                // upgrade to avoid deadlocks.
+                final boolean isForUpdate = scope.isForUpdate();
+                txn.lockForUpgrade(lock, isForUpdate);
+                try {
+                    return loadNoLock(key);
+                } finally {
+                    txn.unlockFromUpgrade(lock, isForUpdate);
+                }
+            }
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    // Caller must hold lock.
+    private byte[] loadNoLock(byte[] key) {
+        Long handle = mMap.get(key);
+        return handle == null ? null : mArena.read(handle);
+    }
+
+    boolean tryInsert(byte[] key, byte[] value) throws PersistException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(key);
+            if (txn == null) {
+                // No need to acquire full write lock since map is concurrent
+                // and existing entry (if any) is not being freed. Upgrade lock
+                // is required because a concurrent transaction might be in
+                // progress, and so insert should wait.
+                doLockForUpgrade(lock, scope);
+                try {
+                    if (!tryInsertNoLock(key, value)) {
+                        return false;
+                    }
+                    if (mDataHome != null) {
+                        // Insert is logged after being applied, and so it
+                        // must be rolled back if logging fails.
+                        try {
+                            append(key, value);
+                        } catch (IOException e) {
+                            restore(key, null);
+                            throw e;
+                        }
+                    }
+                    return true;
+                } finally {
+                    lock.unlockFromUpgrade(scope);
+                }
+            } else {
+                txn.lockForWrite(lock);
+                if (tryInsertNoLock(key, value)) {
+                    txn.replaced(this, key, null);
+                    if (mDataHome != null) {
+                        txn.logged(this, key, value);
+                    }
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        } catch (PersistException e) {
+            throw e;
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    // Caller must hold upgrade or write lock.
+    private boolean tryInsertNoLock(byte[] key, byte[] value) {
+        if (mMap.containsKey(key)) {
+            return false;
+        }
+        mMap.put(key, mArena.allocate(value));
+        return true;
+    }
+
+    void store(byte[] key, byte[] value) throws PersistException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(key);
+            if (txn == null) {
+                doLockForWrite(lock, scope);
+                try {
+                    if (mDataHome != null) {
+                        append(key, value);
+                    }
+                    storeNoLock(key, value, null);
+                } finally {
+                    lock.unlockFromWrite(scope);
+                }
+            } else {
+                txn.lockForWrite(lock);
+                storeNoLock(key, value, txn);
+                if (mDataHome != null) {
+                    txn.logged(this, key, value);
+                }
+            }
+        } catch (PersistException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    // Caller must hold write lock.
+    private void storeNoLock(byte[] key, byte[] value, MapTransaction txn) {
+        Long old = mMap.put(key, mArena.allocate(value));
+        if (txn != null) {
+            txn.replaced(this, key, old == null ? null : mArena.read(old));
+        }
+        if (old != null) {
+            mArena.free(old);
+        }
+    }
+
+    boolean tryDelete(byte[] key) throws PersistException {
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            UpgradableLock<Object> lock = lockFor(key);
+            if (txn == null) {
+                doLockForWrite(lock, scope);
+                try {
+                    if (mDataHome != null) {
+                        if (!mMap.containsKey(key)) {
+                            return false;
+                        }
+                        append(key, null);
+                    }
+                    return tryDeleteNoLock(key, null);
+                } finally {
+                    lock.unlockFromWrite(scope);
+                }
+            } else {
+                txn.lockForWrite(lock);
+                if (tryDeleteNoLock(key, txn)) {
+                    if (mDataHome != null) {
+                        txn.logged(this, key, null);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        } catch (PersistException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    // Caller must hold write lock.
+    private boolean tryDeleteNoLock(byte[] key, MapTransaction txn) {
+        Long old = mMap.remove(key);
+        if (old == null) {
+            return false;
+        }
+        if (txn != null) {
+            txn.replaced(this, key, mArena.read(old));
+        }
+        mArena.free(old);
+        return true;
+    }
+
+    /**
+     * Called by MapTransaction, which implicitly holds the write lock.
+     *
+     * @param value value to restore, or null to remove
+     */
+    void restore(byte[] key, byte[] value) {
+        Long old;
+        if (value == null) {
+            old = mMap.remove(key);
+        } else {
+            old = mMap.put(key, mArena.allocate(value));
+        }
+        if (old != null) {
+            mArena.free(old);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the storage and starts a new log, unless storage
+     * is not persistent or nothing has changed since the last snapshot. Reads
+     * and writes may proceed concurrently.
+     */
+    void checkpoint() throws IOException {
+        if (mDataHome == null) {
+            return;
+        }
+
+        synchronized (mCheckpointLock) {
+            OffHeapLog oldLog = mLog;
+            if (oldLog == null || oldLog.isEmpty()) {
+                return;
+            }
+
+            // Switch to the new log first. Changes written to the old log
+            // have already been applied, or they are applied while holding a
+            // lock which the copy must wait for. Either way, the snapshot
+            // includes them. Replaying the new log over the snapshot is
+            // harmless, since it contains complete values.
+            int generation = mGeneration + 1;
+            mLog = new OffHeapLog(file(generation, ".log"), 0);
+            mGeneration = generation;
+
+            try {
+                OffHeapSnapshot.Writer writer = new OffHeapSnapshot.Writer
+                    (file(generation, ".keys"), file(generation, ".values"));
+                boolean finished = false;
+                try {
+                    Object locker = new Object();
+                    for (byte[] key : mMap.keySet()) {
+                        UpgradableLock<Object> lock = lockFor(key);
+                        byte[] value;
+                        lock.lockForRead(locker);
+                        try {
+                            value = loadNoLock(key);
+                        } finally {
+                            lock.unlockFromRead(locker);
+                        }
+                        if (value != null) {
+                            writer.write(key, value);
+                        }
+                    }
+                    writer.finish();
+                    finished = true;
+                } finally {
+                    if (!finished) {
+                        writer.abort();
+                    }
+                }
+            } finally {
+                // If snapshot failed, old log is still required for recovery.
+                oldLog.close();
+            }
+
+            deleteFiles(generation);
+        }
+    }
+
+    /**
+     * Closes the log, if storage is persistent. Storage cannot be modified
+     * afterwards.
+     */
+    void close() throws IOException {
+        synchronized (mCheckpointLock) {
+            OffHeapLog log = mLog;
+            if (log != null) {
+                mLog = null;
+                try {
+                    log.sync();
+                } finally {
+                    log.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by MapTransaction when committing, while it still holds the
+     * write locks.
+     */
+    void append(OffHeapLog.Batch batch) throws IOException {
+        OffHeapLog log = mLog;
+        while (true) {
+            if (log == null) {
+                throw new IOException("Storage is closed");
+            }
+            try {
+                log.append(batch);
+                return;
+            } catch (IOException e) {
+                // Retry if log was closed by a concurrent checkpoint.
+                OffHeapLog current = mLog;
+                if (current == log) {
+                    throw e;
+                }
+                log = current;
+            }
+        }
+    }
+
+    /**
+     * Called by MapTransaction when committing changes to one or more
+     * storages, while it still holds the write locks.
+     */
+    static void appendAll(Map<OffHeapStorage, OffHeapLog.Batch> redo) throws IOException {
+        Iterator<Map.Entry<OffHeapStorage, OffHeapLog.Batch>> it = redo.entrySet().iterator();
+        Map.Entry<OffHeapStorage, OffHeapLog.Batch> first = it.next();
+        if (!it.hasNext()) {
+            first.getKey().append(first.getValue());
+        } else {
+            first.getKey().mRepo.getCommitLog().append(redo);
+        }
+    }
+
+    private void append(byte[] key, byte[] value) throws IOException {
+        OffHeapLog.Batch batch = new OffHeapLog.Batch();
+        batch.add(key, value);
+        append(batch);
+    }
+
+    /**
+     * Loads the latest complete snapshot and replays all the logs which
+     * follow it.
+     */
+    private void recover() throws IOException {
+        if (!mDataHome.isDirectory() && !mDataHome.mkdirs()) {
+            throw new IOException("Unable to create directory: " + mDataHome);
+        }
+
+        int snapshot = -1;
+        SortedSet<Integer> logs = new TreeSet<Integer>();
+        String[] names = mDataHome.list();
+        if (names != null) {
+            for (String name : names) {
+                snapshot = Math.max(snapshot, generation(name, ".keys"));
+                int generation = generation(name, ".log");
+                if (generation >= 0) {
+                    logs.add(generation);
+                }
+            }
+        }
+
+        if (snapshot >= 0) {
+            OffHeapSnapshot.load(file(snapshot, ".keys"), file(snapshot, ".values"),
+                                 mArena, mMap);
+        }
+
+        OffHeapLog.Visitor visitor = new OffHeapLog.Visitor() {
+            public void store(byte[] key, byte[] value) {
+                restore(key, value);
+            }
+
+            public void delete(byte[] key) {
+                restore(key, null);
+            }
+
+            public void truncate() {
+                mMap.clear();
+                mArena.clear();
+            }
+
+            public boolean isCommitted(long commitId) {
+                return mRepo.getCommitLog().isCommitted(commitId);
+            }
+        };
+
+        int generation = Math.max(snapshot, 0);
+        long validLength = 0;
+        for (int logGeneration : logs.tailSet(generation)) {
+            validLength = OffHeapLog.replay(file(logGeneration, ".log"), visitor);
+            generation = logGeneration;
+        }
+
+        mGeneration = generation;
+        mLog = new OffHeapLog(file(generation, ".log"), validLength);
+
+        deleteFiles(snapshot);
+    }
+
+    /**
+     * Deletes temporary files and files older than the given generation.
+     */
+    private void deleteFiles(int generation) {
+        String[] names = mDataHome.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            boolean temp = name.endsWith(".tmp");
+            String baseName = temp ? name.substring(0, name.length() - 4) : name;
+            int fileGeneration = Math.max(generation(baseName, ".log"),
+                                          Math.max(generation(baseName, ".keys"),
+                                                   generation(baseName, ".values")));
+            if (fileGeneration >= 0 && (temp || fileGeneration < generation)) {
+                new File(mDataHome, name).delete();
+            }
+        }
+    }
+
+    private File file(int generation, String suffix) {
+        return new File(mDataHome, mType.getName() + '.' + generation + suffix);
+    }
+
+    /**
+     * @return generation of named file, or -1 if not a file of this storage
+     */
+    private int generation(String name, String suffix) {
+        String prefix = mType.getName() + '.';
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt
+                (name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        } catch (IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the lock stripe which guards the given encoded primary key.
+     */
+    UpgradableLock<Object> lockFor(byte[] key) {
+        UpgradableLock<Object>[] locks = mLocks;
+        if (locks.length == 1) {
+            return locks[0];
+        }
+
+        int hash = Arrays.hashCode(key);
+        // Spread the bits, since only the low bits select the stripe.
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+        return locks[hash & (locks.length - 1)];
+    }
+
+    void doLockAllForRead(Object locker) throws FetchException {
+        UpgradableLock<Object>[] locks = mLocks;
+        int i = 0;
+        try {
+            for (; i<locks.length; i++) {
+                doLockForRead(locks[i], locker);
+            }
+        } catch (FetchException e) {
+            while (--i >= 0) {
+                locks[i].unlockFromRead(locker);
+            }
+            throw e;
+        }
+    }
+
+    void unlockAllFromRead(Object locker) {
+        UpgradableLock<Object>[] locks = mLocks;
+        for (int i=locks.length; --i>=0; ) {
+            locks[i].unlockFromRead(locker);
+        }
+    }
+
+    private void doLockAllForWrite(Object locker) throws PersistException {
+        UpgradableLock<Object>[] locks = mLocks;
+        int i = 0;
+        try {
+            for (; i<locks.length; i++) {
+                doLockForWrite(locks[i], locker);
+            }
+        } catch (PersistException e) {
+            while (--i >= 0) {
+                locks[i].unlockFromWrite(locker);
+            }
+            throw e;
+        }
+    }
+
+    private void unlockAllFromWrite(Object locker) {
+        UpgradableLock<Object>[] locks = mLocks;
+        for (int i=locks.length; --i>=0; ) {
+            locks[i].unlockFromWrite(locker);
+        }
+    }
+
+    private void doLockForRead(UpgradableLock<Object> lock, Object locker)
+        throws FetchException
+    {
+        try {
+            if (!lock.tryLockForRead(locker, mLockTimeout, mLockTimeoutUnit)) {
+                throw new FetchTimeoutException("" + mLockTimeout + ' ' +
+                                                mLockTimeoutUnit.toString().toLowerCase());
+            }
+        } catch (InterruptedException e) {
+            throw new FetchInterruptedException(e);
+        }
+    }
+
+    private void doLockForUpgrade(UpgradableLock<Object> lock, Object locker)
+        throws FetchException
+    {
+        try {
+            if (!lock.tryLockForUpgrade(locker, mLockTimeout, mLockTimeoutUnit)) {
+                throw new FetchTimeoutException("" + mLockTimeout + ' ' +
+                                                mLockTimeoutUnit.toString().toLowerCase());
+            }
+        } catch (InterruptedException e) {
+            throw new FetchInterruptedException(e);
+        }
+    }
+
+    private void doLockForWrite(UpgradableLock<Object> lock, Object locker)
+        throws PersistException
+    {
+        try {
+            if (!lock.tryLockForWrite(locker, mLockTimeout, mLockTimeoutUnit)) {
+                throw new PersistTimeoutException("" + mLockTimeout + ' ' +
+                                                  mLockTimeoutUnit.toString().toLowerCase());
+            }
+        } catch (InterruptedException e) {
+            throw new PersistInterruptedException(e);
+        }
+    }
+
+    // Note: OffHeapStorage could just implement the RawSupport interface, but
+    // then these hidden methods would be public. A simple cast of Storage to
+    // RawSupport would expose them.
+    private class Support implements RawSupport<S> {
+        public Repository getRootRepository() {
+            return mRepo.getRootRepository();
+        }
+
+        public boolean isPropertySupported(String name) {
+            if (name == null) {
+                return false;
+            }
+            return StorableIntrospector.examine(mType).getAllProperties().containsKey(name);
+        }
+
+        public byte[] tryLoad(S storable, byte[] key) throws FetchException {
+            return load(key);
+        }
+
+        public boolean tryInsert(S storable, byte[] key, byte[] value) throws PersistException {
+            return OffHeapStorage.this.tryInsert(key, value);
+        }
+
+        public void store(S storable, byte[] key, byte[] value) throws PersistException {
+            OffHeapStorage.this.store(key, value);
+        }
+
+        public boolean tryDelete(S storable, byte[] key) throws PersistException {
+            return OffHeapStorage.this.tryDelete(key);
+        }
+
+        public Blob getBlob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mRepo.getLobEngine().getBlobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Blob blob) throws PersistException {
+            try {
+                return mRepo.getLobEngine().getLocator(blob);
+            } catch (ClassCastException e) {
+                throw new PersistException(e);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public Clob getClob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mRepo.getLobEngine().getClobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Clob clob) throws PersistException {
+            try {
+                return mRepo.getLobEngine().getLocator(clob);
+            } catch (ClassCastException e) {
+                throw new PersistException(e);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public void decode(S dest, int generation, byte[] data) throws CorruptEncodingException {
+            mCodec.decode(dest, generation, data);
+        }
+
+        public SequenceValueProducer getSequenceValueProducer(String name)
+            throws PersistException
+        {
+            try {
+                return mRepo.getSequenceValueProducer(name);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public Trigger<? super S> getInsertTrigger() {
+            return mTriggers.getInsertTrigger();
+        }
+
+        public Trigger<? super S> getUpdateTrigger() {
+            return mTriggers.getUpdateTrigger();
+        }
+
+        public Trigger<? super S> getDeleteTrigger() {
+            return mTriggers.getDeleteTrigger();
+        }
+
+        public Trigger<? super S> getLoadTrigger() {
+            return mTriggers.getLoadTrigger();
+        }
+
+        public void locallyDisableLoadTrigger() {
+            mTriggers.locallyDisableLoad();
+        }
+
+        public void locallyEnableLoadTrigger() {
+            mTriggers.locallyEnableLoad();
+        }
+    }
+}
@@ -475,13 +475,14 @@ class UpgradableLock<L> {
                 return false;
             }
             if (!tryLockForWrite(locker)) {
+                // Releasing upgrade lock also undoes the automatic upgrade
+                // count increment, and so write lock is either acquired
+                // from scratch or with the previously owned upgrade lock.
                 unlockFromUpgrade(locker);
                 if ((timeout = unit.toNanos(timeout) - (System.nanoTime() - start)) <= 0) {
                     return false;
                 }
-                if (!lockForWriteQueuedInterruptibly(locker, addWriteWaiter(), timeout)) {
-                    return false;
-                }
+                return lockForWriteQueuedInterruptibly(locker, addWriteWaiter(), timeout);
             }
             if (upgradeResult == Result.ACQUIRED) {
                 // clear upgrade state bit to indicate automatic upgrade
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.replicated;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+
+import com.amazon.carbonado.capability.ResyncCapability;
+
+import com.amazon.carbonado.spi.KeyRangeSplitter;
+
+import com.amazon.carbonado.util.Throttle;
+import com.amazon.carbonado.util.WorkerPool;
+
+/**
+ * Incremental resync which compares checksums of key ranges, in the style
+ * of a Merkle tree. The master and replica are each scanned once,
+ * concurrently, computing the checksums of many small leaf ranges. The tree
+ * is derived from the leaves in memory, where each range is split into child
+ * ranges. Only children whose checksums differ are split further, until they
+ * are small enough to be compared storable by storable.
+ *
+ * <p>Hashing isn't pushed to the repositories, because they have no common
+ * way of computing it, and the master and replica can be different kinds of
+ * repositories.
+ *
+ * <p>Each storable is hashed from its serialized form, as produced by {@link
+ * Storable#writeTo}. It uses the same generic encoding as raw storage codecs,
+ * but without any layout generation, and so the master and replica produce
+ * identical checksums regardless of how they store the data. Range checksums
+ * are sums of storable hashes, which don't depend on scan order.
+ */
+class ChecksumResync<S extends Storable> {
+    // Amount of child ranges which a range is split into.
+    private static final int FANOUT = 16;
+
+    // Amount of leaf ranges which checksums are computed for, four levels
+    // below the root.
+    private static final int LEAVES = FANOUT * FANOUT * FANOUT * FANOUT;
+
+    // Ranges with no more entries than this are compared storable by storable.
+    private static final long LEAF_SIZE = 1000;
+
+    private final ReplicatedRepository mRepository;
+    private final ReplicationTrigger<S> mReplicationTrigger;
+    private final Storage<S> mReplicaStorage;
+    private final Query<S> mReplicaQuery;
+    private final Storage<S> mMasterStorage;
+    private final Query<S> mMasterQuery;
+    private final ResyncCapability.Listener<? super S> mListener;
+    private final double mDesiredSpeed;
+    private final Comparator mComparator;
+    private final ResyncProgress mProgress;
+    private final String mName;
+
+    private Class mKeyType;
+
+    /**
+     * @param name name of first ordering property, which ranges are split over
+     */
+    ChecksumResync(ReplicatedRepository repository,
+                   ReplicationTrigger<S> replicationTrigger,
+                   Storage<S> replicaStorage, Query<S> replicaQuery,
+                   Storage<S> masterStorage, Query<S> masterQuery,
+                   ResyncCapability.Listener<? super S> listener,
+                   double desiredSpeed,
+                   Comparator comparator,
+                   ResyncProgress progress,
+                   String name)
+    {
+        mRepository = repository;
+        mReplicationTrigger = replicationTrigger;
+        mReplicaStorage = replicaStorage;
+        mReplicaQuery = replicaQuery;
+        mMasterStorage = masterStorage;
+        mMasterQuery = masterQuery;
+        mListener = listener;
+        mDesiredSpeed = desiredSpeed;
+        mComparator = comparator;
+        mProgress = progress;
+        mName = name;
+    }
+
+    /**
+     * @return false if checksums cannot be computed for the storable type
+     */
+    boolean resync() throws RepositoryException {
+        Class keyType = KeyRangeSplitter.keyType(mMasterStorage.getStorableType(), mName);
+        if (keyType == null) {
+            return false;
+        }
+
+        try {
+            mMasterStorage.prepare().writeTo(new ByteArrayOutputStream());
+        } catch (SupportException e) {
+            // Storable has properties which cannot be serialized, like lobs.
+            return false;
+        } catch (IOException e) {
+            // Not expected.
+            throw new RepositoryException(e);
+        }
+
+        mKeyType = keyType;
+
+        scanAndCompare();
+
+        mProgress.rangeCompleted();
+        return true;
+    }
+
+    /**
+     * Scans the master and replica once each, computing the checksums of
+     * evenly spaced leaf ranges. The tree of ranges is then derived from
+     * the leaves and compared in memory.
+     */
+    private void scanAndCompare() throws RepositoryException {
+        long[] bounds = selectBounds(mReplicaQuery, mMasterQuery);
+        if (bounds == null) {
+            // Range is empty in both master and replica.
+            return;
+        }
+
+        Scan masterScan = new Scan(mMasterQuery, bounds);
+        // If no thread is available, the master is scanned after the replica.
+        Future<Checksums> masterFuture = WorkerPool.trySubmit(masterScan);
+
+        Checksums replicaSums;
+        try {
+            replicaSums = new Scan(mReplicaQuery, bounds).call();
+        } catch (CorruptEncodingException e) {
+            // Compare storable by storable, which repairs corrupt entries.
+            cancel(masterFuture);
+            resyncRange(mReplicaQuery, mMasterQuery);
+            return;
+        } catch (RepositoryException e) {
+            cancel(masterFuture);
+            throw e;
+        } catch (RuntimeException e) {
+            cancel(masterFuture);
+            throw e;
+        }
+
+        Checksums masterSums;
+        if (masterFuture == null) {
+            masterSums = masterScan.call();
+        } else {
+            try {
+                masterSums = masterFuture.get();
+            } catch (ExecutionException e) {
+                KeyRangeSplitter.rethrow(e.getCause());
+                return;
+            } catch (InterruptedException e) {
+                masterFuture.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new FetchInterruptedException(e);
+            }
+        }
+
+        replicaSums.accumulate();
+        masterSums.accumulate();
+
+        compare(bounds, replicaSums, masterSums, 0, bounds.length + 1);
+    }
+
+    /**
+     * Compares the checksums of a range of leaves, splitting it into child
+     * ranges if they differ.
+     *
+     * @param start first leaf, inclusive
+     * @param end last leaf, exclusive
+     */
+    private void compare(long[] bounds, Checksums replicaSums, Checksums masterSums,
+                         int start, int end)
+        throws RepositoryException
+    {
+        long replicaCount = replicaSums.count(start, end);
+        long masterCount = masterSums.count(start, end);
+
+        if (replicaCount == masterCount &&
+            replicaSums.hash(start, end) == masterSums.hash(start, end))
+        {
+            return;
+        }
+
+        if (end - start == 1 || Math.max(replicaCount, masterCount) <= LEAF_SIZE) {
+            // Note: bounds are explicitly boxed, to prevent null bounds from
+            // being unboxed.
+            Long low = start == 0 ? null : Long.valueOf(bounds[start - 1]);
+            Long high = end > bounds.length ? null : Long.valueOf(bounds[end - 1]);
+            resyncRange(range(mReplicaQuery, low, high), range(mMasterQuery, low, high));
+            return;
+        }
+
+        int step = (end - start + FANOUT - 1) / FANOUT;
+        for (int i=start; i<end; i+=step) {
+            compare(bounds, replicaSums, masterSums, i, Math.min(end, i + step));
+        }
+    }
+
+    private static void cancel(Future<?> future) {
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    private void resyncRange(Query<S> replicaRange, Query<S> masterRange)
+        throws RepositoryException
+    {
+        mProgress.addRanges(1);
+        mRepository.resyncRange(mReplicationTrigger,
+                                mReplicaStorage, replicaRange,
+                                mMasterStorage, masterRange,
+                                mListener, mDesiredSpeed,
+                                mComparator, mProgress);
+    }
+
+    private Query<S> range(Query<S> query, Long low, Long high) throws FetchException {
+        if (low != null) {
+            query = query.and(mName + " >= ?").with(KeyRangeSplitter.toKey(mKeyType, low));
+        }
+        if (high != null) {
+            query = query.and(mName + " < ?").with(KeyRangeSplitter.toKey(mKeyType, high));
+        }
+        return query;
+    }
+
+    /**
+     * Selects evenly spaced bounds for splitting a range into leaves, based
+     * on the lowest and highest key values found in the master and replica.
+     * Fewer leaves are selected if the range doesn't have enough distinct
+     * keys.
+     *
+     * @return null if range is empty, or an empty array if it cannot be split
+     */
+    private long[] selectBounds(Query<S> replicaRange, Query<S> masterRange)
+        throws RepositoryException
+    {
+        long[] masterKeys = KeyRangeSplitter.keyRange(masterRange, mName);
+        long[] replicaKeys = KeyRangeSplitter.keyRange(replicaRange, mName);
+
+        long min, max;
+        if (masterKeys == null) {
+            if (replicaKeys == null) {
+                return null;
+            }
+            min = replicaKeys[0];
+            max = replicaKeys[1];
+        } else if (replicaKeys == null) {
+            min = masterKeys[0];
+            max = masterKeys[1];
+        } else {
+            min = Math.min(masterKeys[0], replicaKeys[0]);
+            max = Math.max(masterKeys[1], replicaKeys[1]);
+        }
+
+        return KeyRangeSplitter.selectBounds(min, max, LEAVES);
+    }
+
+    private long key(S storable) {
+        return ((Number) storable.getPropertyValue(mName)).longValue();
+    }
+
+    /**
+     * 64-bit FNV-1a hash, with a final avalanche step such that sums of
+     * hashes are well distributed.
+     */
+    static long hash(byte[] bytes, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i=0; i<length; i++) {
+            h = (h ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Entry counts and checksums of leaf ranges.
+     */
+    private static class Checksums {
+        final long[] mCounts;
+        final long[] mHashes;
+
+        Checksums(int size) {
+            mCounts = new long[size];
+            mHashes = new long[size];
+        }
+
+        /**
+         * Converts the leaf sums into running sums, such that the sums of
+         * any range of leaves can be found by subtraction. Hash sums are
+         * allowed to overflow, which subtraction reverses.
+         */
+        void accumulate() {
+            long[] counts = mCounts;
+            long[] hashes = mHashes;
+            for (int i=1; i<counts.length; i++) {
+                counts[i] += counts[i - 1];
+                hashes[i] += hashes[i - 1];
+            }
+        }
+
+        /**
+         * Returns the entry count of the given leaves, after accumulating.
+         */
+        long count(int start, int end) {
+            return mCounts[end - 1] - (start == 0 ? 0 : mCounts[start - 1]);
+        }
+
+        /**
+         * Returns the checksum of the given leaves, after accumulating.
+         */
+        long hash(int start, int end) {
+            return mHashes[end - 1] - (start == 0 ? 0 : mHashes[start - 1]);
+        }
+    }
+
+    /**
+     * Scans a range, computing the checksums of its leaf ranges.
+     */
+    private class Scan implements Callable<Checksums> {
+        private final Query<S> mRange;
+        private final long[] mBounds;
+
+        Scan(Query<S> range, long[] bounds) {
+            mRange = range;
+            mBounds = bounds;
+        }
+
+        public Checksums call() throws RepositoryException {
+            Throttle throttle = mDesiredSpeed >= 1.0 ? null : new Throttle(50);
+            double desiredSpeed = Math.max(0.0, mDesiredSpeed);
+
+            long[] bounds = mBounds;
+            Checksums sums = new Checksums(bounds.length + 1);
+            Buffer buffer = new Buffer();
+
+            Cursor<S> cursor = mRange.fetch();
+            try {
+                while (cursor.hasNext()) {
+                    if (throttle != null) {
+                        try {
+                            // 100 millisecond clock precision
+                            throttle.throttle(desiredSpeed, 100);
+                        } catch (InterruptedException e) {
+                            throw new FetchInterruptedException(e);
+                        }
+                    }
+
+                    S storable = cursor.next();
+
+                    // Find leaf range, which starts at the highest bound not
+                    // greater than the key.
+                    int i = Arrays.binarySearch(bounds, key(storable));
+                    i = i < 0 ? ~i : (i + 1);
+
+                    buffer.reset();
+                    storable.writeTo(buffer);
+
+                    sums.mCounts[i]++;
+                    sums.mHashes[i] += hash(buffer.array(), buffer.size());
+
+                    mProgress.examined();
+                }
+            } catch (IOException e) {
+                // Not expected.
+                throw new FetchException(e);
+            } finally {
+                cursor.close();
+            }
+
+            return sums;
+        }
+    }
+
+    // Exposes the internal array, to avoid copying it.
+    private static class Buffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
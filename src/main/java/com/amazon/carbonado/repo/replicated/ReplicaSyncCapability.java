@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.replicated;
+
+import com.amazon.carbonado.PersistException;
+
+import com.amazon.carbonado.capability.Capability;
+
+/**
+ * Capability of replicated repositories which don't wait for replica commits
+ * to become durable. Changes to the replica are visible as soon as they
+ * commit, but they are only forced to stable storage periodically, by a
+ * background thread. Many commits are therefore made durable by one sync. If
+ * the process crashes, recent changes to the replica might be lost, and they
+ * can be restored with a {@link
+ * com.amazon.carbonado.capability.ResyncCapability resync}. Changes to the
+ * master are never deferred.
+ *
+ * @see ReplicatedRepositoryBuilder#setReplicaSyncInterval
+ */
+public interface ReplicaSyncCapability extends Capability {
+    /**
+     * Returns the age of the oldest replica change which might not be durable
+     * yet, in milliseconds. Returns zero if all changes are durable.
+     */
+    long getReplicaSyncLag();
+
+    /**
+     * Forces all replica changes which have committed to stable storage,
+     * without waiting for the background thread.
+     */
+    void syncReplica() throws PersistException;
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.replicated;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazon.carbonado.PersistException;
+
+import com.amazon.carbonado.repo.sleepycat.CheckpointCapability;
+
+/**
+ * Background thread which forces replica changes to stable storage, after
+ * they have been committed without waiting for a sync. All changes made
+ * within the sync interval are covered by one sync, like a group commit.
+ */
+class ReplicaSyncer extends Thread {
+    private final CheckpointCapability mCapability;
+    private final long mIntervalMillis;
+
+    // Time of the oldest change not yet covered by a sync, or zero if none.
+    private long mOldestChangeMillis;
+
+    private boolean mClosed;
+
+    /**
+     * @param capability replica capability which performs the sync
+     * @param intervalMillis maximum amount of time to defer a sync
+     */
+    ReplicaSyncer(CheckpointCapability capability, long intervalMillis) {
+        super("ReplicaSyncer");
+        setDaemon(true);
+        mCapability = capability;
+        mIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Called after a replica change has committed, or is about to commit.
+     */
+    synchronized void changed() {
+        if (mOldestChangeMillis == 0) {
+            mOldestChangeMillis = System.currentTimeMillis();
+            notify();
+        }
+    }
+
+    synchronized long getLag() {
+        long oldest = mOldestChangeMillis;
+        return oldest == 0 ? 0 : Math.max(1, System.currentTimeMillis() - oldest);
+    }
+
+    /**
+     * Forces all committed replica changes to stable storage.
+     */
+    void sync() throws PersistException {
+        long oldest;
+        synchronized (this) {
+            // Clear before syncing, such that concurrent changes are covered
+            // by the next sync.
+            oldest = mOldestChangeMillis;
+            mOldestChangeMillis = 0;
+        }
+
+        try {
+            mCapability.sync();
+        } catch (PersistException e) {
+            restore(oldest);
+            throw e;
+        } catch (RuntimeException e) {
+            restore(oldest);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the thread and syncs any remaining changes.
+     *
+     * @return false if already closed
+     */
+    boolean close() throws PersistException {
+        boolean changed;
+        synchronized (this) {
+            if (mClosed) {
+                return false;
+            }
+            mClosed = true;
+            changed = mOldestChangeMillis != 0;
+            notify();
+        }
+        if (changed) {
+            sync();
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!mClosed && mOldestChangeMillis == 0) {
+                        wait();
+                    }
+                    if (mClosed) {
+                        return;
+                    }
+                    long delay = mOldestChangeMillis + mIntervalMillis
+                        - System.currentTimeMillis();
+                    if (delay > 0) {
+                        wait(delay);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            try {
+                sync();
+            } catch (Throwable e) {
+                Log log = LogFactory.getLog(ReplicatedRepository.class);
+                log.error("Unable to sync replica", e);
+                try {
+                    // Don't retry immediately.
+                    Thread.sleep(mIntervalMillis);
+                } catch (InterruptedException e2) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized void restore(long oldest) {
+        if (oldest != 0 && (mOldestChangeMillis == 0 || oldest < mOldestChangeMillis)) {
+            mOldestChangeMillis = oldest;
+        }
+    }
+}
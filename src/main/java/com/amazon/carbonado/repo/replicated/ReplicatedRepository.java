@@ -17,11 +17,16 @@
  */
 package com.amazon.carbonado.repo.replicated;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -66,6 +71,9 @@ import com.amazon.carbonado.qe.UnionQueryAnalyzer;
 
 import com.amazon.carbonado.repo.indexed.IndexEntryAccessCapability;
 
+import com.amazon.carbonado.repo.sleepycat.CheckpointCapability;
+
+import com.amazon.carbonado.spi.KeyRangeSplitter;
 import com.amazon.carbonado.spi.StoragePool;
 
 import com.amazon.carbonado.txn.TransactionPair;
@@ -84,7 +92,8 @@ class ReplicatedRepository
     implements Repository,
                ResyncCapability,
                ShutdownCapability,
-               StorableInfoCapability
+               StorableInfoCapability,
+               ReplicaSyncCapability
 {
     // Maximum number of resync updates to replica per transaction.
     private static final int RESYNC_BATCH_SIZE = 10;
@@ -93,6 +102,10 @@ class ReplicatedRepository
     // scanned. Otherwise, write locks may be held for a very long time.
     private static final int RESYNC_WATERMARK = 100;
 
+    // Name of StoredReplicaResync entry which exists while the replica is
+    // synced in the background.
+    private static final String RESYNC_MARKER = "*";
+
     /**
      * Utility method to select the natural ordering of a storage, by looking for a clustered
      * index on the primary key. Returns null if no clustered index was found. If a filter is
@@ -182,9 +195,27 @@ class ReplicatedRepository
 
     private final StoragePool mStoragePool;
 
+    // Is null unless replica is synced asynchronously.
+    private final ReplicaSyncer mReplicaSyncer;
+
+    // Names of storable types to re-sync when first requested, after an
+    // unclean shutdown.
+    private final Set<String> mPendingResyncs;
+
     ReplicatedRepository(String aName,
                          Repository aReplicaRepository,
                          Repository aMasterRepository) {
+        this(aName, aReplicaRepository, aMasterRepository, 0);
+    }
+
+    /**
+     * @param replicaSyncInterval if positive, maximum amount of milliseconds
+     * to defer syncing the replica
+     */
+    ReplicatedRepository(String aName,
+                         Repository aReplicaRepository,
+                         Repository aMasterRepository,
+                         int replicaSyncInterval) {
         mName = aName;
         mReplicaRepository = aReplicaRepository;
         mMasterRepository = aMasterRepository;
@@ -222,6 +253,117 @@ class ReplicatedRepository
                 }
             }
         };
+
+        mPendingResyncs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        ReplicaSyncer syncer = null;
+        if (replicaSyncInterval > 0) {
+            CheckpointCapability cap =
+                aReplicaRepository.getCapability(CheckpointCapability.class);
+            if (cap == null) {
+                LogFactory.getLog(ReplicatedRepository.class).warn
+                    ("Replica repository cannot be synced in the background: " + aName);
+            } else {
+                try {
+                    markUnclean(cap);
+                } catch (RepositoryException e) {
+                    LogFactory.getLog(ReplicatedRepository.class).error
+                        ("Unable to record replica state; an unclean shutdown " +
+                         "won't be detected: " + aName, e);
+                }
+                syncer = new ReplicaSyncer(cap, replicaSyncInterval);
+                syncer.start();
+            }
+        }
+        mReplicaSyncer = syncer;
+    }
+
+    /**
+     * Inserts the marker which detects an unclean shutdown, and loads the
+     * names of storable types which need to be re-sync'd. If the marker
+     * already exists, every storable type in the replica needs a resync.
+     */
+    private void markUnclean(CheckpointCapability cap) throws RepositoryException {
+        Storage<StoredReplicaResync> storage =
+            mReplicaRepository.storageFor(StoredReplicaResync.class);
+
+        StoredReplicaResync marker = storage.prepare();
+        marker.setName(RESYNC_MARKER);
+
+        if (!marker.tryLoad()) {
+            marker.insert();
+        } else {
+            // Replica wasn't closed cleanly, and so commits which weren't
+            // synced might have been lost.
+            StorableInfoCapability infoCap =
+                mReplicaRepository.getCapability(StorableInfoCapability.class);
+            if (infoCap == null) {
+                LogFactory.getLog(ReplicatedRepository.class).warn
+                    ("Replica repository was not closed cleanly, and it must be " +
+                     "re-sync'd manually: " + mName);
+            } else {
+                LogFactory.getLog(ReplicatedRepository.class).warn
+                    ("Replica repository was not closed cleanly, and it will be " +
+                     "re-sync'd: " + mName);
+                for (String name : infoCap.getUserStorableTypeNames()) {
+                    if (!name.equals(StoredReplicaResync.class.getName())) {
+                        StoredReplicaResync pending = storage.prepare();
+                        pending.setName(name);
+                        pending.tryInsert();
+                    }
+                }
+            }
+        }
+
+        // Marker must be stable before any replica commits without syncing.
+        cap.sync();
+
+        Cursor<StoredReplicaResync> cursor = storage.query().fetch();
+        try {
+            while (cursor.hasNext()) {
+                String name = cursor.next().getName();
+                if (!RESYNC_MARKER.equals(name)) {
+                    mPendingResyncs.add(name);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Deletes the marker which detects an unclean shutdown, after all
+     * replica changes have been synced.
+     */
+    private void markClean() throws RepositoryException {
+        StoredReplicaResync marker =
+            mReplicaRepository.storageFor(StoredReplicaResync.class).prepare();
+        marker.setName(RESYNC_MARKER);
+        marker.tryDelete();
+        CheckpointCapability cap = mReplicaRepository.getCapability(CheckpointCapability.class);
+        cap.sync();
+    }
+
+    /**
+     * Re-syncs the given type if it was pending after an unclean shutdown.
+     */
+    private <S extends Storable> void resyncIfPending(Class<S> type) {
+        String name = type.getName();
+        // Remove first, since resync requests the storage again.
+        if (!mPendingResyncs.remove(name)) {
+            return;
+        }
+        try {
+            incrementalResync(type, null, 1.0, null);
+            StoredReplicaResync pending =
+                mReplicaRepository.storageFor(StoredReplicaResync.class).prepare();
+            pending.setName(name);
+            pending.tryDelete();
+        } catch (RepositoryException e) {
+            // Resync is attempted again when the repository is next opened.
+            LogFactory.getLog(ReplicatedRepository.class).error
+                ("Unable to re-sync replica after unclean shutdown: " + name, e);
+        }
     }
 
     public String getName() {
@@ -240,7 +382,11 @@ class ReplicatedRepository
     public <S extends Storable> Storage<S> storageFor(Class<S> type)
         throws MalformedTypeException, SupportException, RepositoryException
     {
-        return mStoragePool.get(type);
+        Storage<S> storage = mStoragePool.get(type);
+        if (!mPendingResyncs.isEmpty() && storage instanceof ReplicatedStorage) {
+            resyncIfPending(type);
+        }
+        return storage;
     }
 
     public Transaction enterTransaction() {
@@ -251,7 +397,7 @@ class ReplicatedRepository
             return new ReadOnlyTransaction(mReplicaRepository.enterTransaction());
         }
 
-        return new TransactionPair(master, mReplicaRepository.enterTransaction());
+        return pair(master, mReplicaRepository.enterTransaction());
     }
 
     public Transaction enterTransaction(IsolationLevel level) {
@@ -262,7 +408,7 @@ class ReplicatedRepository
             return new ReadOnlyTransaction(mReplicaRepository.enterTransaction(level));
         }
 
-        return new TransactionPair(master, mReplicaRepository.enterTransaction(level));
+        return pair(master, mReplicaRepository.enterTransaction(level));
     }
 
     public Transaction enterTopTransaction(IsolationLevel level) {
@@ -273,7 +419,21 @@ class ReplicatedRepository
             return new ReadOnlyTransaction(mReplicaRepository.enterTopTransaction(level));
         }
 
-        return new TransactionPair(master, mReplicaRepository.enterTopTransaction(level));
+        return pair(master, mReplicaRepository.enterTopTransaction(level));
+    }
+
+    private Transaction pair(Transaction master, Transaction replica) {
+        final ReplicaSyncer syncer = mReplicaSyncer;
+        if (syncer == null) {
+            return new TransactionPair(master, replica);
+        }
+        return new TransactionPair(master, replica) {
+            @Override
+            public void commit() throws PersistException {
+                super.commit();
+                syncer.changed();
+            }
+        };
     }
 
     public IsolationLevel getTransactionIsolationLevel() {
@@ -298,6 +458,11 @@ class ReplicatedRepository
                     return null;
                 }
             }
+            if (ReplicaSyncCapability.class.isAssignableFrom(capabilityType)) {
+                if (mReplicaSyncer == null) {
+                    return null;
+                }
+            }
             return (C) this;
         }
 
@@ -317,10 +482,25 @@ class ReplicatedRepository
     }
 
     public void close() {
+        closeReplicaSyncer();
         mReplicaRepository.close();
         mMasterRepository.close();
     }
 
+    private void closeReplicaSyncer() {
+        ReplicaSyncer syncer = mReplicaSyncer;
+        if (syncer != null) {
+            try {
+                if (syncer.close()) {
+                    markClean();
+                }
+            } catch (RepositoryException e) {
+                LogFactory.getLog(ReplicatedRepository.class).error
+                    ("Unable to sync replica", e);
+            }
+        }
+    }
+
     /*
     public boolean isClosed() {
         return mReplicaRepository.isClosed() || mMasterRepository.isClosed();
@@ -398,6 +578,7 @@ class ReplicatedRepository
     }
 
     public void shutdown() {
+        closeReplicaSyncer();
         ShutdownCapability cap = mReplicaRepository.getCapability(ShutdownCapability.class);
         if (cap != null) {
             cap.shutdown();
@@ -412,6 +593,29 @@ class ReplicatedRepository
         }
     }
 
+    public long getReplicaSyncLag() {
+        ReplicaSyncer syncer = mReplicaSyncer;
+        return syncer == null ? 0 : syncer.getLag();
+    }
+
+    public void syncReplica() throws PersistException {
+        ReplicaSyncer syncer = mReplicaSyncer;
+        if (syncer != null) {
+            syncer.sync();
+        }
+    }
+
+    /**
+     * Called after a change to the replica has committed, or is about to
+     * commit.
+     */
+    void replicaChanged() {
+        ReplicaSyncer syncer = mReplicaSyncer;
+        if (syncer != null) {
+            syncer.changed();
+        }
+    }
+
     /**
      * Repairs replicated storables by synchronizing the replica repository
      * against the master repository.
@@ -449,6 +653,72 @@ class ReplicatedRepository
                                             String filter,
                                             Object... filterValues)
         throws RepositoryException
+    {
+        resync(type, listener, desiredSpeed, 1, filter, filterValues);
+    }
+
+    /**
+     * Repairs replicated storables by synchronizing the replica repository
+     * against the master repository, re-syncing key ranges concurrently.
+     * Ranges are split evenly over the first property of the resync ordering,
+     * which must be a primitive integral type. Otherwise, the resync runs on
+     * the calling thread.
+     *
+     * @param type type of storable to re-sync
+     * @param listener optional listener which gets notified as storables are re-sync'd
+     * @param desiredSpeed throttling parameter, applied to each range - 1.0 =
+     * full speed, 0.5 = half speed, 0.1 = one-tenth speed, etc
+     * @param parallelism maximum amount of key ranges to re-sync concurrently
+     * @param filter optional query filter to limit which objects get re-sync'ed
+     * @param filterValues filter values for optional filter
+     */
+    public <S extends Storable> void resync(Class<S> type,
+                                            ResyncCapability.Listener<? super S> listener,
+                                            double desiredSpeed,
+                                            int parallelism,
+                                            String filter,
+                                            Object... filterValues)
+        throws RepositoryException
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        resync(type, listener, desiredSpeed, parallelism, false, filter, filterValues);
+    }
+
+    /**
+     * Repairs replicated storables by synchronizing the replica repository
+     * against the master repository, only comparing entries within key
+     * ranges whose checksums differ. Ranges are split evenly over the first
+     * property of the resync ordering, which must be a primitive integral
+     * type. Otherwise, a full resync is performed.
+     *
+     * @param type type of storable to re-sync
+     * @param listener optional listener which gets notified as storables are re-sync'd
+     * @param desiredSpeed throttling parameter - 1.0 = full speed, 0.5 = half
+     * speed, 0.1 = one-tenth speed, etc
+     * @param filter optional query filter to limit which objects get re-sync'ed
+     * @param filterValues filter values for optional filter
+     */
+    public <S extends Storable> void incrementalResync
+                       (Class<S> type,
+                        ResyncCapability.Listener<? super S> listener,
+                        double desiredSpeed,
+                        String filter,
+                        Object... filterValues)
+        throws RepositoryException
+    {
+        resync(type, listener, desiredSpeed, 1, true, filter, filterValues);
+    }
+
+    private <S extends Storable> void resync(Class<S> type,
+                                             ResyncCapability.Listener<? super S> listener,
+                                             double desiredSpeed,
+                                             int parallelism,
+                                             boolean incremental,
+                                             String filter,
+                                             Object... filterValues)
+        throws RepositoryException
     {
         ReplicationTrigger<S> replicationTrigger;
         if (storageFor(type) instanceof ReplicatedStorage) {
@@ -488,6 +758,91 @@ class ReplicatedRepository
         replicaQuery = replicaQuery.orderBy(orderBy);
         masterQuery = masterQuery.orderBy(orderBy);
 
+        // Ranges are split over the first ordering property.
+        String name = orderBy[0];
+        char direction = name.charAt(0);
+        if (direction == '+' || direction == '-' || direction == '~') {
+            name = name.substring(1);
+        }
+
+        final ResyncProgress progress = new ResyncProgress(listener);
+        try {
+            if (incremental) {
+                ChecksumResync<S> checksumResync = new ChecksumResync<S>
+                    (this, replicationTrigger,
+                     replicaStorage, replicaQuery,
+                     masterStorage, masterQuery,
+                     listener, desiredSpeed,
+                     comparator, progress, name);
+                if (checksumResync.resync()) {
+                    return;
+                }
+            }
+
+            Object[] bounds = null;
+            if (parallelism > 1) {
+                Class keyType = KeyRangeSplitter.keyType(type, name);
+                if (keyType != null) {
+                    // Favor the master, but a resync into an empty master must
+                    // still be split, since it deletes everything in the replica.
+                    long[] range = KeyRangeSplitter.keyRange(masterQuery, name);
+                    if (range == null) {
+                        range = KeyRangeSplitter.keyRange(replicaQuery, name);
+                    }
+                    bounds = KeyRangeSplitter.toKeys(keyType, range, parallelism);
+                }
+            }
+
+            if (bounds == null) {
+                resyncRange(replicationTrigger,
+                            replicaStorage, replicaQuery,
+                            masterStorage, masterQuery,
+                            listener, desiredSpeed,
+                            comparator, progress);
+                return;
+            }
+
+            List<Query<S>> replicaRanges = KeyRangeSplitter.split(replicaQuery, name, bounds);
+            List<Query<S>> masterRanges = KeyRangeSplitter.split(masterQuery, name, bounds);
+
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(bounds.length + 1);
+            for (int i=0; i<=bounds.length; i++) {
+                tasks.add(new ResyncTask<S>(replicationTrigger,
+                                            replicaStorage, replicaRanges.get(i),
+                                            masterStorage, masterRanges.get(i),
+                                            listener, desiredSpeed,
+                                            comparator, progress));
+            }
+
+            progress.setTotalRanges(tasks.size());
+
+            KeyRangeSplitter.runAll(tasks, new Runnable() {
+                public void run() {
+                    // Stop the remaining ranges as soon as possible.
+                    progress.cancel();
+                }
+            });
+        } finally {
+            // Reports final progress, outside any resync transaction.
+            progress.finished();
+        }
+    }
+
+    /**
+     * Re-syncs one key range in the current thread, committing to the
+     * replica in small batches.
+     */
+    <S extends Storable> void resyncRange(ReplicationTrigger<S> replicationTrigger,
+                                          Storage<S> replicaStorage,
+                                          Query<S> replicaQuery,
+                                          Storage<S> masterStorage,
+                                          Query<S> masterQuery,
+                                          ResyncCapability.Listener<? super S> listener,
+                                          double desiredSpeed,
+                                          Comparator comparator,
+                                          ResyncProgress progress)
+        throws RepositoryException
+    {
         Throttle throttle;
         if (desiredSpeed >= 1.0) {
             throttle = null;
@@ -508,12 +863,14 @@ class ReplicatedRepository
                    masterStorage, masterQuery,
                    listener,
                    throttle, desiredSpeed,
-                   comparator, replicaTxn);
+                   comparator, replicaTxn, progress);
 
             replicaTxn.commit();
         } finally {
             replicaTxn.exit();
         }
+
+        progress.rangeCompleted();
     }
 
     @SuppressWarnings("unchecked")
@@ -522,7 +879,8 @@ class ReplicatedRepository
                                              Storage<S> masterStorage, Query<S> masterQuery,
                                              ResyncCapability.Listener<? super S> listener,
                                              Throttle throttle, double desiredSpeed,
-                                             Comparator comparator, Transaction replicaTxn)
+                                             Comparator comparator, Transaction replicaTxn,
+                                             ResyncProgress progress)
         throws RepositoryException
     {
         final Log log = LogFactory.getLog(ReplicatedRepository.class);
@@ -551,6 +909,10 @@ class ReplicatedRepository
 
             int count = 0, txnCount = 0;
             while (true) {
+                if (progress.isCancelled()) {
+                    throw new FetchInterruptedException("Resync cancelled");
+                }
+
                 if (throttle != null) {
                     try {
                         // 100 millisecond clock precision
@@ -680,9 +1042,12 @@ class ReplicatedRepository
                     masterEntry = null;
                 }
 
+                progress.examined();
+
                 if (resyncTask != null) {
                     txnCount++;
                     resyncTask.run();
+                    progress.repaired();
                 }
             }
         } finally {
@@ -762,4 +1127,47 @@ class ReplicatedRepository
 
         return task;
     }
+
+    /**
+     * Re-syncs one key range in a worker thread.
+     */
+    private class ResyncTask<S extends Storable> implements Callable<Object> {
+        private final ReplicationTrigger<S> mReplicationTrigger;
+        private final Storage<S> mReplicaStorage;
+        private final Query<S> mReplicaQuery;
+        private final Storage<S> mMasterStorage;
+        private final Query<S> mMasterQuery;
+        private final ResyncCapability.Listener<? super S> mListener;
+        private final double mDesiredSpeed;
+        private final Comparator mComparator;
+        private final ResyncProgress mProgress;
+
+        ResyncTask(ReplicationTrigger<S> replicationTrigger,
+                   Storage<S> replicaStorage, Query<S> replicaQuery,
+                   Storage<S> masterStorage, Query<S> masterQuery,
+                   ResyncCapability.Listener<? super S> listener,
+                   double desiredSpeed,
+                   Comparator comparator,
+                   ResyncProgress progress)
+        {
+            mReplicationTrigger = replicationTrigger;
+            mReplicaStorage = replicaStorage;
+            mReplicaQuery = replicaQuery;
+            mMasterStorage = masterStorage;
+            mMasterQuery = masterQuery;
+            mListener = listener;
+            mDesiredSpeed = desiredSpeed;
+            mComparator = comparator;
+            mProgress = progress;
+        }
+
+        public Object call() throws RepositoryException {
+            resyncRange(mReplicationTrigger,
+                        mReplicaStorage, mReplicaQuery,
+                        mMasterStorage, mMasterQuery,
+                        mListener, mDesiredSpeed,
+                        mComparator, mProgress);
+            return null;
+        }
+    }
 }
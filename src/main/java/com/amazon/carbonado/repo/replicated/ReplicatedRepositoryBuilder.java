@@ -39,6 +39,8 @@ import com.amazon.carbonado.spi.BelatedRepositoryCreator;
  * The following extra capabilities are supported:
  * <ul>
  * <li>{@link com.amazon.carbonado.capability.ResyncCapability ResyncCapability}
+ * <li>{@link ReplicaSyncCapability}, if a {@link #setReplicaSyncInterval
+ * replica sync interval} is set
  * </ul>
  *
  * @author Don Schneider
@@ -52,6 +54,7 @@ public class ReplicatedRepositoryBuilder extends AbstractRepositoryBuilder {
     private boolean mIsMaster = true;
     private RepositoryBuilder mReplicaRepositoryBuilder;
     private RepositoryBuilder mMasterRepositoryBuilder;
+    private int mReplicaSyncInterval;
 
     public ReplicatedRepositoryBuilder() {
     }
@@ -95,7 +98,8 @@ public class ReplicatedRepositoryBuilder extends AbstractRepositoryBuilder {
             master = creator.get(DEFAULT_MASTER_TIMEOUT_MILLIS);
         }
 
-        Repository repo = new ReplicatedRepository(getName(), replica, master);
+        Repository repo = new ReplicatedRepository
+            (getName(), replica, master, mReplicaSyncInterval);
         rootRef.set(repo);
         return repo;
     }
@@ -156,6 +160,38 @@ public class ReplicatedRepositoryBuilder extends AbstractRepositoryBuilder {
         mMasterRepositoryBuilder = masterRepositoryBuilder;
     }
 
+    /**
+     * @return maximum amount of milliseconds to defer syncing the replica, or
+     * zero if replica commits are synchronous
+     */
+    public int getReplicaSyncInterval() {
+        return mReplicaSyncInterval;
+    }
+
+    /**
+     * Set a positive interval to allow replica commits to return without
+     * waiting for the replica to sync, which is zero by default. Replica
+     * changes are then forced to stable storage by a background thread,
+     * within the given interval. Changes to the master are not affected.
+     *
+     * <p>The replica repository must support {@link
+     * com.amazon.carbonado.repo.sleepycat.CheckpointCapability
+     * CheckpointCapability}, and its builder must be configured to not sync
+     * on commit, for example with {@link
+     * com.amazon.carbonado.repo.sleepycat.BDBRepositoryBuilder#setTransactionWriteNoSync
+     * setTransactionWriteNoSync}. The replica records its state in {@link
+     * StoredReplicaResync}, and if it isn't closed cleanly, each replicated
+     * type is re-sync'd when its storage is first requested after the
+     * replicated repository is opened again.
+     *
+     * @param intervalMillis maximum amount of milliseconds to defer syncing
+     * the replica
+     * @see ReplicaSyncCapability
+     */
+    public void setReplicaSyncInterval(int intervalMillis) {
+        mReplicaSyncInterval = intervalMillis;
+    }
+
     @Override
     public void errorCheck(Collection<String> messages) throws ConfigurationException {
         super.errorCheck(messages);
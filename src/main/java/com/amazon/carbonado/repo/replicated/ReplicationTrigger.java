@@ -256,6 +256,21 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
         return null;
     }
 
+    @Override
+    public void afterInsert(S replica, Object state) {
+        mRepository.replicaChanged();
+    }
+
+    @Override
+    public void afterUpdate(S replica, Object state) {
+        mRepository.replicaChanged();
+    }
+
+    @Override
+    public void afterDelete(S replica, Object state) {
+        mRepository.replicaChanged();
+    }
+
     /**
      * Re-sync the replica to the master. The primary keys of both entries are
      * assumed to match.
@@ -386,6 +401,7 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
                     }
 
                     replicaTxn.commit();
+                    mRepository.replicaChanged();
                 } catch (Throwable e) {
                     resyncFailed(listener, replicaEntry, masterEntry, newReplicaEntry, state);
                     ThrowUnchecked.fire(e);
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.replicated;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazon.carbonado.capability.ResyncCapability;
+
+/**
+ * Tracks the progress of a resync operation, which may be shared by several
+ * threads, each re-syncing its own key range. Progress is reported to the
+ * optional listener after every interval of examined entries, and whenever a
+ * range finishes. Threads doing the work only update counters, and so they
+ * never call the listener while in a resync transaction. Reports are made by
+ * a separate thread, and the final report is made by the thread which calls
+ * {@link #finished finished}.
+ */
+class ResyncProgress {
+    // Report progress after examining at least this many entries.
+    private static final long REPORT_INTERVAL = 10000;
+
+    private final ResyncCapability.Listener<?> mListener;
+    private final long mStartMillis;
+
+    private final AtomicLong mExamined;
+    private final AtomicLong mRepaired;
+
+    private int mTotalRanges;
+    private int mCompletedRanges;
+
+    // Is started when the first report is requested.
+    private Thread mReporter;
+    private boolean mReportRequested;
+    private boolean mFinished;
+
+    private volatile boolean mCancelled;
+
+    /**
+     * @param listener optional listener to report to
+     */
+    ResyncProgress(ResyncCapability.Listener<?> listener) {
+        mListener = listener;
+        mStartMillis = System.currentTimeMillis();
+        mExamined = new AtomicLong();
+        mRepaired = new AtomicLong();
+        mTotalRanges = 1;
+    }
+
+    synchronized void setTotalRanges(int total) {
+        mTotalRanges = total;
+    }
+
+    synchronized void addRanges(int amount) {
+        mTotalRanges += amount;
+    }
+
+    void examined() {
+        long count = mExamined.incrementAndGet();
+        if (mListener != null && count % REPORT_INTERVAL == 0) {
+            requestReport();
+        }
+    }
+
+    void repaired() {
+        mRepaired.incrementAndGet();
+    }
+
+    void rangeCompleted() {
+        synchronized (this) {
+            mCompletedRanges++;
+        }
+        if (mListener != null) {
+            requestReport();
+        }
+    }
+
+    /**
+     * Signals all threads working on the resync to stop early.
+     */
+    void cancel() {
+        mCancelled = true;
+    }
+
+    boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Waits for any report in progress and reports the final progress in the
+     * current thread, which must not be in a resync transaction.
+     */
+    void finished() {
+        if (mListener == null) {
+            return;
+        }
+
+        Thread reporter;
+        synchronized (this) {
+            mFinished = true;
+            reporter = mReporter;
+            notifyAll();
+        }
+
+        if (reporter != null) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    reporter.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        report();
+    }
+
+    private synchronized void requestReport() {
+        if (mFinished) {
+            return;
+        }
+        mReportRequested = true;
+        if (mReporter != null) {
+            notifyAll();
+            return;
+        }
+        Thread reporter = new Thread() {
+            public void run() {
+                runReporter();
+            }
+        };
+        reporter.setDaemon(true);
+        reporter.setName("Carbonado-resync-progress");
+        reporter.start();
+        mReporter = reporter;
+    }
+
+    private void runReporter() {
+        while (true) {
+            synchronized (this) {
+                while (!mReportRequested && !mFinished) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (mFinished) {
+                    return;
+                }
+                // Requests made while reporting are coalesced.
+                mReportRequested = false;
+            }
+            report();
+        }
+    }
+
+    /**
+     * Calls the listener with a snapshot of the counters, without holding
+     * the lock.
+     */
+    private void report() {
+        int completed, total;
+        synchronized (this) {
+            completed = mCompletedRanges;
+            total = mTotalRanges;
+        }
+        mListener.progress(completed, total, mExamined.get(), mRepaired.get(),
+                           System.currentTimeMillis() - mStartMillis);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.replicated;
+
+import com.amazon.carbonado.Alias;
+import com.amazon.carbonado.Independent;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Stored in the replica repository when it's synced in the background, to
+ * detect an unclean shutdown. While the replicated repository is open, a
+ * marker entry exists. If the marker is found when opening, recent replica
+ * commits might have been lost, and so every storable type in the replica is
+ * recorded as needing a resync. Each type is re-sync'd when its storage is
+ * first requested. To use with JDBC repository, create a table like so:
+ *
+ * <pre>
+ * CREATE TABLE CARBONADO_REPLICA_RESYNC (
+ *     NAME  VARCHAR(200) PRIMARY KEY
+ * )
+ * </pre>
+ *
+ * @since 1.2
+ */
+@PrimaryKey("name")
+@Independent
+@Alias({
+    "CARBONADO_REPLICA_RESYNC", "Carbonado_Replica_Resync", "carbonado_replica_resync",
+    "CarbonadoReplicaResync", "carbonadoReplicaResync"
+})
+public interface StoredReplicaResync extends Storable<StoredReplicaResync> {
+    /**
+     * Returns the name of a storable type which needs a resync, or "*" for
+     * the marker entry.
+     */
+    @Alias({"NAME", "Name", "name"})
+    String getName();
+    void setName(String name);
+}
@@ -26,7 +26,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.logging.Log;
 
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryException;
 import com.amazon.carbonado.Storable;
@@ -34,9 +37,13 @@ import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.SupportException;
 import com.amazon.carbonado.Transaction;
 
+import com.amazon.carbonado.capability.Aggregate;
+import com.amazon.carbonado.capability.AggregateCapability;
 import com.amazon.carbonado.capability.Capability;
 import com.amazon.carbonado.capability.ShutdownCapability;
 
+import com.amazon.carbonado.cursor.AggregateCursor;
+
 import com.amazon.carbonado.sequence.SequenceCapability;
 import com.amazon.carbonado.sequence.SequenceValueProducer;
 import com.amazon.carbonado.sequence.SequenceValueProducerPool;
@@ -52,7 +59,7 @@ import com.amazon.carbonado.txn.TransactionScope;
  * @since 1.2
  */
 public abstract class AbstractRepository<Txn>
-    implements Repository, ShutdownCapability, SequenceCapability
+    implements Repository, ShutdownCapability, SequenceCapability, AggregateCapability
 {
     private final String mName;
     private final ReadWriteLock mShutdownLock;
@@ -210,6 +217,17 @@ public abstract class AbstractRepository<Txn>
         return mSequencePool.get(name);
     }
 
+    /**
+     * Default implementation streams the query results through an {@link
+     * AggregateCursor}.
+     */
+    public <S extends Storable> Cursor<Object[]> aggregate(Query<S> query, String[] groupBy,
+                                                            Aggregate... aggregates)
+        throws FetchException
+    {
+        return AggregateCursor.fetch(query, groupBy, aggregates);
+    }
+
     /**
      * Returns the repository's TransactionManager.
      */
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.spi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+import com.amazon.carbonado.util.WorkerPool;
+
+/**
+ * Splits scans into ranges over an integral key property, and runs the
+ * ranges concurrently using the shared {@link WorkerPool}. Range bounds are
+ * evenly spaced between the lowest and highest key values, and so they work
+ * best when keys are evenly distributed.
+ *
+ * @since 1.2
+ */
+public class KeyRangeSplitter {
+    /**
+     * Returns the type of the given property if ranges can be split over it,
+     * or null if not.
+     *
+     * @param name name of a non-chained property
+     */
+    public static Class keyType(Class<? extends Storable> type, String name) {
+        StorableProperty<?> property = StorableIntrospector.examine(type)
+            .getAllProperties().get(name);
+        if (property == null) {
+            // Chained property.
+            return null;
+        }
+        Class keyType = property.getType();
+        return isSplittable(keyType) ? keyType : null;
+    }
+
+    /**
+     * Returns true if ranges can be split over properties of the given type.
+     */
+    public static boolean isSplittable(Class keyType) {
+        return keyType == int.class || keyType == long.class ||
+            keyType == short.class || keyType == byte.class;
+    }
+
+    /**
+     * Returns the lowest and highest values of the given property selected
+     * by the query, or null if the query selects nothing.
+     */
+    public static <S extends Storable> long[] keyRange(Query<S> query, String name)
+        throws FetchException
+    {
+        S low = firstEntry(query.orderBy('+' + name));
+        if (low == null) {
+            return null;
+        }
+        S high = firstEntry(query.orderBy('-' + name));
+        if (high == null) {
+            return null;
+        }
+        return new long[] {
+            ((Number) low.getPropertyValue(name)).longValue(),
+            ((Number) high.getPropertyValue(name)).longValue()
+        };
+    }
+
+    /**
+     * Selects evenly spaced bounds for splitting the given key range. Bounds
+     * are distinct, ascending, and greater than the minimum key. Fewer bounds
+     * are selected if the range doesn't have enough distinct keys.
+     *
+     * @param min lowest key
+     * @param max highest key
+     * @param ranges desired amount of ranges, which is one more than the
+     * desired amount of bounds
+     */
+    public static long[] selectBounds(long min, long max, int ranges) {
+        if (ranges <= 1) {
+            return new long[0];
+        }
+
+        // Use floating point to avoid overflow when key spans entire range.
+        double span = (double) max - (double) min;
+
+        long[] bounds = new long[ranges - 1];
+        int count = 0;
+        long last = min;
+        for (int i=1; i<ranges; i++) {
+            long bound = min + (long) (span * i / ranges);
+            if (bound > last && bound <= max) {
+                bounds[count++] = bound;
+                last = bound;
+            }
+        }
+
+        if (count < bounds.length) {
+            long[] newBounds = new long[count];
+            System.arraycopy(bounds, 0, newBounds, 0, count);
+            bounds = newBounds;
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Selects evenly spaced bounds for splitting the given query into ranges
+     * over the given property, converted to the property type.
+     *
+     * @param name name of a non-chained property
+     * @param ranges desired amount of ranges
+     * @return null if query cannot be split
+     */
+    public static <S extends Storable> Object[] selectBounds(Query<S> query, String name,
+                                                             int ranges)
+        throws FetchException
+    {
+        Class keyType = keyType(query.getStorableType(), name);
+        if (keyType == null) {
+            return null;
+        }
+        return toKeys(keyType, keyRange(query, name), ranges);
+    }
+
+    /**
+     * Selects evenly spaced bounds for splitting the given key range,
+     * converted to the property type.
+     *
+     * @param range lowest and highest keys, or null if range is empty
+     * @param ranges desired amount of ranges
+     * @return null if range cannot be split
+     */
+    public static Object[] toKeys(Class keyType, long[] range, int ranges) {
+        if (range == null) {
+            return null;
+        }
+        long[] bounds = selectBounds(range[0], range[1], ranges);
+        if (bounds.length == 0) {
+            return null;
+        }
+        Object[] keys = new Object[bounds.length];
+        for (int i=0; i<bounds.length; i++) {
+            keys[i] = toKey(keyType, bounds[i]);
+        }
+        return keys;
+    }
+
+    /**
+     * Converts a key to the given integral property type.
+     */
+    public static Object toKey(Class keyType, long value) {
+        if (keyType == int.class) {
+            return (int) value;
+        } else if (keyType == short.class) {
+            return (short) value;
+        } else if (keyType == byte.class) {
+            return (byte) value;
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Returns one query for each range between the given bounds. The first
+     * range has no low bound, and the last range has no high bound. Low bounds
+     * are inclusive and high bounds are exclusive.
+     */
+    public static <S extends Storable> List<Query<S>> split(Query<S> query, String name,
+                                                            Object[] bounds)
+        throws FetchException
+    {
+        List<Query<S>> ranges = new ArrayList<Query<S>>(bounds.length + 1);
+        for (int i=0; i<=bounds.length; i++) {
+            Query<S> range = query;
+            if (i > 0) {
+                range = range.and(name + " >= ?").with(bounds[i - 1]);
+            }
+            if (i < bounds.length) {
+                range = range.and(name + " < ?").with(bounds[i]);
+            }
+            ranges.add(range);
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the first storable selected by the query, or null if none.
+     */
+    public static <S extends Storable> S firstEntry(Query<S> query) throws FetchException {
+        Cursor<S> cursor = query.fetchSlice(0, 1L);
+        try {
+            return cursor.hasNext() ? cursor.next() : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Runs all the given tasks concurrently and waits for them to finish.
+     * Tasks which cannot be handed off to a pool thread are run in the
+     * current thread. If any task fails, the given cancel action is run once
+     * and the first failure is thrown after all tasks have finished. If the
+     * current thread is interrupted, running tasks are cancelled and the
+     * interrupt status is restored.
+     *
+     * @param cancel optional action which stops the remaining tasks as soon
+     * as possible
+     * @throws FetchInterruptedException if interrupted while waiting
+     */
+    public static void runAll(List<? extends Callable<?>> tasks, Runnable cancel)
+        throws RepositoryException
+    {
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+        List<Callable<?>> local = new ArrayList<Callable<?>>();
+        for (Callable<?> task : tasks) {
+            Future<?> future = WorkerPool.trySubmit(task);
+            if (future == null) {
+                local.add(task);
+            } else {
+                futures.add(future);
+            }
+        }
+
+        Throwable failure = null;
+
+        for (Callable<?> task : local) {
+            if (failure != null) {
+                break;
+            }
+            try {
+                task.call();
+            } catch (Throwable e) {
+                failure = e;
+                if (cancel != null) {
+                    cancel.run();
+                }
+            }
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        if (cancel != null) {
+                            cancel.run();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            if (cancel != null) {
+                cancel.run();
+            }
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new FetchInterruptedException(e);
+        }
+
+        if (failure != null) {
+            rethrow(failure);
+        }
+    }
+
+    /**
+     * Rethrows the failure of a task, wrapping it if it's checked and isn't
+     * a RepositoryException.
+     */
+    public static void rethrow(Throwable failure) throws RepositoryException {
+        if (failure instanceof RepositoryException) {
+            throw (RepositoryException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new RepositoryException(failure);
+    }
+
+    private KeyRangeSplitter() {
+    }
+}
@@ -18,26 +18,29 @@
 
 package com.amazon.carbonado.util;
 
-import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Simple thread-safe cache which evicts entries via a shared background
  * thread. Cache permits null keys, but not null values.
  *
+ * <p>Lookups don't acquire any locks. The cache is divided into segments,
+ * which are locked independently when modified. Entries whose values have
+ * been cleared are removed individually by the background thread, and a
+ * segment is only scanned for cleared entries when it needs to grow.
+ *
  * @author Brian S O'Neill
  * @deprecated use Cojen {@link org.cojen.util.Cache} interface
  */
 @Deprecated
 public abstract class SoftValuedCache<K, V> {
     public static <K, V> SoftValuedCache<K, V> newCache(int capacity) {
-        try {
-            return new Wrapper<K, V>(capacity);
-        } catch (NoClassDefFoundError e) {
-            // Use older implementation for compatibility.
-            return new Impl<K, V>(capacity);
-        }
+        return new Impl<K, V>(capacity);
     }
 
     public abstract int size();
@@ -62,108 +65,188 @@ public abstract class SoftValuedCache<K, V> {
 
     public abstract String toString();
 
-    private static class Wrapper<K, V> extends SoftValuedCache<K, V> {
-        private final org.cojen.util.Cache<K, V> mCache;
+    private static class Impl<K, V> extends SoftValuedCache<K, V> {
+        private static final int MAX_SEGMENTS = 16;
+
+        // Small caches don't benefit from more segments.
+        private static final int MIN_SEGMENT_CAPACITY = 8;
+
+        final static Evictor cEvictor;
+
+        static {
+            Evictor evictor = new Evictor();
+            evictor.setName("SoftValuedCache Evictor");
+            evictor.setDaemon(true);
+            evictor.setPriority(Thread.MAX_PRIORITY);
+            evictor.start();
+            cEvictor = evictor;
+        }
+
+        private final Segment<K, V>[] mSegments;
+        private final int mSegmentShift;
+        private final int mSegmentMask;
 
-        Wrapper(int capacity) {
-            mCache = new org.cojen.util.SoftValueCache<K, V>(capacity);
+        Impl(int capacity) {
+            int segments = 1;
+            while (segments < MAX_SEGMENTS && segments * MIN_SEGMENT_CAPACITY < capacity) {
+                segments <<= 1;
+            }
+
+            int segmentCapacity = 1;
+            while (segmentCapacity * segments < capacity) {
+                segmentCapacity <<= 1;
+            }
+
+            mSegments = new Segment[segments];
+            for (int i=0; i<segments; i++) {
+                mSegments[i] = new Segment<K, V>(segmentCapacity);
+            }
+
+            // Segment is selected by the upper bits of the hash code, and the
+            // bucket is selected by the lower bits.
+            mSegmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+            mSegmentMask = segments - 1;
         }
 
         @Override
         public int size() {
-            return mCache.size();
+            int size = 0;
+            for (Segment<K, V> segment : mSegments) {
+                size += segment.mCount;
+            }
+            return size;
         }
 
         @Override
         public boolean isEmpty() {
-            return mCache.isEmpty();
+            for (Segment<K, V> segment : mSegments) {
+                if (segment.mCount != 0) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @Override
         public V get(K key) {
-            return mCache.get(key);
+            int hash = hash(key);
+            return segmentFor(hash).get(key, hash);
         }
 
         @Override
         public V put(K key, V value) {
-            return mCache.put(key, value);
+            int hash = hash(key);
+            return segmentFor(hash).put(key, hash, value, false);
         }
 
         @Override
         public V putIfAbsent(K key, V value) {
-            return mCache.putIfAbsent(key, value);
+            int hash = hash(key);
+            return segmentFor(hash).put(key, hash, value, true);
         }
 
         @Override
         public V remove(K key) {
-            return mCache.remove(key);
+            int hash = hash(key);
+            return segmentFor(hash).remove(key, hash, null);
         }
 
         @Override
         public boolean remove(K key, V value) {
-            return mCache.remove(key, value);
+            if (value == null) {
+                return false;
+            }
+            int hash = hash(key);
+            return segmentFor(hash).remove(key, hash, value) != null;
         }
 
         @Override
         public boolean replace(K key, V oldValue, V newValue) {
-            return mCache.replace(key, oldValue, newValue);
+            if (oldValue == null) {
+                return false;
+            }
+            int hash = hash(key);
+            return segmentFor(hash).replace(key, hash, oldValue, newValue) != null;
         }
 
         @Override
         public V replace(K key, V value) {
-            return mCache.replace(key, value);
+            int hash = hash(key);
+            return segmentFor(hash).replace(key, hash, null, value);
         }
 
         @Override
         public void clear() {
-            mCache.clear();
+            for (Segment<K, V> segment : mSegments) {
+                segment.clear();
+            }
         }
 
         @Override
         public String toString() {
-            return mCache.toString();
-        }
-    }
+            StringBuilder b = new StringBuilder();
+            b.append('{');
 
-    private static class Impl<K, V> extends SoftValuedCache<K, V> {
-        private static final float LOAD_FACTOR = 0.75f;
+            boolean any = false;
 
-        final static Evictor cEvictor;
+            for (Segment<K, V> segment : mSegments) {
+                AtomicReferenceArray<Entry<K, V>> table = segment.mTable;
+                for (int i=table.length(); --i>=0 ;) {
+                    for (Entry<K, V> e = table.get(i); e != null; e = e.mNext) {
+                        V value = e.get();
+                        if (value != null) {
+                            if (any) {
+                                b.append(',').append(' ');
+                            }
+                            b.append(e.mKey).append('=').append(value);
+                            any = true;
+                        }
+                    }
+                }
+            }
 
-        static {
-            Evictor evictor = new Evictor();
-            evictor.setName("SoftValuedCache Evictor");
-            evictor.setDaemon(true);
-            evictor.setPriority(Thread.MAX_PRIORITY);
-            evictor.start();
-            cEvictor = evictor;
+            b.append('}');
+            return b.toString();
         }
 
-        private Entry<K, V>[] mEntries;
-        private int mSize;
-        private int mThreshold;
-
-        Impl(int capacity) {
-            mEntries = new Entry[capacity];
-            mThreshold = (int) (capacity * LOAD_FACTOR);
+        private Segment<K, V> segmentFor(int hash) {
+            return mSegments[(hash >>> mSegmentShift) & mSegmentMask];
         }
 
-        @Override
-        public synchronized int size() {
-            return mSize;
+        private static int hash(Object key) {
+            int h = key == null ? 0 : key.hashCode();
+            // Spread the bits, since segments and buckets are selected by masking.
+            h += (h << 15) ^ 0xffffcd7d;
+            h ^= (h >>> 10);
+            h += (h << 3);
+            h ^= (h >>> 6);
+            h += (h << 2) + (h << 14);
+            return h ^ (h >>> 16);
         }
+    }
 
-        @Override
-        public synchronized boolean isEmpty() {
-            return mSize == 0;
+    /**
+     * Hashtable of entries, which is only locked when modified. Entries are
+     * unlinked from a bucket without disturbing lookups which are concurrently
+     * traversing it. When the table grows, new entries are created for it,
+     * leaving the old table intact for concurrent lookups.
+     */
+    private static class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        private static final float LOAD_FACTOR = 0.75f;
+
+        volatile AtomicReferenceArray<Entry<K, V>> mTable;
+        volatile int mCount;
+        private int mThreshold;
+
+        Segment(int capacity) {
+            setTable(new AtomicReferenceArray<Entry<K, V>>(capacity));
         }
 
-        @Override
-        public synchronized V get(K key) {
-            int hash = key == null ? 0 : key.hashCode();
-            Entry<K, V>[] entries = mEntries;
-            int index = (hash & 0x7fffffff) % entries.length;
-            for (Entry<K, V> e = entries[index]; e != null; e = e.mNext) {
+        V get(K key, int hash) {
+            AtomicReferenceArray<Entry<K, V>> table = mTable;
+            for (Entry<K, V> e = table.get(hash & (table.length() - 1)); e != null; e = e.mNext) {
                 if (e.matches(key, hash)) {
                     return e.get();
                 }
@@ -171,185 +254,142 @@ public abstract class SoftValuedCache<K, V> {
             return null;
         }
 
-        @Override
-        public synchronized V put(K key, V value) {
-            int hash = key == null ? 0 : key.hashCode();
-            Entry<K, V>[] entries = mEntries;
-            int index = (hash & 0x7fffffff) % entries.length;
-            for (Entry<K, V> e = entries[index], prev = null; e != null; e = e.mNext) {
-                if (e.matches(key, hash)) {
-                    V old = e.get();
-                    e.clear();
-                    Entry<K, V> newEntry;
-                    if (prev == null) {
-                        newEntry = new Entry<K, V>(this, hash, key, value, e.mNext);
-                    } else {
-                        prev.mNext = e.mNext;
-                        newEntry = new Entry<K, V>(this, hash, key, value, entries[index]);
-                    }
-                    entries[index] = newEntry;
-                    return old;
-                } else {
-                    prev = e;
-                }
-            }
-
-            if (mSize >= mThreshold) {
-                cleanup();
-                if (mSize >= mThreshold) {
-                    rehash();
-                    entries = mEntries;
-                    index = (hash & 0x7fffffff) % entries.length;
-                }
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            if (value == null) {
+                throw new NullPointerException();
             }
 
-            entries[index] = new Entry<K, V>(this, hash, key, value, entries[index]);
-            mSize++;
-            return null;
-        }
-
-        @Override
-        public synchronized V putIfAbsent(K key, V value) {
-            V existing = get(key);
-            return existing == null ? put(key, value) : existing;
-        }
-
-        @Override
-        public synchronized V remove(K key) {
-            int hash = key == null ? 0 : key.hashCode();
-            Entry<K, V>[] entries = mEntries;
-            int index = (hash & 0x7fffffff) % entries.length;
-            for (Entry<K, V> e = entries[index], prev = null; e != null; e = e.mNext) {
-                if (e.matches(key, hash)) {
-                    V old = e.get();
-                    e.clear();
-                    if (prev == null) {
-                        entries[index] = e.mNext;
-                    } else {
-                        prev.mNext = e.mNext;
+            lock();
+            try {
+                AtomicReferenceArray<Entry<K, V>> table = mTable;
+                int index = hash & (table.length() - 1);
+                for (Entry<K, V> e = table.get(index), prev = null; e != null; e = e.mNext) {
+                    if (e.matches(key, hash)) {
+                        V old = e.get();
+                        if (old == null || !onlyIfAbsent) {
+                            unlink(table, index, prev,
+                                   new Entry<K, V>(this, hash, key, value, e.mNext));
+                        }
+                        return old;
                     }
-                    mSize--;
-                    return old;
-                } else {
                     prev = e;
                 }
-            }
-            return null;
-        }
 
-        @Override
-        public synchronized boolean remove(K key, V value) {
-            V existing = get(key);
-            if (existing != null && existing.equals(value)) {
-                remove(key);
-                return true;
-            } else {
-                return false;
-            }
-        }
+                if (mCount >= mThreshold) {
+                    cleanup(table);
+                    if (mCount >= mThreshold) {
+                        table = rehash(table);
+                        index = hash & (table.length() - 1);
+                    }
+                }
 
-        @Override
-        public synchronized boolean replace(K key, V oldValue, V newValue) {
-            V existing = get(key);
-            if (existing != null && existing.equals(oldValue)) {
-                put(key, newValue);
-                return true;
-            } else {
-                return false;
+                table.set(index, new Entry<K, V>(this, hash, key, value, table.get(index)));
+                mCount++;
+                return null;
+            } finally {
+                unlock();
             }
         }
 
-        @Override
-        public synchronized V replace(K key, V value) {
-            return get(key) == null ? null : put(key, value);
-        }
-
-        @Override
-        public synchronized void clear() {
-            Entry[] entries = mEntries;
-            for (int i=entries.length; --i>=0; ) {
-                Entry e = entries[i];
-                if (e != null) {
-                    e.clear();
-                    entries[i] = null;
+        /**
+         * @param value required existing value, or null if any
+         * @return removed value, or null if none
+         */
+        V remove(K key, int hash, V value) {
+            lock();
+            try {
+                AtomicReferenceArray<Entry<K, V>> table = mTable;
+                int index = hash & (table.length() - 1);
+                for (Entry<K, V> e = table.get(index), prev = null; e != null; e = e.mNext) {
+                    if (e.matches(key, hash)) {
+                        V old = e.get();
+                        if (value != null && !value.equals(old)) {
+                            return null;
+                        }
+                        unlink(table, index, prev, e.mNext);
+                        mCount--;
+                        return old;
+                    }
+                    prev = e;
                 }
+                return null;
+            } finally {
+                unlock();
             }
-            mSize = 0;
         }
 
-        @Override
-        public synchronized String toString() {
-            if (isEmpty()) {
-                return "{}";
+        /**
+         * @param oldValue required existing value, or null if any
+         * @return replaced value, or null if none
+         */
+        V replace(K key, int hash, V oldValue, V newValue) {
+            if (newValue == null) {
+                throw new NullPointerException();
             }
 
-            StringBuilder b = new StringBuilder();
-            b.append('{');
-
-            Entry<K, V>[] entries = mEntries;
-            int removed = 0;
-            boolean any = false;
-
-            for (int i=entries.length; --i>=0 ;) {
-                for (Entry<K, V> e = entries[i], prev = null; e != null; e = e.mNext) {
-                    V value = e.get();
-                    if (value == null) {
-                        // Clean up after a cleared Reference.
-                        if (prev == null) {
-                            entries[i] = e.mNext;
-                        } else {
-                            prev.mNext = e.mNext;
-                        }
-                        removed++;
-                    } else {
-                        prev = e;
-                        if (any) {
-                            b.append(',').append(' ');
+            lock();
+            try {
+                AtomicReferenceArray<Entry<K, V>> table = mTable;
+                int index = hash & (table.length() - 1);
+                for (Entry<K, V> e = table.get(index), prev = null; e != null; e = e.mNext) {
+                    if (e.matches(key, hash)) {
+                        V old = e.get();
+                        if (old == null || (oldValue != null && !oldValue.equals(old))) {
+                            return null;
                         }
-                        K key = e.mKey;
-                        b.append(key).append('=').append(value);
-                        any = true;
+                        unlink(table, index, prev,
+                               new Entry<K, V>(this, hash, key, newValue, e.mNext));
+                        return old;
                     }
+                    prev = e;
                 }
+                return null;
+            } finally {
+                unlock();
             }
+        }
 
-            mSize -= removed;
-
-            b.append('}');
-            return b.toString();
+        void clear() {
+            lock();
+            try {
+                setTable(new AtomicReferenceArray<Entry<K, V>>(mTable.length()));
+                mCount = 0;
+            } finally {
+                unlock();
+            }
         }
 
-        synchronized void removeCleared(Entry<K, V> cleared) {
-            Entry<K, V>[] entries = mEntries;
-            int index = (cleared.mHash & 0x7fffffff) % entries.length;
-            for (Entry<K, V> e = entries[index], prev = null; e != null; e = e.mNext) {
-                if (e == cleared) {
-                    if (prev == null) {
-                        entries[index] = e.mNext;
-                    } else {
-                        prev.mNext = e.mNext;
+        /**
+         * Called by the evictor thread when an entry's value has been cleared.
+         */
+        void removeCleared(Entry<K, V> cleared) {
+            lock();
+            try {
+                AtomicReferenceArray<Entry<K, V>> table = mTable;
+                int index = cleared.mHash & (table.length() - 1);
+                for (Entry<K, V> e = table.get(index), prev = null; e != null; e = e.mNext) {
+                    if (e == cleared) {
+                        unlink(table, index, prev, e.mNext);
+                        mCount--;
+                        return;
                     }
-                    mSize--;
-                    return;
-                } else {
                     prev = e;
                 }
+                // Entry was already replaced, removed, or copied by a rehash.
+            } finally {
+                unlock();
             }
         }
 
-        private synchronized void cleanup() {
-            Entry<K, V>[] entries = mEntries;
+        // Caller must hold lock.
+        private void cleanup(AtomicReferenceArray<Entry<K, V>> table) {
             int removed = 0;
 
-            for (int i=entries.length; --i>=0 ;) {
-                for (Entry<K, V> e = entries[i], prev = null; e != null; e = e.mNext) {
+            for (int i=table.length(); --i>=0 ;) {
+                for (Entry<K, V> e = table.get(i), prev = null; e != null; e = e.mNext) {
                     if (e.get() == null) {
                         // Clean up after a cleared Reference.
-                        if (prev == null) {
-                            entries[i] = e.mNext;
-                        } else {
-                            prev.mNext = e.mNext;
-                        }
+                        unlink(table, i, prev, e.mNext);
                         removed++;
                     } else {
                         prev = e;
@@ -357,45 +397,67 @@ public abstract class SoftValuedCache<K, V> {
                 }
             }
 
-            mSize -= removed;
+            mCount -= removed;
         }
 
-        private synchronized void rehash() {
-            Entry<K, V>[] oldEntries = mEntries;
-            int newCapacity = oldEntries.length * 2 + 1;
-            Entry<K, V>[] newEntries = new Entry[newCapacity];
-            int removed = 0;
+        // Caller must hold lock.
+        private AtomicReferenceArray<Entry<K, V>> rehash
+            (AtomicReferenceArray<Entry<K, V>> oldTable)
+        {
+            int newCapacity = oldTable.length() << 1;
+            AtomicReferenceArray<Entry<K, V>> newTable =
+                new AtomicReferenceArray<Entry<K, V>>(newCapacity);
+            int count = 0;
 
-            for (int i=oldEntries.length; --i>=0 ;) {
-                for (Entry<K, V> old = oldEntries[i]; old != null; ) {
-                    Entry<K, V> e = old;
-                    old = old.mNext;
+            for (int i=oldTable.length(); --i>=0 ;) {
+                for (Entry<K, V> e = oldTable.get(i); e != null; e = e.mNext) {
+                    V value = e.get();
                     // Only copy entry if its value hasn't been cleared.
-                    if (e.get() == null) {
-                        removed++;
-                    } else {
-                        int index = (e.mHash & 0x7fffffff) % newCapacity;
-                        e.mNext = newEntries[index];
-                        newEntries[index] = e;
+                    if (value != null) {
+                        int index = e.mHash & (newCapacity - 1);
+                        newTable.set(index, new Entry<K, V>
+                                     (this, e.mHash, e.mKey, value, newTable.get(index)));
+                        count++;
                     }
                 }
             }
 
-            mEntries = newEntries;
-            mSize -= removed;
-            mThreshold = (int) (newCapacity * LOAD_FACTOR);
+            setTable(newTable);
+            mCount = count;
+            return newTable;
+        }
+
+        private void setTable(AtomicReferenceArray<Entry<K, V>> table) {
+            mThreshold = (int) (table.length() * LOAD_FACTOR);
+            mTable = table;
+        }
+
+        /**
+         * Replaces the link to the given entry's successor.
+         *
+         * @param prev entry before the one being replaced, or null if first
+         * @param replacement new successor of prev
+         */
+        private static <K, V> void unlink(AtomicReferenceArray<Entry<K, V>> table, int index,
+                                          Entry<K, V> prev, Entry<K, V> replacement)
+        {
+            if (prev == null) {
+                table.set(index, replacement);
+            } else {
+                prev.mNext = replacement;
+            }
         }
     }
 
     private static class Entry<K, V> extends Ref<V> {
-        final Impl<K, V> mCache;
+        final Segment<K, V> mSegment;
         final int mHash;
         final K mKey;
-        Entry mNext;
+        volatile Entry<K, V> mNext;
 
-        Entry(Impl<K, V> cache, int hash, K key, V value, Entry next) {
+        Entry(Segment<K, V> segment, int hash, K key, V value, Entry<K, V> next) {
             super(value);
-            mCache = cache;
+            mSegment = segment;
             mHash = hash;
             mKey = key;
             mNext = next;
@@ -403,7 +465,7 @@ public abstract class SoftValuedCache<K, V> {
 
         @Override
         void remove() {
-            mCache.removeCleared(this);
+            mSegment.removeCleared(this);
         }
 
         boolean matches(K key, int hash) {
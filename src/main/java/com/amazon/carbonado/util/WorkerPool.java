@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared pool of daemon threads for running background work, such as
+ * parallel scans and fetch-ahead cursors. The amount of threads is bounded,
+ * and tasks are never queued. If no thread is available, a task is rejected,
+ * and the caller is expected to run the work itself. This prevents deadlock
+ * when tasks wait on other tasks, or on a consumer which is itself waiting.
+ *
+ * <p>The following system properties are supported:
+ *
+ * <ul>
+ * <li>com.amazon.carbonado.util.WorkerPool.maxThreads (default is four times
+ * the amount of processors, and at least 16)
+ * <li>com.amazon.carbonado.util.WorkerPool.keepAliveSeconds (default is 60)
+ * </ul>
+ *
+ * @since 1.2
+ */
+public class WorkerPool {
+    private static final ThreadPoolExecutor cExecutor;
+
+    static {
+        int maxThreads = Integer.getInteger
+            ("com.amazon.carbonado.util.WorkerPool.maxThreads",
+             Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+        int keepAliveSeconds = Integer.getInteger
+            ("com.amazon.carbonado.util.WorkerPool.keepAliveSeconds", 60);
+
+        cExecutor = new ThreadPoolExecutor
+            (0, Math.max(1, maxThreads), keepAliveSeconds, TimeUnit.SECONDS,
+             new SynchronousQueue<Runnable>(), new TFactory());
+    }
+
+    /**
+     * Runs the given task in a pool thread, if one is available.
+     *
+     * @return false if task was not accepted
+     */
+    public static boolean tryExecute(Runnable task) {
+        try {
+            cExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the given task in a pool thread, if one is available.
+     *
+     * @return null if task was not accepted
+     */
+    public static <T> Future<T> trySubmit(Callable<T> task) {
+        try {
+            return cExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an estimate of the amount of tasks which can be accepted now.
+     */
+    public static int getAvailableThreadCount() {
+        return Math.max(0, cExecutor.getMaximumPoolSize() - cExecutor.getActiveCount());
+    }
+
+    private WorkerPool() {
+    }
+
+    private static class TFactory implements ThreadFactory {
+        private static int cCount;
+
+        private static synchronized int nextID() {
+            return ++cCount;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Carbonado-worker-" + nextID());
+            return t;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+
+import com.amazon.carbonado.repo.map.MapRepositoryBuilder;
+
+/**
+ * Compares a {@link BoundedSortBuffer} with a full {@link ArraySortBuffer}
+ * sort, when only the first few results of a large scan are read. Run as an
+ * application:
+ *
+ * <pre>
+ * java com.amazon.carbonado.cursor.TopNSortBenchmark [rows] [limit] [iterations]
+ * </pre>
+ *
+ * Defaults are 1,000,000 rows, a limit of 100 and 10 iterations.
+ */
+public class TopNSortBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int limit = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Repository repo = MapRepositoryBuilder.newRepository();
+        try {
+            Storage<Record> storage = repo.storageFor(Record.class);
+            Random rnd = new Random(1);
+            List<Record> records = new ArrayList<Record>(rows);
+            for (int i=0; i<rows; i++) {
+                Record rec = storage.prepare();
+                rec.setId(i);
+                rec.setValue(rnd.nextInt());
+                records.add(rec);
+            }
+
+            Comparator<Record> comparator =
+                SortedCursor.createComparator(Record.class, "value");
+
+            // Warm up.
+            for (int i=0; i<3; i++) {
+                sort(records, new ArraySortBuffer<Record>(), comparator, limit);
+                sort(records, new BoundedSortBuffer<Record>(limit), comparator, limit);
+            }
+
+            long full = 0, bounded = 0;
+            for (int i=0; i<iterations; i++) {
+                full += sort(records, new ArraySortBuffer<Record>(), comparator, limit);
+                bounded += sort(records, new BoundedSortBuffer<Record>(limit),
+                                comparator, limit);
+            }
+
+            System.out.println("Rows: " + rows + ", limit: " + limit);
+            System.out.println("Full sort:  " + (full / iterations / 1000000.0) + " ms");
+            System.out.println("Top-N sort: " + (bounded / iterations / 1000000.0) + " ms");
+        } finally {
+            repo.close();
+        }
+    }
+
+    /**
+     * @return nanoseconds to read the first results
+     */
+    private static long sort(List<Record> records, SortBuffer<Record> buffer,
+                             Comparator<Record> comparator, int limit)
+        throws Exception
+    {
+        long start = System.nanoTime();
+        Cursor<Record> cursor = new SortedCursor<Record>
+            (new IteratorCursor<Record>(records), buffer, null, comparator);
+        try {
+            int last = Integer.MIN_VALUE;
+            for (int i=0; i<limit; i++) {
+                int value = cursor.next().getValue();
+                if (value < last) {
+                    throw new AssertionError("Not sorted");
+                }
+                last = value;
+            }
+        } finally {
+            cursor.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    @PrimaryKey("id")
+    public static interface Record extends Storable {
+        int getId();
+        void setId(int id);
+
+        int getValue();
+        void setValue(int value);
+    }
+}
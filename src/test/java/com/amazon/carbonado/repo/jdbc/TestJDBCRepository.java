@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.amazon.carbonado.Alias;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+import com.amazon.carbonado.UniqueConstraintException;
+
+/**
+ * Tests for {@link JDBCRepository} write batching, using an in-memory H2
+ * database.
+ */
+public class TestJDBCRepository {
+    private static int cDatabaseCount;
+
+    private Connection mKeepAlive;
+    private Repository mRepo;
+
+    @Before
+    public void setUp() throws Exception {
+        String url = "jdbc:h2:mem:test" + (++cDatabaseCount);
+        Class.forName("org.h2.Driver");
+
+        // In-memory database is dropped when the last connection is closed.
+        mKeepAlive = DriverManager.getConnection(url, "sa", "");
+        Statement st = mKeepAlive.createStatement();
+        st.execute("CREATE TABLE TEST_RECORD (ID INT PRIMARY KEY, NAME VARCHAR(100) NOT NULL)");
+        st.close();
+
+        JDBCRepositoryBuilder builder = new JDBCRepositoryBuilder();
+        builder.setName("test");
+        builder.setDriverClassName("org.h2.Driver");
+        builder.setDriverURL(url);
+        builder.setUserName("sa");
+        builder.setPassword("");
+        builder.setSuppressReload(true, Record.class.getName());
+        builder.setWriteBatchSize(100);
+        mRepo = builder.build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mRepo != null) {
+            mRepo.close();
+        }
+        mKeepAlive.close();
+    }
+
+    @Test
+    public void tryInsertDuplicateInTransaction() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        newRecord(storage, 1, "one").insert();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 2, "two").insert();
+            assertFalse(newRecord(storage, 1, "uno").tryInsert());
+            assertTrue(newRecord(storage, 3, "three").tryInsert());
+            newRecord(storage, 4, "four").insert();
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(4, storage.query().count());
+        assertEquals("one", load(storage, 1).getName());
+    }
+
+    @Test
+    public void tryUpdateMissingInTransaction() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        newRecord(storage, 1, "one").insert();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 1, "uno").update();
+            assertFalse(newRecord(storage, 2, "two").tryUpdate());
+            assertTrue(newRecord(storage, 1, "eins").tryUpdate());
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals("eins", load(storage, 1).getName());
+        assertNull(load(storage, 2));
+    }
+
+    @Test
+    public void tryDeleteMissingInTransaction() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 1, "one").insert();
+            assertFalse(newRecord(storage, 2, "two").tryDelete());
+            assertTrue(newRecord(storage, 1, "one").tryDelete());
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(0, storage.query().count());
+    }
+
+    /**
+     * Inserts are queued, and so a failure is only reported when the batch
+     * executes.
+     */
+    @Test
+    public void queuedInsertFailsAtCommit() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        newRecord(storage, 1, "one").insert();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 2, "two").insert();
+            newRecord(storage, 1, "uno").insert();
+            try {
+                txn.commit();
+                fail();
+            } catch (PersistException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("uno"));
+            }
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(1, storage.query().count());
+        assertEquals("one", load(storage, 1).getName());
+    }
+
+    /**
+     * Failure of a queued insert must not be reported by tryInsert as a
+     * duplicate of the Storable being inserted.
+     */
+    @Test
+    public void queuedInsertFailsBeforeTryInsert() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        newRecord(storage, 1, "one").insert();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 1, "uno").insert();
+            try {
+                newRecord(storage, 2, "two").tryInsert();
+                fail();
+            } catch (UniqueConstraintException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("uno"));
+            }
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(1, storage.query().count());
+    }
+
+    private static Record newRecord(Storage<Record> storage, int id, String name) {
+        Record rec = storage.prepare();
+        rec.setId(id);
+        rec.setName(name);
+        return rec;
+    }
+
+    private static Record load(Storage<Record> storage, int id) throws Exception {
+        Record rec = storage.prepare();
+        rec.setId(id);
+        return rec.tryLoad() ? rec : null;
+    }
+
+    @PrimaryKey("id")
+    @Alias("TEST_RECORD")
+    public static interface Record extends Storable {
+        int getId();
+        void setId(int id);
+
+        String getName();
+        void setName(String name);
+    }
+}
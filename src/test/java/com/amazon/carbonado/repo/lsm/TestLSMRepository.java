@@ -0,0 +1,384 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.lsm;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Sequence;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.repo.sleepycat.CheckpointCapability;
+
+/**
+ * Tests for {@link LSMRepository}.
+ */
+public class TestLSMRepository {
+    private File mHome;
+    private Repository mRepo;
+
+    private File mCrashHome;
+
+    @Before
+    public void setUp() throws Exception {
+        mHome = createTempDir();
+        mRepo = open(mHome);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mRepo != null) {
+            mRepo.close();
+        }
+        delete(mHome);
+        if (mCrashHome != null) {
+            delete(mCrashHome);
+        }
+    }
+
+    @Test
+    public void insertLoadUpdateDelete() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        Record rec = storage.prepare();
+        rec.setId(1);
+        rec.setValue("one");
+        rec.insert();
+
+        assertFalse(newRecord(storage, 1, "uno").tryInsert());
+
+        rec = storage.prepare();
+        rec.setId(1);
+        rec.load();
+        assertEquals("one", rec.getValue());
+
+        rec.setValue("uno");
+        rec.update();
+        assertEquals("uno", load(storage, 1).getValue());
+
+        Record missing = storage.prepare();
+        missing.setId(2);
+        assertFalse(missing.tryLoad());
+        missing.setValue("two");
+        assertFalse(missing.tryUpdate());
+        assertFalse(missing.tryDelete());
+
+        assertTrue(rec.tryDelete());
+        assertNull(load(storage, 1));
+        assertEquals(0, storage.query().count());
+    }
+
+    @Test
+    public void transactionAbort() throws Exception {
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        newRecord(storage, 1, "one").insert();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 2, "two").insert();
+            Record rec = load(storage, 1);
+            rec.setValue("uno");
+            rec.update();
+
+            // Uncommitted changes are visible to the transaction.
+            assertEquals(2, storage.query().count());
+            assertEquals("uno", load(storage, 1).getValue());
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(1, storage.query().count());
+        assertEquals("one", load(storage, 1).getValue());
+    }
+
+    /**
+     * Range scans must merge the memtable with the flushed segments, with
+     * newer entries replacing older ones.
+     */
+    @Test
+    public void rangeScan() throws Exception {
+        CheckpointCapability cap = mRepo.getCapability(CheckpointCapability.class);
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        // Even ids are flushed to a segment, and odd ids stay in the memtable.
+        for (int i=0; i<1000; i+=2) {
+            newRecord(storage, i, "v" + i).insert();
+        }
+        cap.forceCheckpoint();
+        for (int i=1; i<1000; i+=2) {
+            newRecord(storage, i, "v" + i).insert();
+        }
+
+        // Delete and update flushed entries from the memtable.
+        for (int i=0; i<1000; i+=10) {
+            load(storage, i).delete();
+        }
+        for (int i=4; i<1000; i+=10) {
+            Record rec = load(storage, i);
+            rec.setValue("u" + i);
+            rec.update();
+        }
+
+        for (int pass=0; pass<2; pass++) {
+            int expected = 100;
+            Cursor<Record> c = storage.query("id >= ? & id < ?")
+                .with(100).with(200).orderBy("id").fetch();
+            while (c.hasNext()) {
+                Record rec = c.next();
+                if (expected % 10 == 0) {
+                    expected++;
+                }
+                assertEquals(expected, rec.getId());
+                String prefix = expected % 10 == 4 ? "u" : "v";
+                assertEquals(prefix + expected, rec.getValue());
+                expected++;
+            }
+            assertEquals(200, expected);
+
+            // Id 990 was deleted.
+            c = storage.query("id > ?").with(989).orderBy("-id").fetch();
+            expected = 999;
+            while (c.hasNext()) {
+                assertEquals(expected--, c.next().getId());
+            }
+            assertEquals(990, expected);
+
+            assertEquals(900, storage.query().count());
+
+            // Second pass scans after everything is flushed.
+            cap.forceCheckpoint();
+        }
+    }
+
+    /**
+     * Checkpoints which flush more segments than a tree allows must compact
+     * them, without losing any entries.
+     */
+    @Test
+    public void flushAndCompact() throws Exception {
+        CheckpointCapability cap = mRepo.getCapability(CheckpointCapability.class);
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        int segments = 0;
+        for (int round=0; round<10; round++) {
+            for (int i=0; i<100; i++) {
+                newRecord(storage, round * 100 + i, "v" + round).insert();
+            }
+            if (round > 0) {
+                // Replaces an entry from the first segment.
+                Record rec = load(storage, round);
+                rec.setValue("u" + round);
+                rec.update();
+            }
+            cap.forceCheckpoint();
+            if (round == 0) {
+                segments = countSegments(mHome);
+            }
+        }
+
+        // Only the record tree changes after the first round, and it never
+        // has more than four segments.
+        assertTrue(countSegments(mHome) <= segments + 3);
+
+        assertEquals(1000, storage.query().count());
+        Cursor<Record> c = storage.query().orderBy("id").fetch();
+        for (int i=0; i<1000; i++) {
+            Record rec = c.next();
+            assertEquals(i, rec.getId());
+            String expected = (i > 0 && i < 10) ? ("u" + i) : ("v" + (i / 100));
+            assertEquals(expected, rec.getValue());
+        }
+        assertFalse(c.hasNext());
+
+        // Segments are read back after reopening.
+        mRepo.close();
+        mRepo = open(mHome);
+        storage = mRepo.storageFor(Record.class);
+        assertEquals(1000, storage.query().count());
+        assertEquals("u5", load(storage, 5).getValue());
+    }
+
+    /**
+     * Committed changes are recovered from the segments and the log when the
+     * repository was not closed, but uncommitted changes are not.
+     */
+    @Test
+    public void recoverAfterCrash() throws Exception {
+        CheckpointCapability cap = mRepo.getCapability(CheckpointCapability.class);
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        for (int i=0; i<100; i++) {
+            newRecord(storage, i, "v" + i).insert();
+        }
+        cap.forceCheckpoint();
+
+        // Only in the log.
+        for (int i=100; i<200; i++) {
+            newRecord(storage, i, "v" + i).insert();
+        }
+        load(storage, 0).delete();
+        Record rec = load(storage, 1);
+        rec.setValue("u1");
+        rec.update();
+
+        Transaction txn = mRepo.enterTransaction();
+        try {
+            newRecord(storage, 200, "uncommitted").insert();
+            load(storage, 2).delete();
+
+            // Copy the files as they would be found after a crash.
+            cap.suspendCheckpointer(Long.MAX_VALUE);
+            mCrashHome = createTempDir();
+            copy(mHome, mCrashHome);
+        } finally {
+            txn.exit();
+        }
+
+        mRepo.close();
+        mRepo = open(mCrashHome);
+        storage = mRepo.storageFor(Record.class);
+
+        assertEquals(199, storage.query().count());
+        assertNull(load(storage, 0));
+        assertEquals("u1", load(storage, 1).getValue());
+        assertEquals("v2", load(storage, 2).getValue());
+        assertEquals("v199", load(storage, 199).getValue());
+        assertNull(load(storage, 200));
+
+        // Recovered repository is writable, and survives another reopen.
+        newRecord(storage, 200, "v200").insert();
+        mRepo.close();
+        mRepo = open(mCrashHome);
+        storage = mRepo.storageFor(Record.class);
+        assertEquals(200, storage.query().count());
+        assertEquals("v200", load(storage, 200).getValue());
+    }
+
+    /**
+     * Sequence values are allocated by a separate top-level transaction,
+     * which must not wait for the write lock held by the enclosing
+     * transaction.
+     */
+    @Test
+    public void sequenceInsertInWriteTransaction() throws Exception {
+        Storage<Item> storage = mRepo.storageFor(Item.class);
+
+        // Serializable transaction acquires the write lock when it begins.
+        Transaction txn = mRepo.enterTransaction(IsolationLevel.SERIALIZABLE);
+        try {
+            Item item = storage.prepare();
+            item.setName("first");
+            item.insert();
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        assertEquals(1, storage.query().count());
+    }
+
+    private static Repository open(File home) throws Exception {
+        LSMRepositoryBuilder builder = new LSMRepositoryBuilder();
+        builder.setName("test");
+        builder.setEnvironmentHomeFile(home);
+        builder.setLockTimeout(5, TimeUnit.SECONDS);
+        return builder.build();
+    }
+
+    private static Record newRecord(Storage<Record> storage, int id, String value) {
+        Record rec = storage.prepare();
+        rec.setId(id);
+        rec.setValue(value);
+        return rec;
+    }
+
+    private static Record load(Storage<Record> storage, int id) throws Exception {
+        Record rec = storage.prepare();
+        rec.setId(id);
+        return rec.tryLoad() ? rec : null;
+    }
+
+    private static int countSegments(File home) {
+        int count = 0;
+        for (String name : home.list()) {
+            if (name.endsWith(".seg")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("carbonado-lsm", null);
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        for (File f : from.listFiles()) {
+            Files.copy(f.toPath(), new File(to, f.getName()).toPath());
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    @PrimaryKey("id")
+    public static interface Item extends Storable {
+        @Sequence("TestLSMRepository.Item")
+        long getId();
+        void setId(long id);
+
+        String getName();
+        void setName(String name);
+    }
+
+    @PrimaryKey("id")
+    public static interface Record extends Storable {
+        int getId();
+        void setId(int id);
+
+        String getValue();
+        void setValue(String value);
+    }
+}
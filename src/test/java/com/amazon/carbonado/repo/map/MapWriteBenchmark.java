@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.util.Random;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+
+/**
+ * Measures write throughput of {@link MapRepository} as threads are added,
+ * comparing a single storage lock with striped locks. Each thread runs
+ * transactions which load, insert, update or delete a random storable from
+ * its own key range. Run as an application:
+ *
+ * <pre>
+ * java com.amazon.carbonado.repo.map.MapWriteBenchmark [seconds] [max threads] [stripes]
+ * </pre>
+ *
+ * Defaults are 5 seconds per run, 8 threads and 16 stripes.
+ */
+public class MapWriteBenchmark {
+    private static final int RANGE = 10000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int stripes = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        // Warm up generated classes and the JIT.
+        run(1, 1, 1);
+        run(stripes, maxThreads, 1);
+
+        System.out.println("threads  single lock  " + stripes + " stripes  (writes/sec)");
+        for (int threads=1; threads<=maxThreads; threads<<=1) {
+            long single = run(1, threads, seconds);
+            long striped = run(stripes, threads, seconds);
+            System.out.println(String.format("%7d  %11d  %10d", threads, single, striped));
+        }
+    }
+
+    /**
+     * @return writes per second
+     */
+    private static long run(int stripes, int threadCount, int seconds) throws Exception {
+        MapRepositoryBuilder builder = new MapRepositoryBuilder();
+        builder.setName("benchmark");
+        builder.setLockStripeCount(stripes);
+        builder.setLockTimeout(10, TimeUnit.SECONDS);
+        final Repository repo = builder.build();
+
+        try {
+            final Storage<Record> storage = repo.storageFor(Record.class);
+            final AtomicLong total = new AtomicLong();
+            final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+            Thread[] threads = new Thread[threadCount];
+            for (int t=0; t<threadCount; t++) {
+                final int thread = t;
+                threads[t] = new Thread() {
+                    public void run() {
+                        Random rnd = new Random(thread);
+                        long count = 0;
+                        try {
+                            while (System.nanoTime() < end) {
+                                write(repo, storage, thread * RANGE + rnd.nextInt(RANGE), rnd);
+                                count++;
+                            }
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                        total.addAndGet(count);
+                    }
+                };
+                threads[t].start();
+            }
+
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            return total.get() / seconds;
+        } finally {
+            repo.close();
+        }
+    }
+
+    private static void write(Repository repo, Storage<Record> storage, int id, Random rnd)
+        throws Exception
+    {
+        Transaction txn = repo.enterTransaction();
+        try {
+            Record rec = storage.prepare();
+            rec.setId(id);
+            if (!rec.tryLoad()) {
+                rec.setValue(rnd.nextInt());
+                rec.insert();
+            } else if (rnd.nextInt(4) == 0) {
+                rec.delete();
+            } else {
+                rec.setValue(rec.getValue() + 1);
+                rec.update();
+            }
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+    }
+
+    @PrimaryKey("id")
+    public static interface Record extends Storable {
+        int getId();
+        void setId(int id);
+
+        int getValue();
+        void setValue(int value);
+    }
+}
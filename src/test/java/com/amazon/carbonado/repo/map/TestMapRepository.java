@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.capability.Aggregate;
+import com.amazon.carbonado.capability.AggregateCapability;
+
+/**
+ * Tests for {@link MapRepository}.
+ */
+public class TestMapRepository {
+    private File mHome;
+    private Repository mRepo;
+
+    @Before
+    public void setUp() throws Exception {
+        mHome = File.createTempFile("carbonado-map", null);
+        mHome.delete();
+        mHome.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mRepo != null) {
+            mRepo.close();
+        }
+        delete(mHome);
+    }
+
+    /**
+     * Checkpoints copy values while transactions concurrently modify them,
+     * which must neither disturb the transactions nor lose any changes.
+     */
+    @Test
+    public void concurrentWritesWithCheckpoint() throws Exception {
+        mRepo = open(mHome, 50);
+        final Storage<Record> storage = mRepo.storageFor(Record.class);
+
+        final int threadCount = 4;
+        final int range = 100;
+        final int[][] expected = new int[threadCount][range];
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final long end = System.currentTimeMillis() + 2000;
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t=0; t<threadCount; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    Random rnd = new Random(thread);
+                    int[] values = expected[thread];
+                    try {
+                        while (System.currentTimeMillis() < end) {
+                            int id = thread * range + rnd.nextInt(range);
+                            Transaction txn = mRepo.enterTransaction();
+                            try {
+                                Record rec = storage.prepare();
+                                rec.setId(id);
+                                int value;
+                                if (!rec.tryLoad()) {
+                                    value = rnd.nextInt(1000) + 1;
+                                    rec.setValue(value);
+                                    rec.insert();
+                                } else if (rnd.nextInt(3) == 0) {
+                                    value = 0;
+                                    rec.delete();
+                                } else {
+                                    value = rec.getValue() + 1;
+                                    rec.setValue(value);
+                                    rec.update();
+                                }
+                                txn.commit();
+                                values[id - thread * range] = value;
+                            } finally {
+                                txn.exit();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+
+        verify(storage, expected);
+
+        mRepo.close();
+        mRepo = open(mHome, 0);
+        verify(mRepo.storageFor(Record.class), expected);
+    }
+
+    @Test
+    public void aggregate() throws Exception {
+        mRepo = MapRepositoryBuilder.newRepository();
+        Storage<Record> storage = mRepo.storageFor(Record.class);
+        for (int i=0; i<10; i++) {
+            Record rec = storage.prepare();
+            rec.setId(i);
+            rec.setValue(i % 3);
+            rec.insert();
+        }
+
+        AggregateCapability cap = mRepo.getCapability(AggregateCapability.class);
+        assertNotNull(cap);
+
+        Cursor<Object[]> c = cap.aggregate
+            (storage.query("id >= ?").with(1), new String[] {"value"},
+             Aggregate.count(), Aggregate.sum("id"), Aggregate.max("id"));
+        try {
+            // Values 0, 1 and 2 have ids {3, 6, 9}, {1, 4, 7} and {2, 5, 8}.
+            assertArrayEquals(new Object[] {0, 3L, 18L, 9}, c.next());
+            assertArrayEquals(new Object[] {1, 3L, 12L, 7}, c.next());
+            assertArrayEquals(new Object[] {2, 3L, 15L, 8}, c.next());
+            assertFalse(c.hasNext());
+        } finally {
+            c.close();
+        }
+    }
+
+    private static void verify(Storage<Record> storage, int[][] expected) throws Exception {
+        for (int t=0; t<expected.length; t++) {
+            int[] values = expected[t];
+            for (int i=0; i<values.length; i++) {
+                Record rec = storage.prepare();
+                rec.setId(t * values.length + i);
+                if (values[i] == 0) {
+                    assertFalse(rec.tryLoad());
+                } else {
+                    assertTrue(rec.tryLoad());
+                    assertEquals(values[i], rec.getValue());
+                }
+            }
+        }
+    }
+
+    private static Repository open(File home, int checkpointInterval) throws Exception {
+        MapRepositoryBuilder builder = new MapRepositoryBuilder();
+        builder.setName("test");
+        builder.setDataHomeFile(home);
+        builder.setCheckpointInterval(checkpointInterval);
+        builder.setLockTimeout(10, TimeUnit.SECONDS);
+        return builder.build();
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    @PrimaryKey("id")
+    public static interface Record extends Storable {
+        int getId();
+        void setId(int id);
+
+        int getValue();
+        void setValue(int value);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.map;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link UpgradableLock}.
+ */
+public class TestUpgradableLock {
+    /**
+     * A timed write lock request by the upgrade lock owner must wait for
+     * readers without changing the upgrade lock count.
+     */
+    @Test
+    public void timedWriteLockWaitsForReader() throws Exception {
+        final UpgradableLock<Object> lock = new UpgradableLock<Object>();
+        final Object owner = new Object();
+        final Object reader = new Object();
+
+        assertTrue(lock.tryLockForUpgrade(owner));
+
+        final CountDownLatch readLocked = new CountDownLatch(1);
+        Thread t = new Thread() {
+            public void run() {
+                lock.lockForRead(reader);
+                readLocked.countDown();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                lock.unlockFromRead(reader);
+            }
+        };
+        t.start();
+        readLocked.await();
+
+        assertTrue(lock.tryLockForWrite(owner, 10, TimeUnit.SECONDS));
+        t.join();
+
+        lock.unlockFromWrite(owner);
+        lock.unlockFromUpgrade(owner);
+        assertTrue(lock.noLocksHeld());
+    }
+
+    @Test
+    public void timedWriteLockWaitsForReaderWithoutUpgrade() throws Exception {
+        final UpgradableLock<Object> lock = new UpgradableLock<Object>();
+        final Object owner = new Object();
+        final Object reader = new Object();
+
+        final CountDownLatch readLocked = new CountDownLatch(1);
+        Thread t = new Thread() {
+            public void run() {
+                lock.lockForRead(reader);
+                readLocked.countDown();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                lock.unlockFromRead(reader);
+            }
+        };
+        t.start();
+        readLocked.await();
+
+        assertTrue(lock.tryLockForWrite(owner, 10, TimeUnit.SECONDS));
+        t.join();
+
+        lock.unlockFromWrite(owner);
+        assertTrue(lock.noLocksHeld());
+    }
+}
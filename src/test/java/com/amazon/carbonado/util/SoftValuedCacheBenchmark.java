@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.util;
+
+import java.util.Random;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cojen.util.SoftValueCache;
+
+/**
+ * Measures read-heavy throughput of {@link SoftValuedCache}, compared with
+ * Cojen's {@link SoftValueCache}, which it previously wrapped. Each thread
+ * looks up random keys, and replaces one in twenty of them. Run as an
+ * application:
+ *
+ * <pre>
+ * java com.amazon.carbonado.util.SoftValuedCacheBenchmark [seconds] [max threads]
+ * </pre>
+ *
+ * Defaults are 5 seconds per run and 8 threads.
+ */
+@SuppressWarnings("deprecation")
+public class SoftValuedCacheBenchmark {
+    private static final int KEYS = 10000;
+    private static final int WRITE_RATIO = 20;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        // Warm up the JIT.
+        run(new Current(), maxThreads, 1);
+        run(new Previous(), maxThreads, 1);
+
+        System.out.println("threads     previous      current  (operations/sec)");
+        for (int threads=1; threads<=maxThreads; threads<<=1) {
+            long previous = run(new Previous(), threads, seconds);
+            long current = run(new Current(), threads, seconds);
+            System.out.println(String.format("%7d  %11d  %11d", threads, previous, current));
+        }
+    }
+
+    /**
+     * @return operations per second
+     */
+    private static long run(final Cache cache, int threadCount, int seconds) throws Exception {
+        final Integer[] keys = new Integer[KEYS];
+        for (int i=0; i<KEYS; i++) {
+            keys[i] = i;
+            cache.put(keys[i], "v" + i);
+        }
+
+        final AtomicLong total = new AtomicLong();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t=0; t<threadCount; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    Random rnd = new Random(thread);
+                    long count = 0;
+                    while (System.nanoTime() < end) {
+                        // Check the time in batches, to keep it out of the measurement.
+                        for (int i=0; i<1000; i++) {
+                            Integer key = keys[rnd.nextInt(KEYS)];
+                            if (rnd.nextInt(WRITE_RATIO) == 0) {
+                                cache.put(key, "v" + key);
+                            } else {
+                                cache.get(key);
+                            }
+                        }
+                        count += 1000;
+                    }
+                    total.addAndGet(count);
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        return total.get() / seconds;
+    }
+
+    private static interface Cache {
+        String get(Integer key);
+
+        void put(Integer key, String value);
+    }
+
+    private static class Current implements Cache {
+        private final SoftValuedCache<Integer, String> mCache = SoftValuedCache.newCache(17);
+
+        public String get(Integer key) {
+            return mCache.get(key);
+        }
+
+        public void put(Integer key, String value) {
+            mCache.put(key, value);
+        }
+    }
+
+    private static class Previous implements Cache {
+        private final SoftValueCache<Integer, String> mCache =
+            new SoftValueCache<Integer, String>(17);
+
+        public String get(Integer key) {
+            return mCache.get(key);
+        }
+
+        public void put(Integer key, String value) {
+            mCache.put(key, value);
+        }
+    }
+}